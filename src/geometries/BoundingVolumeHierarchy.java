@@ -0,0 +1,1631 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import primitives.BoundingBox;
+import primitives.Double3;
+import primitives.Ray;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Class BoundingVolumeHierarchy is an acceleration structure over a set of bounded primitives.
+ * The primitives are organized in a binary tree of bounding boxes built with the
+ * surface area heuristic (SAH), by Morton codes (LBVH) or with spatial splits (SBVH), so a ray only
+ * tests the primitives whose boxes it passes through.
+ * The built tree is compiled into flat arrays in depth first order and traversed with an explicit stack,
+ * without recursion and without allocation. The flat arrays are stored in the shared {@link HierarchyCache}
+ * (if there is one), so the same primitives are not built again.
+ * The hierarchy knows the primitives only by their index and box - the subclasses intersect them
+ */
+abstract class BoundingVolumeHierarchy {
+    /**
+     * The maximal amount of primitives in a leaf node
+     */
+    private static final int MAX_LEAF_SIZE = 4;
+    /**
+     * The estimated cost of passing a ray through an inner node, relative to a primitive test
+     */
+    private static final double TRAVERSAL_COST = 1.0;
+    /**
+     * The estimated cost of intersecting a ray with a single primitive
+     */
+    private static final double INTERSECTION_COST = 1.0;
+
+    /**
+     * Node of the hierarchy while it is built - inner nodes have two children,
+     * leaf nodes hold a range of primitives in the order array
+     */
+    private static final class Node {
+        /**
+         * the bounding box of all the primitives under the node
+         */
+        final BoundingBox box;
+        /**
+         * the children of an inner node (null in a leaf)
+         */
+        Node left, right;
+        /**
+         * the range of primitives of a leaf node in the order array
+         */
+        int start, count;
+
+        /**
+         * Constructor for a node
+         *
+         * @param box the bounding box of the node
+         */
+        Node(BoundingBox box) {
+            this.box = box;
+        }
+    }
+
+    /**
+     * The indices of the primitives, ordered by the leaves of the tree - the packed primitive array
+     */
+    private final int[] order;
+    /**
+     * The bounding box of all the primitives (null if there are no primitives)
+     */
+    private BoundingBox box;
+    /**
+     * The bounds of the nodes of the compiled tree: minX, minY, minZ, maxX, maxY, maxZ of each node.
+     * The nodes are in depth first order - the left child of an inner node follows it
+     * (null if the bounds are stored in single precision)
+     */
+    private double[] nodeBounds;
+    /**
+     * The bounds of the nodes in single precision, rounded outwards so each box still contains its primitives
+     * (null if the bounds are stored in double precision)
+     */
+    private final float[] compactBounds;
+    /**
+     * The links of the nodes of the compiled tree, two per node: the index of the right child and 0 for an
+     * inner node, the first primitive in the order array and the amount of primitives for a leaf
+     */
+    private final int[] links;
+    /**
+     * The traversal stacks, per thread - deep enough for the deepest leaf
+     */
+    private final ThreadLocal<Traversal> traversals;
+    /**
+     * The statistics of the build
+     */
+    private final BuildStats stats;
+    /**
+     * The SAH cost of the built tree refitted to the whole boxes of its primitives - the baseline of the quality
+     * of the refitted trees. It is the SAH cost of the build, except for spatial splits: their leaves were
+     * built of the clipped parts of the primitives, which a refit doesn't know
+     */
+    private final double refitBaseline;
+    /**
+     * The kernel of the leaves of the subclasses that lay their primitives out as arrays
+     */
+    LeafKernel kernel = LeafKernel.SELECTED;
+
+    /**
+     * The stack of nodes of a traversal with the entry distances of the ray to their boxes,
+     * reused by all the traversals of a thread
+     */
+    private static final class Traversal {
+        /**
+         * the nodes to visit
+         */
+        final int[] nodes;
+        /**
+         * the entry distances of the ray to the boxes of the nodes to visit
+         */
+        final double[] distances;
+        /**
+         * the masks of the active rays of a packet at the nodes to visit
+         */
+        final long[] masks;
+        /**
+         * the marks of the primitives tested by the current ray - only if primitives are referenced
+         * from several leaves (null otherwise)
+         */
+        final Mailbox mailbox;
+        /**
+         * the distances of the primitives of a leaf to the ray, for the leaf kernels
+         */
+        final double[] lanes;
+        /**
+         * the amount of nodes visited and primitives tested by the closest hit queries of the thread
+         */
+        long steps = 0;
+
+        /**
+         * Constructor for a traversal stack
+         *
+         * @param depth      the maximal depth of the tree
+         * @param primitives the amount of primitives to mark, 0 if the primitives are referenced only once
+         * @param lanes      the length of the scratch array of the leaf kernels ({@link LeafKernel#lanes(int)})
+         */
+        Traversal(int depth, int primitives, int lanes) {
+            nodes = new int[depth + 1];
+            distances = new double[depth + 1];
+            masks = new long[depth + 1];
+            mailbox = primitives == 0 ? null : new Mailbox(primitives);
+            this.lanes = new double[lanes];
+        }
+    }
+
+    /**
+     * Clipper of primitives for the spatial splits - finds the bounds of the part of a primitive within a slab
+     */
+    @FunctionalInterface
+    interface Clipper {
+        /**
+         * Narrow a box to the bounds of the part of a primitive within a slab along an axis
+         *
+         * @param index the index of the primitive
+         * @param axis  the axis of the slab
+         * @param min   the lower border of the slab
+         * @param max   the upper border of the slab
+         * @param box   the box to narrow (already within the slab): minX, minY, minZ, maxX, maxY, maxZ
+         * @return false if no part of the primitive is within the box
+         */
+        boolean clip(int index, int axis, double min, double max, double[] box);
+    }
+
+    /**
+     * Constructor - builds the hierarchy over the given primitives with the surface area heuristic
+     *
+     * @param bounds the bounding boxes of the primitives, by their indices:
+     *               minX, minY, minZ, maxX, maxY, maxZ of each primitive
+     */
+    BoundingVolumeHierarchy(double[] bounds) {
+        this(bounds, Geometries.BuildStrategy.SAH);
+    }
+
+    /**
+     * Constructor - builds the hierarchy over the given primitives and compiles it into flat arrays
+     *
+     * @param bounds   the bounding boxes of the primitives, by their indices:
+     *                 minX, minY, minZ, maxX, maxY, maxZ of each primitive
+     * @param strategy the build strategy of the tree
+     */
+    BoundingVolumeHierarchy(double[] bounds, Geometries.BuildStrategy strategy) {
+        this(bounds, strategy, null);
+    }
+
+    /**
+     * Constructor - builds the hierarchy over the given primitives and compiles it into flat arrays
+     *
+     * @param bounds   the bounding boxes of the primitives, by their indices:
+     *                 minX, minY, minZ, maxX, maxY, maxZ of each primitive
+     * @param strategy the build strategy of the tree
+     * @param clipper  the clipper of the primitives for the spatial splits, null to clip their boxes only
+     */
+    BoundingVolumeHierarchy(double[] bounds, Geometries.BuildStrategy strategy, Clipper clipper) {
+        this(bounds, strategy, clipper, Geometries.Precision.DOUBLE);
+    }
+
+    /**
+     * Constructor - builds the hierarchy over the given primitives and compiles it into flat arrays
+     *
+     * @param bounds    the bounding boxes of the primitives, by their indices:
+     *                  minX, minY, minZ, maxX, maxY, maxZ of each primitive
+     * @param strategy  the build strategy of the tree
+     * @param clipper   the clipper of the primitives for the spatial splits, null to clip their boxes only
+     * @param precision the precision of the stored bounds of the nodes
+     */
+    BoundingVolumeHierarchy(double[] bounds, Geometries.BuildStrategy strategy, Clipper clipper,
+                            Geometries.Precision precision) {
+        long start = System.nanoTime();
+        int size = bounds.length / 6;
+        // the spatial splits depend on the shapes of the primitives, not only on their boxes
+        HierarchyCache cache = size == 0 || strategy == Geometries.BuildStrategy.SBVH ? null : HierarchyCache.getShared();
+        byte[] key = cache == null ? null : HierarchyCache.key(bounds, strategy);
+        HierarchyCache.Entry entry = cache == null ? null : cache.load(key, size);
+        boolean cached = entry != null;
+        if (!cached) {
+            int[] indices = new int[size];
+            for (int i = 0; i < size; ++i)
+                indices[i] = i;
+            Node root;
+            if (size == 0) root = null;
+            else if (strategy == Geometries.BuildStrategy.LBVH) root = new LinearBuilder(bounds, indices).build(0, size);
+            else if (strategy == Geometries.BuildStrategy.SBVH) {
+                SpatialBuilder builder = new SpatialBuilder(bounds, clipper);
+                root = builder.build();
+                indices = builder.getOrder();
+            } else {
+                Builder builder = new Builder(bounds, indices);
+                if (size < Builder.PARALLEL_THRESHOLD) root = builder.build(0, size);
+                else root = Builder.POOL.invoke(ForkJoinTask.adapt(() -> builder.build(0, size)));
+            }
+            order = indices;
+
+            int[] counts = new int[3];
+            double cost = root == null ? 0 : measure(root, 0, counts) / root.box.surfaceArea();
+            box = root == null ? null : root.box;
+            nodeBounds = new double[6 * counts[0]];
+            links = new int[2 * counts[0]];
+            if (root != null) compile(root, 0);
+            entry = new HierarchyCache.Entry(nodeBounds, links, order, counts[1], counts[2], cost);
+            if (cache != null) cache.store(key, size, entry);
+        } else {
+            order = entry.order();
+            nodeBounds = entry.nodeBounds();
+            links = entry.links();
+            box = new BoundingBox(nodeBounds[0], nodeBounds[1], nodeBounds[2], nodeBounds[3], nodeBounds[4], nodeBounds[5]);
+        }
+
+        refitBaseline = strategy == Geometries.BuildStrategy.SBVH && box != null
+                ? fit(bounds, new double[nodeBounds.length]) : entry.sahCost();
+
+        if (precision == Geometries.Precision.FLOAT) {
+            // the cache keeps the double bounds - the precision is a choice of the loader
+            compactBounds = new float[nodeBounds.length];
+            narrow(nodeBounds, compactBounds);
+            nodeBounds = null;
+        } else compactBounds = null;
+
+        int depth = entry.maxDepth();
+        int marks = order.length > size ? size : 0;
+        int leafSize = 0;
+        for (int node = 1; node < links.length; node += 2)
+            leafSize = Math.max(leafSize, links[node]);
+        int lanes = LeafKernel.lanes(leafSize);
+        traversals = ThreadLocal.withInitial(() -> new Traversal(depth, marks, lanes));
+        stats = new BuildStats(size, order.length, System.nanoTime() - start, links.length / 2, entry.leafCount(), depth,
+                entry.sahCost(), cached);
+    }
+
+    /**
+     * Recursively compile a sub-tree into the flat arrays in depth first order
+     *
+     * @param node  the root of the sub-tree
+     * @param index the index of the root in the flat arrays
+     * @return the index following the sub-tree
+     */
+    private int compile(Node node, int index) {
+        BoundingBox nodeBox = node.box;
+        int b = 6 * index;
+        nodeBounds[b] = nodeBox.minX;
+        nodeBounds[b + 1] = nodeBox.minY;
+        nodeBounds[b + 2] = nodeBox.minZ;
+        nodeBounds[b + 3] = nodeBox.maxX;
+        nodeBounds[b + 4] = nodeBox.maxY;
+        nodeBounds[b + 5] = nodeBox.maxZ;
+        if (node.left == null) {
+            links[2 * index] = node.start;
+            links[2 * index + 1] = node.count;
+            return index + 1;
+        }
+        int right = compile(node.left, index + 1);
+        links[2 * index] = right;
+        return compile(node.right, right);
+    }
+
+    /**
+     * Refit the tree to the new bounds of its primitives (after they moved) - the bounds of the nodes
+     * are updated bottom-up and the structure of the tree is kept. The refit must not run
+     * concurrently with queries
+     *
+     * @param bounds the new bounding boxes of the primitives, by their indices (the same primitives)
+     * @return the SAH cost of the refitted tree
+     */
+    double refit(double[] bounds) {
+        if (box == null) return 0;
+        double[] nodeBounds = compactBounds == null ? this.nodeBounds : widen(compactBounds);
+        double cost = fit(bounds, nodeBounds);
+        box = new BoundingBox(nodeBounds[0], nodeBounds[1], nodeBounds[2], nodeBounds[3], nodeBounds[4], nodeBounds[5]);
+        if (compactBounds != null) narrow(nodeBounds, compactBounds);
+        return cost;
+    }
+
+    /**
+     * Fit the bounds of the nodes of the tree to the bounds of its primitives bottom-up
+     *
+     * @param bounds     the bounding boxes of the primitives, by their indices
+     * @param nodeBounds the bounds of the nodes - filled by the method
+     * @return the SAH cost of the fitted tree
+     */
+    private double fit(double[] bounds, double[] nodeBounds) {
+        // the children follow their parent, so a reverse sweep visits them before it
+        for (int node = links.length / 2 - 1; node >= 0; --node) {
+            int b = 6 * node;
+            int count = links[2 * node + 1];
+            if (count > 0) {
+                for (int k = 0; k < 3; ++k) {
+                    nodeBounds[b + k] = Double.POSITIVE_INFINITY;
+                    nodeBounds[b + 3 + k] = Double.NEGATIVE_INFINITY;
+                }
+                for (int i = links[2 * node], end = i + count; i < end; ++i) {
+                    int p = 6 * order[i];
+                    for (int k = 0; k < 3; ++k) {
+                        nodeBounds[b + k] = Math.min(nodeBounds[b + k], bounds[p + k]);
+                        nodeBounds[b + 3 + k] = Math.max(nodeBounds[b + 3 + k], bounds[p + 3 + k]);
+                    }
+                }
+            } else {
+                int left = 6 * (node + 1), right = 6 * links[2 * node];
+                for (int k = 0; k < 3; ++k) {
+                    nodeBounds[b + k] = Math.min(nodeBounds[left + k], nodeBounds[right + k]);
+                    nodeBounds[b + 3 + k] = Math.max(nodeBounds[left + 3 + k], nodeBounds[right + 3 + k]);
+                }
+            }
+        }
+
+        double cost = 0;
+        for (int node = 0; node < links.length / 2; ++node) {
+            int count = links[2 * node + 1];
+            cost += area(nodeBounds, node) * (count > 0 ? count * INTERSECTION_COST : TRAVERSAL_COST);
+        }
+        return cost / area(nodeBounds, 0);
+    }
+
+    /**
+     * Round the bounds of the nodes to single precision outwards - the minimums down and the maximums up
+     *
+     * @param bounds  the bounds in double precision
+     * @param compact the bounds in single precision - filled by the method
+     */
+    private static void narrow(double[] bounds, float[] compact) {
+        for (int b = 0; b < bounds.length; b += 6)
+            for (int k = 0; k < 3; ++k) {
+                double min = bounds[b + k], max = bounds[b + 3 + k];
+                float low = (float) min, high = (float) max;
+                compact[b + k] = low > min ? Math.nextDown(low) : low;
+                compact[b + 3 + k] = high < max ? Math.nextUp(high) : high;
+            }
+    }
+
+    /**
+     * Widen bounds in single precision to double precision
+     *
+     * @param compact the bounds in single precision
+     * @return the bounds in double precision
+     */
+    private static double[] widen(float[] compact) {
+        double[] bounds = new double[compact.length];
+        for (int i = 0; i < compact.length; ++i)
+            bounds[i] = compact[i];
+        return bounds;
+    }
+
+    /**
+     * Calculate the surface area of the box of a node of the compiled tree
+     *
+     * @param nodeBounds the bounds of the nodes
+     * @param node       the index of the node
+     * @return the surface area
+     */
+    private static double area(double[] nodeBounds, int node) {
+        int b = 6 * node;
+        double dx = nodeBounds[b + 3] - nodeBounds[b], dy = nodeBounds[b + 4] - nodeBounds[b + 1];
+        double dz = nodeBounds[b + 5] - nodeBounds[b + 2];
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Find the distance along a ray at which it enters the box of a node
+     *
+     * @param ray         the ray
+     * @param node        the index of the node
+     * @param maxDistance the maximal distance along the ray
+     * @return the entry distance, or positive infinity if the ray doesn't pass through the box in range
+     */
+    private double entry(Ray ray, int node, double maxDistance) {
+        int b = 6 * node;
+        float[] compact = compactBounds;
+        if (compact != null)
+            return ray.findBoxEntryDistance(compact[b], compact[b + 1], compact[b + 2],
+                    compact[b + 3], compact[b + 4], compact[b + 5], maxDistance);
+        return ray.findBoxEntryDistance(nodeBounds[b], nodeBounds[b + 1], nodeBounds[b + 2],
+                nodeBounds[b + 3], nodeBounds[b + 4], nodeBounds[b + 5], maxDistance);
+    }
+
+    /**
+     * Get the bounding boxes of primitives as the flat bounds array of the hierarchy constructor
+     *
+     * @param boxes the bounding boxes of the primitives
+     * @return the bounds: minX, minY, minZ, maxX, maxY, maxZ of each primitive
+     */
+    static double[] toBounds(BoundingBox[] boxes) {
+        double[] bounds = new double[6 * boxes.length];
+        for (int i = 0; i < boxes.length; ++i) {
+            BoundingBox box = boxes[i];
+            bounds[6 * i] = box.minX;
+            bounds[6 * i + 1] = box.minY;
+            bounds[6 * i + 2] = box.minZ;
+            bounds[6 * i + 3] = box.maxX;
+            bounds[6 * i + 4] = box.maxY;
+            bounds[6 * i + 5] = box.maxZ;
+        }
+        return bounds;
+    }
+
+    /**
+     * The builder of the tree - binned SAH: the centers of the primitives of a node are distributed
+     * in BINS equal bins along each axis, and only the borders between the bins are evaluated as splits.
+     * Big sub-trees are built in parallel on the fork-join pool - they own disjoint ranges of the order array
+     */
+    private static final class Builder {
+        /**
+         * The amount of bins along an axis
+         */
+        private static final int BINS = 16;
+        /**
+         * The minimal amount of primitives in a sub-tree that is built as a separate task
+         */
+        private static final int PARALLEL_THRESHOLD = 4096;
+        /**
+         * The pool of the builds. The hierarchies are built lazily by the first ray, which may run on the
+         * common pool while its other workers wait for the same build - so the builds get their own workers
+         */
+        private static final ForkJoinPool POOL = new ForkJoinPool();
+
+        /**
+         * the bounds of the primitives: minX, minY, minZ, maxX, maxY, maxZ of each primitive
+         */
+        private final double[] bounds;
+        /**
+         * the centers of the bounds of the primitives: x, y, z of each primitive
+         */
+        private final double[] centers;
+        /**
+         * the indices of the primitives - reordered by the build
+         */
+        private final int[] order;
+
+        /**
+         * Constructor for the builder
+         *
+         * @param bounds the bounds of the primitives
+         * @param order  the indices of the primitives to reorder
+         */
+        Builder(double[] bounds, int[] order) {
+            this.bounds = bounds;
+            this.order = order;
+            centers = new double[order.length * 3];
+            for (int i = 0; i < order.length; ++i)
+                for (int axis = 0; axis < 3; ++axis)
+                    centers[3 * i + axis] = (bounds[6 * i + axis] + bounds[6 * i + 3 + axis]) / 2;
+        }
+
+        /**
+         * Recursively build the sub-tree of a range of primitives.
+         * The split with the minimal SAH cost among the bin borders of all the axes is chosen:
+         * TRAVERSAL_COST + (A_left * N_left + A_right * N_right) / A * INTERSECTION_COST
+         *
+         * @param start the first primitive of the range
+         * @param end   the end of the range (exclusive)
+         * @return the root of the sub-tree
+         */
+        Node build(int start, int end) {
+            // the box of the primitives and the box of their centers
+            double[] box = emptyBox(), centerBox = emptyBox();
+            for (int i = start; i < end; ++i) {
+                int primitive = order[i];
+                for (int axis = 0; axis < 3; ++axis) {
+                    box[axis] = Math.min(box[axis], bounds[6 * primitive + axis]);
+                    box[axis + 3] = Math.max(box[axis + 3], bounds[6 * primitive + 3 + axis]);
+                    double center = centers[3 * primitive + axis];
+                    centerBox[axis] = Math.min(centerBox[axis], center);
+                    centerBox[axis + 3] = Math.max(centerBox[axis + 3], center);
+                }
+            }
+            Node node = new Node(new BoundingBox(box[0], box[1], box[2], box[3], box[4], box[5]));
+            int count = end - start;
+            if (count == 1) return leaf(node, start, count);
+
+            // find the bin border with the minimal SAH cost over all the axes
+            int[] binCounts = new int[BINS], rightCounts = new int[BINS];
+            double[] binBoxes = new double[6 * BINS], rightAreas = new double[BINS];
+            double bestCost = Double.POSITIVE_INFINITY;
+            int bestAxis = -1, bestBin = -1;
+            for (int axis = 0; axis < 3; ++axis) {
+                double extent = centerBox[axis + 3] - centerBox[axis];
+                if (!(extent > 0)) continue;
+                double scale = BINS / extent;
+                Arrays.fill(binCounts, 0);
+                for (int b = 0; b < BINS; ++b)
+                    System.arraycopy(emptyBox(), 0, binBoxes, 6 * b, 6);
+                for (int i = start; i < end; ++i) {
+                    int primitive = order[i];
+                    int b = bin(centers[3 * primitive + axis], centerBox[axis], scale);
+                    ++binCounts[b];
+                    for (int k = 0; k < 3; ++k) {
+                        binBoxes[6 * b + k] = Math.min(binBoxes[6 * b + k], bounds[6 * primitive + k]);
+                        binBoxes[6 * b + 3 + k] = Math.max(binBoxes[6 * b + 3 + k], bounds[6 * primitive + 3 + k]);
+                    }
+                }
+                // sweep from the right - the area and the amount of the primitives of bins [b, BINS)
+                double[] right = emptyBox();
+                int rightCount = 0;
+                for (int b = BINS - 1; b > 0; --b) {
+                    grow(right, binBoxes, b);
+                    rightCount += binCounts[b];
+                    rightCounts[b] = rightCount;
+                    rightAreas[b] = area(right);
+                }
+                // sweep from the left - the primitives of bins [0, b)
+                double[] left = emptyBox();
+                int leftCount = 0;
+                for (int b = 1; b < BINS; ++b) {
+                    grow(left, binBoxes, b - 1);
+                    leftCount += binCounts[b - 1];
+                    if (leftCount == 0 || rightCounts[b] == 0) continue;
+                    double cost = area(left) * leftCount + rightAreas[b] * rightCounts[b];
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestAxis = axis;
+                        bestBin = b;
+                    }
+                }
+            }
+
+            int middle;
+            if (bestAxis == -1) {
+                // all the centers are at the same point - split the range in the middle
+                if (count <= MAX_LEAF_SIZE) return leaf(node, start, count);
+                middle = start + count / 2;
+            } else {
+                double cost = TRAVERSAL_COST + bestCost / area(box) * INTERSECTION_COST;
+                if (count <= MAX_LEAF_SIZE && !(cost < count * INTERSECTION_COST))
+                    return leaf(node, start, count);
+                middle = partition(start, end, bestAxis, bestBin, centerBox[bestAxis],
+                        BINS / (centerBox[bestAxis + 3] - centerBox[bestAxis]));
+            }
+
+            if (count >= PARALLEL_THRESHOLD) {
+                int split = middle;
+                ForkJoinTask<Node> left = ForkJoinTask.adapt(() -> build(start, split)).fork();
+                node.right = build(middle, end);
+                node.left = left.join();
+            } else {
+                node.left = build(start, middle);
+                node.right = build(middle, end);
+            }
+            return node;
+        }
+
+        /**
+         * Partition a range of primitives by a bin border - the primitives of the lower bins first
+         *
+         * @param start  the first primitive of the range
+         * @param end    the end of the range (exclusive)
+         * @param axis   the axis of the bins
+         * @param border the first bin of the upper part
+         * @param min    the minimal center along the axis
+         * @param scale  the amount of bins per unit of length
+         * @return the index of the first primitive of the upper part
+         */
+        private int partition(int start, int end, int axis, int border, double min, double scale) {
+            int i = start, j = end - 1;
+            while (i <= j) {
+                if (bin(centers[3 * order[i] + axis], min, scale) < border) ++i;
+                else {
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j--] = tmp;
+                }
+            }
+            return i;
+        }
+
+        /**
+         * Find the bin of a center
+         *
+         * @param center the center coordinate
+         * @param min    the minimal center
+         * @param scale  the amount of bins per unit of length
+         * @return the index of the bin
+         */
+        private static int bin(double center, double min, double scale) {
+            return Math.min(BINS - 1, (int) ((center - min) * scale));
+        }
+
+        /**
+         * Create an empty box: minX, minY, minZ, maxX, maxY, maxZ
+         *
+         * @return a box that grows to any box it is united with
+         */
+        private static double[] emptyBox() {
+            double inf = Double.POSITIVE_INFINITY;
+            return new double[]{inf, inf, inf, -inf, -inf, -inf};
+        }
+
+        /**
+         * Grow a box to contain a box from an array of boxes
+         *
+         * @param box   the box to grow
+         * @param boxes the array of boxes
+         * @param index the index of the box in the array
+         */
+        private static void grow(double[] box, double[] boxes, int index) {
+            for (int k = 0; k < 3; ++k) {
+                box[k] = Math.min(box[k], boxes[6 * index + k]);
+                box[k + 3] = Math.max(box[k + 3], boxes[6 * index + 3 + k]);
+            }
+        }
+
+        /**
+         * Calculate the surface area of a box
+         *
+         * @param box the box: minX, minY, minZ, maxX, maxY, maxZ
+         * @return the surface area
+         */
+        private static double area(double[] box) {
+            double dx = box[3] - box[0], dy = box[4] - box[1], dz = box[5] - box[2];
+            return 2 * (dx * dy + dy * dz + dz * dx);
+        }
+    }
+
+    /**
+     * The linear builder of the tree (LBVH): the primitives are sorted by the Morton code of their centers
+     * - the position along a Z-order curve through the box of the centers - and the tree is emitted
+     * in one pass over the sorted codes, splitting each range at the highest bit in which its codes differ.
+     * The boxes are united bottom-up, so no node scans its primitives. The tree is worse than a SAH tree,
+     * but the build is a fraction of the time - it fits scenes that are rebuilt every frame
+     */
+    private static final class LinearBuilder {
+        /**
+         * The amount of bits of a coordinate in a Morton code
+         */
+        private static final int BITS = 10;
+
+        /**
+         * the bounds of the primitives: minX, minY, minZ, maxX, maxY, maxZ of each primitive
+         */
+        private final double[] bounds;
+        /**
+         * the indices of the primitives - sorted by their codes
+         */
+        private final int[] order;
+        /**
+         * the Morton codes of the primitives, by their place in the order array
+         */
+        private final int[] codes;
+
+        /**
+         * Constructor for the builder - sorts the primitives by the Morton codes of their centers
+         *
+         * @param bounds the bounds of the primitives
+         * @param order  the indices of the primitives to reorder
+         */
+        LinearBuilder(double[] bounds, int[] order) {
+            this.bounds = bounds;
+            this.order = order;
+            int size = order.length;
+            double[] centerBox = Builder.emptyBox();
+            for (int i = 0; i < size; ++i)
+                for (int axis = 0; axis < 3; ++axis) {
+                    double center = (bounds[6 * i + axis] + bounds[6 * i + 3 + axis]) / 2;
+                    centerBox[axis] = Math.min(centerBox[axis], center);
+                    centerBox[axis + 3] = Math.max(centerBox[axis + 3], center);
+                }
+            double[] scale = new double[3];
+            for (int axis = 0; axis < 3; ++axis) {
+                double extent = centerBox[axis + 3] - centerBox[axis];
+                scale[axis] = extent > 0 ? ((1 << BITS) - 1) / extent : 0;
+            }
+
+            // sort the code and the index of each primitive together
+            long[] keys = new long[size];
+            for (int i = 0; i < size; ++i) {
+                int code = 0;
+                for (int axis = 0; axis < 3; ++axis) {
+                    double center = (bounds[6 * i + axis] + bounds[6 * i + 3 + axis]) / 2;
+                    code |= spread((int) ((center - centerBox[axis]) * scale[axis])) << (2 - axis);
+                }
+                keys[i] = (long) code << 32 | i;
+            }
+            Arrays.sort(keys);
+            codes = new int[size];
+            for (int i = 0; i < size; ++i) {
+                codes[i] = (int) (keys[i] >>> 32);
+                order[i] = (int) keys[i];
+            }
+        }
+
+        /**
+         * Spread the bits of a coordinate so there are two zero bits between each two of its bits
+         *
+         * @param value a coordinate of BITS bits
+         * @return the spread bits
+         */
+        private static int spread(int value) {
+            value = (value | value << 16) & 0x030000FF;
+            value = (value | value << 8) & 0x0300F00F;
+            value = (value | value << 4) & 0x030C30C3;
+            return (value | value << 2) & 0x09249249;
+        }
+
+        /**
+         * Recursively build the sub-tree of a range of sorted primitives
+         *
+         * @param start the first primitive of the range
+         * @param end   the end of the range (exclusive)
+         * @return the root of the sub-tree
+         */
+        Node build(int start, int end) {
+            int count = end - start;
+            if (count == 1) {
+                int primitive = order[start];
+                return leaf(new Node(new BoundingBox(bounds[6 * primitive], bounds[6 * primitive + 1],
+                        bounds[6 * primitive + 2], bounds[6 * primitive + 3], bounds[6 * primitive + 4],
+                        bounds[6 * primitive + 5])), start, count);
+            }
+            int middle = split(start, end);
+            Node left = build(start, middle);
+            Node right = build(middle, end);
+            Node node = new Node(left.box.union(right.box));
+            node.left = left;
+            node.right = right;
+            return node;
+        }
+
+        /**
+         * Find the split of a range of sorted primitives - the first primitive whose code has
+         * the highest differing bit of the range set. Primitives with the same code are split in the middle
+         *
+         * @param start the first primitive of the range
+         * @param end   the end of the range (exclusive)
+         * @return the index of the first primitive of the upper part
+         */
+        private int split(int start, int end) {
+            int first = codes[start];
+            int last = codes[end - 1];
+            if (first == last) return (start + end) >>> 1;
+            int prefix = Integer.numberOfLeadingZeros(first ^ last);
+            // binary search for the last primitive that shares more than the common prefix with the first
+            int low = start, high = end - 1;
+            while (high - low > 1) {
+                int middle = (low + high) >>> 1;
+                if (Integer.numberOfLeadingZeros(first ^ codes[middle]) > prefix) low = middle;
+                else high = middle;
+            }
+            return high;
+        }
+    }
+
+    /**
+     * The spatial split builder of the tree (SBVH): besides the binned SAH object splits, a node may be split
+     * by a plane through its box, and a primitive that crosses the plane is clipped and referenced from both
+     * sides. Spatial splits are tried only where the children of the best object split overlap, and
+     * the amount of extra references is capped by a memory budget. It fits meshes of long thin triangles,
+     * whose boxes overlap badly
+     */
+    private static final class SpatialBuilder {
+        /**
+         * The amount of bins along an axis
+         */
+        private static final int BINS = 16;
+        /**
+         * The maximal amount of extra references, relative to the amount of primitives
+         */
+        private static final double SPLIT_BUDGET = 0.5;
+        /**
+         * The minimal overlap of the children of an object split, relative to the area of the root,
+         * for trying a spatial split
+         */
+        private static final double MIN_OVERLAP = 1e-5;
+        /**
+         * The maximal depth of the tree - deeper nodes become leaves
+         */
+        private static final int MAX_DEPTH = 64;
+
+        /**
+         * the bounds of the primitives: minX, minY, minZ, maxX, maxY, maxZ of each primitive
+         */
+        private final double[] bounds;
+        /**
+         * the clipper of the primitives (null to clip their boxes only)
+         */
+        private final Clipper clipper;
+        /**
+         * the indices of the primitives referenced by the leaves, in the order of the leaves
+         */
+        private int[] order;
+        /**
+         * the amount of references in the order array
+         */
+        private int references = 0;
+        /**
+         * the amount of extra references left in the budget
+         */
+        private int budget;
+        /**
+         * the surface area of the box of all the primitives
+         */
+        private double rootArea;
+
+        /**
+         * Constructor for the builder
+         *
+         * @param bounds  the bounds of the primitives
+         * @param clipper the clipper of the primitives (null to clip their boxes only)
+         */
+        SpatialBuilder(double[] bounds, Clipper clipper) {
+            this.bounds = bounds;
+            this.clipper = clipper;
+            int size = bounds.length / 6;
+            order = new int[size];
+            budget = (int) (size * SPLIT_BUDGET);
+        }
+
+        /**
+         * Build the tree of all the primitives
+         *
+         * @return the root of the tree
+         */
+        Node build() {
+            int size = bounds.length / 6;
+            int[] primitives = new int[size];
+            for (int i = 0; i < size; ++i)
+                primitives[i] = i;
+            double[] box = Builder.emptyBox();
+            for (int i = 0; i < size; ++i)
+                unite(box, 0, bounds, 6 * i);
+            rootArea = Builder.area(box);
+            return build(primitives, bounds.clone(), size, 0);
+        }
+
+        /**
+         * Get the primitives referenced by the leaves of the tree
+         *
+         * @return the indices of the primitives, in the order of the leaves
+         */
+        int[] getOrder() {
+            return Arrays.copyOf(order, references);
+        }
+
+        /**
+         * Recursively build the sub-tree of a set of references
+         *
+         * @param primitives the referenced primitives
+         * @param refs       the (clipped) bounds of the references: 6 per reference
+         * @param count      the amount of references
+         * @param depth      the depth of the node
+         * @return the root of the sub-tree
+         */
+        private Node build(int[] primitives, double[] refs, int count, int depth) {
+            double[] box = Builder.emptyBox(), centerBox = Builder.emptyBox();
+            for (int i = 0; i < count; ++i) {
+                unite(box, 0, refs, 6 * i);
+                for (int axis = 0; axis < 3; ++axis) {
+                    double center = (refs[6 * i + axis] + refs[6 * i + 3 + axis]) / 2;
+                    centerBox[axis] = Math.min(centerBox[axis], center);
+                    centerBox[axis + 3] = Math.max(centerBox[axis + 3], center);
+                }
+            }
+            Node node = new Node(new BoundingBox(box[0], box[1], box[2], box[3], box[4], box[5]));
+            if (count == 1 || depth >= MAX_DEPTH) return leaf(node, primitives, count);
+
+            // the best object split - by the centers of the references
+            double objectCost = Double.POSITIVE_INFINITY;
+            int objectAxis = -1, objectBin = -1;
+            double[] objectLeft = null, objectRight = null;
+            int[] binCounts = new int[BINS], exits = new int[BINS];
+            double[] binBoxes = new double[6 * BINS], rightBoxes = new double[6 * BINS];
+            for (int axis = 0; axis < 3; ++axis) {
+                double extent = centerBox[axis + 3] - centerBox[axis];
+                if (!(extent > 0)) continue;
+                double scale = BINS / extent;
+                Arrays.fill(binCounts, 0);
+                clear(binBoxes);
+                for (int i = 0; i < count; ++i) {
+                    int b = Builder.bin((refs[6 * i + axis] + refs[6 * i + 3 + axis]) / 2, centerBox[axis], scale);
+                    ++binCounts[b];
+                    unite(binBoxes, 6 * b, refs, 6 * i);
+                }
+                int[] rightCounts = sweepRight(binBoxes, binCounts, rightBoxes);
+                double[] left = Builder.emptyBox();
+                int leftCount = 0;
+                for (int b = 1; b < BINS; ++b) {
+                    unite(left, 0, binBoxes, 6 * (b - 1));
+                    leftCount += binCounts[b - 1];
+                    if (leftCount == 0 || rightCounts[b] == 0) continue;
+                    double cost = Builder.area(left) * leftCount + area(rightBoxes, 6 * b) * rightCounts[b];
+                    if (cost < objectCost) {
+                        objectCost = cost;
+                        objectAxis = axis;
+                        objectBin = b;
+                        objectLeft = left.clone();
+                        objectRight = Arrays.copyOfRange(rightBoxes, 6 * b, 6 * b + 6);
+                    }
+                }
+            }
+
+            // the best spatial split - only where the children of the object split overlap
+            double spatialCost = Double.POSITIVE_INFINITY;
+            int spatialAxis = -1;
+            double spatialPlane = 0;
+            if (budget > 0 && (objectAxis == -1 || overlap(objectLeft, objectRight) > MIN_OVERLAP * rootArea)) {
+                double[] part = new double[6];
+                for (int axis = 0; axis < 3; ++axis) {
+                    double extent = box[axis + 3] - box[axis];
+                    if (!(extent > 0)) continue;
+                    double width = extent / BINS;
+                    Arrays.fill(binCounts, 0);
+                    Arrays.fill(exits, 0);
+                    clear(binBoxes);
+                    for (int i = 0; i < count; ++i) {
+                        int first = spatialBin(refs[6 * i + axis], box[axis], width);
+                        int last = spatialBin(refs[6 * i + 3 + axis], box[axis], width);
+                        ++binCounts[first];
+                        ++exits[last];
+                        for (int b = first; b <= last; ++b) {
+                            double min = box[axis] + b * width, max = b == BINS - 1 ? box[axis + 3] : min + width;
+                            if (clip(primitives[i], refs, 6 * i, axis, min, max, part))
+                                unite(binBoxes, 6 * b, part, 0);
+                        }
+                    }
+                    int[] rightCounts = sweepRight(binBoxes, exits, rightBoxes);
+                    double[] left = Builder.emptyBox();
+                    int leftCount = 0;
+                    for (int b = 1; b < BINS; ++b) {
+                        unite(left, 0, binBoxes, 6 * (b - 1));
+                        leftCount += binCounts[b - 1];
+                        if (leftCount == 0 || rightCounts[b] == 0) continue;
+                        double cost = Builder.area(left) * leftCount + area(rightBoxes, 6 * b) * rightCounts[b];
+                        if (cost < spatialCost) {
+                            spatialCost = cost;
+                            spatialAxis = axis;
+                            spatialPlane = box[axis] + b * width;
+                        }
+                    }
+                }
+            }
+
+            double bestCost = Math.min(objectCost, spatialCost);
+            if (count <= MAX_LEAF_SIZE && !(TRAVERSAL_COST + bestCost / Builder.area(box) * INTERSECTION_COST
+                    < count * INTERSECTION_COST))
+                return leaf(node, primitives, count);
+
+            // distribute the references to the children
+            int[] leftPrimitives = new int[count], rightPrimitives = new int[count];
+            double[] leftRefs = new double[6 * count], rightRefs = new double[6 * count];
+            int leftCount = 0, rightCount = 0;
+            if (spatialCost < objectCost) {
+                double[] part = new double[6];
+                for (int i = 0; i < count; ++i) {
+                    double low = refs[6 * i + spatialAxis], high = refs[6 * i + 3 + spatialAxis];
+                    boolean toLeft, toRight;
+                    if (high <= spatialPlane) {
+                        toLeft = true;
+                        toRight = false;
+                    } else if (low >= spatialPlane) {
+                        toLeft = false;
+                        toRight = true;
+                    } else if (budget > 0) {
+                        toLeft = toRight = true;
+                    } else {
+                        toLeft = (low + high) / 2 < spatialPlane;
+                        toRight = !toLeft;
+                    }
+                    if (toLeft && toRight) {
+                        boolean inLeft = clip(primitives[i], refs, 6 * i, spatialAxis, low, spatialPlane, part);
+                        if (inLeft) {
+                            leftPrimitives[leftCount] = primitives[i];
+                            System.arraycopy(part, 0, leftRefs, 6 * leftCount++, 6);
+                        }
+                        boolean inRight = clip(primitives[i], refs, 6 * i, spatialAxis, spatialPlane, high, part);
+                        if (inRight) {
+                            rightPrimitives[rightCount] = primitives[i];
+                            System.arraycopy(part, 0, rightRefs, 6 * rightCount++, 6);
+                        }
+                        if (inLeft && inRight) --budget;
+                    } else if (toLeft) {
+                        leftPrimitives[leftCount] = primitives[i];
+                        System.arraycopy(refs, 6 * i, leftRefs, 6 * leftCount++, 6);
+                    } else {
+                        rightPrimitives[rightCount] = primitives[i];
+                        System.arraycopy(refs, 6 * i, rightRefs, 6 * rightCount++, 6);
+                    }
+                }
+            }
+            if (leftCount == 0 || rightCount == 0) {
+                // an object split - by the bins of the centers, or in the middle if all the centers are the same
+                leftCount = rightCount = 0;
+                double scale = objectAxis == -1 ? 0 : BINS / (centerBox[objectAxis + 3] - centerBox[objectAxis]);
+                for (int i = 0; i < count; ++i) {
+                    boolean toLeft = objectAxis == -1 ? i < count / 2
+                            : Builder.bin((refs[6 * i + objectAxis] + refs[6 * i + 3 + objectAxis]) / 2,
+                            centerBox[objectAxis], scale) < objectBin;
+                    if (toLeft) {
+                        leftPrimitives[leftCount] = primitives[i];
+                        System.arraycopy(refs, 6 * i, leftRefs, 6 * leftCount++, 6);
+                    } else {
+                        rightPrimitives[rightCount] = primitives[i];
+                        System.arraycopy(refs, 6 * i, rightRefs, 6 * rightCount++, 6);
+                    }
+                }
+            }
+
+            node.left = build(leftPrimitives, leftRefs, leftCount, depth + 1);
+            node.right = build(rightPrimitives, rightRefs, rightCount, depth + 1);
+            return node;
+        }
+
+        /**
+         * Turn a node into a leaf of references - appended to the order array
+         *
+         * @param node       the node
+         * @param primitives the referenced primitives
+         * @param count      the amount of references
+         * @return the node
+         */
+        private Node leaf(Node node, int[] primitives, int count) {
+            if (references + count > order.length)
+                order = Arrays.copyOf(order, Math.max(2 * order.length, references + count));
+            System.arraycopy(primitives, 0, order, references, count);
+            BoundingVolumeHierarchy.leaf(node, references, count);
+            references += count;
+            return node;
+        }
+
+        /**
+         * Find the bounds of the part of a reference within a slab
+         *
+         * @param primitive the referenced primitive
+         * @param refs      the bounds of the references
+         * @param offset    the offset of the bounds of the reference
+         * @param axis      the axis of the slab
+         * @param min       the lower border of the slab
+         * @param max       the upper border of the slab
+         * @param part      the bounds of the part - filled
+         * @return false if no part of the reference is within the slab
+         */
+        private boolean clip(int primitive, double[] refs, int offset, int axis, double min, double max, double[] part) {
+            System.arraycopy(refs, offset, part, 0, 6);
+            part[axis] = Math.max(part[axis], min);
+            part[axis + 3] = Math.min(part[axis + 3], max);
+            if (part[axis] > part[axis + 3]) return false;
+            return clipper == null || clipper.clip(primitive, axis, min, max, part);
+        }
+
+        /**
+         * Sweep the bins from the right - the boxes and the amounts of the references of bins [b, BINS)
+         *
+         * @param binBoxes   the boxes of the bins
+         * @param binCounts  the amounts of the references that end in each bin
+         * @param rightBoxes the boxes of the bins [b, BINS) - filled
+         * @return the amounts of the references of the bins [b, BINS)
+         */
+        private static int[] sweepRight(double[] binBoxes, int[] binCounts, double[] rightBoxes) {
+            int[] rightCounts = new int[BINS];
+            double[] right = Builder.emptyBox();
+            int rightCount = 0;
+            for (int b = BINS - 1; b > 0; --b) {
+                unite(right, 0, binBoxes, 6 * b);
+                rightCount += binCounts[b];
+                rightCounts[b] = rightCount;
+                System.arraycopy(right, 0, rightBoxes, 6 * b, 6);
+            }
+            return rightCounts;
+        }
+
+        /**
+         * Find the bin of a coordinate among equal bins over a range
+         *
+         * @param value the coordinate
+         * @param min   the start of the range
+         * @param width the width of a bin
+         * @return the index of the bin
+         */
+        private static int spatialBin(double value, double min, double width) {
+            return Math.max(0, Math.min(BINS - 1, (int) ((value - min) / width)));
+        }
+
+        /**
+         * Grow a box to contain another box
+         *
+         * @param target       the array of the box to grow
+         * @param targetOffset the offset of the box to grow
+         * @param source       the array of the contained box
+         * @param sourceOffset the offset of the contained box
+         */
+        private static void unite(double[] target, int targetOffset, double[] source, int sourceOffset) {
+            for (int k = 0; k < 3; ++k) {
+                target[targetOffset + k] = Math.min(target[targetOffset + k], source[sourceOffset + k]);
+                target[targetOffset + 3 + k] = Math.max(target[targetOffset + 3 + k], source[sourceOffset + 3 + k]);
+            }
+        }
+
+        /**
+         * Empty all the boxes of an array
+         *
+         * @param boxes the boxes
+         */
+        private static void clear(double[] boxes) {
+            for (int i = 0; i < boxes.length; i += 6)
+                System.arraycopy(Builder.emptyBox(), 0, boxes, i, 6);
+        }
+
+        /**
+         * Calculate the surface area of a box in an array of boxes (0 for an empty box)
+         *
+         * @param boxes  the boxes
+         * @param offset the offset of the box
+         * @return the surface area
+         */
+        private static double area(double[] boxes, int offset) {
+            double dx = boxes[offset + 3] - boxes[offset], dy = boxes[offset + 4] - boxes[offset + 1];
+            double dz = boxes[offset + 5] - boxes[offset + 2];
+            return dx < 0 ? 0 : 2 * (dx * dy + dy * dz + dz * dx);
+        }
+
+        /**
+         * Calculate the surface area of the overlap of two boxes
+         *
+         * @param a a box
+         * @param b another box
+         * @return the surface area of their intersection, 0 if they don't overlap
+         */
+        private static double overlap(double[] a, double[] b) {
+            double[] common = new double[6];
+            for (int k = 0; k < 3; ++k) {
+                common[k] = Math.max(a[k], b[k]);
+                common[k + 3] = Math.min(a[k + 3], b[k + 3]);
+                if (common[k] > common[k + 3]) return 0;
+            }
+            return Builder.area(common);
+        }
+    }
+
+    /**
+     * Narrow a box to the bounds of the part of a convex polygon within a slab along an axis
+     * (Sutherland-Hodgman clipping by the two planes of the slab) - a clipper of polygonal primitives
+     *
+     * @param polygon the vertices of the polygon: x, y, z of each vertex
+     * @param axis    the axis of the slab
+     * @param min     the lower border of the slab
+     * @param max     the upper border of the slab
+     * @param box     the box to narrow: minX, minY, minZ, maxX, maxY, maxZ
+     * @return false if no part of the polygon is within the box
+     */
+    static boolean clipPolygon(double[] polygon, int axis, double min, double max, double[] box) {
+        double[] clipped = clipPolygon(clipPolygon(polygon, axis, min, true), axis, max, false);
+        if (clipped.length == 0) return false;
+        for (int k = 0; k < 3; ++k) {
+            double low = Double.POSITIVE_INFINITY, high = Double.NEGATIVE_INFINITY;
+            for (int v = k; v < clipped.length; v += 3) {
+                low = Math.min(low, clipped[v]);
+                high = Math.max(high, clipped[v]);
+            }
+            box[k] = Math.max(box[k], low);
+            box[k + 3] = Math.min(box[k + 3], high);
+            if (box[k] > box[k + 3]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Clip a convex polygon by a plane orthogonal to an axis
+     *
+     * @param polygon the vertices of the polygon: x, y, z of each vertex
+     * @param axis    the axis of the plane
+     * @param value   the coordinate of the plane along the axis
+     * @param above   true to keep the part above the plane, false to keep the part below it
+     * @return the vertices of the clipped polygon (empty if nothing is left)
+     */
+    private static double[] clipPolygon(double[] polygon, int axis, double value, boolean above) {
+        int n = polygon.length / 3;
+        double[] clipped = new double[3 * (n + 1)];
+        int m = 0;
+        for (int i = 0; i < n; ++i) {
+            int j = (i + 1) % n;
+            double a = polygon[3 * i + axis], b = polygon[3 * j + axis];
+            boolean inA = above ? a >= value : a <= value, inB = above ? b >= value : b <= value;
+            if (inA) {
+                System.arraycopy(polygon, 3 * i, clipped, 3 * m++, 3);
+            }
+            if (inA != inB) {
+                double t = (value - a) / (b - a);
+                for (int k = 0; k < 3; ++k)
+                    clipped[3 * m + k] = polygon[3 * i + k] + t * (polygon[3 * j + k] - polygon[3 * i + k]);
+                clipped[3 * m++ + axis] = value;
+            }
+        }
+        return Arrays.copyOf(clipped, 3 * m);
+    }
+
+    /**
+     * Turn a node into a leaf of a range of primitives
+     *
+     * @param node  the node
+     * @param start the first primitive of the leaf
+     * @param count the amount of primitives in the leaf
+     * @return the node
+     */
+    private static Node leaf(Node node, int start, int count) {
+        node.start = start;
+        node.count = count;
+        return node;
+    }
+
+    /**
+     * Recursively measure a sub-tree: count its nodes, leaves and depth, and sum its SAH cost
+     *
+     * @param node   the root of the sub-tree
+     * @param depth  the depth of the node
+     * @param counts the amount of nodes, the amount of leaves and the maximal depth - updated by the sub-tree
+     * @return the SAH cost of the sub-tree, not normalized by the area of the root
+     */
+    private static double measure(Node node, int depth, int[] counts) {
+        ++counts[0];
+        double area = node.box.surfaceArea();
+        if (node.left == null) {
+            ++counts[1];
+            counts[2] = Math.max(counts[2], depth);
+            return area * node.count * INTERSECTION_COST;
+        }
+        return area * TRAVERSAL_COST + measure(node.left, depth + 1, counts) + measure(node.right, depth + 1, counts);
+    }
+
+    /**
+     * Get the statistics of the build of the hierarchy
+     *
+     * @return the build statistics
+     */
+    BuildStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Get the SAH cost that a refitted tree is compared with - the cost of the built tree refitted to the whole
+     * boxes of its primitives (the cost of the build, unless the tree has spatial splits)
+     *
+     * @return the baseline SAH cost of the refits
+     */
+    double getRefitBaseline() {
+        return refitBaseline;
+    }
+
+    /**
+     * Get the bounding box of all the primitives in the hierarchy
+     *
+     * @return the bounding box, or null if there are no primitives
+     */
+    BoundingBox getBoundingBox() {
+        return box;
+    }
+
+    /**
+     * Find the GeoIntersections of a primitive with a ray
+     *
+     * @param index       the index of the primitive
+     * @param ray         the ray to find the intersections with
+     * @param maxDistance the maximum distance to find the intersections
+     * @return list of the intersections points, or null if there are none
+     */
+    protected abstract List<GeoPoint> findPrimitiveIntersections(int index, Ray ray, double maxDistance);
+
+    /**
+     * Find the closest intersection of a primitive with a ray into a hit record
+     *
+     * @param index the index of the primitive
+     * @param ray   the ray to find the intersection with
+     * @param hit   the record of the closest hit found so far - updated if a closer hit is found
+     * @return true if a closer hit was found and recorded
+     */
+    protected abstract boolean intersectPrimitive(int index, Ray ray, HitRecord hit);
+
+    /**
+     * Find the closest intersection of the primitives of a leaf with a ray into a hit record -
+     * by default each primitive on its own. The subclasses that lay their primitives out as arrays
+     * in the leaves order test the whole leaf at once with the hierarchy's {@link LeafKernel}
+     *
+     * @param first the position of the first primitive of the leaf in the order of the leaves
+     * @param count the amount of primitives of the leaf
+     * @param ray   the ray to find the intersection with
+     * @param hit   the record of the closest hit found so far - updated if a closer hit is found
+     * @param lanes the scratch array of the distances of the primitives of the leaf (at least count long)
+     * @return true if a closer hit was found and recorded
+     */
+    protected boolean intersectLeaf(int first, int count, Ray ray, HitRecord hit, double[] lanes) {
+        boolean found = false;
+        for (int i = first, end = first + count; i < end; ++i)
+            if (intersectPrimitive(order[i], ray, hit))
+                found = true;
+        return found;
+    }
+
+    /**
+     * Find the closest intersections of the primitives of a leaf with the active rays of a packet into their
+     * hit records - by default each primitive with the whole packet (a primitive that is a hierarchy itself
+     * carries the packet on down its own tree). The subclasses that test their leaves with the hierarchy's
+     * {@link LeafKernel} send each ray through the kernel with {@link #intersectLeafByRay}
+     *
+     * @param first  the position of the first primitive of the leaf in the order of the leaves
+     * @param count  the amount of primitives of the leaf
+     * @param rays   the rays of the packet
+     * @param hits   the records of the closest hits found so far, by the indices of the rays - updated
+     * @param active the mask of the active rays (bit i for the ray i)
+     * @param lanes  the scratch array of the distances of the primitives of the leaf (at least count long)
+     * @return the mask of the rays for which a closer hit was found and recorded
+     */
+    protected long intersectLeaf(int first, int count, Ray[] rays, HitRecord[] hits, long active, double[] lanes) {
+        long found = 0;
+        for (int i = first, end = first + count; i < end; ++i)
+            found |= intersectPrimitive(order[i], rays, hits, active);
+        return found;
+    }
+
+    /**
+     * Find the closest intersections of the primitives of a leaf with the active rays of a packet,
+     * each ray on its own through {@link #intersectLeaf(int, int, Ray, HitRecord, double[])}
+     *
+     * @param first  the position of the first primitive of the leaf in the order of the leaves
+     * @param count  the amount of primitives of the leaf
+     * @param rays   the rays of the packet
+     * @param hits   the records of the closest hits found so far, by the indices of the rays - updated
+     * @param active the mask of the active rays (bit i for the ray i)
+     * @param lanes  the scratch array of the distances of the primitives of the leaf (at least count long)
+     * @return the mask of the rays for which a closer hit was found and recorded
+     */
+    final long intersectLeafByRay(int first, int count, Ray[] rays, HitRecord[] hits, long active, double[] lanes) {
+        long found = 0;
+        for (long mask = active; mask != 0; mask &= mask - 1) {
+            int i = Long.numberOfTrailingZeros(mask);
+            if (intersectLeaf(first, count, rays[i], hits[i], lanes)) found |= 1L << i;
+        }
+        return found;
+    }
+
+    /**
+     * Get the index of the primitive at a position in the order of the leaves
+     *
+     * @param position the position
+     * @return the index of the primitive
+     */
+    int primitiveAt(int position) {
+        return order[position];
+    }
+
+    /**
+     * Get the amount of positions in the order of the leaves (more than the primitives if primitives are
+     * referenced from several leaves)
+     *
+     * @return the amount of positions
+     */
+    int positionCount() {
+        return order.length;
+    }
+
+    /**
+     * Find the closest intersections of a primitive with the active rays of a packet into their hit records -
+     * by default each ray on its own
+     *
+     * @param index  the index of the primitive
+     * @param rays   the rays of the packet
+     * @param hits   the records of the closest hits found so far, by the indices of the rays
+     * @param active the mask of the active rays (bit i for the ray i)
+     * @return the mask of the rays for which a closer hit was found and recorded
+     */
+    protected long intersectPrimitive(int index, Ray[] rays, HitRecord[] hits, long active) {
+        long found = 0;
+        for (long mask = active; mask != 0; mask &= mask - 1) {
+            int i = Long.numberOfTrailingZeros(mask);
+            if (intersectPrimitive(index, rays[i], hits[i])) found |= 1L << i;
+        }
+        return found;
+    }
+
+    /**
+     * Accumulate the transmission of a ray through a primitive
+     *
+     * @param index       the index of the primitive
+     * @param ray         the ray to find the transmission of
+     * @param maxDistance the maximum distance to find the blockers
+     * @param kT          the transmission accumulated so far
+     * @param minK        the cutoff - a transmission lower than it counts as a full block
+     * @return the accumulated transmission, exactly {@link Double3#ZERO} if it is lower than the cutoff
+     */
+    protected abstract Double3 findPrimitiveTransmission(int index, Ray ray, double maxDistance, Double3 kT, double minK);
+
+    /**
+     * Find the GeoIntersections of the primitives in the hierarchy with a ray
+     *
+     * @param ray           the ray to find the intersections with
+     * @param maxDistance   the maximum distance to find the intersections
+     * @param intersections the intersections found so far (may be null)
+     * @return the intersections found so far, including the hierarchy's ones
+     */
+    List<GeoPoint> findGeoIntersections(Ray ray, double maxDistance, List<GeoPoint> intersections) {
+        if (box == null) return intersections;
+        Traversal traversal = traversals.get();
+        int[] stack = traversal.nodes;
+        Mailbox mailbox = traversal.mailbox;
+        if (mailbox != null) mailbox.next();
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (entry(ray, node, maxDistance) == Double.POSITIVE_INFINITY) continue;
+            int count = links[2 * node + 1];
+            if (count > 0) {
+                for (int i = links[2 * node], end = i + count; i < end; ++i)
+                    if (mailbox == null || mailbox.mark(order[i]))
+                        intersections = Geometries.addAll(intersections,
+                                findPrimitiveIntersections(order[i], ray, maxDistance));
+            } else {
+                stack[top++] = links[2 * node];
+                stack[top++] = node + 1;
+            }
+        }
+        return intersections;
+    }
+
+    /**
+     * Find the closest intersection of the primitives in the hierarchy with a ray into a hit record.
+     * Every hit shrinks the maximal distance of the search, so farther boxes are pruned,
+     * and the children of a node are visited front to back.
+     * The leaves are tested by the leaf kernel even if primitives are referenced from several leaves -
+     * a primitive tested again can't record a closer hit, so no mailbox is needed
+     *
+     * @param ray the ray to find the intersection with
+     * @param hit the record of the closest hit found so far - updated if a closer hit is found
+     * @return true if a closer hit was found and recorded
+     */
+    boolean intersect(Ray ray, HitRecord hit) {
+        if (box == null) return false;
+        double t = entry(ray, 0, hit.t);
+        if (t == Double.POSITIVE_INFINITY) return false;
+        Traversal traversal = traversals.get();
+        int[] stack = traversal.nodes;
+        double[] distances = traversal.distances;
+        int top = 0;
+        stack[top] = 0;
+        distances[top++] = t;
+        boolean found = false;
+        long steps = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            // a closer hit was found since the node was pushed
+            if (distances[top] > hit.t) continue;
+            ++steps;
+            int count = links[2 * node + 1];
+            if (count > 0) {
+                steps += count;
+                if (intersectLeaf(links[2 * node], count, ray, hit, traversal.lanes))
+                    found = true;
+                continue;
+            }
+
+            // visit the nearer child first - its hit may prune the farther one
+            int near = node + 1, far = links[2 * node];
+            double tNear = entry(ray, near, hit.t);
+            double tFar = entry(ray, far, hit.t);
+            if (tFar < tNear) {
+                int tmp = near;
+                near = far;
+                far = tmp;
+                double d = tNear;
+                tNear = tFar;
+                tFar = d;
+            }
+            if (tFar != Double.POSITIVE_INFINITY) {
+                stack[top] = far;
+                distances[top++] = tFar;
+            }
+            if (tNear != Double.POSITIVE_INFINITY) {
+                stack[top] = near;
+                distances[top++] = tNear;
+            }
+        }
+        traversal.steps += steps;
+        return found;
+    }
+
+    /**
+     * Find the closest intersections of the primitives in the hierarchy with a packet of coherent rays.
+     * The packet goes down the tree together: each node is fetched once for all its active rays, the rays
+     * that miss its box (or already found a closer hit) are dropped from the mask of its sub-tree,
+     * and the sub-tree is skipped when no ray is left. The first active ray orders the children.
+     * Primitives referenced from several leaves may be tested again by a ray - harmless for the closest hit
+     *
+     * @param rays   the rays of the packet (at most {@link Intersectable#MAX_PACKET_SIZE})
+     * @param hits   the records of the closest hits found so far, by the indices of the rays - updated
+     * @param active the mask of the active rays (bit i for the ray i)
+     * @return the mask of the rays for which a closer hit was found and recorded
+     */
+    long intersect(Ray[] rays, HitRecord[] hits, long active) {
+        if (box == null) return 0;
+        Traversal traversal = traversals.get();
+        int[] stack = traversal.nodes;
+        long[] masks = traversal.masks;
+        int top = 0;
+        stack[top] = 0;
+        masks[top++] = active;
+        long found = 0;
+        long steps = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            long mask = masks[top];
+            // the shared node test
+            for (long m = mask; m != 0; m &= m - 1) {
+                int i = Long.numberOfTrailingZeros(m);
+                if (entry(rays[i], node, hits[i].t) == Double.POSITIVE_INFINITY) mask &= ~(1L << i);
+            }
+            if (mask == 0) continue;
+            ++steps;
+            int count = links[2 * node + 1];
+            if (count > 0) {
+                steps += (long) count * Long.bitCount(mask);
+                found |= intersectLeaf(links[2 * node], count, rays, hits, mask, traversal.lanes);
+                continue;
+            }
+
+            // visit the nearer child of the first ray first
+            int lead = Long.numberOfTrailingZeros(mask);
+            int near = node + 1, far = links[2 * node];
+            if (entry(rays[lead], far, hits[lead].t) < entry(rays[lead], near, hits[lead].t)) {
+                int tmp = near;
+                near = far;
+                far = tmp;
+            }
+            stack[top] = far;
+            masks[top++] = mask;
+            stack[top] = near;
+            masks[top++] = mask;
+        }
+        traversal.steps += steps;
+        return found;
+    }
+
+    /**
+     * Estimate the heap memory held by the hierarchy - its flat tree and (in the subclasses) the layouts
+     * of its primitives. The traversal stacks of the threads are not counted
+     *
+     * @return the estimated bytes
+     */
+    long getMemorySize() {
+        return MemoryStats.object(8, 0) + MemoryStats.sizeOf(nodeBounds) + MemoryStats.sizeOf(compactBounds)
+                + MemoryStats.sizeOf(links) + MemoryStats.sizeOf(order) + MemoryStats.object(0, 40)
+                + MemoryStats.BOX;
+    }
+
+    /**
+     * Get the amount of traversal steps of the closest hit queries of the current thread -
+     * the nodes visited and the primitives tested
+     *
+     * @return the amount of traversal steps so far
+     */
+    long getTraversalSteps() {
+        return traversals.get().steps;
+    }
+
+    /**
+     * Accumulate the transmission of a ray through the primitives in the hierarchy (occlusion query).
+     * The blockers are visited in any order and the traversal stops as soon as the ray is blocked
+     *
+     * @param ray         the ray to find the transmission of
+     * @param maxDistance the maximum distance to find the blockers
+     * @param kT          the transmission accumulated so far
+     * @param minK        the cutoff - a transmission lower than it counts as a full block
+     * @return the accumulated transmission, exactly {@link Double3#ZERO} if it is lower than the cutoff
+     */
+    Double3 findTransmission(Ray ray, double maxDistance, Double3 kT, double minK) {
+        if (box == null) return kT;
+        Traversal traversal = traversals.get();
+        int[] stack = traversal.nodes;
+        Mailbox mailbox = traversal.mailbox;
+        if (mailbox != null) mailbox.next();
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (entry(ray, node, maxDistance) == Double.POSITIVE_INFINITY) continue;
+            int count = links[2 * node + 1];
+            if (count > 0) {
+                for (int i = links[2 * node], end = i + count; i < end; ++i) {
+                    if (mailbox != null && !mailbox.mark(order[i])) continue;
+                    kT = findPrimitiveTransmission(order[i], ray, maxDistance, kT, minK);
+                    if (kT == Double3.ZERO) return kT;
+                }
+            } else {
+                stack[top++] = links[2 * node];
+                stack[top++] = node + 1;
+            }
+        }
+        return kT;
+    }
+}
@@ -0,0 +1,146 @@
+package geometries;
+
+/**
+ * Class BuildStats holds the statistics of the build of a bounding volume hierarchy:
+ * how long the build took and the size and the quality of the resulting tree
+ */
+public class BuildStats {
+    /**
+     * the amount of primitives in the hierarchy
+     */
+    private final int primitiveCount;
+    /**
+     * the amount of references to the primitives from the leaves - more than the primitives if
+     * primitives were split between nodes
+     */
+    private final int referenceCount;
+    /**
+     * the time of the build in nanoseconds
+     */
+    private final long buildTime;
+    /**
+     * the amount of nodes in the tree
+     */
+    private final int nodeCount;
+    /**
+     * the amount of leaves in the tree
+     */
+    private final int leafCount;
+    /**
+     * the depth of the deepest leaf (the root is at depth 0)
+     */
+    private final int maxDepth;
+    /**
+     * the estimated cost of a ray by the surface area heuristic
+     */
+    private final double sahCost;
+    /**
+     * whether the hierarchy was loaded from the cache instead of built
+     */
+    private final boolean cached;
+
+    /**
+     * Constructor for the statistics of a build
+     *
+     * @param primitiveCount the amount of primitives in the hierarchy
+     * @param referenceCount the amount of references to the primitives from the leaves
+     * @param buildTime      the time of the build in nanoseconds
+     * @param nodeCount      the amount of nodes in the tree
+     * @param leafCount      the amount of leaves in the tree
+     * @param maxDepth       the depth of the deepest leaf
+     * @param sahCost        the estimated cost of a ray by the surface area heuristic
+     * @param cached         whether the hierarchy was loaded from the cache
+     */
+    BuildStats(int primitiveCount, int referenceCount, long buildTime, int nodeCount, int leafCount, int maxDepth,
+               double sahCost, boolean cached) {
+        this.primitiveCount = primitiveCount;
+        this.referenceCount = referenceCount;
+        this.buildTime = buildTime;
+        this.nodeCount = nodeCount;
+        this.leafCount = leafCount;
+        this.maxDepth = maxDepth;
+        this.sahCost = sahCost;
+        this.cached = cached;
+    }
+
+    /**
+     * Get the amount of primitives in the hierarchy
+     *
+     * @return the amount of primitives
+     */
+    public int getPrimitiveCount() {
+        return primitiveCount;
+    }
+
+    /**
+     * Get the amount of references to the primitives from the leaves of the tree -
+     * the primitives split by spatial splits are referenced from several leaves
+     *
+     * @return the amount of references
+     */
+    public int getReferenceCount() {
+        return referenceCount;
+    }
+
+    /**
+     * Get the time of the build
+     *
+     * @return the time of the build in nanoseconds
+     */
+    public long getBuildTime() {
+        return buildTime;
+    }
+
+    /**
+     * Get the amount of nodes in the tree
+     *
+     * @return the amount of nodes
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Get the amount of leaves in the tree
+     *
+     * @return the amount of leaves
+     */
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * Get the depth of the deepest leaf (the root is at depth 0)
+     *
+     * @return the maximal depth
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Get the estimated cost of a ray by the surface area heuristic - the expected amount of
+     * node visits and primitive tests of a random ray that hits the root box. Lower is better
+     *
+     * @return the SAH cost of the tree
+     */
+    public double getSahCost() {
+        return sahCost;
+    }
+
+    /**
+     * Whether the hierarchy was loaded from the {@link HierarchyCache} - the build time is then the time of the load
+     *
+     * @return true if the hierarchy was loaded from the cache, false if it was built
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BuildStats{primitives=%d, references=%d, %s=%.2f ms, nodes=%d, leaves=%d, depth=%d, "
+                        + "SAH cost=%.2f}", primitiveCount, referenceCount, cached ? "load" : "build", buildTime / 1e6,
+                nodeCount, leafCount, maxDepth, sahCost);
+    }
+}
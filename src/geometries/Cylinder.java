@@ -1,5 +1,6 @@
 package geometries;
 
+import primitives.BoundingBox;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -12,6 +13,10 @@ import static primitives.Util.isZero;
  */
 public class Cylinder extends Tube {
     final private double height;
+    /**
+     * The bounding box of the cylinder
+     */
+    final private BoundingBox box;
 
     /**
      * Constructor for a cylinder in the 3D space
@@ -23,6 +28,25 @@ public class Cylinder extends Tube {
     public Cylinder(Ray axis, double radius, double height) {
         super(axis, radius);
         this.height = height;
+        // the box of the two bases: a base disc stretches radius * sin(angle between the axis and
+        // a coordinate axis) along that coordinate axis
+        Point base1 = axis.getHead(), base2 = axis.getPoint(height);
+        Vector d = axis.getDirection();
+        double ex = radius * Math.sqrt(Math.max(0, 1 - d.getX() * d.getX()));
+        double ey = radius * Math.sqrt(Math.max(0, 1 - d.getY() * d.getY()));
+        double ez = radius * Math.sqrt(Math.max(0, 1 - d.getZ() * d.getZ()));
+        this.box = new BoundingBox(
+                Math.min(base1.getX(), base2.getX()) - ex,
+                Math.min(base1.getY(), base2.getY()) - ey,
+                Math.min(base1.getZ(), base2.getZ()) - ez,
+                Math.max(base1.getX(), base2.getX()) + ex,
+                Math.max(base1.getY(), base2.getY()) + ey,
+                Math.max(base1.getZ(), base2.getZ()) + ez);
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return box;
     }
 
     @Override
@@ -1,5 +1,7 @@
 package geometries;
 
+import primitives.BoundingBox;
+import primitives.Double3;
 import primitives.Ray;
 
 import java.util.Collections;
@@ -11,8 +13,105 @@ import java.util.List;
  * The class is based on the Intersectable
  */
 public class Geometries extends Intersectable {
+    /**
+     * The acceleration structures that can be used for finding the intersections of the collection
+     */
+    public enum Acceleration {
+        /**
+         * flat list - every geometry is tested for every ray
+         */
+        NONE,
+        /**
+         * bounding volume hierarchy built with the surface area heuristic
+         */
+        BVH,
+        /**
+         * uniform grid walked by 3D-DDA - fits dense soups of similar sized geometries
+         */
+        GRID
+    }
+
+    /**
+     * The strategies of building the bounding volume hierarchy of the collection
+     */
+    public enum BuildStrategy {
+        /**
+         * binned surface area heuristic - the best tree for tracing, for static scenes
+         */
+        SAH,
+        /**
+         * linear BVH by Morton codes - the fastest build, for scenes that are rebuilt every frame
+         */
+        LBVH,
+        /**
+         * surface area heuristic with spatial splits - primitives may be clipped and referenced from
+         * several nodes, for meshes of long thin triangles whose boxes overlap badly
+         */
+        SBVH
+    }
+
+    /**
+     * The precisions of storing the coordinates of the meshes and the bounds of the hierarchies.
+     * The intersections are calculated in double precision either way
+     */
+    public enum Precision {
+        /**
+         * double precision - the coordinates are kept exactly as given
+         */
+        DOUBLE,
+        /**
+         * single precision - half the memory of the vertex buffers and of the bounds of the nodes,
+         * for very large meshes. The vertices are rounded to the nearest float and the boxes of the nodes
+         * are rounded outwards
+         */
+        FLOAT
+    }
+
     final private List<Intersectable> geometries = new LinkedList<Intersectable>();
 
+    /**
+     * The acceleration structure used by the collection
+     */
+    private Acceleration acceleration = Acceleration.BVH;
+
+    /**
+     * The build strategy of the hierarchy of the collection
+     */
+    private BuildStrategy buildStrategy = BuildStrategy.SAH;
+
+    /**
+     * The precision of the bounds of the hierarchy of the collection
+     */
+    private Precision precision = Precision.DOUBLE;
+
+    /**
+     * The quality limit of a refitted hierarchy - it is rebuilt when its SAH cost grows
+     * by more than this factor over the cost of its build
+     */
+    private double rebuildThreshold = 1.5;
+
+    /**
+     * The hierarchy of the collection - built lazily on the first intersection query
+     * and dropped whenever the collection changes
+     */
+    private volatile GeometryHierarchy hierarchy = null;
+
+    /**
+     * The grid of the collection - built lazily on the first intersection query
+     * and dropped whenever the collection changes
+     */
+    private volatile UniformGrid grid = null;
+
+    /**
+     * The bounding box of the collection - computed lazily and dropped whenever the collection changes
+     */
+    private volatile BoundingBox box = null;
+
+    /**
+     * Whether the bounding box of the collection is known (the box itself is null for an unbounded collection)
+     */
+    private volatile boolean boxKnown = false;
+
     /**
      * Default empty Constructor for a collection of geometries in the 3D space
      */
@@ -32,21 +131,301 @@ public class Geometries extends Intersectable {
      */
     public void add(Intersectable... geometries) {
         Collections.addAll(this.geometries, geometries);
+        hierarchy = null;
+        grid = null;
+        boxKnown = false;
+    }
+
+    /**
+     * Set the acceleration structure of the collection
+     * @param acceleration the acceleration structure to use
+     * @return the collection
+     */
+    public Geometries setAcceleration(Acceleration acceleration) {
+        this.acceleration = acceleration;
+        hierarchy = null;
+        grid = null;
+        return this;
+    }
+
+    /**
+     * Get the acceleration structure of the collection
+     * @return the acceleration structure in use
+     */
+    public Acceleration getAcceleration() {
+        return acceleration;
+    }
+
+    /**
+     * Set the build strategy of the hierarchy of the collection
+     * @param buildStrategy the build strategy to use
+     * @return the collection
+     */
+    public Geometries setBuildStrategy(BuildStrategy buildStrategy) {
+        this.buildStrategy = buildStrategy;
+        hierarchy = null;
+        return this;
+    }
+
+    /**
+     * Get the build strategy of the hierarchy of the collection
+     * @return the build strategy in use
+     */
+    public BuildStrategy getBuildStrategy() {
+        return buildStrategy;
+    }
+
+    /**
+     * Set the kernel that intersects the leaves of the current hierarchy of the collection (for tests and
+     * benchmarks) - a rebuilt hierarchy uses the kernel picked at startup
+     * @param kernel the leaf kernel
+     */
+    void setLeafKernel(LeafKernel kernel) {
+        getHierarchy().kernel = kernel;
+    }
+
+    /**
+     * Set the precision of the bounds of the hierarchy of the collection - the meshes are created with their own
+     * precision ({@link TriangleMesh#TriangleMesh(double[], int[], BuildStrategy, Precision)})
+     * @param precision the precision to use
+     * @return the collection
+     */
+    public Geometries setPrecision(Precision precision) {
+        this.precision = precision;
+        hierarchy = null;
+        return this;
+    }
+
+    /**
+     * Get the precision of the bounds of the hierarchy of the collection
+     * @return the precision in use
+     */
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Set the quality limit of a refitted hierarchy
+     * @param rebuildThreshold the factor of the SAH cost of the build that a refitted hierarchy may reach
+     *                         before it is rebuilt (at least 1) - of spatial splits, the cost of the built
+     *                         tree refitted to the whole boxes of the geometries
+     * @return the collection
+     * @throws IllegalArgumentException if the threshold is lower than 1
+     */
+    public Geometries setRebuildThreshold(double rebuildThreshold) {
+        if (rebuildThreshold < 1)
+            throw new IllegalArgumentException("The rebuild threshold must be at least 1");
+        this.rebuildThreshold = rebuildThreshold;
+        return this;
+    }
+
+    /**
+     * Update the collection after its geometries moved (such as instances with a new transformation)
+     * without changing its contents - for the frames of an animation.
+     * The hierarchy keeps its tree and only its boxes are updated bottom-up. When the refitted tree
+     * degrades past the rebuild threshold (by its SAH cost) it is dropped and rebuilt on the next query.
+     * The leaves of spatial splits are refitted to the whole boxes of their geometries, and they are compared
+     * with the built tree refitted the same way, so an unmoved hierarchy keeps its splits.
+     * Nested collections are refitted first. The refit must not run concurrently with queries
+     * @return true if the hierarchy was refitted, false if it will be rebuilt
+     */
+    public boolean refit() {
+        for (Intersectable geometry : geometries)
+            if (geometry instanceof Geometries nested)
+                nested.refit();
+        boxKnown = false;
+        grid = null;
+        GeometryHierarchy bvh = hierarchy;
+        if (bvh == null) return false;
+        if (bvh.refit() > bvh.getRefitBaseline() * rebuildThreshold) {
+            hierarchy = null;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get the amount of traversal steps of the closest hit queries of the current thread through the hierarchy
+     * of the collection - the nodes visited and the primitives tested (for benchmarks)
+     * @return the amount of traversal steps so far, 0 if the collection doesn't use a hierarchy
+     */
+    long getTraversalSteps() {
+        return acceleration == Acceleration.BVH ? getHierarchy().getTraversalSteps() : 0;
+    }
+
+    /**
+     * Get the statistics of the build of the hierarchy of the collection, building it if needed
+     * @return the build statistics, or null if the collection doesn't use a hierarchy
+     */
+    public BuildStats getBuildStats() {
+        return acceleration == Acceleration.BVH ? getHierarchy().getStats() : null;
+    }
+
+    /**
+     * Estimate the heap memory held by the collection - its geometries (nested ones included),
+     * the buffers of its meshes and its hierarchies, building them if needed
+     * @return the memory statistics
+     */
+    public MemoryStats getMemoryStats() {
+        MemoryStats stats = new MemoryStats();
+        addMemory(stats);
+        return stats;
     }
 
+    @Override
+    void addMemory(MemoryStats stats) {
+        if (!stats.visit(this)) return;
+        // the collection, its linked list and its nodes
+        stats.addHierarchy(MemoryStats.object(6, 12) + MemoryStats.object(3, 8)
+                + (long) geometries.size() * MemoryStats.object(3, 0));
+        for (Intersectable geometry : geometries)
+            geometry.addMemory(stats);
+        if (acceleration == Acceleration.BVH) stats.addHierarchy(getHierarchy().getMemorySize());
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        if (!boxKnown) {
+            BoundingBox union = null;
+            for (Intersectable geometry : geometries) {
+                BoundingBox geometryBox = geometry.getBoundingBox();
+                if (geometryBox == null) {
+                    union = null;
+                    break;
+                }
+                union = union == null ? geometryBox : union.union(geometryBox);
+            }
+            box = union;
+            boxKnown = true;
+        }
+        return box;
+    }
 
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        if (acceleration == Acceleration.BVH)
+            return getHierarchy().findGeoIntersections(ray, maxDistance, null);
+        if (acceleration == Acceleration.GRID)
+            return getGrid().findGeoIntersections(ray, maxDistance);
+
+        // a ray that misses the box of the whole collection can't hit any of its geometries
+        BoundingBox bounds = getBoundingBox();
+        if (bounds != null && !ray.intersectsBox(bounds, maxDistance))
+            return null;
+
         List<GeoPoint> intersections = null;
         for (Intersectable geometry : geometries) {
-            List<GeoPoint> geometryIntersections = geometry.findGeoIntersections(ray, maxDistance);
-            if (geometryIntersections != null) {
-                if (intersections == null) {
-                    intersections = new LinkedList<GeoPoint>();
-                }
-                intersections.addAll(geometryIntersections);
+            BoundingBox geometryBox = geometry.getBoundingBox();
+            if (geometryBox != null && !ray.intersectsBox(geometryBox, maxDistance))
+                continue;
+            intersections = addAll(intersections, geometry.findGeoIntersections(ray, maxDistance));
+        }
+        return intersections;
+    }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        HitRecord hit = new HitRecord(maxDistance);
+        return intersectHelper(ray, hit) ? hit.toGeoPoint() : null;
+    }
+
+    @Override
+    protected boolean intersectHelper(Ray ray, HitRecord hit) {
+        if (acceleration == Acceleration.BVH)
+            return getHierarchy().intersect(ray, hit);
+        if (acceleration == Acceleration.GRID)
+            return getGrid().intersect(ray, hit);
+
+        BoundingBox bounds = getBoundingBox();
+        if (bounds != null && !ray.intersectsBox(bounds, hit.t))
+            return false;
+
+        // every hit shrinks the maximal distance, so farther geometries are rejected by their boxes
+        boolean found = false;
+        for (Intersectable geometry : geometries) {
+            BoundingBox geometryBox = geometry.getBoundingBox();
+            if (geometryBox != null && !ray.intersectsBox(geometryBox, hit.t))
+                continue;
+            if (geometry.intersectHelper(ray, hit))
+                found = true;
+        }
+        return found;
+    }
+
+    @Override
+    protected long intersectHelper(Ray[] rays, HitRecord[] hits, long active) {
+        if (acceleration == Acceleration.BVH)
+            return getHierarchy().intersect(rays, hits, active);
+        return super.intersectHelper(rays, hits, active);
+    }
+
+    @Override
+    protected Double3 findTransmissionHelper(Ray ray, double maxDistance, Double3 kT, double minK) {
+        if (acceleration == Acceleration.BVH)
+            return getHierarchy().findTransmission(ray, maxDistance, kT, minK);
+        if (acceleration == Acceleration.GRID)
+            return getGrid().findTransmission(ray, maxDistance, kT, minK);
+
+        BoundingBox bounds = getBoundingBox();
+        if (bounds != null && !ray.intersectsBox(bounds, maxDistance))
+            return kT;
+
+        // the order of the blockers doesn't matter - stop as soon as the ray is blocked
+        for (Intersectable geometry : geometries) {
+            BoundingBox geometryBox = geometry.getBoundingBox();
+            if (geometryBox != null && !ray.intersectsBox(geometryBox, maxDistance))
+                continue;
+            kT = geometry.findTransmissionHelper(ray, maxDistance, kT, minK);
+            if (kT == Double3.ZERO) return kT;
+        }
+        return kT;
+    }
+
+    /**
+     * Add the intersections of a geometry to the intersections found so far
+     * @param intersections         the intersections found so far (may be null)
+     * @param geometryIntersections the intersections of the geometry (may be null)
+     * @return the joined list of intersections (null if both are null)
+     */
+    static List<GeoPoint> addAll(List<GeoPoint> intersections, List<GeoPoint> geometryIntersections) {
+        if (geometryIntersections != null) {
+            if (intersections == null) {
+                intersections = new LinkedList<GeoPoint>();
             }
+            intersections.addAll(geometryIntersections);
         }
         return intersections;
     }
+
+    /**
+     * Get the hierarchy of the collection, building it if needed
+     * @return the hierarchy of the collection
+     */
+    private GeometryHierarchy getHierarchy() {
+        GeometryHierarchy bvh = hierarchy;
+        if (bvh == null) {
+            synchronized (this) {
+                bvh = hierarchy;
+                if (bvh == null)
+                    hierarchy = bvh = new GeometryHierarchy(geometries, buildStrategy, precision);
+            }
+        }
+        return bvh;
+    }
+
+    /**
+     * Get the grid of the collection, building it if needed
+     * @return the grid of the collection
+     */
+    private UniformGrid getGrid() {
+        UniformGrid uniformGrid = grid;
+        if (uniformGrid == null) {
+            synchronized (this) {
+                uniformGrid = grid;
+                if (uniformGrid == null)
+                    grid = uniformGrid = new UniformGrid(geometries);
+            }
+        }
+        return uniformGrid;
+    }
 }
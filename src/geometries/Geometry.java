@@ -1,9 +1,6 @@
 package geometries;
 
-import primitives.Color;
-import primitives.Material;
-import primitives.Point;
-import primitives.Vector;
+import primitives.*;
 
 /**
  * Interface Geometry is the basic interface for all geometric objects
@@ -64,4 +61,12 @@ public abstract class Geometry extends Intersectable {
         this.material = material;
         return this;
     }
+
+    @Override
+    protected Double3 findTransmissionHelper(Ray ray, double maxDistance, Double3 kT, double minK) {
+        // a single hit blocks the ray - there is no need to find all the hits, any of them is enough
+        if (kT.product(material.kT).lowerThan(minK))
+            return findClosestGeoIntersectionHelper(ray, maxDistance) == null ? kT : Double3.ZERO;
+        return super.findTransmissionHelper(ray, maxDistance, kT, minK);
+    }
 }
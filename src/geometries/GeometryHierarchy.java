@@ -0,0 +1,245 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import primitives.BoundingBox;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Class GeometryHierarchy is the bounding volume hierarchy of a collection of geometries.
+ * The bounded geometries are the primitives of the hierarchy.
+ * Unbounded geometries (such as planes) can't be placed in the tree and are tested for every ray.
+ */
+class GeometryHierarchy extends BoundingVolumeHierarchy {
+    /**
+     * The bounded geometries, by their indices in the hierarchy
+     */
+    private final Intersectable[] primitives;
+    /**
+     * The unbounded geometries - tested for every ray
+     */
+    private final Intersectable[] unbounded;
+    /**
+     * The spheres in the order of the leaves, for the leaf kernel: the coordinates of the center and the radius -
+     * 4 arrays of a coordinate per position, the radius is NaN at the positions of the other geometries
+     * (null if there are no spheres)
+     */
+    private final double[][] spheres;
+
+    /**
+     * Constructor - builds the hierarchy over the given geometries
+     *
+     * @param geometries the geometries to organize
+     * @param strategy   the build strategy of the tree
+     * @param precision  the precision of the bounds of the nodes
+     */
+    GeometryHierarchy(List<Intersectable> geometries, Geometries.BuildStrategy strategy,
+                      Geometries.Precision precision) {
+        this(split(geometries), strategy, precision);
+    }
+
+    /**
+     * Constructor - builds the hierarchy over the bounded geometries
+     *
+     * @param split     the bounded geometries and the unbounded ones
+     * @param strategy  the build strategy of the tree
+     * @param precision the precision of the bounds of the nodes
+     */
+    private GeometryHierarchy(Intersectable[][] split, Geometries.BuildStrategy strategy,
+                              Geometries.Precision precision) {
+        super(toBounds(boxes(split[0])), strategy,
+                strategy == Geometries.BuildStrategy.SBVH ? clipper(split[0]) : null, precision);
+        primitives = split[0];
+        unbounded = split[1];
+        spheres = layoutSpheres();
+    }
+
+    /**
+     * Lay the spheres out in the order of the leaves
+     *
+     * @return the arrays of the spheres, or null if there are no spheres
+     */
+    private double[][] layoutSpheres() {
+        int positions = positionCount();
+        double[][] layout = null;
+        for (int position = 0; position < positions; ++position) {
+            if (!(primitives[primitiveAt(position)] instanceof Sphere sphere)) continue;
+            if (layout == null) {
+                layout = new double[4][positions];
+                Arrays.fill(layout[3], Double.NaN);
+            }
+            Point center = sphere.getCenter();
+            layout[0][position] = center.getX();
+            layout[1][position] = center.getY();
+            layout[2][position] = center.getZ();
+            layout[3][position] = sphere.radius;
+        }
+        return layout;
+    }
+
+    /**
+     * Split geometries to the bounded ones and the unbounded ones
+     *
+     * @param geometries the geometries
+     * @return the bounded geometries and the unbounded ones
+     */
+    private static Intersectable[][] split(List<Intersectable> geometries) {
+        List<Intersectable> bounded = new LinkedList<>();
+        List<Intersectable> infinite = new LinkedList<>();
+        for (Intersectable geometry : geometries) {
+            if (geometry.getBoundingBox() == null) infinite.add(geometry);
+            else bounded.add(geometry);
+        }
+        return new Intersectable[][]{bounded.toArray(new Intersectable[0]), infinite.toArray(new Intersectable[0])};
+    }
+
+    /**
+     * Create the clipper of geometries for the spatial splits - polygons (and triangles) are clipped exactly,
+     * the other geometries by their boxes
+     *
+     * @param geometries the bounded geometries
+     * @return the clipper
+     */
+    private static Clipper clipper(Intersectable[] geometries) {
+        double[][] polygons = new double[geometries.length][];
+        for (int i = 0; i < geometries.length; ++i)
+            if (geometries[i] instanceof Polygon polygon) {
+                List<Point> vertices = polygon.vertices;
+                double[] coordinates = new double[3 * vertices.size()];
+                int k = 0;
+                for (Point vertex : vertices) {
+                    coordinates[k++] = vertex.getX();
+                    coordinates[k++] = vertex.getY();
+                    coordinates[k++] = vertex.getZ();
+                }
+                polygons[i] = coordinates;
+            }
+        return (index, axis, min, max, box) ->
+                polygons[index] == null || clipPolygon(polygons[index], axis, min, max, box);
+    }
+
+    /**
+     * Get the bounding boxes of bounded geometries
+     *
+     * @param geometries the geometries
+     * @return the bounding boxes of the geometries
+     */
+    private static BoundingBox[] boxes(Intersectable[] geometries) {
+        BoundingBox[] boxes = new BoundingBox[geometries.length];
+        for (int i = 0; i < geometries.length; ++i)
+            boxes[i] = geometries[i].getBoundingBox();
+        return boxes;
+    }
+
+    /**
+     * Refit the hierarchy to the current bounding boxes of its bounded geometries
+     *
+     * @return the SAH cost of the refitted tree
+     */
+    double refit() {
+        return refit(toBounds(boxes(primitives)));
+    }
+
+    @Override
+    long getMemorySize() {
+        long layout = 0;
+        if (spheres != null)
+            for (double[] coordinates : spheres)
+                layout += MemoryStats.sizeOf(coordinates);
+        return super.getMemorySize() + MemoryStats.object(3, 0)
+                + MemoryStats.ARRAY + (long) MemoryStats.REFERENCE * (primitives.length + unbounded.length) + layout;
+    }
+
+    @Override
+    protected List<GeoPoint> findPrimitiveIntersections(int index, Ray ray, double maxDistance) {
+        return primitives[index].findGeoIntersections(ray, maxDistance);
+    }
+
+    @Override
+    protected boolean intersectPrimitive(int index, Ray ray, HitRecord hit) {
+        return primitives[index].intersectHelper(ray, hit);
+    }
+
+    /**
+     * Check whether a leaf holds only spheres - only such a leaf is tested at once by the leaf kernel
+     *
+     * @param first the position of the first primitive of the leaf in the order of the leaves
+     * @param count the amount of primitives of the leaf
+     * @return true if all the primitives of the leaf are spheres
+     */
+    private boolean isSphereLeaf(int first, int count) {
+        if (spheres == null) return false;
+        double[] radii = spheres[3];
+        for (int i = first, end = first + count; i < end; ++i)
+            if (Double.isNaN(radii[i])) return false;
+        return true;
+    }
+
+    @Override
+    protected boolean intersectLeaf(int first, int count, Ray ray, HitRecord hit, double[] lanes) {
+        if (!isSphereLeaf(first, count)) return super.intersectLeaf(first, count, ray, hit, lanes);
+        double[] radii = spheres[3];
+        int position = kernel.intersectSpheres(spheres, first, count, ray, hit.t, lanes);
+        if (position < 0) return false;
+        double radius = radii[position];
+        hit.set((Geometry) primitives[primitiveAt(position)], ray, lanes[position - first]);
+        hit.setNormal((hit.x - spheres[0][position]) / radius, (hit.y - spheres[1][position]) / radius,
+                (hit.z - spheres[2][position]) / radius);
+        return true;
+    }
+
+    @Override
+    protected long intersectLeaf(int first, int count, Ray[] rays, HitRecord[] hits, long active, double[] lanes) {
+        // the other leaves keep the packet together - their primitives may be hierarchies themselves
+        if (!isSphereLeaf(first, count)) return super.intersectLeaf(first, count, rays, hits, active, lanes);
+        return intersectLeafByRay(first, count, rays, hits, active, lanes);
+    }
+
+    @Override
+    protected long intersectPrimitive(int index, Ray[] rays, HitRecord[] hits, long active) {
+        return primitives[index].intersectHelper(rays, hits, active);
+    }
+
+    @Override
+    protected Double3 findPrimitiveTransmission(int index, Ray ray, double maxDistance, Double3 kT, double minK) {
+        return primitives[index].findTransmissionHelper(ray, maxDistance, kT, minK);
+    }
+
+    @Override
+    List<GeoPoint> findGeoIntersections(Ray ray, double maxDistance, List<GeoPoint> intersections) {
+        for (Intersectable geometry : unbounded)
+            intersections = Geometries.addAll(intersections, geometry.findGeoIntersections(ray, maxDistance));
+        return super.findGeoIntersections(ray, maxDistance, intersections);
+    }
+
+    @Override
+    boolean intersect(Ray ray, HitRecord hit) {
+        boolean found = false;
+        for (Intersectable geometry : unbounded)
+            if (geometry.intersectHelper(ray, hit))
+                found = true;
+        return super.intersect(ray, hit) || found;
+    }
+
+    @Override
+    long intersect(Ray[] rays, HitRecord[] hits, long active) {
+        long found = 0;
+        for (Intersectable geometry : unbounded)
+            found |= geometry.intersectHelper(rays, hits, active);
+        return super.intersect(rays, hits, active) | found;
+    }
+
+    @Override
+    Double3 findTransmission(Ray ray, double maxDistance, Double3 kT, double minK) {
+        for (Intersectable geometry : unbounded) {
+            kT = geometry.findTransmissionHelper(ray, maxDistance, kT, minK);
+            if (kT == Double3.ZERO) return kT;
+        }
+        return super.findTransmission(ray, maxDistance, kT, minK);
+    }
+}
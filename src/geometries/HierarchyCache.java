@@ -0,0 +1,381 @@
+package geometries;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Class HierarchyCache is a directory of built bounding volume hierarchies, so a scene that is loaded again
+ * (such as by {@link scene.SceneBuilderFromXML#setFromFile(String)} on every run) skips the builds of its
+ * hierarchies. Each entry is the compiled flat tree of a hierarchy, keyed by a SHA-256 hash of the boxes of
+ * its primitives and its build strategy, and loaded by memory-mapping the file.
+ * An entry is validated when it is loaded (its key, sizes, checksum, links and the measures of its tree)
+ * and a bad entry is deleted and rebuilt. Entries older than the maximal age are evicted, and the least recently used entries are
+ * evicted while the directory is bigger than its maximal size.
+ * The hierarchies use the shared cache ({@link #setShared(HierarchyCache)}), if there is one.
+ * Failures of the file system are treated as cache misses - the hierarchy is built as usual
+ */
+public class HierarchyCache {
+    /**
+     * The file extension of the entries
+     */
+    private static final String EXTENSION = ".bvh";
+    /**
+     * The magic number at the start of an entry ("BVHC")
+     */
+    private static final int MAGIC = 0x42564843;
+    /**
+     * The version of the format of the entries - part of the key, so entries of an older format are missed
+     */
+    private static final int VERSION = 2;
+    /**
+     * The size of the header of an entry in bytes: magic, version, 5 counts, SAH cost, checksum and key
+     */
+    private static final int HEADER_SIZE = 4 * 7 + 8 + 8 + 32;
+    /**
+     * The range of the header covered by the checksum (with the payload): the counts and the SAH cost
+     */
+    private static final int CHECKED_START = 4 * 2, CHECKED_END = 4 * 7 + 8;
+
+    /**
+     * The shared cache used by the hierarchies (null if the hierarchies are not cached)
+     */
+    private static volatile HierarchyCache shared = null;
+
+    /**
+     * The directory of the entries
+     */
+    private final Path directory;
+    /**
+     * The maximal total size of the entries in bytes
+     */
+    private long maxSize = 256L << 20;
+    /**
+     * The maximal age of an entry since its last use
+     */
+    private Duration maxAge = Duration.ofDays(30);
+
+    /**
+     * A compiled hierarchy - the flat arrays of the tree and its measures
+     *
+     * @param nodeBounds the bounds of the nodes, 6 per node in depth first order
+     * @param links      the links of the nodes, 2 per node
+     * @param order      the indices of the primitives, ordered by the leaves
+     * @param leafCount  the amount of leaves in the tree
+     * @param maxDepth   the depth of the deepest leaf
+     * @param sahCost    the SAH cost of the tree
+     */
+    record Entry(double[] nodeBounds, int[] links, int[] order, int leafCount, int maxDepth, double sahCost) {
+    }
+
+    /**
+     * Constructor for a cache in a directory
+     *
+     * @param directory the directory of the entries - created if needed
+     */
+    public HierarchyCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Set the shared cache used by the hierarchies built from now on
+     *
+     * @param cache the cache, null to build every hierarchy
+     */
+    public static void setShared(HierarchyCache cache) {
+        shared = cache;
+    }
+
+    /**
+     * Get the shared cache used by the hierarchies
+     *
+     * @return the cache, or null if the hierarchies are not cached
+     */
+    public static HierarchyCache getShared() {
+        return shared;
+    }
+
+    /**
+     * Set the maximal total size of the entries
+     *
+     * @param maxSize the maximal size in bytes
+     * @return the cache
+     */
+    public HierarchyCache setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    /**
+     * Set the maximal age of an entry since its last use
+     *
+     * @param maxAge the maximal age
+     * @return the cache
+     */
+    public HierarchyCache setMaxAge(Duration maxAge) {
+        this.maxAge = maxAge;
+        return this;
+    }
+
+    /**
+     * Get the directory of the entries
+     *
+     * @return the directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Find the key of a hierarchy - the hash of the boxes of its primitives and its build strategy
+     *
+     * @param bounds   the bounding boxes of the primitives
+     * @param strategy the build strategy of the tree
+     * @return the key
+     */
+    static byte[] key(double[] bounds, Geometries.BuildStrategy strategy) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+        buffer.putInt(VERSION).putInt(strategy.ordinal()).putInt(bounds.length);
+        for (double value : bounds) {
+            if (buffer.remaining() < 8) {
+                digest.update(buffer.flip());
+                buffer.clear();
+            }
+            buffer.putDouble(value);
+        }
+        digest.update(buffer.flip());
+        return digest.digest();
+    }
+
+    /**
+     * Find the file of an entry
+     *
+     * @param key the key of the entry
+     * @return the path of the file
+     */
+    private Path file(byte[] key) {
+        return directory.resolve(HexFormat.of().formatHex(key) + EXTENSION);
+    }
+
+    /**
+     * Load a hierarchy from the cache
+     *
+     * @param key            the key of the hierarchy
+     * @param primitiveCount the amount of primitives of the hierarchy
+     * @return the compiled hierarchy, or null if it isn't cached (or its entry is invalid)
+     */
+    Entry load(byte[] key, int primitiveCount) {
+        Path file = file(key);
+        if (!Files.isRegularFile(file)) return null;
+        Entry entry = null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            entry = read(buffer, key, primitiveCount);
+        } catch (IOException | RuntimeException ignore) {
+            // an unreadable entry is a miss
+        }
+        try {
+            if (entry == null) Files.deleteIfExists(file);
+            else Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignore) {
+            // the entry is rebuilt (or evicted) later
+        }
+        return entry;
+    }
+
+    /**
+     * Read and validate an entry
+     *
+     * @param buffer         the content of the entry
+     * @param key            the expected key
+     * @param primitiveCount the expected amount of primitives
+     * @return the compiled hierarchy, or null if the entry is invalid
+     */
+    private static Entry read(ByteBuffer buffer, byte[] key, int primitiveCount) {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+            return null;
+        int primitives = buffer.getInt(), nodes = buffer.getInt(), references = buffer.getInt();
+        int leafCount = buffer.getInt(), maxDepth = buffer.getInt();
+        double sahCost = buffer.getDouble();
+        long checksum = buffer.getLong();
+        byte[] entryKey = new byte[32];
+        buffer.get(entryKey);
+        if (primitives != primitiveCount || !MessageDigest.isEqual(key, entryKey) || nodes <= 0 || references < 0
+                || buffer.remaining() != 48L * nodes + 8L * nodes + 4L * references)
+            return null;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(CHECKED_START).limit(CHECKED_END));
+        crc.update(buffer.duplicate());
+        if (crc.getValue() != checksum) return null;
+
+        double[] nodeBounds = new double[6 * nodes];
+        buffer.asDoubleBuffer().get(nodeBounds);
+        buffer.position(buffer.position() + 48 * nodes);
+        int[] links = new int[2 * nodes];
+        buffer.asIntBuffer().get(links);
+        buffer.position(buffer.position() + 8 * nodes);
+        int[] order = new int[references];
+        buffer.asIntBuffer().get(order);
+
+        // the links must stay within the arrays - the traversal doesn't check them
+        for (int node = 0; node < nodes; ++node) {
+            int first = links[2 * node], count = links[2 * node + 1];
+            if (count > 0 ? first < 0 || first > references - count : first <= node + 1 || first >= nodes)
+                return null;
+        }
+        for (int index : order)
+            if (index < 0 || index >= primitives) return null;
+        // the traversal stacks are sized by the depth - it must be the depth of the linked tree
+        return measures(links, leafCount, maxDepth) ? new Entry(nodeBounds, links, order, leafCount, maxDepth, sahCost)
+                : null;
+    }
+
+    /**
+     * Check that the links form a tree (every node but the root is the child of a single node) of the given
+     * amount of leaves and depth. The children follow their parents in depth first order, so the depth of a
+     * node is known before it is reached
+     *
+     * @param links     the links of the nodes, 2 per node
+     * @param leafCount the expected amount of leaves
+     * @param maxDepth  the expected depth of the deepest leaf
+     * @return true if the links form such a tree
+     */
+    private static boolean measures(int[] links, int leafCount, int maxDepth) {
+        int nodes = links.length / 2;
+        int[] depths = new int[nodes];
+        Arrays.fill(depths, -1);
+        depths[0] = 0;
+        int leaves = 0, depth = 0;
+        for (int node = 0; node < nodes; ++node) {
+            if (depths[node] < 0) return false;
+            if (links[2 * node + 1] > 0) {
+                ++leaves;
+                depth = Math.max(depth, depths[node]);
+                continue;
+            }
+            int left = node + 1, right = links[2 * node];
+            if (depths[left] >= 0 || depths[right] >= 0) return false;
+            depths[left] = depths[right] = depths[node] + 1;
+        }
+        return leaves == leafCount && depth == maxDepth;
+    }
+
+    /**
+     * Store a hierarchy in the cache and evict the old entries. The entry is written to a temporary
+     * file and moved into place atomically, so a concurrent load never sees a partial entry (where the file
+     * system can't move atomically, a partial entry fails the check of its load). The temporary file is
+     * deleted if the entry can't be stored
+     *
+     * @param key            the key of the hierarchy
+     * @param primitiveCount the amount of primitives of the hierarchy
+     * @param entry          the compiled hierarchy
+     */
+    void store(byte[] key, int primitiveCount, Entry entry) {
+        int nodes = entry.links().length / 2, references = entry.order().length;
+        ByteBuffer payload = ByteBuffer.allocate(48 * nodes + 8 * nodes + 4 * references);
+        payload.asDoubleBuffer().put(entry.nodeBounds());
+        payload.position(48 * nodes);
+        payload.asIntBuffer().put(entry.links());
+        payload.position(56 * nodes);
+        payload.asIntBuffer().put(entry.order());
+        payload.position(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(primitiveCount).putInt(nodes).putInt(references)
+                .putInt(entry.leafCount()).putInt(entry.maxDepth()).putDouble(entry.sahCost());
+        CRC32 crc = new CRC32();
+        crc.update(header.duplicate().position(CHECKED_START).limit(CHECKED_END));
+        crc.update(payload.duplicate());
+        header.putLong(crc.getValue()).put(key).flip();
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, "entry", ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer[] content = {header, payload};
+                while (payload.hasRemaining())
+                    channel.write(content);
+            }
+            try {
+                Files.move(temporary, file(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                // a concurrent load of a partial entry fails its check and builds the hierarchy
+                Files.move(temporary, file(key), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ignore) {
+            // the cache is best effort - the hierarchy is built again next time
+            return;
+        } finally {
+            // a temporary file is not an entry - it would never be evicted (it is gone after a successful move)
+            if (temporary != null)
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignore) {
+                    // the directory can't be written - nothing more can be done
+                }
+        }
+        evict();
+    }
+
+    /**
+     * Evict the entries older than the maximal age, and then the least recently used entries
+     * while the total size of the entries is over the maximal size
+     */
+    public void evict() {
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            stream.forEach(entries::add);
+        } catch (IOException ignore) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<long[]> used = new ArrayList<>(); // the last use and the size of each entry
+        List<Path> kept = new ArrayList<>();
+        for (Path entry : entries) {
+            try {
+                long lastUse = Files.getLastModifiedTime(entry).toMillis();
+                if (now - lastUse > maxAge.toMillis()) Files.deleteIfExists(entry);
+                else {
+                    used.add(new long[]{lastUse, Files.size(entry), kept.size()});
+                    kept.add(entry);
+                }
+            } catch (IOException ignore) {
+                // an entry that was removed meanwhile
+            }
+        }
+        long total = 0;
+        for (long[] entry : used)
+            total += entry[1];
+        used.sort(Comparator.comparingLong(entry -> entry[0]));
+        for (int i = 0; i < used.size() && total > maxSize; ++i) {
+            try {
+                Files.deleteIfExists(kept.get((int) used.get(i)[2]));
+                total -= used.get(i)[1];
+            } catch (IOException ignore) {
+                // an entry that can't be removed still counts
+            }
+        }
+    }
+}
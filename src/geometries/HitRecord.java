@@ -0,0 +1,126 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * Class HitRecord is a reusable record of the closest intersection of a ray, owned by the caller.
+ * The intersection queries write into it instead of allocating lists, points and vectors,
+ * so a record kept per thread makes the intersection path allocation free.
+ * The ray parameter of the record is also the maximal distance of the next query - every hit shrinks it
+ */
+public class HitRecord {
+    /**
+     * the intersected geometry (null if no hit was recorded)
+     */
+    public Geometry geometry;
+    /**
+     * the ray parameter of the hit - its distance from the head of the ray,
+     * or the maximal distance of the search while there is no hit
+     */
+    public double t;
+    /**
+     * the coordinates of the hit point
+     */
+    public double x, y, z;
+    /**
+     * the coordinates of the (normalized) normal of the geometry at the hit point
+     */
+    public double nx, ny, nz;
+
+    /**
+     * Constructor for an empty record with no maximal distance
+     */
+    public HitRecord() {
+        this(Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Constructor for an empty record
+     *
+     * @param maxDistance the maximal distance of the search
+     */
+    public HitRecord(double maxDistance) {
+        t = maxDistance;
+    }
+
+    /**
+     * Clear the record before a new search
+     *
+     * @param maxDistance the maximal distance of the search
+     * @return the record
+     */
+    public HitRecord reset(double maxDistance) {
+        geometry = null;
+        t = maxDistance;
+        return this;
+    }
+
+    /**
+     * Check whether a hit was recorded
+     *
+     * @return true if the record holds a hit
+     */
+    public boolean isHit() {
+        return geometry != null;
+    }
+
+    /**
+     * Record a hit along a ray - the normal is recorded separately by the geometry
+     *
+     * @param geometry the intersected geometry
+     * @param ray      the ray
+     * @param t        the ray parameter of the hit
+     */
+    void set(Geometry geometry, Ray ray, double t) {
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        this.geometry = geometry;
+        this.t = t;
+        x = head.getX() + direction.getX() * t;
+        y = head.getY() + direction.getY() * t;
+        z = head.getZ() + direction.getZ() * t;
+    }
+
+    /**
+     * Record the normal of the geometry at the hit point
+     *
+     * @param nx the x coordinate of the normal
+     * @param ny the y coordinate of the normal
+     * @param nz the z coordinate of the normal
+     */
+    void setNormal(double nx, double ny, double nz) {
+        this.nx = nx;
+        this.ny = ny;
+        this.nz = nz;
+    }
+
+    /**
+     * Get the hit point
+     *
+     * @return a new point at the hit coordinates
+     */
+    public Point getPoint() {
+        return new Point(x, y, z);
+    }
+
+    /**
+     * Get the normal of the geometry at the hit point
+     *
+     * @return a new vector of the normal
+     */
+    public Vector getNormal() {
+        return new Vector(nx, ny, nz);
+    }
+
+    /**
+     * Convert the hit to a GeoPoint (compatibility with the GeoPoint based queries)
+     *
+     * @return a new GeoPoint of the hit, or null if no hit was recorded
+     */
+    public GeoPoint toGeoPoint() {
+        return geometry == null ? null : new GeoPoint(geometry, getPoint(), t);
+    }
+}
@@ -0,0 +1,155 @@
+package geometries;
+
+import primitives.BoundingBox;
+import primitives.Double3;
+import primitives.Ray;
+import primitives.Transform;
+import primitives.Vector;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Class Instance places a shared object in the scene through an affine transformation.
+ * The object (and its acceleration structure) is stored once - the rays are transformed into its
+ * object space instead, so many instances of a big mesh cost roughly the memory of one mesh.
+ * Instances are bounded by the transformed box of their object, so a collection of instances is
+ * a two-level structure: the hierarchy of the collection over the instances, and the hierarchy of each object.
+ * The intersections keep the geometries of the object (and their materials), with the points and the
+ * normals of the hit records transformed back to the scene
+ */
+public class Instance extends Intersectable {
+    /**
+     * The shared object
+     */
+    private final Intersectable object;
+    /**
+     * The transformation from the object space to the scene
+     */
+    private Transform transform;
+    /**
+     * The transformation from the scene to the object space
+     */
+    private Transform inverse;
+    /**
+     * The bounding box of the instance in the scene (null if the object is unbounded)
+     */
+    private BoundingBox box;
+
+    /**
+     * Constructor for an instance of an object
+     *
+     * @param object    the shared object
+     * @param transform the transformation from the object space to the scene
+     */
+    public Instance(Intersectable object, Transform transform) {
+        this.object = object;
+        place(transform);
+    }
+
+    /**
+     * Move the instance by a new transformation. The collections holding the instance must be
+     * refitted ({@link Geometries#refit()}) before they are queried again
+     *
+     * @param transform the transformation from the object space to the scene
+     * @return the instance
+     */
+    public Instance setTransform(Transform transform) {
+        place(transform);
+        return this;
+    }
+
+    /**
+     * Place the instance by a transformation - its inverse and the bounding box in the scene
+     *
+     * @param transform the transformation from the object space to the scene
+     */
+    private void place(Transform transform) {
+        this.transform = transform;
+        inverse = transform.inverse();
+        BoundingBox objectBox = object.getBoundingBox();
+        box = objectBox == null ? null : transform.transform(objectBox);
+    }
+
+    /**
+     * Get the shared object of the instance
+     *
+     * @return the object
+     */
+    public Intersectable getObject() {
+        return object;
+    }
+
+    /**
+     * Get the transformation of the instance
+     *
+     * @return the transformation from the object space to the scene
+     */
+    public Transform getTransform() {
+        return transform;
+    }
+
+    /**
+     * Transform an intersection in the object space to the scene
+     *
+     * @param geoPoint the intersection in the object space
+     * @param scale    the scale of distances from the scene to the object space
+     * @return the intersection in the scene
+     */
+    private GeoPoint toScene(GeoPoint geoPoint, double scale) {
+        return new GeoPoint(geoPoint.geometry, transform.transform(geoPoint.point), geoPoint.t / scale);
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        double scale = inverse.transformScale(ray);
+        List<GeoPoint> objectIntersections = object.findGeoIntersectionsHelper(inverse.transform(ray), maxDistance * scale);
+        if (objectIntersections == null) return null;
+        List<GeoPoint> intersections = new LinkedList<>();
+        for (GeoPoint geoPoint : objectIntersections)
+            intersections.add(toScene(geoPoint, scale));
+        return intersections;
+    }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        double scale = inverse.transformScale(ray);
+        GeoPoint closest = object.findClosestGeoIntersectionHelper(inverse.transform(ray), maxDistance * scale);
+        return closest == null ? null : toScene(closest, scale);
+    }
+
+    @Override
+    protected boolean intersectHelper(Ray ray, HitRecord hit) {
+        double scale = inverse.transformScale(ray);
+        double maxDistance = hit.t;
+        hit.t = maxDistance * scale;
+        if (!object.intersectHelper(inverse.transform(ray), hit)) {
+            hit.t = maxDistance;
+            return false;
+        }
+        hit.set(hit.geometry, ray, hit.t / scale);
+        Vector normal = transform.transformNormal(hit.getNormal());
+        hit.setNormal(normal.getX(), normal.getY(), normal.getZ());
+        return true;
+    }
+
+    @Override
+    protected Double3 findTransmissionHelper(Ray ray, double maxDistance, Double3 kT, double minK) {
+        double scale = inverse.transformScale(ray);
+        return object.findTransmissionHelper(inverse.transform(ray), maxDistance * scale, kT, minK);
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return box;
+    }
+
+    @Override
+    void addMemory(MemoryStats stats) {
+        if (!stats.visit(this)) return;
+        // the two transformations hold a matrix and its inverse each
+        stats.addGeometry(MemoryStats.object(4, 0) + 2 * (MemoryStats.object(2, 0) + 2 * MemoryStats.align(
+                MemoryStats.ARRAY + 8 * 12)) + MemoryStats.BOX);
+        object.addMemory(stats);
+    }
+}
@@ -9,6 +9,11 @@ import java.util.List;
  * finding the intersections of the object with a ray
  */
 public abstract class Intersectable {
+    /**
+     * The maximal amount of rays in a packet - the rays of a packet are tracked by the bits of a mask
+     */
+    public static final int MAX_PACKET_SIZE = Long.SIZE;
+
     /**
      * method to find the intersections of the object with a ray
      *
@@ -51,6 +56,179 @@ public abstract class Intersectable {
      */
     protected abstract List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance);
 
+    /**
+     * method to find the closest GeoIntersection of the object with a ray
+     *
+     * @param ray the ray to find the intersection with
+     * @return the closest intersection point (with its ray parameter), or null if there is none
+     */
+    public final GeoPoint findClosestGeoIntersection(Ray ray) {
+        return findClosestGeoIntersectionHelper(ray, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * method to find the closest GeoIntersection of the object with a ray up to a maximum distance
+     *
+     * @param ray         the ray to find the intersection with
+     * @param maxDistance the maximum distance to find the intersection
+     * @return the closest intersection point (with its ray parameter), or null if there is none
+     */
+    public final GeoPoint findClosestGeoIntersection(Ray ray, double maxDistance) {
+        return findClosestGeoIntersectionHelper(ray, maxDistance);
+    }
+
+    /**
+     * method to find the closest GeoIntersection of the object with a ray up to a maximum distance.
+     * The default implementation picks the closest of all the intersections by their ray parameter,
+     * geometries override it to find the closest intersection without building a list
+     *
+     * @param ray         the ray to find the intersection with
+     * @param maxDistance the maximum distance to find the intersection
+     * @return the closest intersection point (with its ray parameter), or null if there is none
+     */
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        List<GeoPoint> intersections = findGeoIntersectionsHelper(ray, maxDistance);
+        if (intersections == null) return null;
+        GeoPoint closest = null;
+        for (GeoPoint geoPoint : intersections) {
+            // the parameter along the (normalized) ray direction - no square root is needed
+            if (Double.isNaN(geoPoint.t))
+                geoPoint.t = ray.getDirection().dotProduct(geoPoint.point.subtract(ray.getHead()));
+            if (closest == null || geoPoint.t < closest.t)
+                closest = geoPoint;
+        }
+        return closest;
+    }
+
+    /**
+     * method to find the closest intersection of the object with a ray, without allocations.
+     * Only a hit closer than the ray parameter of the record (the current maximal distance) is recorded
+     *
+     * @param ray the ray to find the intersection with
+     * @param hit the record of the closest hit found so far - updated if a closer hit is found
+     * @return true if a closer hit was found and recorded
+     */
+    public final boolean intersect(Ray ray, HitRecord hit) {
+        return intersectHelper(ray, hit);
+    }
+
+    /**
+     * method to find the closest intersection of the object with a ray into a hit record.
+     * The default implementation goes through the closest GeoIntersection query,
+     * geometries override it to record the hit without any allocation
+     *
+     * @param ray the ray to find the intersection with
+     * @param hit the record of the closest hit found so far - updated if a closer hit is found
+     * @return true if a closer hit was found and recorded
+     */
+    protected boolean intersectHelper(Ray ray, HitRecord hit) {
+        GeoPoint geoPoint = findClosestGeoIntersectionHelper(ray, hit.t);
+        if (geoPoint == null) return false;
+        hit.set(geoPoint.geometry, ray, geoPoint.t);
+        Vector normal = geoPoint.geometry.getNormal(geoPoint.point);
+        hit.setNormal(normal.getX(), normal.getY(), normal.getZ());
+        return true;
+    }
+
+    /**
+     * method to find the closest intersections of the object with a packet of coherent rays (such as the
+     * primary rays of neighbouring pixels), without allocations. Acceleration structures trace the rays
+     * of the packet together, so they share the work of their traversal
+     *
+     * @param rays the rays of the packet (at most {@link #MAX_PACKET_SIZE})
+     * @param hits the records of the closest hits found so far, by the indices of the rays - updated
+     * @return the mask of the rays for which a closer hit was found and recorded (bit i for the ray i)
+     * @throws IllegalArgumentException if the packet is too big or the records don't match the rays
+     */
+    public final long intersect(Ray[] rays, HitRecord[] hits) {
+        if (rays.length > MAX_PACKET_SIZE || hits.length < rays.length)
+            throw new IllegalArgumentException("A packet has at most " + MAX_PACKET_SIZE + " rays, a record for each");
+        return rays.length == 0 ? 0 : intersectHelper(rays, hits, -1L >>> (MAX_PACKET_SIZE - rays.length));
+    }
+
+    /**
+     * method to find the closest intersections of the object with the active rays of a packet into their
+     * hit records. The default implementation intersects each ray on its own
+     *
+     * @param rays   the rays of the packet
+     * @param hits   the records of the closest hits found so far, by the indices of the rays - updated
+     * @param active the mask of the active rays (bit i for the ray i)
+     * @return the mask of the rays for which a closer hit was found and recorded
+     */
+    protected long intersectHelper(Ray[] rays, HitRecord[] hits, long active) {
+        long found = 0;
+        for (long mask = active; mask != 0; mask &= mask - 1) {
+            int i = Long.numberOfTrailingZeros(mask);
+            if (intersectHelper(rays[i], hits[i])) found |= 1L << i;
+        }
+        return found;
+    }
+
+    /**
+     * method to find the transmission of a ray through the object up to a maximum distance -
+     * the product of the transparency (kT) of all the blockers along the ray (occlusion query).
+     * The search stops as soon as the product drops below the cutoff, so a single opaque blocker is enough
+     *
+     * @param ray         the ray to find the transmission of
+     * @param maxDistance the maximum distance to find the blockers
+     * @param minK        the cutoff - a transmission lower than it counts as a full block
+     * @return the transmission along the ray, {@link Double3#ZERO} if it is lower than the cutoff
+     */
+    public final Double3 findTransmission(Ray ray, double maxDistance, double minK) {
+        return findTransmissionHelper(ray, maxDistance, Double3.ONE, minK);
+    }
+
+    /**
+     * method to check whether the object blocks a ray up to a maximum distance, regardless of its transparency
+     * (any-hit query). The search stops at the first blocker found
+     *
+     * @param ray         the ray to check
+     * @param maxDistance the maximum distance to find the blockers
+     * @return true if the ray intersects the object up to the maximum distance
+     */
+    public final boolean isBlocked(Ray ray, double maxDistance) {
+        // every transmission is lower than an infinite cutoff - the first blocker ends the search
+        return findTransmissionHelper(ray, maxDistance, Double3.ONE, Double.POSITIVE_INFINITY) == Double3.ZERO;
+    }
+
+    /**
+     * method to accumulate the transmission of a ray through the object up to a maximum distance.
+     * The default implementation multiplies the transparency of all the intersections,
+     * geometries override it to stop at the first blocker
+     *
+     * @param ray         the ray to find the transmission of
+     * @param maxDistance the maximum distance to find the blockers
+     * @param kT          the transmission accumulated so far
+     * @param minK        the cutoff - a transmission lower than it counts as a full block
+     * @return the accumulated transmission, exactly {@link Double3#ZERO} if it is lower than the cutoff
+     */
+    protected Double3 findTransmissionHelper(Ray ray, double maxDistance, Double3 kT, double minK) {
+        List<GeoPoint> intersections = findGeoIntersectionsHelper(ray, maxDistance);
+        if (intersections == null) return kT;
+        for (GeoPoint geoPoint : intersections) {
+            kT = kT.product(geoPoint.geometry.getMaterial().kT);
+            if (kT.lowerThan(minK)) return Double3.ZERO;
+        }
+        return kT;
+    }
+
+    /**
+     * Add the estimated heap memory held by the object to memory statistics - by default a small geometry
+     * object. An object that was already counted (shared by several instances or collections) is skipped
+     *
+     * @param stats the statistics to add to
+     */
+    void addMemory(MemoryStats stats) {
+        if (stats.visit(this)) stats.addGeometry(MemoryStats.object(4, 8));
+    }
+
+    /**
+     * method to get the axis-aligned bounding box of the object
+     *
+     * @return the bounding box of the object, or null if the object is unbounded (infinite)
+     */
+    public abstract BoundingBox getBoundingBox();
+
     /**
      * class GeoPoint is a class to represent a point of intersection
      */
@@ -65,6 +243,12 @@ public abstract class Intersectable {
          */
         public Point point;
 
+        /**
+         * the ray parameter of the point - its distance from the head of the ray
+         * (NaN if it is unknown)
+         */
+        public double t = Double.NaN;
+
         /**
          * Constructor for a GeoPoint
          *
@@ -76,6 +260,19 @@ public abstract class Intersectable {
             this.point = point;
         }
 
+        /**
+         * Constructor for a GeoPoint with its ray parameter
+         *
+         * @param geometry the geometry of the point
+         * @param point    the point of the intersection
+         * @param t        the ray parameter of the point - its distance from the head of the ray
+         */
+        public GeoPoint(Geometry geometry, Point point, double t) {
+            this.geometry = geometry;
+            this.point = point;
+            this.t = t;
+        }
+
         /**
          * override for the equals method
          *
@@ -0,0 +1,304 @@
+package geometries;
+
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+/**
+ * Enum LeafKernel is the kernels that intersect a ray with all the primitives of a leaf of a hierarchy at once.
+ * The primitives are laid out by the hierarchy as a structure of arrays - an array per coordinate, in the
+ * order of the leaves - so the primitives of a leaf are contiguous in each array.
+ * All the kernels find the same hits: the closest one, with the ties resolved as the primitives are tested one by one
+ * (a later primitive at the same distance wins, as with {@link Triangle} and {@link Sphere}).
+ * The kernel of the hierarchies is picked once at startup ({@link #SELECTED})
+ */
+enum LeafKernel {
+    /**
+     * Test the primitives one by one, each test stops at its first failed condition
+     */
+    SCALAR {
+        @Override
+        int intersectTriangles(double[][] triangles, int first, int count, Ray ray, double maxDistance,
+                               double[] distances) {
+            Point head = ray.getHead();
+            Vector direction = ray.getDirection();
+            double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+            double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
+            double[] ax = triangles[0], ay = triangles[1], az = triangles[2];
+            double[] e1x = triangles[3], e1y = triangles[4], e1z = triangles[5];
+            double[] e2x = triangles[6], e2y = triangles[7], e2z = triangles[8];
+            int closest = -1;
+            for (int i = first, lane = 0; lane < count; ++i, ++lane) {
+                double px = dy * e2z[i] - dz * e2y[i], py = dz * e2x[i] - dx * e2z[i], pz = dx * e2y[i] - dy * e2x[i];
+                double det = e1x[i] * px + e1y[i] * py + e1z[i] * pz;
+                if (isZero(det)) continue;
+                double inverse = 1 / det;
+                double sx = ox - ax[i], sy = oy - ay[i], sz = oz - az[i];
+                double u = (sx * px + sy * py + sz * pz) * inverse;
+                if (alignZero(u) <= 0) continue;
+                double qx = sy * e1z[i] - sz * e1y[i], qy = sz * e1x[i] - sx * e1z[i], qz = sx * e1y[i] - sy * e1x[i];
+                double v = (dx * qx + dy * qy + dz * qz) * inverse;
+                if (alignZero(v) <= 0 || alignZero(1 - u - v) <= 0) continue;
+                double t = alignZero((e2x[i] * qx + e2y[i] * qy + e2z[i] * qz) * inverse);
+                if (t > 0 && alignZero(t - maxDistance) <= 0) {
+                    maxDistance = distances[lane] = t;
+                    closest = i;
+                }
+            }
+            return closest;
+        }
+
+        @Override
+        int intersectSpheres(double[][] spheres, int first, int count, Ray ray, double maxDistance,
+                             double[] distances) {
+            Point head = ray.getHead();
+            Vector direction = ray.getDirection();
+            double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+            double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
+            double[] cx = spheres[0], cy = spheres[1], cz = spheres[2], radii = spheres[3];
+            int closest = -1;
+            for (int i = first, lane = 0; lane < count; ++i, ++lane) {
+                double radius = radii[i];
+                double ux = cx[i] - ox, uy = cy[i] - oy, uz = cz[i] - oz;
+                double t;
+                if (isZero(ux) && isZero(uy) && isZero(uz)) {
+                    t = radius;
+                } else {
+                    double tm = alignZero(dx * ux + dy * uy + dz * uz);
+                    double d = alignZero(Math.sqrt(Math.max(0, ux * ux + uy * uy + uz * uz - tm * tm)));
+                    if (d >= radius) continue;
+                    double th = alignZero(Math.sqrt(radius * radius - d * d));
+                    t = alignZero(tm - th);
+                    if (t <= 0) t = alignZero(tm + th);
+                    if (t <= 0) continue;
+                }
+                if (alignZero(t - maxDistance) > 0) continue;
+                maxDistance = distances[lane] = t;
+                closest = i;
+            }
+            return closest;
+        }
+    },
+
+    /**
+     * Run each step of the test over all the primitives of the leaf in a straight loop without early exits
+     * (the distances of the lanes that miss are NaN), and then pick the closest distance in a second loop.
+     * The branches of the failed conditions are gone, but the loop is still scalar code - the JIT does not
+     * vectorize it (see {@link #VECTOR})
+     */
+    BATCHED {
+        @Override
+        int intersectTriangles(double[][] triangles, int first, int count, Ray ray, double maxDistance,
+                               double[] distances) {
+            Point head = ray.getHead();
+            Vector direction = ray.getDirection();
+            double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+            double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
+            double[] ax = triangles[0], ay = triangles[1], az = triangles[2];
+            double[] e1x = triangles[3], e1y = triangles[4], e1z = triangles[5];
+            double[] e2x = triangles[6], e2y = triangles[7], e2z = triangles[8];
+            for (int i = first, lane = 0; lane < count; ++i, ++lane) {
+                double px = dy * e2z[i] - dz * e2y[i], py = dz * e2x[i] - dx * e2z[i], pz = dx * e2y[i] - dy * e2x[i];
+                double det = e1x[i] * px + e1y[i] * py + e1z[i] * pz;
+                double inverse = 1 / det;
+                double sx = ox - ax[i], sy = oy - ay[i], sz = oz - az[i];
+                double u = (sx * px + sy * py + sz * pz) * inverse;
+                double qx = sy * e1z[i] - sz * e1y[i], qy = sz * e1x[i] - sx * e1z[i], qz = sx * e1y[i] - sy * e1x[i];
+                double v = (dx * qx + dy * qy + dz * qz) * inverse;
+                double t = alignZero((e2x[i] * qx + e2y[i] * qy + e2z[i] * qz) * inverse);
+                boolean inside = !isZero(det) & alignZero(u) > 0 & alignZero(v) > 0 & alignZero(1 - u - v) > 0;
+                distances[lane] = inside & t > 0 ? t : Double.NaN;
+            }
+            return pick(first, count, maxDistance, distances);
+        }
+
+        @Override
+        int intersectSpheres(double[][] spheres, int first, int count, Ray ray, double maxDistance,
+                             double[] distances) {
+            Point head = ray.getHead();
+            Vector direction = ray.getDirection();
+            double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+            double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
+            double[] cx = spheres[0], cy = spheres[1], cz = spheres[2], radii = spheres[3];
+            // the distances of the rays to the centers first - most of the lanes miss and skip the second root
+            int missed = 0;
+            for (int i = first, lane = 0; lane < count; ++i, ++lane) {
+                double ux = cx[i] - ox, uy = cy[i] - oy, uz = cz[i] - oz;
+                double tm = alignZero(dx * ux + dy * uy + dz * uz);
+                double d = alignZero(Math.sqrt(Math.max(0, ux * ux + uy * uy + uz * uz - tm * tm)));
+                boolean center = isZero(ux) & isZero(uy) & isZero(uz);
+                boolean miss = !center & d >= radii[i];
+                distances[lane] = center ? Double.POSITIVE_INFINITY : miss ? Double.NaN : d;
+                if (miss) ++missed;
+            }
+            if (missed == count) return -1;
+            for (int i = first, lane = 0; lane < count; ++i, ++lane) {
+                double d = distances[lane];
+                if (Double.isNaN(d)) continue;
+                double radius = radii[i];
+                if (d == Double.POSITIVE_INFINITY) {
+                    distances[lane] = radius;
+                    continue;
+                }
+                double tm = alignZero(dx * (cx[i] - ox) + dy * (cy[i] - oy) + dz * (cz[i] - oz));
+                double th = alignZero(Math.sqrt(radius * radius - d * d));
+                double t1 = alignZero(tm - th), t2 = alignZero(tm + th);
+                double t = t1 <= 0 ? t2 : t1;
+                distances[lane] = t <= 0 ? Double.NaN : t;
+            }
+            return pick(first, count, maxDistance, distances);
+        }
+    },
+
+    /**
+     * Test the lanes of the leaf together in the SIMD registers of the CPU with the incubator Vector API
+     * ({@link VectorLeafKernel}), and then pick the closest distance as {@link #BATCHED}.
+     * Available only when the JVM runs with {@code --add-modules jdk.incubator.vector} and its preferred
+     * vectors hold more than one double
+     */
+    VECTOR {
+        @Override
+        boolean isAvailable() {
+            return VECTORS;
+        }
+
+        @Override
+        int intersectTriangles(double[][] triangles, int first, int count, Ray ray, double maxDistance,
+                               double[] distances) {
+            return VectorLeafKernel.intersectTriangles(triangles, first, count, ray, maxDistance, distances);
+        }
+
+        @Override
+        int intersectSpheres(double[][] spheres, int first, int count, Ray ray, double maxDistance,
+                             double[] distances) {
+            return VectorLeafKernel.intersectSpheres(spheres, first, count, ray, maxDistance, distances);
+        }
+    };
+
+    /**
+     * The name of the system property that overrides the kernel picked at startup ("SCALAR", "BATCHED" or "VECTOR")
+     */
+    static final String PROPERTY = "geometries.leafKernel";
+
+    /**
+     * Whether the vector kernel can run: the module jdk.incubator.vector is in the boot layer of the JVM
+     * and the preferred vectors of the CPU are wider than a double
+     */
+    private static final boolean VECTORS = vectors();
+
+    /**
+     * The kernel of the hierarchies - the system property {@value #PROPERTY} if it is set to an available kernel,
+     * otherwise the vector kernel when it is available and the scalar kernel when it is not
+     */
+    static final LeafKernel SELECTED = select();
+
+    /**
+     * Pick the kernel of the hierarchies
+     *
+     * @return the kernel
+     */
+    private static LeafKernel select() {
+        String property = System.getProperty(PROPERTY);
+        if (property != null) {
+            try {
+                LeafKernel kernel = valueOf(property.trim().toUpperCase());
+                if (kernel.isAvailable()) return kernel;
+            } catch (IllegalArgumentException ignore) {
+                // an unknown kernel is ignored - the default is picked
+            }
+        }
+        return VECTORS ? VECTOR : SCALAR;
+    }
+
+    /**
+     * Check whether the vector kernel can run - the classes of the Vector API are touched only when the module
+     * is present, so the check never fails on a JVM without it
+     *
+     * @return true if the vector kernel is available
+     */
+    private static boolean vectors() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return false;
+        try {
+            return VectorLeafKernel.bitSize() > Double.SIZE;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Get the length of the scratch array of the lanes for the leaves of a hierarchy - rounded up to whole vectors
+     * of the widest shape (8 doubles), so the vector kernel can store whole vectors
+     *
+     * @param leafSize the amount of primitives in the biggest leaf
+     * @return the length of the scratch array
+     */
+    static int lanes(int leafSize) {
+        return (leafSize + 7) / 8 * 8;
+    }
+
+    /**
+     * Check whether the kernel can run on this JVM
+     *
+     * @return true if the kernel is available (the scalar and the batched kernels always are)
+     */
+    boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Pick the closest distance of the lanes, in the order of the primitives
+     *
+     * @param first       the position of the first primitive of the leaf
+     * @param count       the amount of primitives of the leaf
+     * @param maxDistance the distance of the closest hit found so far
+     * @param distances   the distances of the lanes, NaN for the lanes that miss
+     * @return the position of the primitive of the closest distance, or -1 if there is none up to the maximum
+     */
+    static int pick(int first, int count, double maxDistance, double[] distances) {
+        int closest = -1;
+        for (int lane = 0; lane < count; ++lane) {
+            double t = distances[lane];
+            // NaN fails the comparison, as a miss
+            if (alignZero(t - maxDistance) <= 0) {
+                maxDistance = t;
+                closest = first + lane;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Find the closest intersection of a ray with the triangles of a leaf.
+     * The triangles are laid out as 9 arrays by their positions: the coordinates of the first vertex,
+     * the first edge (from the first vertex to the second one) and the second edge (to the third one).
+     * A point on an edge or a vertex of a triangle is not an intersection, as in {@link Triangle}
+     *
+     * @param triangles   the arrays of the triangles: ax, ay, az, e1x, e1y, e1z, e2x, e2y, e2z
+     * @param first       the position of the first triangle of the leaf
+     * @param count       the amount of triangles of the leaf (at most the length of distances)
+     * @param ray         the ray to find the intersection with
+     * @param maxDistance the distance of the closest hit found so far
+     * @param distances   the scratch array of the lanes - the distance of the closest hit is at its lane
+     * @return the position of the closest triangle hit, or -1 if there is none up to the maximum distance
+     */
+    abstract int intersectTriangles(double[][] triangles, int first, int count, Ray ray, double maxDistance,
+                                    double[] distances);
+
+    /**
+     * Find the closest intersection of a ray with the spheres of a leaf (the first one in front of the ray's head).
+     * The spheres are laid out as 4 arrays by their positions: the coordinates of the center and the radius
+     *
+     * @param spheres     the arrays of the spheres: cx, cy, cz, radius
+     * @param first       the position of the first sphere of the leaf
+     * @param count       the amount of spheres of the leaf (at most the length of distances)
+     * @param ray         the ray to find the intersection with
+     * @param maxDistance the distance of the closest hit found so far
+     * @param distances   the scratch array of the lanes - the distance of the closest hit is at its lane
+     * @return the position of the closest sphere hit, or -1 if there is none up to the maximum distance
+     */
+    abstract int intersectSpheres(double[][] spheres, int first, int count, Ray ray, double maxDistance,
+                                  double[] distances);
+}
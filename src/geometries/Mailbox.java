@@ -0,0 +1,50 @@
+package geometries;
+
+import java.util.Arrays;
+
+/**
+ * Class Mailbox holds the per thread marks of the primitives tested by the current ray
+ * (mailboxing) - a primitive referenced from several cells or nodes of an acceleration structure
+ * is tested only once per ray
+ */
+final class Mailbox {
+    /**
+     * the ray stamp of the last test of each primitive
+     */
+    private final int[] stamps;
+    /**
+     * the stamp of the current ray
+     */
+    private int stamp = 0;
+
+    /**
+     * Constructor for a mailbox
+     *
+     * @param size the amount of primitives
+     */
+    Mailbox(int size) {
+        stamps = new int[size];
+    }
+
+    /**
+     * Start a new ray - invalidates all the marks
+     */
+    void next() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+    }
+
+    /**
+     * Mark a primitive as tested by the current ray
+     *
+     * @param index the index of the primitive
+     * @return true if the primitive was not tested by the current ray before
+     */
+    boolean mark(int index) {
+        if (stamps[index] == stamp) return false;
+        stamps[index] = stamp;
+        return true;
+    }
+}
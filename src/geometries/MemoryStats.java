@@ -0,0 +1,217 @@
+package geometries;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Class MemoryStats is the estimated heap memory held by geometries: the geometry objects themselves,
+ * the vertex buffers of the meshes and the acceleration structures. The sizes are estimated by the layout
+ * of a 64-bit JVM with compressed references (12 bytes object headers, 4 bytes references, 8 bytes alignment).
+ * A geometry shared by several instances (or collections) is counted once
+ */
+public class MemoryStats {
+    /**
+     * The size of an object header
+     */
+    static final int HEADER = 12;
+    /**
+     * The size of a reference
+     */
+    static final int REFERENCE = 4;
+    /**
+     * The size of an array header (object header and length)
+     */
+    static final int ARRAY = 16;
+    /**
+     * The size of a {@link primitives.Point} (or a {@link primitives.Vector}) with its {@link primitives.Double3}
+     */
+    static final int POINT = 16 + 40;
+    /**
+     * The size of a {@link primitives.BoundingBox}
+     */
+    static final int BOX = 64;
+
+    /**
+     * the amount of geometries (the meshes are counted as single geometries)
+     */
+    private int geometryCount = 0;
+    /**
+     * the bytes of the geometry objects
+     */
+    private long geometryBytes = 0;
+    /**
+     * the amount of vertices of the meshes
+     */
+    private long vertexCount = 0;
+    /**
+     * the bytes of the vertex, index and normal buffers of the meshes
+     */
+    private long vertexBytes = 0;
+    /**
+     * the bytes of the acceleration structures
+     */
+    private long hierarchyBytes = 0;
+    /**
+     * the geometries counted so far
+     */
+    private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Constructor for empty statistics
+     */
+    MemoryStats() {
+    }
+
+    /**
+     * Align a size to the object alignment
+     *
+     * @param bytes the size
+     * @return the aligned size
+     */
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Estimate the size of an object by its fields
+     *
+     * @param references the amount of reference fields
+     * @param primitives the bytes of the primitive fields
+     * @return the size of the object
+     */
+    static long object(int references, int primitives) {
+        return align(HEADER + (long) REFERENCE * references + primitives);
+    }
+
+    /**
+     * Get the size of an array of doubles
+     *
+     * @param array the array (may be null)
+     * @return the size of the array
+     */
+    static long sizeOf(double[] array) {
+        return array == null ? 0 : align(ARRAY + 8L * array.length);
+    }
+
+    /**
+     * Get the size of an array of floats
+     *
+     * @param array the array (may be null)
+     * @return the size of the array
+     */
+    static long sizeOf(float[] array) {
+        return array == null ? 0 : align(ARRAY + 4L * array.length);
+    }
+
+    /**
+     * Get the size of an array of integers
+     *
+     * @param array the array (may be null)
+     * @return the size of the array
+     */
+    static long sizeOf(int[] array) {
+        return array == null ? 0 : align(ARRAY + 4L * array.length);
+    }
+
+    /**
+     * Mark a geometry as counted
+     *
+     * @param geometry the geometry
+     * @return true if the geometry wasn't counted before
+     */
+    boolean visit(Object geometry) {
+        return visited.add(geometry);
+    }
+
+    /**
+     * Add a geometry object
+     *
+     * @param bytes the bytes of the object
+     */
+    void addGeometry(long bytes) {
+        ++geometryCount;
+        geometryBytes += bytes;
+    }
+
+    /**
+     * Add the buffers of a mesh
+     *
+     * @param vertices the amount of vertices
+     * @param bytes    the bytes of the buffers
+     */
+    void addVertices(long vertices, long bytes) {
+        vertexCount += vertices;
+        vertexBytes += bytes;
+    }
+
+    /**
+     * Add an acceleration structure
+     *
+     * @param bytes the bytes of the structure
+     */
+    void addHierarchy(long bytes) {
+        hierarchyBytes += bytes;
+    }
+
+    /**
+     * Get the amount of geometries - a mesh is a single geometry
+     *
+     * @return the amount of geometries
+     */
+    public int getGeometryCount() {
+        return geometryCount;
+    }
+
+    /**
+     * Get the bytes of the geometry objects
+     *
+     * @return the bytes of the geometries
+     */
+    public long getGeometryBytes() {
+        return geometryBytes;
+    }
+
+    /**
+     * Get the amount of vertices of the meshes
+     *
+     * @return the amount of vertices
+     */
+    public long getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Get the bytes of the vertex, index and normal buffers of the meshes
+     *
+     * @return the bytes of the buffers
+     */
+    public long getVertexBytes() {
+        return vertexBytes;
+    }
+
+    /**
+     * Get the bytes of the acceleration structures (the hierarchies of the collections and the meshes)
+     *
+     * @return the bytes of the structures
+     */
+    public long getHierarchyBytes() {
+        return hierarchyBytes;
+    }
+
+    /**
+     * Get the total estimated bytes
+     *
+     * @return the total bytes
+     */
+    public long getTotalBytes() {
+        return geometryBytes + vertexBytes + hierarchyBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MemoryStats{geometries=%d (%.2f MB), vertices=%d (%.2f MB), hierarchies=%.2f MB, "
+                        + "total=%.2f MB}", geometryCount, geometryBytes / 1e6, vertexCount, vertexBytes / 1e6,
+                hierarchyBytes / 1e6, getTotalBytes() / 1e6);
+    }
+}
@@ -54,33 +54,60 @@ public class Plane extends Geometry {
         return this.normal;
     }
 
+    @Override
+    void addMemory(MemoryStats stats) {
+        if (stats.visit(this)) stats.addGeometry(MemoryStats.object(4, 0) + 2 * MemoryStats.POINT);
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        // a plane is infinite - it can't be bounded
+        return null;
+    }
+
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
-        // if the ray starts on the plane, there is no intersection
-        if (q.equals(ray.getHead())) {
-            return null;
-        }
+        GeoPoint intersection = findClosestGeoIntersectionHelper(ray, maxDistance);
+        return intersection == null ? null : List.of(intersection);
+    }
 
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        HitRecord hit = new HitRecord(maxDistance);
+        return intersectHelper(ray, hit) ? hit.toGeoPoint() : null;
+    }
+
+    @Override
+    protected boolean intersectHelper(Ray ray, HitRecord hit) {
+        double t = findDistance(ray);
+        if (Double.isNaN(t) || alignZero(t - hit.t) > 0) return false;
+        hit.set(this, ray, t);
+        hit.setNormal(normal.getX(), normal.getY(), normal.getZ());
+        return true;
+    }
+
+    /**
+     * method to find the distance along a ray to its intersection with the plane, without allocations
+     *
+     * @param ray the ray to find the intersection with
+     * @return the (positive) ray parameter of the intersection, or NaN if there is no intersection
+     */
+    double findDistance(Ray ray) {
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
         // if the ray is parallel to the plane, there is no intersection
-        double nv = alignZero(normal.dotProduct(ray.getDirection()));
+        double nv = alignZero(normal.getX() * direction.getX() + normal.getY() * direction.getY()
+                + normal.getZ() * direction.getZ());
         // can't divide by zero
-        if (isZero(nv)) {
-            return null;
-        }
+        if (isZero(nv)) return Double.NaN;
 
         // if the ray's head is included in the plane, there is no intersection
-        double nQMinusHead = alignZero(this.normal.dotProduct(q.subtract(ray.getHead())));
-        if (isZero(nQMinusHead)) {
-            return null;
-        }
+        double nQMinusHead = alignZero(normal.getX() * (q.getX() - head.getX())
+                + normal.getY() * (q.getY() - head.getY()) + normal.getZ() * (q.getZ() - head.getZ()));
+        if (isZero(nQMinusHead)) return Double.NaN;
 
         double t = alignZero(nQMinusHead / nv);
         // if the intersection point is behind the ray or in tha head, there is no intersection
-        if (t <= 0) {
-            return null;
-        }
-
-        return (alignZero(t - maxDistance) <= 0) ?
-                List.of(new GeoPoint(this, ray.getPoint(t))) : null;
+        return t > 0 ? t : Double.NaN;
     }
 }
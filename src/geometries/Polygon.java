@@ -5,6 +5,7 @@ import java.util.List;
 import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
 
+import primitives.BoundingBox;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -28,6 +29,10 @@ public class Polygon extends Geometry {
      * The size of the polygon - the amount of the vertices in the polygon
      */
     private final int size;
+    /**
+     * The bounding box of the polygon
+     */
+    private final BoundingBox box;
 
     /**
      * Polygon constructor based on vertices list. The list must be ordered by edge
@@ -55,6 +60,7 @@ public class Polygon extends Geometry {
         if (vertices.length < 3) throw new IllegalArgumentException("A polygon can't have less than 3 vertices");
         this.vertices = List.of(vertices);
         size = vertices.length;
+        box = new BoundingBox(vertices);
 
         // Generate the plane according to the first three vertices and associate the
         // polygon with this plane.
@@ -93,35 +99,77 @@ public class Polygon extends Geometry {
         return plane.getNormal();
     }
 
+    @Override
+    void addMemory(MemoryStats stats) {
+        if (stats.visit(this)) stats.addGeometry(memorySize());
+    }
+
+    /**
+     * Estimate the heap memory held by the polygon - its vertices, its plane and its box
+     *
+     * @return the estimated bytes
+     */
+    long memorySize() {
+        return MemoryStats.object(5, 4) + MemoryStats.object(1, 0)
+                + MemoryStats.align(MemoryStats.ARRAY + (long) MemoryStats.REFERENCE * size)
+                + (long) size * MemoryStats.POINT + MemoryStats.object(4, 0) + 2 * MemoryStats.POINT + MemoryStats.BOX;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return box;
+    }
+
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
-        // if there are no intersections with the polygon's plane, there are no intersections with the polygon
-        List<GeoPoint> intersections = this.plane.findGeoIntersections(ray, maxDistance);
-        if (intersections == null) return null;
+        GeoPoint intersection = findClosestGeoIntersectionHelper(ray, maxDistance);
+        return intersection == null ? null : List.of(intersection);
+    }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        HitRecord hit = new HitRecord(maxDistance);
+        return intersectHelper(ray, hit) ? hit.toGeoPoint() : null;
+    }
 
-        // calculate the vectors from the ray's head to the vertices of the polygon
-        List<Vector> Vectors = new java.util.ArrayList<>(List.of());
+    @Override
+    protected boolean intersectHelper(Ray ray, HitRecord hit) {
+        // if there are no intersections with the polygon's plane, there are no intersections with the polygon
+        double t = plane.findDistance(ray);
+        if (Double.isNaN(t) || alignZero(t - hit.t) > 0) return false;
 
         Point head = ray.getHead();
-        for (Point vertex : vertices) {
-            Vectors.add(vertex.subtract(head));
-        }
+        Vector direction = ray.getDirection();
+        double hx = head.getX(), hy = head.getY(), hz = head.getZ();
+        double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
 
-        List<Vector> NVectors = new java.util.ArrayList<>(List.of());
+        // the vector from the ray's head to the current vertex of the polygon
+        Point vertex = vertices.getFirst();
+        double ax = vertex.getX() - hx, ay = vertex.getY() - hy, az = vertex.getZ() - hz;
+        boolean sign = false;
         for (int i = 0; i < size; i++) {
-            NVectors.add(Vectors.get(i).crossProduct(Vectors.get((i + 1) % size).normalize()));
-        }
+            // the normalized vector from the ray's head to the next vertex
+            vertex = vertices.get((i + 1) % size);
+            double bx = vertex.getX() - hx, by = vertex.getY() - hy, bz = vertex.getZ() - hz;
+            double length = alignZero(Math.sqrt(bx * bx + by * by + bz * bz));
+            if (length == 0) return false;
+            double nx = bx / length, ny = by / length, nz = bz / length;
 
-        Vector direction = ray.getDirection();
-        // if we get same sign for all dotProducts, the intersection is inside the triangle
-        boolean sign = alignZero(direction.dotProduct(NVectors.getFirst())) > 0;
-        for (Vector vector : NVectors) {
-            double dotProduct = alignZero(direction.dotProduct(vector));
+            // if we get same sign for all dotProducts with the side normals, the intersection is inside the polygon
+            double dotProduct = alignZero(dx * (ay * nz - az * ny) + dy * (az * nx - ax * nz) + dz * (ax * ny - ay * nx));
             // early stop - if one or more are 0.0 – no intersections with the polygon
             //also, if sign is different from the first dotProduct - no intersections with the polygon
-            if (isZero(dotProduct) || ((boolean)(dotProduct > 0)!=sign))
-                return null;
+            if (isZero(dotProduct)) return false;
+            if (i == 0) sign = dotProduct > 0;
+            else if (dotProduct > 0 != sign) return false;
+            ax = bx;
+            ay = by;
+            az = bz;
         }
-            return List.of(new GeoPoint(this,intersections.getFirst().point));
+
+        hit.set(this, ray, t);
+        Vector normal = plane.getNormal();
+        hit.setNormal(normal.getX(), normal.getY(), normal.getZ());
+        return true;
     }
 }
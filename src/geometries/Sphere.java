@@ -1,5 +1,6 @@
 package geometries;
 
+import primitives.BoundingBox;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -8,6 +9,7 @@ import java.util.List;
 
 import static java.lang.Math.sqrt;
 import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
 
 /**
  * Class Sphere represents a sphere in the 3D space
@@ -20,6 +22,11 @@ public class Sphere extends RadialGeometry {
      */
     private final Point center;
 
+    /**
+     * the bounding box of the sphere
+     */
+    private final BoundingBox box;
+
     /**
      * Constructor for a sphere in the 3D space
      *
@@ -29,6 +36,17 @@ public class Sphere extends RadialGeometry {
     public Sphere(Point center, double radius) {
         super(radius);
         this.center = center;
+        this.box = new BoundingBox(center.getX() - radius, center.getY() - radius, center.getZ() - radius,
+                center.getX() + radius, center.getY() + radius, center.getZ() + radius);
+    }
+
+    /**
+     * Getter for the center of the sphere
+     *
+     * @return the center of the sphere
+     */
+    Point getCenter() {
+        return center;
     }
 
     @Override
@@ -36,15 +54,26 @@ public class Sphere extends RadialGeometry {
         return point.subtract(center).normalize();
     }
 
+    @Override
+    void addMemory(MemoryStats stats) {
+        if (stats.visit(this)) stats.addGeometry(MemoryStats.object(4, 8) + MemoryStats.POINT + MemoryStats.BOX);
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return box;
+    }
+
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
         if (center.equals(ray.getHead())) {
-            return List.of(new GeoPoint(this,center.add(ray.getDirection().scale(radius))));
+            return List.of(new GeoPoint(this, center.add(ray.getDirection().scale(radius)), radius));
         }
 
         Vector u = center.subtract(ray.getHead());
         double tm = alignZero(ray.getDirection().dotProduct(u));
-        double d = alignZero(sqrt(u.lengthSquared() - tm * tm));
+        // rounding may take the squared distance below 0 for a ray through the center
+        double d = alignZero(sqrt(Math.max(0, u.lengthSquared() - tm * tm)));
         if (d >= radius)
             return null;
 
@@ -59,7 +88,44 @@ public class Sphere extends RadialGeometry {
             return null;
 
         // return the points in the correct order - the first point is the closest to the ray's head
-        return t1 <= 0 ? List.of(new GeoPoint(this,ray.getPoint(t2)))
-                : List.of(new GeoPoint(this,ray.getPoint(t1)), new GeoPoint(this,ray.getPoint(t2)));
+        return t1 <= 0 ? List.of(new GeoPoint(this, ray.getPoint(t2), t2))
+                : List.of(new GeoPoint(this, ray.getPoint(t1), t1), new GeoPoint(this, ray.getPoint(t2), t2));
+    }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        HitRecord hit = new HitRecord(maxDistance);
+        return intersectHelper(ray, hit) ? hit.toGeoPoint() : null;
+    }
+
+    @Override
+    protected boolean intersectHelper(Ray ray, HitRecord hit) {
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        double ux = center.getX() - head.getX(), uy = center.getY() - head.getY(), uz = center.getZ() - head.getZ();
+        double t;
+        if (isZero(ux) && isZero(uy) && isZero(uz)) {
+            t = radius;
+        } else {
+            double tm = alignZero(direction.getX() * ux + direction.getY() * uy + direction.getZ() * uz);
+            double d = alignZero(sqrt(Math.max(0, ux * ux + uy * uy + uz * uz - tm * tm)));
+            if (d >= radius)
+                return false;
+
+            double th = alignZero(sqrt(radius * radius - d * d));
+            // the closest point is the first one in front of the ray's head
+            t = alignZero(tm - th);
+            if (t <= 0)
+                t = alignZero(tm + th);
+            if (t <= 0)
+                return false;
+        }
+        if (alignZero(t - hit.t) > 0)
+            return false;
+
+        hit.set(this, ray, t);
+        hit.setNormal((hit.x - center.getX()) / radius, (hit.y - center.getY()) / radius,
+                (hit.z - center.getZ()) / radius);
+        return true;
     }
 }
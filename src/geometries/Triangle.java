@@ -7,12 +7,21 @@ import primitives.Vector;
 import java.util.List;
 
 import static primitives.Util.*;
+import static primitives.VectorMath.crossLength;
 
 /**
  * Class Triangle represents a triangle in the 3D space
  * The class is based on the Polygon class
  */
 public class Triangle extends Polygon {
+    /**
+     * The coordinates of the vertices of the triangle: x, y, z of each vertex
+     */
+    private final double[] coordinates;
+    /**
+     * Twice the area of the triangle - the length of the cross product of two of its edges
+     */
+    private final double area;
 
     /**
      * Constructor for a triangle in the 3D space:
@@ -23,6 +32,10 @@ public class Triangle extends Polygon {
      */
     public Triangle(Point point1, Point point2, Point point3) {
         super(point1, point2, point3);
+        coordinates = new double[]{point1.getX(), point1.getY(), point1.getZ(),
+                point2.getX(), point2.getY(), point2.getZ(), point3.getX(), point3.getY(), point3.getZ()};
+        double[] c = coordinates;
+        area = crossLength(c[3] - c[0], c[4] - c[1], c[5] - c[2], c[6] - c[0], c[7] - c[1], c[8] - c[2]);
     }
 
     /**
@@ -53,52 +66,55 @@ public class Triangle extends Polygon {
 //
 //        return null;
 //    }
+    @Override
+    long memorySize() {
+        return super.memorySize() + MemoryStats.sizeOf(coordinates) + 8;
+    }
+
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        GeoPoint intersection = findClosestGeoIntersectionHelper(ray, maxDistance);
+        return intersection == null ? null : List.of(intersection);
+    }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        HitRecord hit = new HitRecord(maxDistance);
+        return intersectHelper(ray, hit) ? hit.toGeoPoint() : null;
+    }
+
+    @Override
+    protected boolean intersectHelper(Ray ray, HitRecord hit) {
         // If there is no intersection with the plane containing the triangle, there is no intersection with the triangle
-        List<GeoPoint> points = plane.findGeoIntersections(ray, maxDistance);
-        if (points == null) {
-            return null;
-        }
+        double t = plane.findDistance(ray);
+        if (Double.isNaN(t) || alignZero(t - hit.t) > 0) return false;
 
         // the intersection point with the plane - we check if it is inside the triangle via barycentric coordinates
-        Point point = points.getFirst().point;
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        double px = head.getX() + direction.getX() * t;
+        double py = head.getY() + direction.getY() * t;
+        double pz = head.getZ() + direction.getZ() * t;
 
         // defining the vertices of the triangle
-        Point a = vertices.get(0);
-        Point b = vertices.get(1);
-        Point c = vertices.get(2);
-
-        // if the intersection point is a vertex of the triangle, it is not considered an intersection
-        if (point.equals(a) || point.equals(b) || point.equals(c)) {
-            return null;
-        }
-
-        Vector ab, bc, ap, bp, cp, ac;
-        double area, alpha, beta, gamma;
-
-        try {
-            ab = b.subtract(a); // a->b
-            bc = c.subtract(b); // b->c
-            ac = c.subtract(a); // a->c
-            ap = point.subtract(a); // a->q
-            bp = point.subtract(b); // b->q
-            cp = point.subtract(c); // c->q
-            // Alpha, beta, and gamma are calculated by the ratio between the respective
-            // triangles and the entire one.
-            area = ab.crossProduct(ac).length();
-            alpha = ab.crossProduct(ap).length() / area;
-            beta = bc.crossProduct(bp).length() / area;
-            gamma = ac.crossProduct(cp).length() / area;
-            // Point is inside if all the coordinates are positive
+        double[] v = coordinates;
+        double ax = v[0], ay = v[1], az = v[2];
+        double bx = v[3], by = v[4], bz = v[5];
+        double cx = v[6], cy = v[7], cz = v[8];
 
-            return (alignZero(alpha) > 0 && alignZero(beta) > 0 && alignZero(gamma) > 0
-                    && isZero(gamma + beta + alpha - 1)) ?
-                    List.of(new GeoPoint(this,points.getFirst().point)) : null;
+        // Alpha, beta, and gamma are calculated by the ratio between the respective
+        // triangles and the entire one.
+        double alpha = crossLength(bx - ax, by - ay, bz - az, px - ax, py - ay, pz - az) / area;
+        double beta = crossLength(cx - bx, cy - by, cz - bz, px - bx, py - by, pz - bz) / area;
+        double gamma = crossLength(cx - ax, cy - ay, cz - az, px - cx, py - cy, pz - cz) / area;
+        // Point is inside if all the coordinates are positive - a point on a vertex or an edge is not inside
+        if (!(alignZero(alpha) > 0 && alignZero(beta) > 0 && alignZero(gamma) > 0
+                && isZero(gamma + beta + alpha - 1)))
+            return false;
 
-            // if we get cross product of two vectors that make Zero vector, the point is not considered inside the triangle
-        } catch (IllegalArgumentException e) {
-            return null;
-        }
+        hit.set(this, ray, t);
+        Vector normal = plane.getNormal();
+        hit.setNormal(normal.getX(), normal.getY(), normal.getZ());
+        return true;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,483 @@
+package geometries;
+
+import primitives.*;
+
+import java.util.List;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+/**
+ * Class TriangleMesh represents a mesh of triangles in the 3D space sharing a single material.
+ * The vertices are stored once in a flat coordinates buffer and the triangles refer to them by index,
+ * the triangles are intersected with the Möller–Trumbore test and organized in an internal
+ * bounding volume hierarchy, so a ray only tests the triangles along its path
+ */
+public class TriangleMesh extends Geometry {
+    /**
+     * the coordinates of the vertices: x, y, z of each vertex (null in single precision)
+     */
+    private final double[] vertices;
+    /**
+     * the coordinates of the vertices in single precision (null in double precision)
+     */
+    private final float[] compactVertices;
+    /**
+     * the indices of the vertices of the triangles: 3 indices per triangle
+     */
+    private final int[] indices;
+    /**
+     * the (normalized) normals of the triangles: x, y, z of each triangle (null in single precision)
+     */
+    private final double[] normals;
+    /**
+     * the normals of the triangles in single precision (null in double precision)
+     */
+    private final float[] compactNormals;
+    /**
+     * the amount of triangles in the mesh
+     */
+    private final int size;
+    /**
+     * the hierarchy of the triangles
+     */
+    private final Hierarchy hierarchy;
+
+    /**
+     * The bounding volume hierarchy of the triangles of the mesh
+     */
+    private final class Hierarchy extends BoundingVolumeHierarchy {
+        /**
+         * The triangles in the order of the leaves, for the leaf kernel: the coordinates of the first vertex,
+         * the first edge and the second edge - 9 arrays of a coordinate per position.
+         * A mesh in single precision doesn't keep the layout - its triangles are tested one by one
+         */
+        private final double[][] triangles;
+
+        /**
+         * Constructor - builds the hierarchy over the triangles and lays them out in the order of its leaves
+         *
+         * @param bounds    the bounds of the triangles: minX, minY, minZ, maxX, maxY, maxZ of each triangle
+         * @param strategy  the build strategy of the tree
+         * @param precision the precision of the bounds of the nodes
+         */
+        Hierarchy(double[] bounds, Geometries.BuildStrategy strategy, Geometries.Precision precision) {
+            super(bounds, strategy, TriangleMesh.this::clipTriangle, precision);
+            if (precision == Geometries.Precision.FLOAT) {
+                triangles = null;
+                return;
+            }
+            int positions = positionCount();
+            triangles = new double[9][positions];
+            for (int position = 0; position < positions; ++position) {
+                int triangle = primitiveAt(position);
+                int a = 3 * indices[3 * triangle], b = 3 * indices[3 * triangle + 1], c = 3 * indices[3 * triangle + 2];
+                for (int axis = 0; axis < 3; ++axis) {
+                    triangles[axis][position] = vertices[a + axis];
+                    triangles[3 + axis][position] = vertices[b + axis] - vertices[a + axis];
+                    triangles[6 + axis][position] = vertices[c + axis] - vertices[a + axis];
+                }
+            }
+        }
+
+        @Override
+        protected boolean intersectLeaf(int first, int count, Ray ray, HitRecord hit, double[] lanes) {
+            if (triangles == null) return super.intersectLeaf(first, count, ray, hit, lanes);
+            int position = kernel.intersectTriangles(triangles, first, count, ray, hit.t, lanes);
+            if (position < 0) return false;
+            int triangle = primitiveAt(position);
+            hit.set(TriangleMesh.this, ray, lanes[position - first]);
+            hit.setNormal(normal(3 * triangle), normal(3 * triangle + 1), normal(3 * triangle + 2));
+            return true;
+        }
+
+        @Override
+        protected long intersectLeaf(int first, int count, Ray[] rays, HitRecord[] hits, long active,
+                                     double[] lanes) {
+            if (triangles == null) return super.intersectLeaf(first, count, rays, hits, active, lanes);
+            return intersectLeafByRay(first, count, rays, hits, active, lanes);
+        }
+
+        @Override
+        long getMemorySize() {
+            long layout = 0;
+            if (triangles != null)
+                for (double[] coordinates : triangles)
+                    layout += MemoryStats.sizeOf(coordinates);
+            return super.getMemorySize() + layout;
+        }
+
+        @Override
+        protected List<GeoPoint> findPrimitiveIntersections(int index, Ray ray, double maxDistance) {
+            HitRecord hit = new HitRecord(maxDistance);
+            return intersectTriangle(index, ray, hit) ? List.of(hit.toGeoPoint()) : null;
+        }
+
+        @Override
+        protected boolean intersectPrimitive(int index, Ray ray, HitRecord hit) {
+            return intersectTriangle(index, ray, hit);
+        }
+
+        @Override
+        protected Double3 findPrimitiveTransmission(int index, Ray ray, double maxDistance, Double3 kT, double minK) {
+            if (Double.isNaN(findTriangleDistance(index, ray, maxDistance))) return kT;
+            kT = kT.product(getMaterial().kT);
+            return kT.lowerThan(minK) ? Double3.ZERO : kT;
+        }
+    }
+
+    /**
+     * Constructor for a triangle mesh. Degenerated (zero area) triangles can't be hit and are dropped
+     *
+     * @param vertices the coordinates of the vertices: x, y, z of each vertex
+     * @param indices  the indices of the vertices of the triangles: 3 indices per triangle
+     * @throws IllegalArgumentException if the buffers are not made of whole vertices and triangles,
+     *                                  if an index is out of the vertices range, or if there are no triangles
+     */
+    public TriangleMesh(double[] vertices, int[] indices) {
+        this(vertices, indices, Geometries.BuildStrategy.SAH);
+    }
+
+    /**
+     * Constructor for a triangle mesh with a build strategy of its hierarchy.
+     * Degenerated (zero area) triangles can't be hit and are dropped
+     *
+     * @param vertices the coordinates of the vertices: x, y, z of each vertex
+     * @param indices  the indices of the vertices of the triangles: 3 indices per triangle
+     * @param strategy the build strategy of the hierarchy of the triangles
+     * @throws IllegalArgumentException if the buffers are not made of whole vertices and triangles,
+     *                                  if an index is out of the vertices range, or if there are no triangles
+     */
+    public TriangleMesh(double[] vertices, int[] indices, Geometries.BuildStrategy strategy) {
+        this(vertices, indices, strategy, Geometries.Precision.DOUBLE);
+    }
+
+    /**
+     * Constructor for a triangle mesh with a build strategy of its hierarchy and a precision of its storage.
+     * In single precision the vertices are rounded to the nearest float - the mesh is the rounded one
+     * (its shared vertices are rounded alike, so it stays closed) and it is intersected in double precision.
+     * Degenerated (zero area) triangles can't be hit and are dropped
+     *
+     * @param vertices  the coordinates of the vertices: x, y, z of each vertex
+     * @param indices   the indices of the vertices of the triangles: 3 indices per triangle
+     * @param strategy  the build strategy of the hierarchy of the triangles
+     * @param precision the precision of the vertices, the normals and the bounds of the hierarchy
+     * @throws IllegalArgumentException if the buffers are not made of whole vertices and triangles,
+     *                                  if an index is out of the vertices range, or if there are no triangles
+     */
+    public TriangleMesh(double[] vertices, int[] indices, Geometries.BuildStrategy strategy,
+                        Geometries.Precision precision) {
+        if (vertices.length % 3 != 0 || indices.length % 3 != 0)
+            throw new IllegalArgumentException("A mesh must be made of whole vertices and triangles");
+        int vertexCount = vertices.length / 3;
+        for (int index : indices)
+            if (index < 0 || index >= vertexCount)
+                throw new IllegalArgumentException("Triangle vertex index out of the vertices range: " + index);
+        // in single precision the mesh is the rounded one - its normals and bounds are computed from it
+        double[] coordinates = vertices.clone();
+        boolean compact = precision == Geometries.Precision.FLOAT;
+        if (compact)
+            for (int i = 0; i < coordinates.length; ++i)
+                coordinates[i] = (float) coordinates[i];
+
+        // compute the normals of the triangles and drop the degenerated ones
+        int[] valid = new int[indices.length];
+        double[] faceNormals = new double[indices.length];
+        int count = 0;
+        for (int i = 0; i < indices.length; i += 3) {
+            int a = 3 * indices[i], b = 3 * indices[i + 1], c = 3 * indices[i + 2];
+            double e1x = coordinates[b] - coordinates[a], e1y = coordinates[b + 1] - coordinates[a + 1], e1z = coordinates[b + 2] - coordinates[a + 2];
+            double e2x = coordinates[c] - coordinates[a], e2y = coordinates[c + 1] - coordinates[a + 1], e2z = coordinates[c + 2] - coordinates[a + 2];
+            double nx = e1y * e2z - e1z * e2y, ny = e1z * e2x - e1x * e2z, nz = e1x * e2y - e1y * e2x;
+            double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (isZero(length)) continue;
+            valid[3 * count] = indices[i];
+            valid[3 * count + 1] = indices[i + 1];
+            valid[3 * count + 2] = indices[i + 2];
+            faceNormals[3 * count] = nx / length;
+            faceNormals[3 * count + 1] = ny / length;
+            faceNormals[3 * count + 2] = nz / length;
+            ++count;
+        }
+        if (count == 0) throw new IllegalArgumentException("A mesh must have at least one (non degenerated) triangle");
+        size = count;
+        this.indices = java.util.Arrays.copyOf(valid, 3 * count);
+        faceNormals = java.util.Arrays.copyOf(faceNormals, 3 * count);
+        this.vertices = compact ? null : coordinates;
+        this.compactVertices = compact ? toFloats(coordinates) : null;
+        this.normals = compact ? null : faceNormals;
+        this.compactNormals = compact ? toFloats(faceNormals) : null;
+
+        double[] bounds = new double[6 * size];
+        for (int i = 0; i < size; ++i) {
+            int a = 3 * this.indices[3 * i], b = 3 * this.indices[3 * i + 1], c = 3 * this.indices[3 * i + 2];
+            for (int axis = 0; axis < 3; ++axis) {
+                bounds[6 * i + axis] = Math.min(coordinates[a + axis], Math.min(coordinates[b + axis], coordinates[c + axis]));
+                bounds[6 * i + 3 + axis] = Math.max(coordinates[a + axis], Math.max(coordinates[b + axis], coordinates[c + axis]));
+            }
+        }
+        hierarchy = new Hierarchy(bounds, strategy, precision);
+    }
+
+    /**
+     * Convert an array to single precision
+     *
+     * @param array the array in double precision
+     * @return the array in single precision
+     */
+    private static float[] toFloats(double[] array) {
+        float[] floats = new float[array.length];
+        for (int i = 0; i < array.length; ++i)
+            floats[i] = (float) array[i];
+        return floats;
+    }
+
+    /**
+     * Get a coordinate of the vertices buffer, in either precision
+     *
+     * @param i the index of the coordinate in the buffer
+     * @return the coordinate
+     */
+    private double vertex(int i) {
+        return vertices != null ? vertices[i] : compactVertices[i];
+    }
+
+    /**
+     * Get a coordinate of the normals buffer, in either precision
+     *
+     * @param i the index of the coordinate in the buffer
+     * @return the coordinate
+     */
+    private double normal(int i) {
+        return normals != null ? normals[i] : compactNormals[i];
+    }
+
+    /**
+     * Get the statistics of the build of the internal hierarchy of the mesh
+     *
+     * @return the build statistics
+     */
+    public BuildStats getBuildStats() {
+        return hierarchy.getStats();
+    }
+
+    /**
+     * Set the kernel that intersects the leaves of the internal hierarchy of the mesh (for tests and benchmarks) -
+     * by default the kernel picked at startup
+     *
+     * @param kernel the leaf kernel
+     */
+    void setLeafKernel(LeafKernel kernel) {
+        hierarchy.kernel = kernel;
+    }
+
+    /**
+     * Get the amount of traversal steps of the closest hit queries of the current thread through the hierarchy
+     * of the mesh - the nodes visited and the triangles tested (for benchmarks)
+     *
+     * @return the amount of traversal steps so far
+     */
+    long getTraversalSteps() {
+        return hierarchy.getTraversalSteps();
+    }
+
+    /**
+     * Narrow a box to the bounds of the part of a triangle within a slab along an axis - the clipper
+     * of the spatial splits of the hierarchy
+     *
+     * @param triangle the index of the triangle
+     * @param axis     the axis of the slab
+     * @param min      the lower border of the slab
+     * @param max      the upper border of the slab
+     * @param box      the box to narrow: minX, minY, minZ, maxX, maxY, maxZ
+     * @return false if no part of the triangle is within the box
+     */
+    private boolean clipTriangle(int triangle, int axis, double min, double max, double[] box) {
+        double[] corners = new double[9];
+        for (int corner = 0; corner < 3; ++corner)
+            for (int k = 0; k < 3; ++k)
+                corners[3 * corner + k] = vertex(3 * indices[3 * triangle + corner] + k);
+        return BoundingVolumeHierarchy.clipPolygon(corners, axis, min, max, box);
+    }
+
+    /**
+     * Get the amount of triangles in the mesh
+     *
+     * @return the amount of (non degenerated) triangles
+     */
+    public int getTriangleCount() {
+        return size;
+    }
+
+    /**
+     * Get the amount of vertices in the mesh
+     *
+     * @return the amount of vertices
+     */
+    public int getVertexCount() {
+        return (vertices != null ? vertices.length : compactVertices.length) / 3;
+    }
+
+    /**
+     * Get a vertex of a triangle of the mesh
+     *
+     * @param triangle the index of the triangle
+     * @param corner   the corner of the triangle (0, 1 or 2)
+     * @return the vertex
+     */
+    public Point getVertex(int triangle, int corner) {
+        int v = 3 * indices[3 * triangle + corner];
+        return new Point(vertex(v), vertex(v + 1), vertex(v + 2));
+    }
+
+    /**
+     * Calculate the bounding box of a triangle
+     *
+     * @param triangle the index of the triangle
+     * @return the bounding box of the triangle
+     */
+    private BoundingBox triangleBox(int triangle) {
+        int a = 3 * indices[3 * triangle], b = 3 * indices[3 * triangle + 1], c = 3 * indices[3 * triangle + 2];
+        return new BoundingBox(
+                Math.min(vertex(a), Math.min(vertex(b), vertex(c))),
+                Math.min(vertex(a + 1), Math.min(vertex(b + 1), vertex(c + 1))),
+                Math.min(vertex(a + 2), Math.min(vertex(b + 2), vertex(c + 2))),
+                Math.max(vertex(a), Math.max(vertex(b), vertex(c))),
+                Math.max(vertex(a + 1), Math.max(vertex(b + 1), vertex(c + 1))),
+                Math.max(vertex(a + 2), Math.max(vertex(b + 2), vertex(c + 2))));
+    }
+
+    /**
+     * {@inheritDoc}
+     * The point is matched to the triangle whose plane is the closest to it among the triangles
+     * whose boxes contain it - a linear search, the hit records carry the normal of the hit triangle instead
+     */
+    @Override
+    public Vector getNormal(Point point) {
+        double x = point.getX(), y = point.getY(), z = point.getZ();
+        int best = 0;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < size; ++i) {
+            int a = 3 * indices[3 * i];
+            double distance = Math.abs(normal(3 * i) * (x - vertex(a)) + normal(3 * i + 1) * (y - vertex(a + 1))
+                    + normal(3 * i + 2) * (z - vertex(a + 2)));
+            if (distance < bestDistance && contains(triangleBox(i), x, y, z)) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return new Vector(normal(3 * best), normal(3 * best + 1), normal(3 * best + 2));
+    }
+
+    /**
+     * Check whether a box contains a point, up to the accuracy of the calculations
+     *
+     * @param box the box
+     * @param x   the x coordinate of the point
+     * @param y   the y coordinate of the point
+     * @param z   the z coordinate of the point
+     * @return true if the point is inside the box
+     */
+    private static boolean contains(BoundingBox box, double x, double y, double z) {
+        return alignZero(x - box.minX) >= 0 && alignZero(box.maxX - x) >= 0
+                && alignZero(y - box.minY) >= 0 && alignZero(box.maxY - y) >= 0
+                && alignZero(z - box.minZ) >= 0 && alignZero(box.maxZ - z) >= 0;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return hierarchy.getBoundingBox();
+    }
+
+    @Override
+    void addMemory(MemoryStats stats) {
+        if (!stats.visit(this)) return;
+        stats.addGeometry(MemoryStats.object(9, 4));
+        stats.addVertices(getVertexCount(), MemoryStats.sizeOf(vertices) + MemoryStats.sizeOf(compactVertices)
+                + MemoryStats.sizeOf(indices) + MemoryStats.sizeOf(normals) + MemoryStats.sizeOf(compactNormals));
+        stats.addHierarchy(hierarchy.getMemorySize());
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        return hierarchy.findGeoIntersections(ray, maxDistance, null);
+    }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        HitRecord hit = new HitRecord(maxDistance);
+        return intersectHelper(ray, hit) ? hit.toGeoPoint() : null;
+    }
+
+    @Override
+    protected boolean intersectHelper(Ray ray, HitRecord hit) {
+        return hierarchy.intersect(ray, hit);
+    }
+
+    @Override
+    protected long intersectHelper(Ray[] rays, HitRecord[] hits, long active) {
+        return hierarchy.intersect(rays, hits, active);
+    }
+
+    @Override
+    protected Double3 findTransmissionHelper(Ray ray, double maxDistance, Double3 kT, double minK) {
+        // a single hit blocks the ray - any hit is enough
+        if (kT.product(getMaterial().kT).lowerThan(minK))
+            return hierarchy.intersect(ray, new HitRecord(maxDistance)) ? Double3.ZERO : kT;
+        return hierarchy.findTransmission(ray, maxDistance, kT, minK);
+    }
+
+    /**
+     * Find the closest intersection of a triangle of the mesh with a ray into a hit record
+     *
+     * @param triangle the index of the triangle
+     * @param ray      the ray to find the intersection with
+     * @param hit      the record of the closest hit found so far - updated if a closer hit is found
+     * @return true if a closer hit was found and recorded
+     */
+    private boolean intersectTriangle(int triangle, Ray ray, HitRecord hit) {
+        double t = findTriangleDistance(triangle, ray, hit.t);
+        if (Double.isNaN(t)) return false;
+        hit.set(this, ray, t);
+        hit.setNormal(normal(3 * triangle), normal(3 * triangle + 1), normal(3 * triangle + 2));
+        return true;
+    }
+
+    /**
+     * Find the distance along a ray to its intersection with a triangle of the mesh (Möller–Trumbore).
+     * As in {@link Triangle}, a point on an edge or a vertex of the triangle is not an intersection
+     *
+     * @param triangle    the index of the triangle
+     * @param ray         the ray to find the intersection with
+     * @param maxDistance the maximum distance to find the intersection
+     * @return the ray parameter of the intersection, or NaN if there is no intersection up to the maximum distance
+     */
+    private double findTriangleDistance(int triangle, Ray ray, double maxDistance) {
+        int a = 3 * indices[3 * triangle], b = 3 * indices[3 * triangle + 1], c = 3 * indices[3 * triangle + 2];
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
+
+        // the edges from the first vertex
+        double ax = vertex(a), ay = vertex(a + 1), az = vertex(a + 2);
+        double e1x = vertex(b) - ax, e1y = vertex(b + 1) - ay, e1z = vertex(b + 2) - az;
+        double e2x = vertex(c) - ax, e2y = vertex(c + 1) - ay, e2z = vertex(c + 2) - az;
+
+        // a ray parallel to the triangle's plane has no intersection
+        double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+        double det = e1x * px + e1y * py + e1z * pz;
+        if (isZero(det)) return Double.NaN;
+        double inverse = 1 / det;
+
+        // the barycentric coordinates of the intersection with the triangle's plane
+        double sx = head.getX() - ax, sy = head.getY() - ay, sz = head.getZ() - az;
+        double u = (sx * px + sy * py + sz * pz) * inverse;
+        if (alignZero(u) <= 0) return Double.NaN;
+        double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+        double v = (dx * qx + dy * qy + dz * qz) * inverse;
+        if (alignZero(v) <= 0 || alignZero(1 - u - v) <= 0) return Double.NaN;
+
+        double t = alignZero((e2x * qx + e2y * qy + e2z * qz) * inverse);
+        return t > 0 && alignZero(t - maxDistance) <= 0 ? t : Double.NaN;
+    }
+}
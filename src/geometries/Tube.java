@@ -1,5 +1,6 @@
 package geometries;
 
+import primitives.BoundingBox;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -35,6 +36,12 @@ public class Tube extends RadialGeometry {
         return point.subtract(axis.getPoint(axis.getDirection().dotProduct(point.subtract(axis.getHead())))).normalize();
     }
 
+    @Override
+    public BoundingBox getBoundingBox() {
+        // a tube is infinite along its axis - it can't be bounded
+        return null;
+    }
+
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
         // Not implemented
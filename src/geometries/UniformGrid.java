@@ -0,0 +1,397 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import primitives.BoundingBox;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Class UniformGrid is an acceleration structure for a collection of geometries.
+ * The bounding box of the bounded geometries is divided into equal cells, each cell references
+ * the geometries whose boxes overlap it, and a ray walks only the cells along its path (3D-DDA).
+ * The grid is built in linear time and fits dense soups of similar sized geometries, such as
+ * triangle meshes. Unbounded geometries (such as planes) are tested for every ray.
+ */
+class UniformGrid {
+    /**
+     * The desired average amount of cells per geometry - determines the resolution of the grid
+     */
+    private static final double CELLS_PER_GEOMETRY = 3.0;
+    /**
+     * The maximal resolution of the grid along each axis
+     */
+    private static final int MAX_RESOLUTION = 256;
+
+    /**
+     * The bounded geometries of the grid
+     */
+    private final Intersectable[] primitives;
+    /**
+     * The unbounded geometries - tested for every ray
+     */
+    private final Intersectable[] unbounded;
+    /**
+     * The bounding box of the grid (null if there are no bounded geometries)
+     */
+    private final BoundingBox box;
+    /**
+     * The amount of cells along each axis
+     */
+    private final int[] resolution = new int[3];
+    /**
+     * The size of a cell along each axis
+     */
+    private final double[] cellSize = new double[3];
+    /**
+     * The start of the references of each cell in the references array - the references of cell c
+     * are in the range [cellStart[c], cellStart[c + 1])
+     */
+    private final int[] cellStart;
+    /**
+     * The indices of the geometries referenced by the cells
+     */
+    private final int[] references;
+    /**
+     * The walk state of each thread, reused by all its rays
+     */
+    private final ThreadLocal<Walk> walks = ThreadLocal.withInitial(Walk::new);
+
+    /**
+     * Constructor - builds the grid over the given geometries
+     *
+     * @param geometries the geometries to organize
+     */
+    UniformGrid(List<Intersectable> geometries) {
+        List<Intersectable> bounded = new LinkedList<>();
+        List<Intersectable> infinite = new LinkedList<>();
+        BoundingBox bounds = null;
+        for (Intersectable geometry : geometries) {
+            BoundingBox geometryBox = geometry.getBoundingBox();
+            if (geometryBox == null) infinite.add(geometry);
+            else {
+                bounded.add(geometry);
+                bounds = bounds == null ? geometryBox : bounds.union(geometryBox);
+            }
+        }
+        primitives = bounded.toArray(new Intersectable[0]);
+        unbounded = infinite.toArray(new Intersectable[0]);
+        box = bounds;
+        int size = primitives.length;
+        if (box == null) {
+            cellStart = new int[1];
+            references = new int[0];
+            return;
+        }
+
+        chooseResolution(size);
+        int cells = resolution[0] * resolution[1] * resolution[2];
+
+        // first pass - count the references of each cell, second pass - fill them
+        int[][] ranges = new int[size][];
+        cellStart = new int[cells + 1];
+        for (int i = 0; i < size; ++i) {
+            ranges[i] = cellRange(primitives[i].getBoundingBox());
+            forEachCell(ranges[i], cell -> ++cellStart[cell + 1]);
+        }
+        for (int cell = 0; cell < cells; ++cell)
+            cellStart[cell + 1] += cellStart[cell];
+        references = new int[cellStart[cells]];
+        int[] fill = cellStart.clone();
+        for (int i = 0; i < size; ++i) {
+            int index = i;
+            forEachCell(ranges[i], cell -> references[fill[cell]++] = index);
+        }
+    }
+
+    /**
+     * Choose the resolution of the grid so that it has about CELLS_PER_GEOMETRY cells per geometry,
+     * with cells as close to cubes as possible
+     *
+     * @param size the amount of geometries
+     */
+    private void chooseResolution(int size) {
+        double[] extent = new double[3];
+        for (int axis = 0; axis < 3; ++axis)
+            extent[axis] = box.getMax(axis) - box.getMin(axis);
+        double maxExtent = Math.max(extent[0], Math.max(extent[1], extent[2]));
+        // flat axes get a single cell, the cells per unit of length are computed over the other axes
+        double volume = 1;
+        int dimensions = 0;
+        for (int axis = 0; axis < 3; ++axis)
+            if (extent[axis] > maxExtent * 1e-6) {
+                volume *= extent[axis];
+                ++dimensions;
+            }
+        double cellsPerLength = dimensions == 0 ? 0 : Math.pow(CELLS_PER_GEOMETRY * size / volume, 1.0 / dimensions);
+        for (int axis = 0; axis < 3; ++axis) {
+            if (extent[axis] > maxExtent * 1e-6) {
+                resolution[axis] = (int) Math.max(1, Math.min(MAX_RESOLUTION, Math.round(extent[axis] * cellsPerLength)));
+                cellSize[axis] = extent[axis] / resolution[axis];
+            } else {
+                resolution[axis] = 1;
+                cellSize[axis] = 0;
+            }
+        }
+    }
+
+    /**
+     * Find the range of cells overlapped by a box
+     *
+     * @param geometryBox the box
+     * @return the minimal and maximal cell indices along each axis: {x0, y0, z0, x1, y1, z1}
+     */
+    private int[] cellRange(BoundingBox geometryBox) {
+        int[] range = new int[6];
+        for (int axis = 0; axis < 3; ++axis) {
+            range[axis] = cellIndex(geometryBox.getMin(axis), axis);
+            range[axis + 3] = cellIndex(geometryBox.getMax(axis), axis);
+        }
+        return range;
+    }
+
+    /**
+     * Find the index of the cell containing a coordinate along an axis
+     *
+     * @param coordinate the coordinate
+     * @param axis       the axis
+     * @return the index of the cell, clamped to the grid
+     */
+    private int cellIndex(double coordinate, int axis) {
+        if (cellSize[axis] == 0) return 0;
+        int index = (int) ((coordinate - box.getMin(axis)) / cellSize[axis]);
+        return index < 0 ? 0 : Math.min(index, resolution[axis] - 1);
+    }
+
+    /**
+     * Apply an action on every cell of a range of cells
+     *
+     * @param range  the range of cells: {x0, y0, z0, x1, y1, z1}
+     * @param action the action to apply on the linear index of each cell
+     */
+    private void forEachCell(int[] range, java.util.function.IntConsumer action) {
+        for (int z = range[2]; z <= range[5]; ++z)
+            for (int y = range[1]; y <= range[4]; ++y)
+                for (int x = range[0]; x <= range[3]; ++x)
+                    action.accept((z * resolution[1] + y) * resolution[0] + x);
+    }
+
+    /**
+     * The state of a 3D-DDA walk of a ray through the cells of the grid.
+     * Each thread reuses a single walk for all its rays, so walking the grid doesn't allocate
+     */
+    private final class Walk {
+        /**
+         * the last ray that tested each geometry (mailboxing) - a geometry that overlaps
+         * several cells is tested only once per ray
+         */
+        private final Mailbox mailbox = new Mailbox(primitives.length);
+        /**
+         * the current cell along each axis
+         */
+        private final int[] cell = new int[3];
+        /**
+         * the direction of the steps along each axis
+         */
+        private final int[] step = new int[3];
+        /**
+         * the distance along the ray to the next cell border along each axis
+         */
+        private final double[] tNext = new double[3];
+        /**
+         * the distance along the ray between cell borders along each axis
+         */
+        private final double[] tDelta = new double[3];
+        /**
+         * the origin and the direction of the ray
+         */
+        private final double[] origin = new double[3], dir = new double[3];
+        /**
+         * the distance along the ray at which it leaves the grid (or reaches the maximal distance)
+         */
+        private double tExit;
+
+        /**
+         * Start the walk of a new ray - clips the ray by the box of the grid, sets up the walk
+         * from the cell of the entry point and clears the mailbox
+         *
+         * @param ray         the ray
+         * @param maxDistance the maximum distance along the ray
+         * @return false if the ray doesn't pass through the grid
+         */
+        boolean start(Ray ray, double maxDistance) {
+            Point head = ray.getHead();
+            Vector direction = ray.getDirection();
+            origin[0] = head.getX();
+            origin[1] = head.getY();
+            origin[2] = head.getZ();
+            dir[0] = direction.getX();
+            dir[1] = direction.getY();
+            dir[2] = direction.getZ();
+            double tEnter = 0, tOut = maxDistance;
+            for (int axis = 0; axis < 3; ++axis) {
+                double inverse = 1 / dir[axis];
+                double t1 = (box.getMin(axis) - origin[axis]) * inverse;
+                double t2 = (box.getMax(axis) - origin[axis]) * inverse;
+                if (t1 > t2) {
+                    double tmp = t1;
+                    t1 = t2;
+                    t2 = tmp;
+                }
+                if (t1 > tEnter) tEnter = t1;
+                if (t2 < tOut) tOut = t2;
+            }
+            tExit = tOut;
+            if (!(tEnter <= tExit)) return false;
+
+            for (int axis = 0; axis < 3; ++axis) {
+                cell[axis] = cellIndex(origin[axis] + dir[axis] * tEnter, axis);
+                if (cellSize[axis] == 0 || dir[axis] == 0) {
+                    // a flat axis of the grid or a ray parallel to the axis - never steps along it
+                    tNext[axis] = Double.POSITIVE_INFINITY;
+                } else if (dir[axis] > 0) {
+                    step[axis] = 1;
+                    tDelta[axis] = cellSize[axis] / dir[axis];
+                    tNext[axis] = (box.getMin(axis) + (cell[axis] + 1) * cellSize[axis] - origin[axis]) / dir[axis];
+                } else if (dir[axis] < 0) {
+                    step[axis] = -1;
+                    tDelta[axis] = -cellSize[axis] / dir[axis];
+                    tNext[axis] = (box.getMin(axis) + cell[axis] * cellSize[axis] - origin[axis]) / dir[axis];
+                } else {
+                    tNext[axis] = Double.POSITIVE_INFINITY;
+                }
+            }
+            mailbox.next();
+            return true;
+        }
+
+        /**
+         * Get the linear index of the current cell
+         *
+         * @return the index of the current cell
+         */
+        int cell() {
+            return (cell[2] * resolution[1] + cell[1]) * resolution[0] + cell[0];
+        }
+
+        /**
+         * Get the distance along the ray at which it leaves the current cell
+         *
+         * @return the exit distance of the current cell
+         */
+        double cellExit() {
+            return Math.min(tNext[0], Math.min(tNext[1], tNext[2]));
+        }
+
+        /**
+         * Step to the neighbour cell through the nearest cell border
+         *
+         * @return false if the ray has left the grid (or passed the maximal distance)
+         */
+        boolean step() {
+            int axis = tNext[0] < tNext[1] ? (tNext[0] < tNext[2] ? 0 : 2) : (tNext[1] < tNext[2] ? 1 : 2);
+            if (tNext[axis] > tExit) return false;
+            cell[axis] += step[axis];
+            if (cell[axis] < 0 || cell[axis] >= resolution[axis]) return false;
+            tNext[axis] += tDelta[axis];
+            return true;
+        }
+    }
+
+    /**
+     * Find the GeoIntersections of the geometries in the grid with a ray
+     *
+     * @param ray         the ray to find the intersections with
+     * @param maxDistance the maximum distance to find the intersections
+     * @return list of the intersections points, or null if there are none
+     */
+    List<GeoPoint> findGeoIntersections(Ray ray, double maxDistance) {
+        List<GeoPoint> intersections = null;
+        for (Intersectable geometry : unbounded)
+            intersections = Geometries.addAll(intersections, geometry.findGeoIntersections(ray, maxDistance));
+        if (box == null) return intersections;
+
+        Walk walk = walks.get();
+        if (!walk.start(ray, maxDistance)) return intersections;
+        Mailbox mailbox = walk.mailbox;
+        do {
+            int c = walk.cell();
+            for (int i = cellStart[c]; i < cellStart[c + 1]; ++i) {
+                int index = references[i];
+                if (mailbox.mark(index))
+                    intersections = Geometries.addAll(intersections, primitives[index].findGeoIntersections(ray, maxDistance));
+            }
+        } while (walk.step());
+        return intersections;
+    }
+
+    /**
+     * Find the closest intersection of the geometries in the grid with a ray into a hit record.
+     * The cells are walked front to back, and the walk stops at the first cell
+     * that the closest hit found so far lies in
+     *
+     * @param ray the ray to find the intersection with
+     * @param hit the record of the closest hit found so far - updated if a closer hit is found
+     * @return true if a closer hit was found and recorded
+     */
+    boolean intersect(Ray ray, HitRecord hit) {
+        boolean found = false;
+        for (Intersectable geometry : unbounded)
+            if (geometry.intersectHelper(ray, hit))
+                found = true;
+        if (box == null) return found;
+
+        Walk walk = walks.get();
+        if (!walk.start(ray, hit.t)) return found;
+        Mailbox mailbox = walk.mailbox;
+        do {
+            int c = walk.cell();
+            for (int i = cellStart[c]; i < cellStart[c + 1]; ++i) {
+                int index = references[i];
+                // a geometry is tested once per ray, so a hit beyond the current cell is kept as well
+                if (mailbox.mark(index) && primitives[index].intersectHelper(ray, hit))
+                    found = true;
+            }
+            // no geometry in the farther cells can be hit before a hit inside the current cell
+            if (hit.isHit() && hit.t <= walk.cellExit()) return found;
+        } while (walk.step());
+        return found;
+    }
+
+    /**
+     * Accumulate the transmission of a ray through the geometries in the grid (occlusion query).
+     * The walk stops as soon as the ray is blocked
+     *
+     * @param ray         the ray to find the transmission of
+     * @param maxDistance the maximum distance to find the blockers
+     * @param kT          the transmission accumulated so far
+     * @param minK        the cutoff - a transmission lower than it counts as a full block
+     * @return the accumulated transmission, exactly {@link Double3#ZERO} if it is lower than the cutoff
+     */
+    Double3 findTransmission(Ray ray, double maxDistance, Double3 kT, double minK) {
+        for (Intersectable geometry : unbounded) {
+            kT = geometry.findTransmissionHelper(ray, maxDistance, kT, minK);
+            if (kT == Double3.ZERO) return kT;
+        }
+        if (box == null) return kT;
+
+        Walk walk = walks.get();
+        if (!walk.start(ray, maxDistance)) return kT;
+        Mailbox mailbox = walk.mailbox;
+        do {
+            int c = walk.cell();
+            for (int i = cellStart[c]; i < cellStart[c + 1]; ++i) {
+                int index = references[i];
+                if (mailbox.mark(index)) {
+                    kT = primitives[index].findTransmissionHelper(ray, maxDistance, kT, minK);
+                    if (kT == Double3.ZERO) return kT;
+                }
+            }
+        } while (walk.step());
+        return kT;
+    }
+}
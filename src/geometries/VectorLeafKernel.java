@@ -0,0 +1,184 @@
+package geometries;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * Class VectorLeafKernel is the SIMD implementation of {@link LeafKernel#VECTOR} on the incubator Vector API:
+ * the lanes of a leaf are tested together in the vector registers of the preferred size of the CPU.
+ * Each step is the same operation in the same order as in {@link LeafKernel#SCALAR}, so the distances
+ * are bit identical. The class is loaded only after the JVM was found to run with the module
+ * jdk.incubator.vector ({@code --add-modules jdk.incubator.vector}).
+ * The tests of {@link primitives.Util} are written out in the kernels: a lane is almost zero if its magnitude is
+ * below 2^-40 ({@code isZero}), and positive after it is aligned to zero if it is at least 2^-40
+ * ({@code alignZero(x) > 0}). The JIT gives up inlining small helper methods in a method of this size,
+ * and a vector passed to a method that is not inlined is allocated on the heap
+ */
+final class VectorLeafKernel {
+    /**
+     * The vector shape of the kernels - the one the CPU prefers, at most 4 doubles (the leaves of the hierarchies
+     * hold up to 4 primitives, so wider vectors would only carry empty lanes)
+     */
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED.vectorBitSize() > 256
+            ? DoubleVector.SPECIES_256 : DoubleVector.SPECIES_PREFERRED;
+    /**
+     * A vector of the smallest magnitude that is not almost zero (2^-40)
+     */
+    private static final DoubleVector ACCURACY = DoubleVector.broadcast(SPECIES, 0x1p-40);
+    /**
+     * A vector of zeros
+     */
+    private static final DoubleVector ZEROS = DoubleVector.zero(SPECIES);
+    /**
+     * A vector of ones
+     */
+    private static final DoubleVector ONE = DoubleVector.broadcast(SPECIES, 1);
+    /**
+     * A vector of the distances of lanes that miss
+     */
+    private static final DoubleVector MISSES = DoubleVector.broadcast(SPECIES, Double.NaN);
+
+    /**
+     * Don't let anyone instantiate this class
+     */
+    private VectorLeafKernel() {
+    }
+
+    /**
+     * Get the size of the vectors of the kernels
+     *
+     * @return the amount of bits of a vector
+     */
+    static int bitSize() {
+        return SPECIES.vectorBitSize();
+    }
+
+    /**
+     * Check whether the vectors of a leaf fit in the arrays - the last vector of a leaf reads and writes
+     * the lanes past the leaf as well (they are ignored), which is cheaper than masked loads and stores.
+     * Only the leaves at the very end of the arrays don't fit
+     *
+     * @param first     the position of the first primitive of the leaf
+     * @param count     the amount of primitives of the leaf
+     * @param length    the length of the arrays of the primitives
+     * @param distances the scratch array of the lanes
+     * @return true if the full vectors of the leaf are inside the arrays
+     */
+    private static boolean fits(int first, int count, int length, double[] distances) {
+        int lanes = (count + SPECIES.length() - 1) / SPECIES.length() * SPECIES.length();
+        return first + lanes <= length && lanes <= distances.length;
+    }
+
+    /**
+     * Find the closest intersection of a ray with the triangles of a leaf -
+     * see {@link LeafKernel#intersectTriangles(double[][], int, int, Ray, double, double[])}
+     *
+     * @param triangles   the arrays of the triangles: ax, ay, az, e1x, e1y, e1z, e2x, e2y, e2z
+     * @param first       the position of the first triangle of the leaf
+     * @param count       the amount of triangles of the leaf (at most the length of distances)
+     * @param ray         the ray to find the intersection with
+     * @param maxDistance the distance of the closest hit found so far
+     * @param distances   the scratch array of the lanes - the distance of the closest hit is at its lane
+     * @return the position of the closest triangle hit, or -1 if there is none up to the maximum distance
+     */
+    static int intersectTriangles(double[][] triangles, int first, int count, Ray ray, double maxDistance,
+                                  double[] distances) {
+        if (!fits(first, count, triangles[0].length, distances))
+            return LeafKernel.SCALAR.intersectTriangles(triangles, first, count, ray, maxDistance, distances);
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        DoubleVector dx = DoubleVector.broadcast(SPECIES, direction.getX());
+        DoubleVector dy = DoubleVector.broadcast(SPECIES, direction.getY());
+        DoubleVector dz = DoubleVector.broadcast(SPECIES, direction.getZ());
+        DoubleVector ox = DoubleVector.broadcast(SPECIES, head.getX());
+        DoubleVector oy = DoubleVector.broadcast(SPECIES, head.getY());
+        DoubleVector oz = DoubleVector.broadcast(SPECIES, head.getZ());
+        for (int lane = 0; lane < count; lane += SPECIES.length()) {
+            int i = first + lane;
+            DoubleVector e1x = DoubleVector.fromArray(SPECIES, triangles[3], i);
+            DoubleVector e1y = DoubleVector.fromArray(SPECIES, triangles[4], i);
+            DoubleVector e1z = DoubleVector.fromArray(SPECIES, triangles[5], i);
+            DoubleVector e2x = DoubleVector.fromArray(SPECIES, triangles[6], i);
+            DoubleVector e2y = DoubleVector.fromArray(SPECIES, triangles[7], i);
+            DoubleVector e2z = DoubleVector.fromArray(SPECIES, triangles[8], i);
+            DoubleVector px = e2z.mul(dy).sub(e2y.mul(dz));
+            DoubleVector py = e2x.mul(dz).sub(e2z.mul(dx));
+            DoubleVector pz = e2y.mul(dx).sub(e2x.mul(dy));
+            DoubleVector det = e1x.mul(px).add(e1y.mul(py)).add(e1z.mul(pz));
+            DoubleVector inverse = ONE.div(det);
+            DoubleVector sx = ox.sub(DoubleVector.fromArray(SPECIES, triangles[0], i));
+            DoubleVector sy = oy.sub(DoubleVector.fromArray(SPECIES, triangles[1], i));
+            DoubleVector sz = oz.sub(DoubleVector.fromArray(SPECIES, triangles[2], i));
+            DoubleVector u = sx.mul(px).add(sy.mul(py)).add(sz.mul(pz)).mul(inverse);
+            DoubleVector qx = sy.mul(e1z).sub(sz.mul(e1y));
+            DoubleVector qy = sz.mul(e1x).sub(sx.mul(e1z));
+            DoubleVector qz = sx.mul(e1y).sub(sy.mul(e1x));
+            DoubleVector v = qx.mul(dx).add(qy.mul(dy)).add(qz.mul(dz)).mul(inverse);
+            DoubleVector t = e2x.mul(qx).add(e2y.mul(qy)).add(e2z.mul(qz)).mul(inverse);
+            // a lane hits if all of u, v, 1 - u - v and t are positive (a NaN fails the comparison of the minimum)
+            VectorMask<Double> hit = u.min(v).min(ONE.sub(u).sub(v)).min(t).compare(VectorOperators.GE, ACCURACY)
+                    .andNot(det.abs().lt(ACCURACY));
+            t.blend(MISSES, hit.not()).intoArray(distances, lane);
+        }
+        return LeafKernel.pick(first, count, maxDistance, distances);
+    }
+
+    /**
+     * Find the closest intersection of a ray with the spheres of a leaf -
+     * see {@link LeafKernel#intersectSpheres(double[][], int, int, Ray, double, double[])}
+     *
+     * @param spheres     the arrays of the spheres: cx, cy, cz, radius
+     * @param first       the position of the first sphere of the leaf
+     * @param count       the amount of spheres of the leaf (at most the length of distances)
+     * @param ray         the ray to find the intersection with
+     * @param maxDistance the distance of the closest hit found so far
+     * @param distances   the scratch array of the lanes - the distance of the closest hit is at its lane
+     * @return the position of the closest sphere hit, or -1 if there is none up to the maximum distance
+     */
+    static int intersectSpheres(double[][] spheres, int first, int count, Ray ray, double maxDistance,
+                                double[] distances) {
+        if (!fits(first, count, spheres[0].length, distances))
+            return LeafKernel.SCALAR.intersectSpheres(spheres, first, count, ray, maxDistance, distances);
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        DoubleVector dx = DoubleVector.broadcast(SPECIES, direction.getX());
+        DoubleVector dy = DoubleVector.broadcast(SPECIES, direction.getY());
+        DoubleVector dz = DoubleVector.broadcast(SPECIES, direction.getZ());
+        DoubleVector ox = DoubleVector.broadcast(SPECIES, head.getX());
+        DoubleVector oy = DoubleVector.broadcast(SPECIES, head.getY());
+        DoubleVector oz = DoubleVector.broadcast(SPECIES, head.getZ());
+        for (int lane = 0; lane < count; lane += SPECIES.length()) {
+            int i = first + lane;
+            DoubleVector radius = DoubleVector.fromArray(SPECIES, spheres[3], i);
+            DoubleVector ux = DoubleVector.fromArray(SPECIES, spheres[0], i).sub(ox);
+            DoubleVector uy = DoubleVector.fromArray(SPECIES, spheres[1], i).sub(oy);
+            DoubleVector uz = DoubleVector.fromArray(SPECIES, spheres[2], i).sub(oz);
+            DoubleVector tm = ux.mul(dx).add(uy.mul(dy)).add(uz.mul(dz));
+            tm = tm.blend(ZEROS, tm.abs().lt(ACCURACY));
+            DoubleVector d = ux.mul(ux).add(uy.mul(uy)).add(uz.mul(uz)).sub(tm.mul(tm)).max(ZEROS)
+                    .lanewise(VectorOperators.SQRT);
+            d = d.blend(ZEROS, d.abs().lt(ACCURACY));
+            VectorMask<Double> center = ux.abs().lt(ACCURACY).and(uy.abs().lt(ACCURACY)).and(uz.abs().lt(ACCURACY));
+            VectorMask<Double> near = d.compare(VectorOperators.GE, radius).not();
+            // most of the leaves are missed by the ray - the roots are computed only if a sphere is near enough
+            if (!near.or(center).anyTrue()) {
+                MISSES.intoArray(distances, lane);
+                continue;
+            }
+            DoubleVector th = radius.mul(radius).sub(d.mul(d)).lanewise(VectorOperators.SQRT);
+            th = th.blend(ZEROS, th.abs().lt(ACCURACY));
+            DoubleVector t1 = tm.sub(th), t2 = tm.add(th);
+            t1 = t1.blend(ZEROS, t1.abs().lt(ACCURACY));
+            t2 = t2.blend(ZEROS, t2.abs().lt(ACCURACY));
+            DoubleVector t = t1.blend(t2, t1.compare(VectorOperators.LE, ZEROS));
+            VectorMask<Double> hit = near.and(t.compare(VectorOperators.LE, ZEROS).not()).or(center);
+            t.blend(radius, center).blend(MISSES, hit.not()).intoArray(distances, lane);
+        }
+        return LeafKernel.pick(first, count, maxDistance, distances);
+    }
+}
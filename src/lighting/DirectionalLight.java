@@ -3,6 +3,7 @@ package lighting;
 import primitives.Color;
 import primitives.Point;
 import primitives.Vector;
+import primitives.VectorMath;
 
 /**
  * Class DirectionalLight represents a directional light source in the scene
@@ -39,4 +40,15 @@ public class DirectionalLight extends Light implements LightSource{
     public double getDistance(Point point) {
         return Double.POSITIVE_INFINITY;
     }
+
+    @Override
+    public double getL(double x, double y, double z, double[] l) {
+        VectorMath.set(l, direction);
+        return Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public void getIntensity(double x, double y, double z, double[] l, double distance, double[] rgb) {
+        VectorMath.set(rgb, getIntensity());
+    }
 }
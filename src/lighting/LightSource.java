@@ -29,4 +29,34 @@ public interface LightSource {
      * @return the distance between the light source and the point
      */
     double getDistance(Point point);
+
+    /**
+     * Find the direction from the light source to a point given by its coordinates, without allocation
+     * (for the tracing hot path)
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param z the z coordinate of the point
+     * @param l the scratch array to write the normalized vector from the light source to the point into
+     * @return the distance between the light source and the point
+     */
+    default double getL(double x, double y, double z, double[] l) {
+        Point point = new Point(x, y, z);
+        VectorMath.set(l, getL(point));
+        return getDistance(point);
+    }
+
+    /**
+     * Find the intensity of the light at a point given by its coordinates, without allocation
+     * (for the tracing hot path)
+     * @param x        the x coordinate of the point
+     * @param y        the y coordinate of the point
+     * @param z        the z coordinate of the point
+     * @param l        the normalized vector from the light source to the point, as found by
+     *                 {@link #getL(double, double, double, double[])}
+     * @param distance the distance between the light source and the point
+     * @param rgb      the scratch array to write the intensity into
+     */
+    default void getIntensity(double x, double y, double z, double[] l, double distance, double[] rgb) {
+        VectorMath.set(rgb, getIntensity(new Point(x, y, z)));
+    }
 }
\ No newline at end of file
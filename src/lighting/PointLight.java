@@ -3,6 +3,7 @@ package lighting;
 import primitives.Color;
 import primitives.Point;
 import primitives.Vector;
+import primitives.VectorMath;
 public class PointLight extends Light implements LightSource {
 
     /**
@@ -75,4 +76,16 @@ public class PointLight extends Light implements LightSource {
     public double getDistance(Point point) {
         return position.distance(point);
     }
+
+    @Override
+    public double getL(double x, double y, double z, double[] l) {
+        return VectorMath.direction(l, position, x, y, z);
+    }
+
+    @Override
+    public void getIntensity(double x, double y, double z, double[] l, double distance, double[] rgb) {
+        VectorMath.set(rgb, getIntensity());
+        double factor = 1d / (kC + kL * distance + kQ * distance * distance);
+        VectorMath.set(rgb, rgb[0] * factor, rgb[1] * factor, rgb[2] * factor);
+    }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package lighting;
 import primitives.Color;
 import primitives.Point;
 import primitives.Vector;
+import primitives.VectorMath;
 
 import static primitives.Util.alignZero;
 
@@ -65,6 +66,18 @@ public class SpotLight extends PointLight{
         return dotProduct <= 0 ? Color.BLACK : super.getIntensity(p).scale(Math.pow(dotProduct, narrowness));
     }
 
+    @Override
+    public void getIntensity(double x, double y, double z, double[] l, double distance, double[] rgb) {
+        double dotProduct = alignZero(VectorMath.dot(direction, l));
+        if (dotProduct <= 0) {
+            VectorMath.set(rgb, 0, 0, 0);
+            return;
+        }
+        super.getIntensity(x, y, z, l, distance, rgb);
+        double factor = Math.pow(dotProduct, narrowness);
+        VectorMath.set(rgb, rgb[0] * factor, rgb[1] * factor, rgb[2] * factor);
+    }
+
     @Override
     public Vector getL(Point p) {
         return super.getL(p);
@@ -0,0 +1,156 @@
+package primitives;
+
+/**
+ * Class BoundingBox represents an axis-aligned bounding box (AABB) in the 3D space
+ * The box is represented by its minimal and maximal corners
+ */
+public class BoundingBox {
+    /**
+     * The minimal x coordinate of the box
+     */
+    public final double minX;
+    /**
+     * The minimal y coordinate of the box
+     */
+    public final double minY;
+    /**
+     * The minimal z coordinate of the box
+     */
+    public final double minZ;
+    /**
+     * The maximal x coordinate of the box
+     */
+    public final double maxX;
+    /**
+     * The maximal y coordinate of the box
+     */
+    public final double maxY;
+    /**
+     * The maximal z coordinate of the box
+     */
+    public final double maxZ;
+
+    /**
+     * Constructor for a bounding box by its minimal and maximal coordinates
+     *
+     * @param minX the minimal x coordinate
+     * @param minY the minimal y coordinate
+     * @param minZ the minimal z coordinate
+     * @param maxX the maximal x coordinate
+     * @param maxY the maximal y coordinate
+     * @param maxZ the maximal z coordinate
+     * @throws IllegalArgumentException if a minimal coordinate is bigger than the maximal one
+     */
+    public BoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        if (minX > maxX || minY > maxY || minZ > maxZ)
+            throw new IllegalArgumentException("The minimal corner of a box must be below its maximal corner");
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * Constructor for the smallest bounding box containing all the given points
+     *
+     * @param points the points to bound (at least one)
+     */
+    public BoundingBox(Point... points) {
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY, z0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY, z1 = Double.NEGATIVE_INFINITY;
+        for (Point point : points) {
+            x0 = Math.min(x0, point.xyz.d1);
+            y0 = Math.min(y0, point.xyz.d2);
+            z0 = Math.min(z0, point.xyz.d3);
+            x1 = Math.max(x1, point.xyz.d1);
+            y1 = Math.max(y1, point.xyz.d2);
+            z1 = Math.max(z1, point.xyz.d3);
+        }
+        this.minX = x0;
+        this.minY = y0;
+        this.minZ = z0;
+        this.maxX = x1;
+        this.maxY = y1;
+        this.maxZ = z1;
+    }
+
+    /**
+     * Build the smallest box containing this box and another one
+     *
+     * @param other the other box
+     * @return the union of the two boxes
+     */
+    public BoundingBox union(BoundingBox other) {
+        return new BoundingBox(Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+    }
+
+    /**
+     * Get the minimal coordinate of the box along an axis
+     *
+     * @param axis the axis index (0 - x, 1 - y, 2 - z)
+     * @return the minimal coordinate along the axis
+     */
+    public double getMin(int axis) {
+        return axis == 0 ? minX : axis == 1 ? minY : minZ;
+    }
+
+    /**
+     * Get the maximal coordinate of the box along an axis
+     *
+     * @param axis the axis index (0 - x, 1 - y, 2 - z)
+     * @return the maximal coordinate along the axis
+     */
+    public double getMax(int axis) {
+        return axis == 0 ? maxX : axis == 1 ? maxY : maxZ;
+    }
+
+    /**
+     * Get the center coordinate of the box along an axis
+     *
+     * @param axis the axis index (0 - x, 1 - y, 2 - z)
+     * @return the center coordinate along the axis
+     */
+    public double getCenter(int axis) {
+        return (getMin(axis) + getMax(axis)) / 2;
+    }
+
+    /**
+     * Calculate the surface area of the box - the base of the surface area heuristic (SAH)
+     *
+     * @return the surface area of the box
+     */
+    public double surfaceArea() {
+        double dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        return (obj instanceof BoundingBox box)
+                && minX == box.minX && minY == box.minY && minZ == box.minZ
+                && maxX == box.maxX && maxY == box.maxY && maxZ == box.maxZ;
+    }
+
+    @Override
+    public int hashCode() {
+        // adding 0 turns -0 into 0, so the boxes equal by == get the same hash
+        int hash = Double.hashCode(minX + 0d);
+        hash = 31 * hash + Double.hashCode(minY + 0d);
+        hash = 31 * hash + Double.hashCode(minZ + 0d);
+        hash = 31 * hash + Double.hashCode(maxX + 0d);
+        hash = 31 * hash + Double.hashCode(maxY + 0d);
+        return 31 * hash + Double.hashCode(maxZ + 0d);
+    }
+
+    @Override
+    public String toString() {
+        return "BoundingBox{" +
+                "min=(" + minX + "," + minY + "," + minZ + ")" +
+                ", max=(" + maxX + "," + maxY + "," + maxZ + ")" +
+                '}';
+    }
+}
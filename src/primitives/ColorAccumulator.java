@@ -0,0 +1,138 @@
+package primitives;
+
+/**
+ * Class ColorAccumulator is a mutable sum of RGB components for the tracing hot path - the shading of
+ * the lights and of the reflections, and the average of the samples of a pixel, are summed into it
+ * without allocating a {@link Color} (and its {@link Double3}) for every term.
+ * It is converted to an immutable Color once, at the pixel boundary.
+ * An accumulator is not thread safe - each thread owns its accumulators
+ */
+public final class ColorAccumulator {
+    /**
+     * The red component of the sum
+     */
+    private double r;
+    /**
+     * The green component of the sum
+     */
+    private double g;
+    /**
+     * The blue component of the sum
+     */
+    private double b;
+
+    /**
+     * Constructor for an empty (black) accumulator
+     */
+    public ColorAccumulator() {
+    }
+
+    /**
+     * Clear the sum to black
+     *
+     * @return the accumulator
+     */
+    public ColorAccumulator reset() {
+        r = g = b = 0;
+        return this;
+    }
+
+    /**
+     * Add a color
+     *
+     * @param color the color to add
+     * @return the accumulator
+     */
+    public ColorAccumulator add(Color color) {
+        Double3 rgb = color.rgb;
+        r += rgb.d1;
+        g += rgb.d2;
+        b += rgb.d3;
+        return this;
+    }
+
+    /**
+     * Add a color attenuated by a factor per component
+     *
+     * @param color the color to add
+     * @param k     the attenuation factor of each component
+     * @return the accumulator
+     */
+    public ColorAccumulator add(Color color, Double3 k) {
+        Double3 rgb = color.rgb;
+        r += rgb.d1 * k.d1;
+        g += rgb.d2 * k.d2;
+        b += rgb.d3 * k.d3;
+        return this;
+    }
+
+    /**
+     * Add components attenuated by a factor per component
+     *
+     * @param red   the red component to add
+     * @param green the green component to add
+     * @param blue  the blue component to add
+     * @param k     the attenuation factor of each component
+     * @return the accumulator
+     */
+    public ColorAccumulator add(double red, double green, double blue, Double3 k) {
+        r += red * k.d1;
+        g += green * k.d2;
+        b += blue * k.d3;
+        return this;
+    }
+
+    /**
+     * Add the sum of another accumulator
+     *
+     * @param other the accumulator to add
+     * @return the accumulator
+     */
+    public ColorAccumulator add(ColorAccumulator other) {
+        r += other.r;
+        g += other.g;
+        b += other.b;
+        return this;
+    }
+
+    /**
+     * Scale the sum
+     *
+     * @param k the scale factor
+     * @return the accumulator
+     */
+    public ColorAccumulator scale(double k) {
+        r *= k;
+        g *= k;
+        b *= k;
+        return this;
+    }
+
+    /**
+     * Reduce the sum - such as to average it by the amount of samples
+     *
+     * @param k the reduction factor
+     * @return the accumulator
+     */
+    public ColorAccumulator reduce(int k) {
+        r /= k;
+        g /= k;
+        b /= k;
+        return this;
+    }
+
+    /**
+     * Convert the sum to an immutable color
+     *
+     * @return the color of the sum
+     * @throws IllegalArgumentException if a component of the sum is negative
+     */
+    public Color toColor() {
+        return new Color(r, g, b);
+    }
+
+    @Override
+    public String toString() {
+        return "sum:(" + r + "," + g + "," + b + ")";
+    }
+}
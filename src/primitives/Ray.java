@@ -14,6 +14,8 @@ public class Ray {
     private final Point head;
     /* The direction of the ray */
     private final Vector direction;
+    /* The inverse of the direction's coordinates - cached for the slab test against bounding boxes */
+    private final double inverseX, inverseY, inverseZ;
 
     /* The delta value for move the head of the Ray*/
     private static final double DELTA = 0.1;
@@ -28,6 +30,9 @@ public class Ray {
     public Ray(Point head, Vector direction) {
         this.head = head;
         this.direction = direction.normalize();
+        this.inverseX = 1 / this.direction.getX();
+        this.inverseY = 1 / this.direction.getY();
+        this.inverseZ = 1 / this.direction.getZ();
     }
 
     /**
@@ -41,6 +46,9 @@ public class Ray {
        Vector delta = normal.scale(normal.dotProduct(direction) > 0 ? DELTA : -DELTA);
        this.head = head.add(delta);
        this.direction = direction.normalize();
+       this.inverseX = 1 / this.direction.getX();
+       this.inverseY = 1 / this.direction.getY();
+       this.inverseZ = 1 / this.direction.getZ();
     }
 
     @Override
@@ -89,6 +97,83 @@ public class Ray {
         return head.add(direction.scale(t));
     }
 
+    /**
+     * Check whether the ray passes through a bounding box before a maximal distance (the slab test).
+     * The ray is clipped by the pair of planes (slab) of every axis, using the cached inverse direction
+     * instead of dividing by the direction for every box
+     *
+     * @param box         the bounding box to check
+     * @param maxDistance the maximal distance along the ray
+     * @return true if the ray passes through the box in the range [0, maxDistance]
+     */
+    public boolean intersectsBox(BoundingBox box, double maxDistance) {
+        return findBoxEntryDistance(box, maxDistance) != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Find the distance along the ray at which it enters a bounding box (the slab test).
+     * A ray that starts inside the box enters it at distance 0
+     *
+     * @param box         the bounding box to check
+     * @param maxDistance the maximal distance along the ray
+     * @return the entry distance in the range [0, maxDistance],
+     * or positive infinity if the ray doesn't pass through the box in that range
+     */
+    public double findBoxEntryDistance(BoundingBox box, double maxDistance) {
+        return findBoxEntryDistance(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ, maxDistance);
+    }
+
+    /**
+     * Find the distance along the ray at which it enters a bounding box given by its bounds (the slab test).
+     * A ray that starts inside the box enters it at distance 0
+     *
+     * @param minX        the minimal x of the box
+     * @param minY        the minimal y of the box
+     * @param minZ        the minimal z of the box
+     * @param maxX        the maximal x of the box
+     * @param maxY        the maximal y of the box
+     * @param maxZ        the maximal z of the box
+     * @param maxDistance the maximal distance along the ray
+     * @return the entry distance in the range [0, maxDistance],
+     * or positive infinity if the ray doesn't pass through the box in that range
+     */
+    public double findBoxEntryDistance(double minX, double minY, double minZ,
+                                      double maxX, double maxY, double maxZ, double maxDistance) {
+        Double3 origin = head.xyz;
+        // the comparisons skip NaN values (a ray parallel to a slab and starting on its border)
+        double tNear = 0, tFar = maxDistance;
+        double t1 = (minX - origin.d1) * inverseX;
+        double t2 = (maxX - origin.d1) * inverseX;
+        if (t1 > t2) {
+            double tmp = t1;
+            t1 = t2;
+            t2 = tmp;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+
+        t1 = (minY - origin.d2) * inverseY;
+        t2 = (maxY - origin.d2) * inverseY;
+        if (t1 > t2) {
+            double tmp = t1;
+            t1 = t2;
+            t2 = tmp;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+
+        t1 = (minZ - origin.d3) * inverseZ;
+        t2 = (maxZ - origin.d3) * inverseZ;
+        if (t1 > t2) {
+            double tmp = t1;
+            t1 = t2;
+            t2 = tmp;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        return tNear <= tFar ? tNear : Double.POSITIVE_INFINITY;
+    }
+
     /**
      * Find the closest point to the head of the ray from a list of points
      *
@@ -0,0 +1,265 @@
+package primitives;
+
+import static primitives.Util.isZero;
+
+/**
+ * Class Transform represents an affine transformation of the 3D space -
+ * a linear part (3x3 matrix) followed by a translation.
+ * The transformation is immutable and keeps its inverse, so both directions cost the same
+ */
+public class Transform {
+    /**
+     * The identity transformation
+     */
+    public static final Transform IDENTITY = new Transform(new double[]{
+            1, 0, 0, 0,
+            0, 1, 0, 0,
+            0, 0, 1, 0});
+
+    /**
+     * The matrix of the transformation - 3 rows of the linear part and the translation
+     */
+    private final double[] m;
+    /**
+     * The matrix of the inverse transformation
+     */
+    private final double[] inv;
+
+    /**
+     * Constructor for a transformation by its matrix
+     *
+     * @param m the 3 rows of the matrix: the linear part and the translation of each row
+     * @throws IllegalArgumentException if the transformation is singular
+     */
+    private Transform(double[] m) {
+        this.m = m;
+        // the inverse of the linear part by the adjugate
+        double c00 = m[5] * m[10] - m[6] * m[9];
+        double c01 = m[6] * m[8] - m[4] * m[10];
+        double c02 = m[4] * m[9] - m[5] * m[8];
+        double det = m[0] * c00 + m[1] * c01 + m[2] * c02;
+        if (isZero(det))
+            throw new IllegalArgumentException("The transformation is singular");
+        double f = 1 / det;
+        double[] i = new double[12];
+        i[0] = c00 * f;
+        i[1] = (m[2] * m[9] - m[1] * m[10]) * f;
+        i[2] = (m[1] * m[6] - m[2] * m[5]) * f;
+        i[4] = c01 * f;
+        i[5] = (m[0] * m[10] - m[2] * m[8]) * f;
+        i[6] = (m[2] * m[4] - m[0] * m[6]) * f;
+        i[8] = c02 * f;
+        i[9] = (m[1] * m[8] - m[0] * m[9]) * f;
+        i[10] = (m[0] * m[5] - m[1] * m[4]) * f;
+        // the inverse translation moves the translated origin back
+        for (int row = 0; row < 3; ++row)
+            i[4 * row + 3] = -(i[4 * row] * m[3] + i[4 * row + 1] * m[7] + i[4 * row + 2] * m[11]);
+        inv = i;
+    }
+
+    /**
+     * Constructor for a transformation with a known inverse
+     *
+     * @param m   the matrix of the transformation
+     * @param inv the matrix of the inverse transformation
+     */
+    private Transform(double[] m, double[] inv) {
+        this.m = m;
+        this.inv = inv;
+    }
+
+    /**
+     * Create a translation
+     *
+     * @param offset the translation vector
+     * @return the transformation
+     */
+    public static Transform translation(Vector offset) {
+        return translation(offset.getX(), offset.getY(), offset.getZ());
+    }
+
+    /**
+     * Create a translation by its coordinates
+     *
+     * @param dx the translation along the x axis
+     * @param dy the translation along the y axis
+     * @param dz the translation along the z axis
+     * @return the transformation
+     */
+    public static Transform translation(double dx, double dy, double dz) {
+        return new Transform(new double[]{
+                1, 0, 0, dx,
+                0, 1, 0, dy,
+                0, 0, 1, dz});
+    }
+
+    /**
+     * Create a scaling along the axes
+     *
+     * @param sx the scale along the x axis
+     * @param sy the scale along the y axis
+     * @param sz the scale along the z axis
+     * @return the transformation
+     * @throws IllegalArgumentException if any of the scales is zero
+     */
+    public static Transform scaling(double sx, double sy, double sz) {
+        return new Transform(new double[]{
+                sx, 0, 0, 0,
+                0, sy, 0, 0,
+                0, 0, sz, 0});
+    }
+
+    /**
+     * Create a uniform scaling
+     *
+     * @param scale the scale
+     * @return the transformation
+     * @throws IllegalArgumentException if the scale is zero
+     */
+    public static Transform scaling(double scale) {
+        return scaling(scale, scale, scale);
+    }
+
+    /**
+     * Create a rotation around an axis through the origin (right-handed)
+     *
+     * @param axis  the axis of the rotation
+     * @param angle the angle of the rotation in degrees
+     * @return the transformation
+     */
+    public static Transform rotation(Vector axis, double angle) {
+        Vector u = axis.normalize();
+        double x = u.getX(), y = u.getY(), z = u.getZ();
+        double cos = Math.cos(Math.toRadians(angle)), sin = Math.sin(Math.toRadians(angle)), t = 1 - cos;
+        return new Transform(new double[]{
+                t * x * x + cos, t * x * y - sin * z, t * x * z + sin * y, 0,
+                t * x * y + sin * z, t * y * y + cos, t * y * z - sin * x, 0,
+                t * x * z - sin * y, t * y * z + sin * x, t * z * z + cos, 0});
+    }
+
+    /**
+     * Compose this transformation with another one, applied after it
+     *
+     * @param next the transformation to apply after this one
+     * @return the composed transformation
+     */
+    public Transform then(Transform next) {
+        return new Transform(multiply(next.m, m), multiply(inv, next.inv));
+    }
+
+    /**
+     * Get the inverse transformation
+     *
+     * @return the inverse transformation
+     */
+    public Transform inverse() {
+        return new Transform(inv, m);
+    }
+
+    /**
+     * Multiply two affine matrices
+     *
+     * @param a the left matrix
+     * @param b the right matrix (applied first)
+     * @return the product matrix
+     */
+    private static double[] multiply(double[] a, double[] b) {
+        double[] c = new double[12];
+        for (int row = 0; row < 3; ++row) {
+            for (int col = 0; col < 4; ++col)
+                c[4 * row + col] = a[4 * row] * b[col] + a[4 * row + 1] * b[4 + col] + a[4 * row + 2] * b[8 + col];
+            c[4 * row + 3] += a[4 * row + 3];
+        }
+        return c;
+    }
+
+    /**
+     * Transform a point
+     *
+     * @param point the point
+     * @return the transformed point
+     */
+    public Point transform(Point point) {
+        return new Point(apply(m, point, 1));
+    }
+
+    /**
+     * Transform a vector - the translation doesn't apply to vectors
+     *
+     * @param vector the vector
+     * @return the transformed vector
+     */
+    public Vector transform(Vector vector) {
+        return new Vector(apply(m, vector, 0));
+    }
+
+    /**
+     * Transform a normal of a surface - by the inverse transpose of the linear part,
+     * so it stays orthogonal to the transformed surface
+     *
+     * @param normal the normal
+     * @return the transformed normal, normalized
+     */
+    public Vector transformNormal(Vector normal) {
+        Double3 n = normal.xyz;
+        return new Vector(
+                inv[0] * n.d1 + inv[4] * n.d2 + inv[8] * n.d3,
+                inv[1] * n.d1 + inv[5] * n.d2 + inv[9] * n.d3,
+                inv[2] * n.d1 + inv[6] * n.d2 + inv[10] * n.d3).normalize();
+    }
+
+    /**
+     * Transform a ray - the direction of the transformed ray is normalized,
+     * so distances along it are scaled by {@link #transformScale(Ray)}
+     *
+     * @param ray the ray
+     * @return the transformed ray
+     */
+    public Ray transform(Ray ray) {
+        return new Ray(transform(ray.getHead()), transform(ray.getDirection()));
+    }
+
+    /**
+     * Find the scale of distances along a ray by the transformation:
+     * a distance t along the ray is a distance t * scale along the transformed ray
+     *
+     * @param ray the ray
+     * @return the length of the transformed direction of the ray
+     */
+    public double transformScale(Ray ray) {
+        Double3 d = apply(m, ray.getDirection(), 0);
+        return Math.sqrt(d.d1 * d.d1 + d.d2 * d.d2 + d.d3 * d.d3);
+    }
+
+    /**
+     * Transform a bounding box - the box of the 8 transformed corners
+     *
+     * @param box the box
+     * @return the bounding box of the transformed box
+     */
+    public BoundingBox transform(BoundingBox box) {
+        Point[] corners = new Point[8];
+        for (int i = 0; i < 8; ++i)
+            corners[i] = transform(new Point(
+                    (i & 1) == 0 ? box.minX : box.maxX,
+                    (i & 2) == 0 ? box.minY : box.maxY,
+                    (i & 4) == 0 ? box.minZ : box.maxZ));
+        return new BoundingBox(corners);
+    }
+
+    /**
+     * Apply a matrix to coordinates
+     *
+     * @param matrix the matrix
+     * @param point  the coordinates
+     * @param w      1 for a point (translated), 0 for a vector
+     * @return the transformed coordinates
+     */
+    private static Double3 apply(double[] matrix, Point point, double w) {
+        Double3 p = point.xyz;
+        return new Double3(
+                matrix[0] * p.d1 + matrix[1] * p.d2 + matrix[2] * p.d3 + matrix[3] * w,
+                matrix[4] * p.d1 + matrix[5] * p.d2 + matrix[6] * p.d3 + matrix[7] * w,
+                matrix[8] * p.d1 + matrix[9] * p.d2 + matrix[10] * p.d3 + matrix[11] * w);
+    }
+}
@@ -1,6 +1,7 @@
 package primitives;
 
 import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
 
 /**
  * Class Vector is the basic class representing a vector in a 3D system.
@@ -17,7 +18,8 @@ public class Vector extends Point {
      */
     public Vector(double x, double y, double z) {
         super(x, y, z);
-        if (super.equals(Point.ZERO)) {
+        // compared by the coordinates - without going through equals()
+        if (isZero(x) && isZero(y) && isZero(z)) {
             throw new IllegalArgumentException("Zero vector is not allowed");
         }
     }
@@ -30,7 +32,7 @@ public class Vector extends Point {
      */
     public Vector(Double3 xyz) {
         super(xyz);
-        if (xyz.equals(Double3.ZERO)) {
+        if (isZero(xyz.d1) && isZero(xyz.d2) && isZero(xyz.d3)) {
             throw new IllegalArgumentException("Zero vector is not allowed");
         }
     }
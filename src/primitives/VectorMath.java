@@ -0,0 +1,154 @@
+package primitives;
+
+/**
+ * Class VectorMath is the math kernel of the tracing hot path - it works on primitive doubles and on
+ * scratch arrays of 3 components (x, y, z or r, g, b) owned by the caller, instead of the immutable
+ * {@link Point}, {@link Vector}, {@link Double3} and {@link Color} that allocate on every operation.
+ * The immutable types stay the API of building the scene, this class bridges between the two
+ */
+public final class VectorMath {
+    /**
+     * Private constructor - the class has static methods only
+     */
+    private VectorMath() {
+    }
+
+    /**
+     * Calculate the dot product of two vectors
+     *
+     * @param ax the x coordinate of the first vector
+     * @param ay the y coordinate of the first vector
+     * @param az the z coordinate of the first vector
+     * @param bx the x coordinate of the second vector
+     * @param by the y coordinate of the second vector
+     * @param bz the z coordinate of the second vector
+     * @return the dot product
+     */
+    public static double dot(double ax, double ay, double az, double bx, double by, double bz) {
+        return ax * bx + ay * by + az * bz;
+    }
+
+    /**
+     * Calculate the dot product of a vector with a vector in a scratch array
+     *
+     * @param vector the vector
+     * @param array  the scratch array of the second vector
+     * @return the dot product
+     */
+    public static double dot(Vector vector, double[] array) {
+        Double3 v = vector.xyz;
+        return v.d1 * array[0] + v.d2 * array[1] + v.d3 * array[2];
+    }
+
+    /**
+     * Calculate the length of a vector
+     *
+     * @param x the x coordinate of the vector
+     * @param y the y coordinate of the vector
+     * @param z the z coordinate of the vector
+     * @return the length
+     */
+    public static double length(double x, double y, double z) {
+        return Math.sqrt(x * x + y * y + z * z);
+    }
+
+    /**
+     * Calculate the length of the cross product of two vectors - twice the area of the triangle they span
+     *
+     * @param ux the x coordinate of the first vector
+     * @param uy the y coordinate of the first vector
+     * @param uz the z coordinate of the first vector
+     * @param vx the x coordinate of the second vector
+     * @param vy the y coordinate of the second vector
+     * @param vz the z coordinate of the second vector
+     * @return the length of the cross product
+     */
+    public static double crossLength(double ux, double uy, double uz, double vx, double vy, double vz) {
+        return length(uy * vz - uz * vy, uz * vx - ux * vz, ux * vy - uy * vx);
+    }
+
+    /**
+     * Set a scratch array to coordinates
+     *
+     * @param array the scratch array
+     * @param x     the x coordinate (or the red component)
+     * @param y     the y coordinate (or the green component)
+     * @param z     the z coordinate (or the blue component)
+     */
+    public static void set(double[] array, double x, double y, double z) {
+        array[0] = x;
+        array[1] = y;
+        array[2] = z;
+    }
+
+    /**
+     * Copy the coordinates of a point (or a vector) into a scratch array
+     *
+     * @param array the scratch array
+     * @param point the point
+     */
+    public static void set(double[] array, Point point) {
+        Double3 p = point.xyz;
+        set(array, p.d1, p.d2, p.d3);
+    }
+
+    /**
+     * Copy a triad of doubles (such as the coefficients of a material) into a scratch array
+     *
+     * @param array the scratch array
+     * @param value the triad
+     */
+    public static void set(double[] array, Double3 value) {
+        set(array, value.d1, value.d2, value.d3);
+    }
+
+    /**
+     * Copy the components of a color into a scratch array
+     *
+     * @param array the scratch array
+     * @param color the color
+     */
+    public static void set(double[] array, Color color) {
+        set(array, color.rgb);
+    }
+
+    /**
+     * Normalize the vector from a point to coordinates into a scratch array
+     *
+     * @param array the scratch array of the normalized vector
+     * @param from  the point the vector starts at
+     * @param x     the x coordinate the vector ends at
+     * @param y     the y coordinate the vector ends at
+     * @param z     the z coordinate the vector ends at
+     * @return the length of the vector (the distance between the point and the coordinates)
+     */
+    public static double direction(double[] array, Point from, double x, double y, double z) {
+        Double3 p = from.xyz;
+        double dx = x - p.d1, dy = y - p.d2, dz = z - p.d3;
+        double length = length(dx, dy, dz);
+        set(array, dx / length, dy / length, dz / length);
+        return length;
+    }
+
+    /**
+     * Check whether all the components of the product of two triads are lower than a value
+     *
+     * @param a the first triad
+     * @param b the second triad
+     * @param k the value
+     * @return true if all the components of a * b are lower than k
+     */
+    public static boolean productLowerThan(Double3 a, Double3 b, double k) {
+        return a.d1 * b.d1 < k && a.d2 * b.d2 < k && a.d3 * b.d3 < k;
+    }
+
+    /**
+     * Create a color of the components in a scratch array
+     *
+     * @param array the scratch array of the components
+     * @return the color
+     */
+    public static Color toColor(double[] array) {
+        return new Color(array[0], array[1], array[2]);
+    }
+}
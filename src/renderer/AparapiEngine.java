@@ -0,0 +1,118 @@
+package renderer;
+
+import com.aparapi.Kernel;
+import com.aparapi.Range;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Class AparapiEngine renders the pixels of a frame on Aparapi kernels, a band of rows per kernel, each kernel
+ * executed from its own thread. The tracing of a pixel can't be translated to OpenCL, so the kernels run in
+ * their fallback Java thread pool, and when the native part of Aparapi can't be loaded each band is rendered
+ * directly on its thread - the report tells where they ran
+ */
+final class AparapiEngine implements RenderEngine {
+    /**
+     * The amount of kernels
+     */
+    private final int kernels;
+
+    /**
+     * Constructor for an engine of an amount of kernels
+     *
+     * @param kernels the amount of kernels
+     * @throws IllegalArgumentException if the amount of kernels is not positive
+     */
+    AparapiEngine(int kernels) {
+        if (kernels <= 0) throw new IllegalArgumentException("The amount of kernels must be positive");
+        this.kernels = kernels;
+    }
+
+    @Override
+    public RenderReport render(RenderJob job) {
+        long start = System.nanoTime();
+        int nX = job.getNx(), nY = job.getNy();
+        int bands = Math.min(kernels, nY);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean unavailable = new AtomicBoolean();
+        List<Kernel> bandKernels = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int k = 0; k < bands; k++) {
+            final int startY = k * (nY / bands);
+            final int endY = (k == bands - 1) ? nY : (k + 1) * (nY / bands);
+            Kernel kernel = new Kernel() {
+                @Override
+                public void run() {
+                    int i = getGlobalId(1) + startY;
+                    int j = getGlobalId(0);
+                    if (i < endY) renderPixel(job, j, i, failure);
+                }
+            };
+            bandKernels.add(kernel);
+            final Range range = Range.create2D(nX, endY - startY);
+            Thread thread = new Thread(() -> {
+                try {
+                    kernel.execute(range);
+                } catch (LinkageError e) {
+                    // the native part of Aparapi is missing - no pixel of the band was rendered yet
+                    unavailable.set(true);
+                    for (int i = startY; i < endY; i++)
+                        for (int j = 0; j < nX; j++)
+                            renderPixel(job, j, i, failure);
+                }
+            }, "aparapi-" + k);
+            threads.add(thread);
+            thread.start();
+        }
+        boolean interrupted = false;
+        for (Thread thread : threads)
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    job.cancel();
+                }
+            }
+        if (interrupted) Thread.currentThread().interrupt();
+        boolean openCL = false;
+        if (!unavailable.get())
+            for (Kernel kernel : bandKernels) {
+                openCL |= kernel.isRunningCL();
+                kernel.dispose();
+            }
+        RenderScope.rethrow(failure.get());
+        job.checkStopped();
+        // the work units of the kernels are their bands of rows, not the tiles of the job
+        return new RenderReport(getName(), bands, bands, job.getPixelsDone(), System.nanoTime() - start,
+                "kernels=" + bands + (openCL ? ", OpenCL"
+                        : unavailable.get() ? ", Aparapi unavailable, Java threads" : ", Java thread pool fallback"));
+    }
+
+    /**
+     * Render a pixel of a band unless the frame is stopped or failed - the failure is captured, since the
+     * kernel's pool would swallow it
+     *
+     * @param job     the frame
+     * @param column  the column of the pixel
+     * @param row     the row of the pixel
+     * @param failure the first failure of the frame
+     */
+    private static void renderPixel(RenderJob job, int column, int row, AtomicReference<Throwable> failure) {
+        if (failure.get() != null || job.isStopped()) return;
+        try {
+            job.renderPixel(column, row);
+        } catch (Throwable e) {
+            if (!failure.compareAndSet(null, e)) failure.get().addSuppressed(e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "aparapi";
+    }
+}
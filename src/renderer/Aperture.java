@@ -6,6 +6,7 @@ import primitives.Vector;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.random.RandomGenerator;
 
 import static primitives.Util.isZero;
 
@@ -27,7 +28,23 @@ public class Aperture {
      * @return a list of points
      */
     public static List<Point> generateAperturePoints(Point p0, Vector vUp, Vector vRight, double aperture, int multipleRaysNum) {
-        Random random = new Random();
+        return generateAperturePoints(p0, vUp, vRight, aperture, multipleRaysNum, new Random());
+    }
+
+    /**
+     * Generate aperture points jittered by a given source of random numbers - the same source state gives
+     * the same points
+     *
+     * @param p0              the point to generate the aperture points around
+     * @param vUp             the vector up
+     * @param vRight          the vector right
+     * @param aperture        the aperture size
+     * @param multipleRaysNum the number of rays to generate
+     * @param random          the source of the jitter
+     * @return a list of points
+     */
+    public static List<Point> generateAperturePoints(Point p0, Vector vUp, Vector vRight, double aperture,
+                                                     int multipleRaysNum, RandomGenerator random) {
         List<Point> points = new ArrayList<Point>();
         double step = aperture * 2 / (multipleRaysNum + 1);
         double jitter = step / jitterFactor;
@@ -0,0 +1,78 @@
+package renderer;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Class AperturePattern is the sample points of a camera's aperture in lens coordinates - offsets along the right
+ * and the up directions of the camera from its location. The pattern is computed once per camera: the square
+ * around the aperture is split into a grid of cells, each cell gets one jittered point (stratified sampling),
+ * and the points inside the aperture disk are kept, with the center of the lens.
+ * Each pixel reuses the pattern rotated by its own angle, so no pixel shares the structure of its neighbours -
+ * a rotation keeps the points inside the disk and costs a sine and a cosine per pixel
+ */
+public final class AperturePattern {
+    /**
+     * The offsets of the points along the right direction
+     */
+    private final double[] u;
+    /**
+     * The offsets of the points along the up direction
+     */
+    private final double[] v;
+
+    /**
+     * Constructor for the pattern of an aperture
+     *
+     * @param aperture        the radius of the aperture
+     * @param multipleRaysNum the amount of grid cells along each axis
+     * @param random          the source of the jitter of the points
+     * @throws IllegalArgumentException if the aperture or the amount of cells is not positive
+     */
+    public AperturePattern(double aperture, int multipleRaysNum, RandomGenerator random) {
+        if (aperture <= 0) throw new IllegalArgumentException("aperture size must be a positive number");
+        if (multipleRaysNum <= 0) throw new IllegalArgumentException("number of rays must be a positive number");
+        double[] us = new double[multipleRaysNum * multipleRaysNum + 1], vs = new double[us.length];
+        int size = 1; // the center of the lens is the first point
+        double step = 2 * aperture / multipleRaysNum, radiusSquared = aperture * aperture;
+        for (int i = 0; i < multipleRaysNum; ++i)
+            for (int j = 0; j < multipleRaysNum; ++j) {
+                double x = -aperture + (i + random.nextDouble()) * step;
+                double y = -aperture + (j + random.nextDouble()) * step;
+                if (x * x + y * y > radiusSquared) continue;
+                us[size] = x;
+                vs[size++] = y;
+            }
+        u = Arrays.copyOf(us, size);
+        v = Arrays.copyOf(vs, size);
+    }
+
+    /**
+     * Get the amount of points of the pattern
+     *
+     * @return the amount of points
+     */
+    public int size() {
+        return u.length;
+    }
+
+    /**
+     * Get the offset of a point along the right direction
+     *
+     * @param i the index of the point
+     * @return the offset
+     */
+    public double getU(int i) {
+        return u[i];
+    }
+
+    /**
+     * Get the offset of a point along the up direction
+     *
+     * @param i the index of the point
+     * @return the offset
+     */
+    public double getV(int i) {
+        return v[i];
+    }
+}
@@ -8,14 +8,12 @@ import java.util.*;
 import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
 
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
-import java.util.stream.IntStream;
-
-import com.aparapi.Kernel;
-import com.aparapi.Range;
 import primitives.Vector;
 
 /**
@@ -37,14 +35,28 @@ public class Camera implements Cloneable {
     private double focalLength = 0.0;
     private boolean isDoFModuleActive = false;
     private int multipleRaysNum = 0;
-    private Plane focalPlane;
+    // the thin lens generates the rays of a pixel from an aperture pattern computed once per camera, rotated
+    // per pixel by the pixel's own random stream (of the seed and the frame), into each thread's buffers
+    private Sampler sampler = new Sampler(0);
+    private int frame = 0;
+    private ThinLens thinLens;
+    private ThreadLocal<double[][]> lensRays;
+
+    // tiles of pixels handed to the threads, in an order
+    private int tileWidth = 16, tileHeight = 16;
+    private TileScheduler.Order tileOrder = TileScheduler.Order.SCANLINE;
 
-    // pixel manager for the threading
-    private PixelManager pixelManager;
+    // primary rays are traced in packets of a block of pixels (when depth of field is off)
+    private int packetSize = 16;
+    private int packetWidth = 4, packetHeight = 4;
 
-    private int threadsCount = 0;
     private double printInterval = 0d;
-    private boolean useGPU = false;
+
+    // the engine that runs the tiles of a frame, the frame in progress (to be cancelled) and the last report
+    private RenderEngine renderEngine = RenderEngine.parallelStreams();
+    private Duration timeLimit = null;
+    private volatile RenderJob renderJob;
+    private RenderReport renderReport;
 
     // private constructor - camera is built using a builder
     private Camera() {
@@ -149,98 +161,100 @@ public class Camera implements Cloneable {
     }
 
     /**
-     * method renders the image using the camera and ray tracer
-     * and writes the image to a file
+     * method renders the image using the camera and ray tracer, on the render engine of the camera
+     * (the report of the render is printed with the debug print)
      *
      * @return the camera object
+     * @throws CancellationException if the render was cancelled or it passed its time limit
      */
-    //faster version of renderImage - using parallel stream
     public Camera renderImage() {
         if (imageWriter == null)
             throw new UnsupportedOperationException("Missing imageWriter");
         if (rayTracer == null)
             throw new UnsupportedOperationException("Missing rayTracerBase");
 
-        int Nx = imageWriter.getNx();
-        int Ny = imageWriter.getNy();
-        pixelManager = new PixelManager(Ny, Nx, printInterval);
-        Random random = new Random();
-
-        if (threadsCount == 0)
-            if (random.nextBoolean() || useGPU) {
-                //renderOnGPU
-                final int NUM_KERNELS = 6;
-                List<Kernel> kernels = new ArrayList<>();
-                List<Thread> threads = new ArrayList<>();
-
-                for (int k = 0; k < NUM_KERNELS; k++) {
-                    final int startY = k * (Ny / NUM_KERNELS);
-                    final int endY = (k == NUM_KERNELS - 1) ? Ny : (k + 1) * (Ny / NUM_KERNELS);
-
-                    Kernel kernel = new Kernel() {
-                        @Override
-                        public void run() {
-                            int i = getGlobalId(1) + startY;
-                            int j = getGlobalId(0);
-                            if (i < endY) {
-                                castRay(Nx, Ny, j, i);
-                            }
-                        }
-                    };
-
-                    kernels.add(kernel);
-
-                    final Range range = Range.create2D(Nx, endY - startY);
-                    Thread thread = new Thread(() -> kernel.execute(range));
-                    threads.add(thread);
-                    thread.start();
-                    System.out.println("GPU");
+        renderReport = render(renderEngine);
+        if (printInterval != 0)
+            System.out.println(renderReport);
+        return this;
+    }
 
-                }
+    /**
+     * method renders the image on a render engine - the threads are handed tiles of pixels
+     *
+     * @param engine - the render engine
+     * @return the report of the render
+     */
+    private RenderReport render(RenderEngine engine) {
+        RenderJob job = new RenderJob(this, imageWriter.getNx(), imageWriter.getNy(), tileWidth, tileHeight,
+                tileOrder, printInterval, timeLimit == null ? 0 : timeLimit.toNanos());
+        renderJob = job;
+        try {
+            return engine.render(job);
+        } finally {
+            renderJob = null;
+        }
+    }
 
-                for (Thread thread : threads) {
-                    try {
-                        thread.join();
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                }
+    /**
+     * method picks the fastest of render engines by a calibration run - the engines render the image in turns,
+     * twice each (the first turn warms the tracing up), and the fastest render makes its engine the engine
+     * of the camera. A small image of the scene calibrates faster, with the same result
+     *
+     * @param candidates - the engines to calibrate
+     * @return the reports of the fastest render of each engine, in the order of the engines
+     * @throws IllegalArgumentException if there are no engines
+     */
+    public List<RenderReport> calibrate(RenderEngine... candidates) {
+        if (candidates.length == 0)
+            throw new IllegalArgumentException("there are no render engines to calibrate");
+        if (imageWriter == null)
+            throw new UnsupportedOperationException("Missing imageWriter");
+        if (rayTracer == null)
+            throw new UnsupportedOperationException("Missing rayTracerBase");
 
-                for (Kernel kernel : kernels) {
-                    kernel.dispose();
-                }
-            } else {
-                //renderOnCPU
-                IntStream.range(0, Ny).parallel().forEach(i -> {
-                    IntStream.range(0, Nx).parallel().forEach(j -> {
-                        castRay(Nx, Ny, j, i);
-                    });
-                });
-                System.out.println("CPU");
+        RenderReport[] fastest = new RenderReport[candidates.length];
+        for (int round = 0; round < 2; round++)
+            for (int i = 0; i < candidates.length; i++) {
+                RenderReport report = render(candidates[i]);
+                if (fastest[i] == null || report.getRenderTime() < fastest[i].getRenderTime())
+                    fastest[i] = report;
             }
+        int best = 0;
+        for (int i = 1; i < candidates.length; i++)
+            if (fastest[i].getRenderTime() < fastest[best].getRenderTime())
+                best = i;
+        renderEngine = candidates[best];
+        return List.of(fastest);
+    }
 
-        else { // see further... option 2
-            var threads = new LinkedList<Thread>(); // list of threads
-            while (threadsCount-- > 0) // add appropriate number of threads
-                threads.add(new Thread(() -> { // add a thread with its code
-                    PixelManager.Pixel pixel; // current pixel(row,col)
-                    // allocate pixel(row,col) in loop until there are no more pixels
-                    while ((pixel = pixelManager.nextPixel()) != null)
-                        // cast ray through pixel (and color it – inside castRay)
-                        castRay(Nx, Ny, pixel.col(), pixel.row());
-                }));
-            // start all the threads
-            for (var thread : threads)
-                thread.start();
-            // wait until all the threads have finished
-            try {
-                for (var thread : threads)
-                    thread.join();
-            } catch (InterruptedException ignore) {
-            }
-        }
+    /**
+     * getter for the render engine of the camera
+     *
+     * @return the render engine
+     */
+    public RenderEngine getRenderEngine() {
+        return renderEngine;
+    }
 
-        return this;
+    /**
+     * getter for the report of the last render of the camera
+     *
+     * @return the report of the last render, null if the camera didn't render yet
+     */
+    public RenderReport getRenderReport() {
+        return renderReport;
+    }
+
+    /**
+     * method cancels the render in progress, from any thread - the tiles that didn't start are skipped
+     * and {@link #renderImage()} throws a {@link CancellationException}.
+     * Nothing happens if there is no render in progress. The virtual threads of the render are not time sliced,
+     * so the caller should be a platform thread (a virtual one may wait for free carriers until the render ends)
+     */
+    public void cancelRender() {
+        RenderJob job = renderJob;
+        if (job != null) job.cancel();
     }
 
 //        public Camera renderImage() {
@@ -317,6 +331,56 @@ public class Camera implements Cloneable {
 //    }
 
 
+    /**
+     * method casts the rays from the camera to a tile of pixels in the view plane - a packet
+     * of pixels at a time
+     *
+     * @param Nx         - width resolution of view plane
+     * @param Ny         - height resolution of view plane
+     * @param tileColumn - horizontal index of the tile
+     * @param tileRow    - vertical index of the tile
+     * @return the amount of pixels of the tile
+     */
+    int castTile(int Nx, int Ny, int tileColumn, int tileRow) {
+        int column0 = tileColumn * tileWidth, row0 = tileRow * tileHeight;
+        int columns = Math.min(tileWidth, Nx - column0), rows = Math.min(tileHeight, Ny - row0);
+        for (int row = row0; row < row0 + rows; row += packetHeight)
+            for (int column = column0; column < column0 + columns; column += packetWidth)
+                castPacket(Nx, Ny, column, row, Math.min(packetWidth, column0 + columns - column),
+                        Math.min(packetHeight, row0 + rows - row));
+        return columns * rows;
+    }
+
+    /**
+     * method casts the rays from the camera to a block of pixels in the view plane - the primary rays
+     * of the block are traced together as a packet, unless depth of field is active
+     *
+     * @param Nx      - width resolution of view plane
+     * @param Ny      - height resolution of view plane
+     * @param column0 - horizontal index of the first pixel of the block
+     * @param row0    - vertical index of the first pixel of the block
+     * @param columns - width of the block
+     * @param rows    - height of the block
+     */
+    private void castPacket(int Nx, int Ny, int column0, int row0, int columns, int rows) {
+        if (isDoFModuleActive || packetSize == 1) {
+            for (int row = row0; row < row0 + rows; row++)
+                for (int column = column0; column < column0 + columns; column++)
+                    castRay(Nx, Ny, column, row);
+            return;
+        }
+
+        Ray[] rays = new Ray[columns * rows];
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < columns; c++)
+                rays[r * columns + c] = constructRay(Nx, Ny, column0 + c, row0 + r);
+        Color[] colors = new Color[rays.length];
+        rayTracer.tracePacket(rays, colors);
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < columns; c++)
+                imageWriter.writePixel(column0 + c, row0 + r, colors[r * columns + c]);
+    }
+
     /**
      * method casts a ray from the camera to a pixel in the view plane
      *
@@ -325,19 +389,25 @@ public class Camera implements Cloneable {
      * @param column - horizontal index of the pixel
      * @param row    - vertical index of the pixel
      */
-    private void castRay(int Nx, int Ny, int column, int row) {
+    void castRay(int Nx, int Ny, int column, int row) {
         if (!isDoFModuleActive) {
             imageWriter.writePixel(column, row, rayTracer.traceRay(constructRay(Nx, Ny, column, row)));
-//            pixelManager.pixelDone();
         } else {
             //Color color = rayTracer.traceRay(constructRay(Nx, Ny, column, row));
-            List<Point> aperturePoints = Aperture.generateAperturePoints(p0, vUp, vRight, aperture, multipleRaysNum);
-            //calculate focal point on focal plane
-            Point focalPoint = focalPlane.findIntersections(constructRay(Nx, Ny, column, row)).getFirst();
+            //offsets of the pixel from the view plane center
+            double yI = -((row - (double) (Ny - 1) / 2) * height / Ny);
+            double xJ = ((column - (double) (Nx - 1) / 2) * width / Nx);
+            //rotate the aperture pattern by the angle of the pixel
+            double angle = sampler.pixel(frame, (long) row * Nx + column).nextDouble(2 * Math.PI);
+            double[][] buffers = lensRays.get();
+            double[] origins = buffers[0], directions = buffers[1];
+            thinLens.generate(xJ, yI, Math.cos(angle), Math.sin(angle), origins, directions);
             //trace all rays from aperture points to focal point and write average color to the pixel
-
-            imageWriter.writePixel(column, row, rayTracer.traceMultipleRays(aperturePoints.stream().parallel()
-                    .map(point -> new Ray(point, focalPoint.subtract(point))).toList()));
+            List<Ray> rays = new ArrayList<>(thinLens.size());
+            for (int k = 0; k < 3 * thinLens.size(); k += 3)
+                rays.add(new Ray(new Point(origins[k], origins[k + 1], origins[k + 2]),
+                        new Vector(directions[k], directions[k + 1], directions[k + 2])));
+            imageWriter.writePixel(column, row, rayTracer.traceMultipleRays(rays));
         }
     }
 
@@ -567,13 +637,120 @@ public class Camera implements Cloneable {
         }
 
         /**
-         * builder function - set camera's multi-threading
+         * builder function - set camera's render engine
+         *
+         * @param renderEngine - the engine that runs the rendering of the tiles
+         * @return builder object with the updated camera
+         */
+        public Builder setRenderEngine(RenderEngine renderEngine) {
+            if (renderEngine == null)
+                throw new IllegalArgumentException("render engine cannot be null");
+            camera.renderEngine = renderEngine;
+            return this;
+        }
+
+        /**
+         * builder function - set camera's multi-threading: a pool of threads, or 0 for parallel streams
+         * (a shortcut of {@link #setRenderEngine(RenderEngine)})
          *
-         * @param threadsCount - number of threads
+         * @param threadsCount - number of threads, 0 for parallel streams
          * @return builder object with the updated camera
          */
         public Builder setMultiThreading(int threadsCount) {
-            camera.threadsCount = threadsCount;
+            if (threadsCount < 0)
+                throw new IllegalArgumentException("number of threads cannot be negative");
+            camera.renderEngine = threadsCount == 0 ? RenderEngine.parallelStreams()
+                    : RenderEngine.threadPool(threadsCount);
+            return this;
+        }
+
+        /**
+         * builder function - set the amount of primary rays traced together as a packet -
+         * a tile of 2x2, 4x2 or 4x4 pixels, or 1 to trace each primary ray on its own
+         *
+         * @param packetSize - number of rays in a packet: 1, 4, 8 or 16
+         * @return builder object with the updated camera
+         */
+        public Builder setPacketSize(int packetSize) {
+            switch (packetSize) {
+                case 1 -> {
+                    camera.packetWidth = 1;
+                    camera.packetHeight = 1;
+                }
+                case 4 -> {
+                    camera.packetWidth = 2;
+                    camera.packetHeight = 2;
+                }
+                case 8 -> {
+                    camera.packetWidth = 4;
+                    camera.packetHeight = 2;
+                }
+                case 16 -> {
+                    camera.packetWidth = 4;
+                    camera.packetHeight = 4;
+                }
+                default -> throw new IllegalArgumentException("packet size must be 1, 4, 8 or 16");
+            }
+            camera.packetSize = packetSize;
+            return this;
+        }
+
+        /**
+         * builder function - set the size of the tiles of pixels handed to the rendering threads -
+         * a tile is traced a packet of pixels at a time
+         *
+         * @param width  - width of a tile in pixels
+         * @param height - height of a tile in pixels
+         * @return builder object with the updated camera
+         */
+        public Builder setTileSize(int width, int height) {
+            if (width <= 0 || height <= 0)
+                throw new IllegalArgumentException("tile size must be positive");
+            camera.tileWidth = width;
+            camera.tileHeight = height;
+            return this;
+        }
+
+        /**
+         * builder function - set the order the tiles are handed to the rendering threads in
+         *
+         * @param tileOrder - order of the tiles
+         * @return builder object with the updated camera
+         */
+        public Builder setTileOrder(TileScheduler.Order tileOrder) {
+            if (tileOrder == null)
+                throw new IllegalArgumentException("tile order cannot be null");
+            camera.tileOrder = tileOrder;
+            return this;
+        }
+
+        /**
+         * builder function - render the tiles of the image on a virtual thread per available processor, under a
+         * structured scope that stops at the first failure of a tile (a shortcut of
+         * {@link #setRenderEngine(RenderEngine)})
+         *
+         * @param virtualThreads - true to render on virtual threads, false to go back to parallel streams if
+         *                       the camera renders on virtual threads (any other engine is kept)
+         * @return builder object with the updated camera
+         */
+        public Builder setVirtualThreads(boolean virtualThreads) {
+            if (virtualThreads)
+                camera.renderEngine = RenderEngine.virtualThreads();
+            else if (camera.renderEngine instanceof VirtualThreadEngine)
+                camera.renderEngine = RenderEngine.parallelStreams();
+            return this;
+        }
+
+        /**
+         * builder function - set the time limit of a render
+         *
+         * @param timeLimit - the time limit, null for no limit
+         * @return builder object with the updated camera
+         */
+        public Builder setTimeLimit(Duration timeLimit) {
+            if (timeLimit != null && (timeLimit.isNegative() || timeLimit.isZero()))
+                throw new IllegalArgumentException("time limit must be positive");
+            camera.timeLimit = timeLimit;
             return this;
         }
 
@@ -632,13 +809,44 @@ public class Camera implements Cloneable {
 
 
         /**
-         * builder function - set use of GPU
+         * builder function - set the seed of the random samples of the render (the jitter of the aperture points),
+         * the same seed renders the same image on any amount of threads
+         *
+         * @param seed - the seed
+         * @return builder object with the updated camera
+         */
+        public Builder setSeed(long seed) {
+            camera.sampler = new Sampler(seed);
+            return this;
+        }
+
+        /**
+         * builder function - set the index of the rendered frame - the frames of an animation get different samples
+         * of the same seed
+         *
+         * @param frame - the index of the frame
+         * @return builder object with the updated camera
+         */
+        public Builder setFrame(int frame) {
+            if (frame < 0)
+                throw new IllegalArgumentException("frame index must not be negative");
+            camera.frame = frame;
+            return this;
+        }
+
+        /**
+         * builder function - set use of GPU: Aparapi kernels, or parallel streams
+         * (a shortcut of {@link #setRenderEngine(RenderEngine)})
          *
-         * @param useGPU - boolean value for GPU usage
+         * @param useGPU - boolean value for GPU usage - false goes back to parallel streams if the camera renders
+         *               on Aparapi kernels (any other engine is kept)
          * @return builder object with the updated camera
          */
         public Builder setUseGPU(boolean useGPU) {
-            camera.useGPU = useGPU;
+            if (useGPU)
+                camera.renderEngine = RenderEngine.aparapi(6);
+            else if (camera.renderEngine instanceof AparapiEngine)
+                camera.renderEngine = RenderEngine.parallelStreams();
             return this;
         }
 
@@ -683,8 +891,14 @@ public class Camera implements Cloneable {
             //NOTE: algebra-wise, vRight does not need to be normalized because camera's vTo and vUp are
             camera.vRight = camera.vTo.crossProduct(camera.vUp).normalize();
             camera.pCenter = camera.p0.add(camera.vTo.scale(camera.distance));
-            if (camera.isDoFModuleActive)
-                camera.focalPlane = new Plane(camera.p0.add(camera.vTo.scale(camera.focalLength)), camera.vTo);
+            if (camera.isDoFModuleActive) {
+                AperturePattern pattern = new AperturePattern(camera.aperture, camera.multipleRaysNum,
+                        camera.sampler.frame(camera.frame));
+                camera.thinLens = new ThinLens(camera.p0, camera.vTo, camera.vUp, camera.vRight, camera.distance,
+                        camera.focalLength, pattern);
+                final int coordinates = 3 * pattern.size();
+                camera.lensRays = ThreadLocal.withInitial(() -> new double[2][coordinates]);
+            }
             //return clone of final camera object
             try {
                 return (Camera) camera.clone();
@@ -38,4 +38,16 @@ public abstract class RayTracerBase {
      * @return the average color of the intersection points
      */
     public abstract Color traceMultipleRays(List<Ray> rays);
+
+    /**
+     * Traces a packet of coherent rays (such as the primary rays of a tile of pixels) in the scene.
+     * The default implementation traces each ray on its own
+     *
+     * @param rays   the rays to trace (at most {@link geometries.Intersectable#MAX_PACKET_SIZE})
+     * @param colors the colors of the rays, by the indices of the rays - filled by the method
+     */
+    public void tracePacket(Ray[] rays, Color[] colors) {
+        for (int i = 0; i < rays.length; ++i)
+            colors[i] = traceRay(rays[i]);
+    }
 }
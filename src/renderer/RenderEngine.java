@@ -0,0 +1,89 @@
+package renderer;
+
+/**
+ * Interface RenderEngine is a way to run the rendering of the tiles of a frame - serially, on parallel streams,
+ * on a pool of platform threads, on virtual threads or on Aparapi kernels.
+ * An engine renders every tile of a {@link RenderJob} once, stops when the job is stopped (cancelled or out of
+ * time), throws the first failure of a tile, and reports what it did
+ */
+public interface RenderEngine {
+    /**
+     * Render the frame of a job
+     *
+     * @param job the frame to render
+     * @return the report of the render
+     * @throws java.util.concurrent.CancellationException if the job was cancelled or it passed its time limit
+     */
+    RenderReport render(RenderJob job);
+
+    /**
+     * Get the name of the engine
+     *
+     * @return the name of the engine
+     */
+    String getName();
+
+    /**
+     * Create an engine that renders the tiles one after another on the calling thread
+     *
+     * @return the engine
+     */
+    static RenderEngine serial() {
+        return new SerialEngine();
+    }
+
+    /**
+     * Create an engine that renders the tiles on a parallel stream (the common fork-join pool)
+     *
+     * @return the engine
+     */
+    static RenderEngine parallelStreams() {
+        return new StreamEngine();
+    }
+
+    /**
+     * Create an engine that renders the tiles on a fixed amount of platform threads, which take them
+     * from a lock-free tile scheduler
+     *
+     * @param threads the amount of threads
+     * @return the engine
+     * @throws IllegalArgumentException if the amount of threads is not positive
+     */
+    static RenderEngine threadPool(int threads) {
+        return new ThreadPoolEngine(threads);
+    }
+
+    /**
+     * Create an engine that renders the tiles on a virtual thread per carrier of the virtual threads
+     * (per available processor), under a structured scope
+     *
+     * @return the engine
+     */
+    static RenderEngine virtualThreads() {
+        return new VirtualThreadEngine(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create an engine that renders the tiles on a fixed amount of virtual threads, which take them
+     * from a lock-free tile scheduler, under a structured scope
+     *
+     * @param workers the amount of virtual threads
+     * @return the engine
+     * @throws IllegalArgumentException if the amount of threads is not positive
+     */
+    static RenderEngine virtualThreads(int workers) {
+        return new VirtualThreadEngine(workers);
+    }
+
+    /**
+     * Create an engine that renders the pixels on Aparapi kernels, a band of rows per kernel - the kernels fall back
+     * to a Java thread pool when the tracing can't run on OpenCL
+     *
+     * @param kernels the amount of kernels
+     * @return the engine
+     * @throws IllegalArgumentException if the amount of kernels is not positive
+     */
+    static RenderEngine aparapi(int kernels) {
+        return new AparapiEngine(kernels);
+    }
+}
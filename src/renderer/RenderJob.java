@@ -0,0 +1,239 @@
+package renderer;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class RenderJob is a frame handed by a camera to a {@link RenderEngine}: its tiles of pixels and their order,
+ * the rendering of a tile or of a single pixel, the progress of the frame and its stop conditions
+ * (a cancellation or a time limit).
+ * The methods of a job are thread safe - the engine renders the tiles on any threads, each tile once
+ */
+public final class RenderJob {
+    /**
+     * Progress printing format
+     */
+    private static final String PRINT_FORMAT = "%5.1f%%\r";
+
+    /**
+     * The camera of the frame
+     */
+    private final Camera camera;
+    /**
+     * The horizontal resolution of the frame
+     */
+    private final int nX;
+    /**
+     * The vertical resolution of the frame
+     */
+    private final int nY;
+    /**
+     * The amount of tiles in a row
+     */
+    private final int tilesX;
+    /**
+     * The amount of tiles in a column
+     */
+    private final int tilesY;
+    /**
+     * The order of the tiles
+     */
+    private final TileScheduler.Order order;
+    /**
+     * The deadline of the frame in {@link System#nanoTime()} units, {@link Long#MAX_VALUE} for no deadline
+     */
+    private final long deadline;
+
+    /**
+     * The amount of pixels rendered so far
+     */
+    private final AtomicLong pixels = new AtomicLong();
+    /**
+     * Progress printing interval in tenths of percent, 0 if printing is not required
+     */
+    private final int printInterval;
+    /**
+     * Last printed progress in tenths of percent
+     */
+    private final AtomicInteger lastPrinted = new AtomicInteger();
+    /**
+     * Whether the frame was cancelled
+     */
+    private volatile boolean cancelled = false;
+    /**
+     * The structured scope of the tasks of the frame, to be shut down on cancellation (null if there is none)
+     */
+    private volatile RenderScope scope;
+
+    /**
+     * Constructor for a frame of a camera
+     *
+     * @param camera     the camera
+     * @param nX         the horizontal resolution
+     * @param nY         the vertical resolution
+     * @param tileWidth  the width of a tile
+     * @param tileHeight the height of a tile
+     * @param order      the order of the tiles
+     * @param interval   the progress printing interval in percents, 0 if printing is not required
+     * @param timeLimit  the time limit of the frame in nanoseconds, 0 for no limit
+     */
+    RenderJob(Camera camera, int nX, int nY, int tileWidth, int tileHeight, TileScheduler.Order order,
+              double interval, long timeLimit) {
+        this.camera = camera;
+        this.nX = nX;
+        this.nY = nY;
+        tilesX = (nX + tileWidth - 1) / tileWidth;
+        tilesY = (nY + tileHeight - 1) / tileHeight;
+        this.order = order;
+        deadline = timeLimit == 0 ? Long.MAX_VALUE : System.nanoTime() + timeLimit;
+        printInterval = (int) (interval * 10);
+        if (printInterval != 0) System.out.printf(PRINT_FORMAT, 0d);
+    }
+
+    /**
+     * Get the horizontal resolution of the frame
+     *
+     * @return the width in pixels
+     */
+    public int getNx() {
+        return nX;
+    }
+
+    /**
+     * Get the vertical resolution of the frame
+     *
+     * @return the height in pixels
+     */
+    public int getNy() {
+        return nY;
+    }
+
+    /**
+     * Get the amount of tiles in a row
+     *
+     * @return the amount of tiles in a row
+     */
+    public int getTilesX() {
+        return tilesX;
+    }
+
+    /**
+     * Get the amount of tiles of the frame
+     *
+     * @return the amount of tiles
+     */
+    public int getTileCount() {
+        return tilesX * tilesY;
+    }
+
+    /**
+     * Get the tiles of the frame in their order
+     *
+     * @return the indices of the tiles (row * tiles per row + column)
+     */
+    public int[] getTileOrder() {
+        return TileScheduler.layout(tilesX, tilesY, order);
+    }
+
+    /**
+     * Create a scheduler of the tiles of the frame, in their order
+     *
+     * @param workers the amount of workers that take the tiles
+     * @return the scheduler
+     */
+    TileScheduler newScheduler(int workers) {
+        return new TileScheduler(tilesX, tilesY, order, workers);
+    }
+
+    /**
+     * Render a tile and count its pixels in the progress
+     *
+     * @param tile the index of the tile (row * tiles per row + column)
+     */
+    public void renderTile(int tile) {
+        progress(camera.castTile(nX, nY, tile % tilesX, tile / tilesX));
+    }
+
+    /**
+     * Render a single pixel and count it in the progress
+     *
+     * @param column the column of the pixel
+     * @param row    the row of the pixel
+     */
+    public void renderPixel(int column, int row) {
+        camera.castRay(nX, nY, column, row);
+        progress(1);
+    }
+
+    /**
+     * Count rendered pixels and print the progress percentage when it passed the print interval
+     *
+     * @param rendered the amount of rendered pixels
+     */
+    private void progress(int rendered) {
+        long done = pixels.addAndGet(rendered);
+        if (printInterval == 0) return;
+        int percentage = (int) (1000L * done / ((long) nX * nY));
+        int printed = lastPrinted.get();
+        // a single thread wins the update of the printed percentage and prints it
+        if (percentage - printed >= printInterval && lastPrinted.compareAndSet(printed, percentage))
+            System.out.printf(PRINT_FORMAT, percentage / 10d);
+    }
+
+    /**
+     * Get the amount of pixels rendered so far
+     *
+     * @return the amount of rendered pixels
+     */
+    public long getPixelsDone() {
+        return pixels.get();
+    }
+
+    /**
+     * Get the deadline of the frame
+     *
+     * @return the deadline in {@link System#nanoTime()} units, {@link Long#MAX_VALUE} for no deadline
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Check if the engine should stop rendering the frame - it was cancelled or it passed its time limit
+     *
+     * @return true if the rest of the tiles should be skipped
+     */
+    public boolean isStopped() {
+        return cancelled || deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0;
+    }
+
+    /**
+     * Throw if the frame was stopped before all its pixels were rendered - an engine calls it after the tiles
+     *
+     * @throws CancellationException if the frame was cancelled or it passed its time limit
+     */
+    public void checkStopped() {
+        if (pixels.get() < (long) nX * nY && isStopped())
+            throw new CancellationException(cancelled ? "the render was cancelled" : "the render deadline passed");
+    }
+
+    /**
+     * Cancel the frame from any thread - the tiles that didn't start are skipped
+     */
+    void cancel() {
+        cancelled = true;
+        RenderScope current = scope;
+        if (current != null) current.cancel();
+    }
+
+    /**
+     * Attach the structured scope of the tasks of the frame, to be shut down on cancellation
+     *
+     * @param scope the scope, null to detach it
+     */
+    void attach(RenderScope scope) {
+        this.scope = scope;
+        if (scope != null && cancelled) scope.cancel();
+    }
+}
@@ -0,0 +1,114 @@
+package renderer;
+
+/**
+ * Class RenderReport is what a {@link RenderEngine} did to render a frame: the engine, the threads it rendered on,
+ * the work units (tiles, or the bands of rows of the kernels) and the pixels it rendered and the time it took,
+ * with the details of the engine
+ */
+public class RenderReport {
+    /**
+     * the name of the engine
+     */
+    private final String engine;
+    /**
+     * the amount of threads the frame was rendered on
+     */
+    private final int threads;
+    /**
+     * the amount of work units the frame was rendered in - its tiles, or the bands of rows of an engine
+     * that doesn't render tiles
+     */
+    private final int tiles;
+    /**
+     * the amount of rendered pixels
+     */
+    private final long pixels;
+    /**
+     * the time of the render in nanoseconds
+     */
+    private final long renderTime;
+    /**
+     * the details of the engine (such as the stolen ranges of tiles, or the execution mode of a kernel)
+     */
+    private final String details;
+
+    /**
+     * Constructor for the report of a render
+     *
+     * @param engine     the name of the engine
+     * @param threads    the amount of threads the frame was rendered on
+     * @param tiles      the amount of work units the frame was rendered in (tiles, or bands of rows)
+     * @param pixels     the amount of rendered pixels
+     * @param renderTime the time of the render in nanoseconds
+     * @param details    the details of the engine, empty if there are none
+     */
+    public RenderReport(String engine, int threads, int tiles, long pixels, long renderTime, String details) {
+        this.engine = engine;
+        this.threads = threads;
+        this.tiles = tiles;
+        this.pixels = pixels;
+        this.renderTime = renderTime;
+        this.details = details;
+    }
+
+    /**
+     * Get the name of the engine
+     *
+     * @return the name of the engine
+     */
+    public String getEngine() {
+        return engine;
+    }
+
+    /**
+     * Get the amount of threads the frame was rendered on
+     *
+     * @return the amount of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Get the amount of work units the frame was rendered in - its tiles, or the bands of rows of an engine
+     * that doesn't render tiles
+     *
+     * @return the amount of work units
+     */
+    public int getTiles() {
+        return tiles;
+    }
+
+    /**
+     * Get the amount of rendered pixels
+     *
+     * @return the amount of pixels
+     */
+    public long getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Get the time of the render
+     *
+     * @return the time in nanoseconds
+     */
+    public long getRenderTime() {
+        return renderTime;
+    }
+
+    /**
+     * Get the details of the engine
+     *
+     * @return the details, empty if there are none
+     */
+    public String getDetails() {
+        return details;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RenderReport{engine=%s, threads=%d, tiles=%d, pixels=%d, render=%.2f ms%s}", engine,
+                threads, tiles, pixels, renderTime / 1e6, details.isEmpty() ? "" : ", " + details);
+    }
+}
@@ -0,0 +1,158 @@
+package renderer;
+
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Class RenderScope is a structured scope of render tasks, each on its own virtual thread.
+ * The tasks are forked by the owner thread and joined by it - no task outlives the scope:
+ * <ul>
+ * <li>the first failure of a task shuts the scope down and is thrown by {@link #join(long)} (the failures of the
+ * other tasks are added to it as suppressed exceptions)</li>
+ * <li>a scope can be cancelled from any thread ({@link #cancel()}), and is cancelled when its deadline passes -
+ * the tasks that didn't start are skipped and the running ones are interrupted</li>
+ * </ul>
+ * (the same policy as a shutdown-on-failure structured task scope, which is a preview API in Java 21)
+ */
+final class RenderScope implements AutoCloseable {
+    /**
+     * The executor of the tasks - a virtual thread per task
+     */
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    /**
+     * The forked tasks
+     */
+    private final Queue<Future<?>> tasks = new ConcurrentLinkedQueue<>();
+    /**
+     * The first failure of a task
+     */
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    /**
+     * The reason the scope was shut down, null while it runs
+     */
+    private volatile String shutdown = null;
+
+    /**
+     * Fork a task on a virtual thread - a task forked after the scope was shut down doesn't run
+     *
+     * @param task the task
+     */
+    void fork(Runnable task) {
+        if (shutdown != null) return;
+        tasks.add(executor.submit(() -> {
+            if (shutdown != null) return;
+            try {
+                task.run();
+            } catch (Throwable e) {
+                fail(e);
+            }
+        }));
+    }
+
+    /**
+     * Record the failure of a task - the first one shuts the scope down
+     *
+     * @param e the failure
+     */
+    private void fail(Throwable e) {
+        if (failure.compareAndSet(null, e)) shutdown("a render task failed");
+        else if (failure.get() != e) failure.get().addSuppressed(e);
+    }
+
+    /**
+     * Shut the scope down - the tasks that didn't start are skipped and the running ones are interrupted
+     *
+     * @param reason the reason of the shutdown
+     */
+    private void shutdown(String reason) {
+        if (shutdown != null) return;
+        shutdown = reason;
+        for (Future<?> task : tasks)
+            task.cancel(true);
+    }
+
+    /**
+     * Cancel the scope from any thread - {@link #join(long)} throws a {@link CancellationException}
+     */
+    void cancel() {
+        shutdown("the render was cancelled");
+    }
+
+    /**
+     * Check if the scope was shut down (cancelled, failed or out of time) - a long task checks it
+     * to stop early
+     *
+     * @return true if the tasks should stop
+     */
+    boolean isShutdown() {
+        return shutdown != null;
+    }
+
+    /**
+     * Wait until all the tasks are done, the first failure, a cancellation or the deadline
+     *
+     * @param deadline the deadline in {@link System#nanoTime()} units, {@link Long#MAX_VALUE} for no deadline
+     * @throws CancellationException if the scope was cancelled, its deadline passed or the owner was interrupted
+     * @throws RuntimeException      the first failure of a task if it was unchecked
+     * @throws Error                 the first failure of a task if it was an error
+     * @throws IllegalStateException wrapping the first failure of a task if it was checked
+     */
+    void join(long deadline) {
+        for (Future<?> task : tasks) {
+            try {
+                if (deadline == Long.MAX_VALUE) task.get();
+                else task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (CancellationException | ExecutionException ignore) {
+                // a skipped task - the reason is the failure or the shutdown
+            } catch (TimeoutException e) {
+                shutdown("the render deadline passed");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                shutdown("the render was interrupted");
+            }
+            if (shutdown != null) break;
+        }
+        rethrow(failure.get());
+        if (shutdown != null) throw new CancellationException(shutdown);
+    }
+
+    /**
+     * Throw the first failure of the tasks of a render, if there is one
+     *
+     * @param failure the failure, null if there is none
+     * @throws RuntimeException      the failure if it is unchecked
+     * @throws Error                 the failure if it is an error
+     * @throws IllegalStateException wrapping the failure if it is checked
+     */
+    static void rethrow(Throwable failure) {
+        if (failure instanceof RuntimeException runtime) throw runtime;
+        if (failure instanceof Error error) throw error;
+        if (failure != null) throw new IllegalStateException(failure);
+    }
+
+    /**
+     * Close the scope - shut it down if it still runs and wait for all its threads to end
+     */
+    @Override
+    public void close() {
+        if (shutdown == null) shutdown("the scope was closed");
+        executor.shutdownNow();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.MINUTES)) break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+}
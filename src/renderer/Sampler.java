@@ -0,0 +1,75 @@
+package renderer;
+
+import java.util.SplittableRandom;
+
+/**
+ * Class Sampler is the seeded source of the random samples of a render (such as the jitter of the aperture points).
+ * Every pixel of every frame gets its own stream of random numbers, derived only from the seed, the frame and the
+ * index of the pixel - not from the thread that renders the pixel or from the order of the pixels.
+ * So a render is reproducible, and bit identical on any amount of threads and with any engine
+ */
+public final class Sampler {
+    /**
+     * The odd constant of the golden ratio (2^64 / phi) - spreads consecutive keys over the 64 bits
+     */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * The seed of the render
+     */
+    private final long seed;
+
+    /**
+     * Constructor for the sampler of a seed
+     *
+     * @param seed the seed of the render
+     */
+    public Sampler(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Get the seed of the render
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Create the stream of random numbers of a pixel of a frame - the same pixel of the same frame always gets
+     * the same stream, and the streams of different pixels or frames are independent
+     *
+     * @param frame the index of the frame
+     * @param pixel the index of the pixel in the frame (row * width + column)
+     * @return the stream of the pixel
+     */
+    public SplittableRandom pixel(int frame, long pixel) {
+        return new SplittableRandom(mix(mix(seed + frame * GOLDEN_GAMMA) + pixel * GOLDEN_GAMMA));
+    }
+
+    /**
+     * Create the stream of random numbers of a frame, for the samples shared by all its pixels
+     * (the stream of the key before the first pixel)
+     *
+     * @param frame the index of the frame
+     * @return the stream of the frame
+     */
+    public SplittableRandom frame(int frame) {
+        return pixel(frame, -1);
+    }
+
+    /**
+     * Scramble the bits of a key (the finalizer of SplitMix64) - keys that differ in a single bit give
+     * unrelated results
+     *
+     * @param z the key
+     * @return the scrambled key
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
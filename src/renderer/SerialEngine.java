@@ -0,0 +1,23 @@
+package renderer;
+
+/**
+ * Class SerialEngine renders the tiles of a frame one after another on the calling thread
+ */
+final class SerialEngine implements RenderEngine {
+    @Override
+    public RenderReport render(RenderJob job) {
+        long start = System.nanoTime();
+        for (int tile : job.getTileOrder()) {
+            if (job.isStopped()) break;
+            job.renderTile(tile);
+        }
+        job.checkStopped();
+        return new RenderReport(getName(), 1, job.getTileCount(), job.getPixelsDone(), System.nanoTime() - start,
+                "");
+    }
+
+    @Override
+    public String getName() {
+        return "serial";
+    }
+}
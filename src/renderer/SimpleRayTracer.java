@@ -5,8 +5,11 @@ import lighting.LightSource;
 import primitives.*;
 
 import scene.Scene;
-import geometries.Intersectable.GeoPoint;
+import geometries.Geometry;
+import geometries.HitRecord;
+import geometries.Intersectable;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static primitives.Util.alignZero;
@@ -30,7 +33,35 @@ public class SimpleRayTracer extends RayTracerBase {
     /**
      * The initial attenuation factor
      */
-    private static final double INITIAL_K = 1.0;
+    private static final Double3 INITIAL_K = new Double3(1.0);
+
+    /**
+     * The hit records of each thread, one per recursion depth - reused by all the rays of the thread
+     */
+    private final ThreadLocal<HitRecord[]> hitRecords =
+            ThreadLocal.withInitial(() -> new HitRecord[MAX_CALC_COLOR_LEVEL + 1]);
+
+    /**
+     * The scratch arrays of the shading of each thread: the light vector, the light intensity,
+     * the transmission to the light and the diffusive and specular coefficients of the material
+     */
+    private final ThreadLocal<double[][]> scratches = ThreadLocal.withInitial(() -> new double[5][3]);
+
+    /**
+     * The color accumulators of each thread: the color of a ray, and the sum of the rays of a pixel
+     */
+    private final ThreadLocal<ColorAccumulator[]> accumulators =
+            ThreadLocal.withInitial(() -> new ColorAccumulator[]{new ColorAccumulator(), new ColorAccumulator()});
+
+    /**
+     * The hit records of the primary rays of a packet, for each thread
+     */
+    private final ThreadLocal<HitRecord[]> packetRecords = ThreadLocal.withInitial(() -> {
+        HitRecord[] records = new HitRecord[Intersectable.MAX_PACKET_SIZE];
+        for (int i = 0; i < records.length; ++i)
+            records[i] = new HitRecord();
+        return records;
+    });
 
     /**
      * Constructor for the SimpleRayTracer class
@@ -43,22 +74,45 @@ public class SimpleRayTracer extends RayTracerBase {
 
     @Override
     public Color traceRay(Ray ray) {
-        GeoPoint closestPoint = findClosestIntersection(ray);
-        return closestPoint == null ? this.scene.background : calcColor(closestPoint, ray);
+        HitRecord hit = findClosestIntersection(ray, MAX_CALC_COLOR_LEVEL);
+        return hit == null ? this.scene.background : calcColor(hit, ray, accumulators.get()[0].reset()).toColor();
     }
 
     /**
-     * Traces multiple rays in the scene and returns the average color of the intersection points
+     * Traces a packet of coherent rays - the closest hits of all the rays are found together,
+     * and then the color of each hit is calculated on its own
+     *
+     * @param rays   the rays to trace (at most {@link Intersectable#MAX_PACKET_SIZE})
+     * @param colors the colors of the rays, by the indices of the rays - filled by the method
+     */
+    @Override
+    public void tracePacket(Ray[] rays, Color[] colors) {
+        HitRecord[] hits = packetRecords.get();
+        for (int i = 0; i < rays.length; ++i)
+            hits[i].reset(Double.POSITIVE_INFINITY);
+        scene.geometries.intersect(rays, hits);
+        ColorAccumulator color = accumulators.get()[0];
+        for (int i = 0; i < rays.length; ++i)
+            colors[i] = hits[i].isHit() ? calcColor(hits[i], rays[i], color.reset()).toColor() : scene.background;
+    }
+
+    /**
+     * Traces multiple rays in the scene and returns the average color of the intersection points.
+     * The colors of the rays are summed into the thread's accumulator - only the average is allocated
      *
      * @param rays the rays to trace
-     * @return the average color of the intersection points
+     * @return the average color of the intersection points, with the background as an extra sample
+     * (the background if there are no rays)
      */
     public Color traceMultipleRays(List<Ray> rays) {
-        Color avg = this.scene.background;
+        if (rays.isEmpty()) return this.scene.background;
+        ColorAccumulator sum = accumulators.get()[1].reset().add(this.scene.background);
         for (Ray ray : rays) {
-            avg = avg.add(traceRay(ray));
+            HitRecord hit = findClosestIntersection(ray, MAX_CALC_COLOR_LEVEL);
+            if (hit == null) sum.add(this.scene.background);
+            else calcColor(hit, ray, sum);
         }
-        return avg.reduce(rays.size());
+        return sum.reduce(rays.size()).toColor();
     }
 
 //    public Color traceMultipleRays(List<Ray> rays) {
@@ -70,29 +124,37 @@ public class SimpleRayTracer extends RayTracerBase {
 //    }
 
     /**
-     * Calculate the color of the intersection point
+     * Calculate the color of the intersection point into an accumulator
      *
-     * @param gp  the intersection GeoPoint
-     * @param ray the ray that intersects the point
-     * @return the color of the intersection point
+     * @param hit   the intersection hit record
+     * @param ray   the ray that intersects the point
+     * @param color the accumulator the color is added to
+     * @return the accumulator
      */
-    private Color calcColor(GeoPoint gp, Ray ray) {
-        return calcColor(gp, ray, MAX_CALC_COLOR_LEVEL, new Double3(INITIAL_K)).add(scene.ambientLight.getIntensity());
+    private ColorAccumulator calcColor(HitRecord hit, Ray ray, ColorAccumulator color) {
+        calcColor(hit, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K, color);
+        return color.add(scene.ambientLight.getIntensity());
     }
 
     /**
      * Calculate the color of the intersection point with the given level of recursion
-     * helper function for calcColor(GeoPoint, Ray)
+     * helper function for calcColor(HitRecord, Ray, ColorAccumulator).
+     * The effects of each level are attenuated by k, the product of the attenuation factors of the levels
+     * above it, and added to the accumulator - so no color is allocated on the way back up
      *
-     * @param geoPoint the intersection point
-     * @param ray      the ray that intersects the point
-     * @param level    the level of the recursion
-     * @param k        the attenuation factor
-     * @return the color of the intersection point
+     * @param hit   the intersection hit record
+     * @param ray   the ray that intersects the point
+     * @param level the level of the recursion
+     * @param k     the attenuation factor
+     * @param color the accumulator the color is added to
      */
-    private Color calcColor(GeoPoint geoPoint, Ray ray, int level, Double3 k) {
-        Color color = calcLocalEffects(geoPoint, ray, k);
-        return 1 == level ? color : color.add(calcGlobalEffects(geoPoint, ray, level, k));
+    private void calcColor(HitRecord hit, Ray ray, int level, Double3 k, ColorAccumulator color) {
+        // the record is reused by the deeper levels of the recursion - take what is needed out of it first
+        Geometry geometry = hit.geometry;
+        Point point = hit.getPoint();
+        Vector n = hit.getNormal();
+        calcLocalEffects(geometry, point, n, ray, k, color);
+        if (1 != level) calcGlobalEffects(geometry, point, n, ray, level, k, color);
     }
 
     /**
@@ -104,7 +166,11 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the reflected ray of the intersection point
      */
     private Ray constructReflectedRay(Point point, Vector v, Vector n) {
-        return new Ray(point, v.subtract(n.scale(alignZero(v.dotProduct(n))).scale(2)), n);
+        // r = v - 2 * (v * n) * n
+        double vx = v.getX(), vy = v.getY(), vz = v.getZ();
+        double nx = n.getX(), ny = n.getY(), nz = n.getZ();
+        double vn2 = 2 * alignZero(VectorMath.dot(vx, vy, vz, nx, ny, nz));
+        return new Ray(point, new Vector(vx - nx * vn2, vy - ny * vn2, vz - nz * vn2), n);
     }
 
     /**
@@ -120,150 +186,154 @@ public class SimpleRayTracer extends RayTracerBase {
     }
 
     /**
-     * find the closest intersection point of the ray with the scene
+     * find the closest intersection point of the ray with the scene into the thread's hit record of the level
      *
-     * @param ray the ray to find the intersection point with
-     * @return the closest intersection point of the ray with the scene
+     * @param ray   the ray to find the intersection point with
+     * @param level the level of the recursion
+     * @return the hit record of the closest intersection of the ray with the scene, or null if there is none
      */
-    private GeoPoint findClosestIntersection(Ray ray) {
-        return ray.findClosestGeoPoint(scene.geometries.findGeoIntersections(ray));
+    private HitRecord findClosestIntersection(Ray ray, int level) {
+        HitRecord[] records = hitRecords.get();
+        int depth = MAX_CALC_COLOR_LEVEL - level;
+        if (depth >= records.length) {
+            records = Arrays.copyOf(records, depth * 2);
+            hitRecords.set(records);
+        }
+        HitRecord hit = records[depth];
+        if (hit == null) records[depth] = hit = new HitRecord();
+        return scene.geometries.intersect(ray, hit.reset(Double.POSITIVE_INFINITY)) ? hit : null;
     }
 
     /**
      * calculate the global effects of the intersection point
      *
-     * @param gp    the intersection point
-     * @param ray   the ray that intersects the point
-     * @param level the level of the recursion
-     * @param k     the attenuation factor
-     * @return the color of the intersection point
+     * @param geometry the intersected geometry
+     * @param point    the intersection point
+     * @param n        the normal of the geometry at the point
+     * @param ray      the ray that intersects the point
+     * @param level    the level of the recursion
+     * @param k        the attenuation factor
+     * @param color    the accumulator the color is added to
      */
-    private Color calcGlobalEffects(GeoPoint gp, Ray ray, int level, Double3 k) {
-        Color color = Color.BLACK;
+    private void calcGlobalEffects(Geometry geometry, Point point, Vector n, Ray ray, int level, Double3 k,
+                                   ColorAccumulator color) {
         Vector v = ray.getDirection();
-        Vector n = gp.geometry.getNormal(gp.point);
-        Material material = gp.geometry.getMaterial();
+        Material material = geometry.getMaterial();
 
-        Double3 kr = material.kR, kkr = k.product(kr);
-        Double3 kt = material.kT, kkt = k.product(kt);
-
-        if (!kkr.lowerThan(MIN_CALC_COLOR_K)) {
-            color = color.add(calcGlobalEffect(constructReflectedRay(gp.point, v, n), level - 1, kr, kkr));
+        Double3 kr = material.kR;
+        if (!VectorMath.productLowerThan(k, kr, MIN_CALC_COLOR_K)) {
+            calcGlobalEffect(constructReflectedRay(point, v, n), level - 1, k, k.product(kr), color);
         }
 
-        if (!kkt.lowerThan(MIN_CALC_COLOR_K)) {
-            color = color.add(calcGlobalEffect(constructRefractedRay(gp.point, v, n), level - 1, kt, kkt));
+        Double3 kt = material.kT;
+        if (!VectorMath.productLowerThan(k, kt, MIN_CALC_COLOR_K)) {
+            calcGlobalEffect(constructRefractedRay(point, v, n), level - 1, k, k.product(kt), color);
         }
-        return color;
     }
 
     /**
-     * calculate the global effect of the intersection point
+     * calculate the global effect of the intersection point - a ray that misses adds the background
+     * attenuated by the levels above it only (not by the material's attenuation factor of its own level)
      *
      * @param ray   the ray to find the intersection point with
      * @param level the level of the recursion
-     * @param kx    the attenuation factor
+     * @param k     the attenuation factor of the levels above
      * @param kkx   the attenuation factor multiplied by the material's attenuation factor
-     * @return the color of the intersection point
+     * @param color the accumulator the color is added to
      */
-    private Color calcGlobalEffect(Ray ray, int level, Double3 kx, Double3 kkx) {
-        GeoPoint gp = findClosestIntersection(ray);
-        return gp == null ? scene.background : calcColor(gp, ray, level - 1, kkx).scale(kx);
+    private void calcGlobalEffect(Ray ray, int level, Double3 k, Double3 kkx, ColorAccumulator color) {
+        HitRecord hit = findClosestIntersection(ray, level);
+        if (hit == null) color.add(scene.background, k);
+        else calcColor(hit, ray, level - 1, kkx, color);
     }
 
     /**
      * calculate the local effects of the intersection point
      *
-     * @param gp  the intersection point
-     * @param ray the ray that intersects the point
-     * @param k   the attenuation factor
-     * @return the color of the intersection point
+     * @param geometry the intersected geometry
+     * @param point    the intersection point
+     * @param n        the normal of the geometry at the point
+     * @param ray      the ray that intersects the point
+     * @param k        the attenuation factor
+     * @param color    the accumulator the color (attenuated by k) is added to
      */
-    private Color calcLocalEffects(GeoPoint gp, Ray ray, Double3 k) {
-        Color color = gp.geometry.getEmission();
-        Vector n = gp.geometry.getNormal(gp.point);
+    private void calcLocalEffects(Geometry geometry, Point point, Vector n, Ray ray, Double3 k,
+                                  ColorAccumulator color) {
+        color.add(geometry.getEmission(), k);
         Vector v = ray.getDirection();
         double nv = alignZero(n.dotProduct(v));
-        if (isZero(nv)) return color;
-        Material material = gp.geometry.getMaterial();
+        if (isZero(nv)) return;
+        Material material = geometry.getMaterial();
+        // the sums of the lights and the scratch arrays of a light
+        double[][] scratch = scratches.get();
+        double[] l = scratch[0], iL = scratch[1], ktr = scratch[2], kd = scratch[3], ks = scratch[4];
+        VectorMath.set(kd, material.kD);
+        VectorMath.set(ks, material.kS);
+        double px = point.getX(), py = point.getY(), pz = point.getZ();
+        double r = 0, g = 0, b = 0;
         for (LightSource lightSource : scene.lights) {
-            Vector l = lightSource.getL(gp.point);
-            double nl = alignZero(n.dotProduct(l));
+            double distance = lightSource.getL(px, py, pz, l);
+            double nl = alignZero(VectorMath.dot(n, l));
             if (nl * nv > 0) { // sign(nl) == sing(nv)
-                Double3 ktr = transparency(gp, lightSource, l, n);
-                if (!ktr.product(k).lowerThan(MIN_CALC_COLOR_K)) {
-                    Color iL = lightSource.getIntensity(gp.point).scale(ktr);
-                    color = color.add(iL.scale(calcDiffusive(material, nl < 0 ? -nl : nl)),
-                            iL.scale(calcSpecular(material, n, l, nl, v)));
+                Double3 transmission = transparency(point, l, n, distance);
+                if (!VectorMath.productLowerThan(transmission, k, MIN_CALC_COLOR_K)) {
+                    VectorMath.set(ktr, transmission);
+                    lightSource.getIntensity(px, py, pz, l, distance, iL);
+                    double diffusive = nl < 0 ? -nl : nl;
+                    double specular = calcSpecular(material, nl, nv, VectorMath.dot(v, l));
+                    r += iL[0] * ktr[0] * (kd[0] * diffusive + ks[0] * specular);
+                    g += iL[1] * ktr[1] * (kd[1] * diffusive + ks[1] * specular);
+                    b += iL[2] * ktr[2] * (kd[2] * diffusive + ks[2] * specular);
                 }
             }
         }
-        return color;
+        color.add(r, g, b, k);
     }
 
     /**
-     * calculate the diffusive effect of the intersection point
+     * calculate the specular factor of the intersection point - the specular effect is the factor
+     * scaled by the specular coefficient of the material
      *
      * @param material the material of the geometry
      * @param nl       the dot product of the normal and the light vector
-     * @return the color of the diffusive effect
+     * @param nv       the dot product of the normal and the vector from the camera to the point
+     * @param vl       the dot product of the vector from the camera to the point and the light vector
+     * @return the specular factor
      */
-    private Double3 calcDiffusive(Material material, double nl) {
-        return material.kD.scale(nl);
-    }
-
-    /**
-     * calculate the specular effect of the intersection point
-     *
-     * @param material the material of the geometry
-     * @param n        the normal of the geometry
-     * @param l        the vector from the light source to the point
-     * @param nl       the dot product of the normal and the light vector
-     * @param v        the vector from the camera to the point
-     * @return the color of the specular effect
-     */
-    private Double3 calcSpecular(Material material, Vector n, Vector l, double nl, Vector v) {
-        // VR = v * (l - n * 2 * nl)
-        double vr = v.dotProduct(l.subtract(n.scale(nl * 2)));
-        return (alignZero(vr) > 0) ? Double3.ZERO : material.kS.scale(Math.pow(-vr, material.shininess));
+    private double calcSpecular(Material material, double nl, double nv, double vl) {
+        // VR = v * (l - n * 2 * nl) = vl - 2 * nl * nv
+        double vr = vl - 2 * nl * nv;
+        return (alignZero(vr) > 0) ? 0 : Math.pow(-vr, material.shininess);
     }
 
     /**
      * calculate the transparency of the intersection point
      *
-     * @param gp    the intersection point
-     * @param light the light source
-     * @param l     the vector from the light source to the point
-     * @param n     the normal of the geometry
+     * @param point    the intersection point
+     * @param l        the scratch array of the vector from the light source to the point
+     * @param n        the normal of the geometry
+     * @param distance the distance between the light source and the point
      * @return the transparency of the intersection point
      */
-    private Double3 transparency(GeoPoint gp, LightSource light, Vector l, Vector n) {
-        Ray lightRay = new Ray(gp.point, l.scale(-1), n);
-        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(lightRay, light.getDistance(gp.point));
-        if (intersections == null) return Double3.ONE;
-        Double3 ktr = Double3.ONE;
-
-        for (GeoPoint geoPoint : intersections) {
-            ktr = ktr.product(geoPoint.geometry.getMaterial().kT);
-            if (ktr.lowerThan(MIN_CALC_COLOR_K)) return Double3.ZERO;
-        }
-        return ktr;
+    private Double3 transparency(Point point, double[] l, Vector n, double distance) {
+        Ray lightRay = new Ray(point, new Vector(-l[0], -l[1], -l[2]), n);
+        return scene.geometries.findTransmission(lightRay, distance, MIN_CALC_COLOR_K);
     }
 
     /**
      * check if the point is shaded
      *
-     * @param gp          the intersection point
+     * @param point       the intersection point
      * @param l           the vector from the light source to the point
      * @param n           the normal of the geometry
      * @param lightSource the light source
      * @return true if the point is shaded, false otherwise
-     * @deprecated Use {@link #transparency(GeoPoint, LightSource, Vector, Vector) transparency}
+     * @deprecated Use {@link #transparency(Point, double[], Vector, double) transparency}
      * because it is more accurate
      */
-    private boolean unshaded(GeoPoint gp, Vector l, Vector n, LightSource lightSource) {
+    private boolean unshaded(Point point, Vector l, Vector n, LightSource lightSource) {
         Vector lightDirection = l.scale(-1);
-        Ray lightRay = new Ray(gp.point, lightDirection, n);
-        return scene.geometries.findGeoIntersections(lightRay, lightSource.getDistance(gp.point)) == null;
+        Ray lightRay = new Ray(point, lightDirection, n);
+        return !scene.geometries.isBlocked(lightRay, lightSource.getDistance(point));
     }
 }
\ No newline at end of file
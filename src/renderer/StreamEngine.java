@@ -0,0 +1,36 @@
+package renderer;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Class StreamEngine renders the tiles of a frame on a single parallel stream of the tiles in their order -
+ * on the common fork-join pool and the calling thread
+ */
+final class StreamEngine implements RenderEngine {
+    @Override
+    public RenderReport render(RenderJob job) {
+        long start = System.nanoTime();
+        // the stream throws the first failure - the other tiles are skipped
+        AtomicBoolean failed = new AtomicBoolean();
+        Arrays.stream(job.getTileOrder()).parallel().forEach(tile -> {
+            if (failed.get() || job.isStopped()) return;
+            try {
+                job.renderTile(tile);
+            } catch (RuntimeException | Error e) {
+                failed.set(true);
+                throw e;
+            }
+        });
+        job.checkStopped();
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        return new RenderReport(getName(), parallelism + 1, job.getTileCount(), job.getPixelsDone(),
+                System.nanoTime() - start, "common pool parallelism=" + parallelism);
+    }
+
+    @Override
+    public String getName() {
+        return "parallel streams";
+    }
+}
@@ -0,0 +1,115 @@
+package renderer;
+
+import primitives.Point;
+import primitives.Vector;
+
+/**
+ * Class ThinLens is the thin lens model of a depth of field camera: the rays of a pixel start at the points of
+ * the aperture pattern on the lens and meet at the focal point of the pixel - where the ray from the center of
+ * the lens through the pixel crosses the focal plane (at the focal length along the forward direction).
+ * The view plane is parallel to the focal plane, so the focal point is the pixel's point on the view plane scaled
+ * from the center of the lens by focal length / view plane distance - closed form, with no ray and no plane
+ * intersection. The model keeps the camera's basis as plain coordinates and writes the rays of a pixel into
+ * arrays of the caller, so generating them allocates nothing
+ */
+public final class ThinLens {
+    /**
+     * The center of the lens
+     */
+    private final double p0X, p0Y, p0Z;
+    /**
+     * The forward direction of the camera
+     */
+    private final double toX, toY, toZ;
+    /**
+     * The right direction of the camera
+     */
+    private final double rightX, rightY, rightZ;
+    /**
+     * The up direction of the camera
+     */
+    private final double upX, upY, upZ;
+    /**
+     * The distance of the focal plane from the lens
+     */
+    private final double focalLength;
+    /**
+     * The scale from the view plane to the focal plane - focal length / view plane distance
+     */
+    private final double focalScale;
+    /**
+     * The points of the aperture in lens coordinates
+     */
+    private final AperturePattern pattern;
+
+    /**
+     * Constructor for the thin lens of a camera
+     *
+     * @param p0          the center of the lens
+     * @param vTo         the forward direction (normalized)
+     * @param vUp         the up direction (normalized)
+     * @param vRight      the right direction (normalized)
+     * @param distance    the distance of the view plane from the lens
+     * @param focalLength the distance of the focal plane from the lens
+     * @param pattern     the points of the aperture
+     */
+    ThinLens(Point p0, Vector vTo, Vector vUp, Vector vRight, double distance, double focalLength,
+             AperturePattern pattern) {
+        p0X = p0.getX();
+        p0Y = p0.getY();
+        p0Z = p0.getZ();
+        toX = vTo.getX();
+        toY = vTo.getY();
+        toZ = vTo.getZ();
+        rightX = vRight.getX();
+        rightY = vRight.getY();
+        rightZ = vRight.getZ();
+        upX = vUp.getX();
+        upY = vUp.getY();
+        upZ = vUp.getZ();
+        this.focalLength = focalLength;
+        focalScale = focalLength / distance;
+        this.pattern = pattern;
+    }
+
+    /**
+     * Get the amount of rays of a pixel
+     *
+     * @return the amount of points of the aperture
+     */
+    public int size() {
+        return pattern.size();
+    }
+
+    /**
+     * Generate the rays of a pixel - from each point of the aperture pattern, rotated by the angle of the pixel,
+     * to the focal point of the pixel. The arrays hold the coordinates of the rays one after another (x, y, z)
+     *
+     * @param xJ         the offset of the pixel from the view plane center along the right direction
+     * @param yI         the offset of the pixel from the view plane center along the up direction
+     * @param cos        the cosine of the rotation angle of the pattern
+     * @param sin        the sine of the rotation angle of the pattern
+     * @param origins    the array of the points on the lens, of at least 3 * {@link #size()} coordinates
+     * @param directions the array of the (not normalized) directions, of at least 3 * {@link #size()} coordinates
+     */
+    public void generate(double xJ, double yI, double cos, double sin, double[] origins, double[] directions) {
+        double right = xJ * focalScale, up = yI * focalScale;
+        // the focal point relative to the center of the lens
+        double focalX = toX * focalLength + rightX * right + upX * up;
+        double focalY = toY * focalLength + rightY * right + upY * up;
+        double focalZ = toZ * focalLength + rightZ * right + upZ * up;
+        for (int i = 0, k = 0; i < pattern.size(); ++i, k += 3) {
+            double u = pattern.getU(i), v = pattern.getV(i);
+            double lensRight = u * cos - v * sin, lensUp = u * sin + v * cos;
+            double lensX = rightX * lensRight + upX * lensUp;
+            double lensY = rightY * lensRight + upY * lensUp;
+            double lensZ = rightZ * lensRight + upZ * lensUp;
+            origins[k] = p0X + lensX;
+            origins[k + 1] = p0Y + lensY;
+            origins[k + 2] = p0Z + lensZ;
+            directions[k] = focalX - lensX;
+            directions[k + 1] = focalY - lensY;
+            directions[k + 2] = focalZ - lensZ;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package renderer;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Class ThreadPoolEngine renders the tiles of a frame on a fixed amount of platform threads -
+ * each thread takes its tiles from a lock-free {@link TileScheduler} (its own ones, then stolen ones)
+ */
+final class ThreadPoolEngine implements RenderEngine {
+    /**
+     * The amount of threads
+     */
+    private final int threads;
+
+    /**
+     * Constructor for an engine of a fixed amount of threads
+     *
+     * @param threads the amount of threads
+     * @throws IllegalArgumentException if the amount of threads is not positive
+     */
+    ThreadPoolEngine(int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("The amount of threads must be positive");
+        this.threads = threads;
+    }
+
+    @Override
+    public RenderReport render(RenderJob job) {
+        long start = System.nanoTime();
+        TileScheduler scheduler = job.newScheduler(threads);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] workers = new Thread[threads];
+        for (int worker = 0; worker < threads; worker++) {
+            final int id = worker;
+            workers[worker] = new Thread(() -> {
+                try {
+                    // take tiles in loop until there are no more tiles, the job stopped or another thread failed
+                    for (int tile; failure.get() == null && !job.isStopped() && (tile = scheduler.next(id)) >= 0; )
+                        job.renderTile(tile);
+                } catch (Throwable e) {
+                    if (!failure.compareAndSet(null, e)) failure.get().addSuppressed(e);
+                }
+            }, "render-" + worker);
+            workers[worker].start();
+        }
+        // wait until all the threads have finished - an interrupted caller cancels the frame and still waits
+        boolean interrupted = false;
+        for (Thread worker : workers)
+            while (true) {
+                try {
+                    worker.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    job.cancel();
+                }
+            }
+        if (interrupted) Thread.currentThread().interrupt();
+        RenderScope.rethrow(failure.get());
+        job.checkStopped();
+        return new RenderReport(getName(), threads, job.getTileCount(), job.getPixelsDone(),
+                System.nanoTime() - start, "stolen ranges=" + scheduler.getSteals());
+    }
+
+    @Override
+    public String getName() {
+        return "thread pool";
+    }
+}
@@ -0,0 +1,215 @@
+package renderer;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class TileScheduler hands out the tiles of an image to the rendering threads without locks.
+ * The tiles are laid out once in a configurable order and split into a contiguous range per worker.
+ * A worker takes the tiles of its own range from the front, and when its range runs out it steals the back half
+ * of the range of another worker - each range is a single atomic word (its front and its back),
+ * so the owner and the thieves meet only on a compare-and-set of that word, and only at the end of the render.
+ * The tiles are identified by their index (row * tiles per row + column) - no object is allocated per tile
+ */
+public final class TileScheduler {
+    /**
+     * Enum Order is the order the tiles are laid out in before they are split between the workers
+     */
+    public enum Order {
+        /**
+         * Row by row, from the top left tile
+         */
+        SCANLINE,
+        /**
+         * By the Z-order (Morton) curve - consecutive tiles are close in the image, so a worker
+         * renders a compact region and keeps its part of the scene in its cache
+         */
+        MORTON,
+        /**
+         * By the distance from the center of the image - the center is rendered first
+         */
+        CENTER_OUT
+    }
+
+    /**
+     * The stride (in longs) between the ranges of the workers - a range per cache line, so the workers
+     * don't invalidate each other's lines (false sharing)
+     */
+    private static final int PAD = 8;
+
+    /**
+     * The amount of tiles in a row
+     */
+    private final int tilesX;
+    /**
+     * The tiles in the order they are handed out
+     */
+    private final int[] order;
+    /**
+     * The amount of workers
+     */
+    private final int workers;
+    /**
+     * The ranges of the workers in the order, a range every {@link #PAD} longs: the front in the high int,
+     * the back (exclusive) in the low int
+     */
+    private final AtomicLongArray ranges;
+    /**
+     * The amount of ranges stolen so far
+     */
+    private final AtomicInteger steals = new AtomicInteger();
+
+    /**
+     * Constructor for the scheduler of the tiles of an image
+     *
+     * @param tilesX   the amount of tiles in a row
+     * @param tilesY   the amount of tiles in a column
+     * @param order    the order of the tiles
+     * @param workers  the amount of workers that take the tiles
+     * @throws IllegalArgumentException if there are no tiles or no workers
+     */
+    TileScheduler(int tilesX, int tilesY, Order order, int workers) {
+        if (tilesX <= 0 || tilesY <= 0) throw new IllegalArgumentException("The image must have tiles");
+        if (workers <= 0) throw new IllegalArgumentException("The scheduler must have workers");
+        this.tilesX = tilesX;
+        this.order = layout(tilesX, tilesY, order);
+        this.workers = workers;
+        ranges = new AtomicLongArray(workers * PAD);
+        int tiles = this.order.length;
+        for (int worker = 0; worker < workers; ++worker)
+            ranges.set(worker * PAD, range((int) ((long) tiles * worker / workers),
+                    (int) ((long) tiles * (worker + 1) / workers)));
+    }
+
+    /**
+     * Lay the tiles out in an order
+     *
+     * @param tilesX the amount of tiles in a row
+     * @param tilesY the amount of tiles in a column
+     * @param order  the order of the tiles
+     * @return the indices of the tiles in the order
+     */
+    static int[] layout(int tilesX, int tilesY, Order order) {
+        int tiles = tilesX * tilesY;
+        Integer[] sorted = new Integer[tiles];
+        for (int tile = 0; tile < tiles; ++tile)
+            sorted[tile] = tile;
+        switch (order) {
+            case SCANLINE -> {
+            }
+            case MORTON -> Arrays.sort(sorted, Comparator.comparingLong(tile -> morton(tile % tilesX, tile / tilesX)));
+            case CENTER_OUT -> {
+                double centerX = (tilesX - 1) / 2d, centerY = (tilesY - 1) / 2d;
+                // the sort is stable - the tiles at the same distance stay in scanline order
+                Arrays.sort(sorted, Comparator.comparingDouble(tile -> {
+                    double dx = tile % tilesX - centerX, dy = tile / tilesX - centerY;
+                    return dx * dx + dy * dy;
+                }));
+            }
+        }
+        int[] layout = new int[tiles];
+        for (int i = 0; i < tiles; ++i)
+            layout[i] = sorted[i];
+        return layout;
+    }
+
+    /**
+     * Interleave the bits of the coordinates of a tile
+     *
+     * @param column the column of the tile
+     * @param row    the row of the tile
+     * @return the Morton code of the tile
+     */
+    private static long morton(int column, int row) {
+        long code = 0;
+        for (int bit = 0; bit < 31; ++bit)
+            code |= ((long) (column >> bit & 1) << 2 * bit) | ((long) (row >> bit & 1) << 2 * bit + 1);
+        return code;
+    }
+
+    /**
+     * Pack a range of the order into a word
+     *
+     * @param front the first position of the range
+     * @param back  the position after the last one
+     * @return the packed range
+     */
+    private static long range(int front, int back) {
+        return (long) front << 32 | back & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Get the amount of tiles in a row
+     *
+     * @return the amount of tiles in a row
+     */
+    int getTilesX() {
+        return tilesX;
+    }
+
+    /**
+     * Get the amount of workers the tiles are split between
+     *
+     * @return the amount of workers
+     */
+    int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Take the next tile of a worker - from its own range, or stolen from the range of another worker.
+     * A worker takes its tiles on its own thread only (its index is its identity)
+     *
+     * @param worker the index of the worker (0 to the amount of workers - 1)
+     * @return the index of the tile (row * tiles per row + column), or -1 if there are no more tiles
+     */
+    int next(int worker) {
+        int slot = worker * PAD;
+        while (true) {
+            long range = ranges.get(slot);
+            int front = (int) (range >>> 32), back = (int) range;
+            if (front >= back) break;
+            if (ranges.compareAndSet(slot, range, range(front + 1, back))) return order[front];
+        }
+        return steal(worker);
+    }
+
+    /**
+     * Steal the back half of the range of the first worker (after the thief) that has tiles left - the thief
+     * takes the first tile of the stolen half and keeps the rest as its own range.
+     * The rest is invisible to the other thieves until it is published, so a thief may finish a little before
+     * the last tiles are rendered - but never misses or repeats a tile
+     *
+     * @param thief the index of the worker whose range is empty
+     * @return the index of the stolen tile, or -1 if all the ranges are empty
+     */
+    private int steal(int thief) {
+        for (int i = 1; i < workers; ++i) {
+            int slot = (thief + i) % workers * PAD;
+            while (true) {
+                long range = ranges.get(slot);
+                int front = (int) (range >>> 32), back = (int) range;
+                if (front >= back) break;
+                int middle = back - (back - front + 1) / 2;
+                if (ranges.compareAndSet(slot, range, range(front, middle))) {
+                    // the range of the thief is empty, no other thief changes it
+                    if (middle + 1 < back) ranges.set(thief * PAD, range(middle + 1, back));
+                    steals.incrementAndGet();
+                    return order[middle];
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the amount of ranges stolen so far
+     *
+     * @return the amount of steals
+     */
+    int getSteals() {
+        return steals.get();
+    }
+}
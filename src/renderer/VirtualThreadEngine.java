@@ -0,0 +1,54 @@
+package renderer;
+
+/**
+ * Class VirtualThreadEngine renders the tiles of a frame on a fixed amount of virtual threads, under a
+ * {@link RenderScope} - each worker takes its tiles from a lock-free {@link TileScheduler} (its own ones, then
+ * stolen ones), so the per thread scratch of the tracing (traversal stacks, hit records, color accumulators and
+ * lens buffers) is built once per worker and not once per tile.
+ * The first failure of a tile stops the frame, and so do a cancellation and the time limit
+ */
+final class VirtualThreadEngine implements RenderEngine {
+    /**
+     * The amount of virtual threads
+     */
+    private final int workers;
+
+    /**
+     * Constructor for an engine of a fixed amount of virtual threads
+     *
+     * @param workers the amount of virtual threads
+     * @throws IllegalArgumentException if the amount of threads is not positive
+     */
+    VirtualThreadEngine(int workers) {
+        if (workers <= 0) throw new IllegalArgumentException("The amount of threads must be positive");
+        this.workers = workers;
+    }
+
+    @Override
+    public RenderReport render(RenderJob job) {
+        long start = System.nanoTime();
+        TileScheduler scheduler = job.newScheduler(workers);
+        try (RenderScope scope = new RenderScope()) {
+            job.attach(scope);
+            for (int worker = 0; worker < workers; worker++) {
+                final int id = worker;
+                // take tiles in loop until there are no more tiles, the job stopped or the scope was shut down
+                scope.fork(() -> {
+                    for (int tile; !scope.isShutdown() && !job.isStopped() && (tile = scheduler.next(id)) >= 0; )
+                        job.renderTile(tile);
+                });
+            }
+            scope.join(job.getDeadline());
+        } finally {
+            job.attach(null);
+        }
+        job.checkStopped();
+        return new RenderReport(getName(), workers, job.getTileCount(), job.getPixelsDone(),
+                System.nanoTime() - start, "stolen ranges=" + scheduler.getSteals());
+    }
+
+    @Override
+    public String getName() {
+        return "virtual threads";
+    }
+}
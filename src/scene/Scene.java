@@ -1,6 +1,7 @@
 package scene;
 
 import geometries.Geometries;
+import geometries.MemoryStats;
 import lighting.AmbientLight;
 import primitives.Color;
 import lighting.LightSource;
@@ -77,6 +78,16 @@ public class Scene {
         return this;
     }
 
+    /**
+     * reports the estimated heap memory held by the geometries of the scene - the geometries, the buffers of
+     * the meshes and the hierarchies (built if needed)
+     *
+     * @return the memory statistics of the scene
+     */
+    public MemoryStats getMemoryStats() {
+        return geometries.getMemoryStats();
+    }
+
     /**
      * sets the geometries of the scene
      *
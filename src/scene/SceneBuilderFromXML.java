@@ -10,6 +10,10 @@ import geometries.*;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * builds a scene from an XML file
@@ -25,12 +29,93 @@ public class SceneBuilderFromXML {
     static Material material = new Material().setKd(0.9).setKs(0.9).setShininess(100);
     static Color color = new Color(250, 215, 0);
 
+    /**
+     * Collects a run of consecutive triangles into a single mesh - the vertices that are written
+     * the same way in the file are shared
+     */
+    private static class MeshCollector {
+        /**
+         * the coordinates of the vertices of the mesh
+         */
+        private final List<Double3> vertices = new ArrayList<>();
+        /**
+         * the index of each vertex by its text in the file
+         */
+        private final Map<String, Integer> vertexIndices = new HashMap<>();
+        /**
+         * the indices of the vertices of the triangles
+         */
+        private final List<Integer> indices = new ArrayList<>();
+
+        /**
+         * add a triangle to the mesh
+         * @param triangleElement the triangle element
+         */
+        void add(Element triangleElement) {
+            for (String attribute : new String[]{"p0", "p1", "p2"}) {
+                String text = triangleElement.getAttribute(attribute).trim();
+                indices.add(vertexIndices.computeIfAbsent(text, key -> {
+                    vertices.add(getDouble3(key));
+                    return vertices.size() - 1;
+                }));
+            }
+        }
+
+        /**
+         * add the collected triangles to the scene and start a new run -
+         * a single triangle is added as a Triangle, a longer run as a TriangleMesh
+         * @param scene the scene to add the triangles to
+         */
+        void flush(Scene scene) {
+            if (indices.size() == 3) {
+                try {
+                    scene.geometries.add(new Triangle(new Point(vertices.get(indices.get(0))),
+                            new Point(vertices.get(indices.get(1))), new Point(vertices.get(indices.get(2))))
+                            .setMaterial(material).setEmission(color));
+                } catch (IllegalArgumentException ignore) {
+                    // degenerated (zero area) triangles of exported meshes are skipped
+                }
+            } else if (!indices.isEmpty()) {
+                double[] coordinates = new double[3 * vertices.size()];
+                for (int i = 0; i < vertices.size(); i++) {
+                    Point vertex = new Point(vertices.get(i));
+                    coordinates[3 * i] = vertex.getX();
+                    coordinates[3 * i + 1] = vertex.getY();
+                    coordinates[3 * i + 2] = vertex.getZ();
+                }
+                try {
+                    // degenerated (zero area) triangles are dropped by the mesh
+                    scene.geometries.add(new TriangleMesh(coordinates,
+                            indices.stream().mapToInt(Integer::intValue).toArray(), Geometries.BuildStrategy.SAH,
+                            scene.geometries.getPrecision())
+                            .setMaterial(material).setEmission(color));
+                } catch (IllegalArgumentException ignore) {
+                    // all the triangles of the run are degenerated
+                }
+            }
+            vertices.clear();
+            vertexIndices.clear();
+            indices.clear();
+        }
+    }
+
     /**
      * sets the scene from an XML file
      * @param filename the name of the XML file to set the scene from
      * @return the scene set from the XML file
      */
     public static Scene setFromFile(String filename) {
+        return setFromFile(filename, Geometries.Precision.DOUBLE);
+    }
+
+    /**
+     * sets the scene from an XML file, storing its meshes and its hierarchy in a precision -
+     * single precision fits much larger scenes in the same memory
+     * @param filename  the name of the XML file to set the scene from
+     * @param precision the precision of the meshes and of the hierarchy of the scene
+     * @return the scene set from the XML file
+     */
+    public static Scene setFromFile(String filename, Geometries.Precision precision) {
         try {
             DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
             DocumentBuilder builder = factory.newDocumentBuilder();
@@ -39,6 +124,7 @@ public class SceneBuilderFromXML {
             Element sceneElement = doc.getDocumentElement();
 
             Scene scene = new Scene(sceneElement.getAttribute("name"));
+            scene.geometries.setPrecision(precision);
 
             // Set background color
             String[] rgb = sceneElement.getAttribute("background-color").split(" ");
@@ -56,10 +142,14 @@ public class SceneBuilderFromXML {
             // Set geometries
             Element geometriesElement = (Element) sceneElement.getElementsByTagName("geometries").item(0);
             NodeList geometries = geometriesElement.getChildNodes();
+            MeshCollector mesh = new MeshCollector();
 
             for (int i = 0; i < geometries.getLength(); i++) {
                 if (geometries.item(i).getNodeType() == Node.ELEMENT_NODE) {
                     Element geometryElement = (Element) geometries.item(i);
+                    // consecutive triangles are collected into a single mesh
+                    if (!geometryElement.getTagName().equals("triangle"))
+                        mesh.flush(scene);
                     switch (geometryElement.getTagName()) {
                         case "sphere":
                             Point center = new Point(getDouble3(geometryElement.getAttribute("center")));
@@ -67,10 +157,7 @@ public class SceneBuilderFromXML {
                             scene.geometries.add(new Sphere(center, radius));
                             break;
                         case "triangle":
-                            Point p0 = new Point(getDouble3(geometryElement.getAttribute("p0")));
-                            Point p1 = new Point(getDouble3(geometryElement.getAttribute("p1")));
-                            Point p2 = new Point(getDouble3(geometryElement.getAttribute("p2")));
-                            scene.geometries.add(new Triangle(p0, p1, p2).setMaterial(material).setEmission(color));
+                            mesh.add(geometryElement);
                             break;
                         case "plane":
                             Point q0 = new Point(getDouble3(geometryElement.getAttribute("p0")));
@@ -98,6 +185,7 @@ public class SceneBuilderFromXML {
                     }
                 }
             }
+            mesh.flush(scene);
             return scene;
         } catch (
                 Exception e) {
@@ -0,0 +1,633 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.SceneBuilderFromXML;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmarks of the acceleration structures of geometries.Geometries on the XML meshes.
+ * Each benchmark shoots the same rays from outside the scene into its bounding box
+ * and prints the throughput (rays per second) of every acceleration structure
+ */
+class AccelerationBenchmarkTests {
+    /**
+     * The XML meshes of the benchmarks
+     */
+    private static final String[] MESHES = {"XML/2284.xml", "XML/2478.xml"};
+    /**
+     * The amount of rays shot in each benchmark
+     */
+    private static final int RAYS = 2000;
+    /**
+     * The minimal time of a measurement in nanoseconds
+     */
+    private static final long MIN_MEASURE_TIME = 500_000_000L;
+
+    /**
+     * Load the triangles of an XML mesh as a collection of separate triangles (triangle soup)
+     *
+     * @param file the XML file
+     * @return the triangles of the file, without the degenerated ones
+     */
+    static Geometries loadTriangles(String file) {
+        Geometries geometries = new Geometries();
+        try {
+            NodeList triangles = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file)
+                    .getElementsByTagName("triangle");
+            for (int i = 0; i < triangles.getLength(); i++) {
+                Element triangle = (Element) triangles.item(i);
+                Point[] points = new Point[3];
+                for (int j = 0; j < 3; j++) {
+                    String[] xyz = triangle.getAttribute("p" + j).trim().split(" ");
+                    points[j] = new Point(Double.parseDouble(xyz[0]), Double.parseDouble(xyz[1]), Double.parseDouble(xyz[2]));
+                }
+                try {
+                    geometries.add(new Triangle(points[0], points[1], points[2]));
+                } catch (IllegalArgumentException ignore) {
+                    // degenerated triangle
+                }
+            }
+        } catch (Exception e) {
+            fail("ERROR: can't read " + file + ": " + e);
+        }
+        return geometries;
+    }
+
+    /**
+     * Generate rays from outside the bounding box of the geometries towards random points inside it
+     *
+     * @param geometries the geometries to shoot at
+     * @param amount     the amount of rays
+     * @return the rays
+     */
+    static Ray[] generateRays(Geometries geometries, int amount) {
+        BoundingBox box = geometries.getBoundingBox();
+        Random random = new Random(42);
+        double size = Math.max(box.maxX - box.minX, Math.max(box.maxY - box.minY, box.maxZ - box.minZ));
+        Point eye = new Point(box.getCenter(0), box.getCenter(1) - size, box.getCenter(2) + 2 * size);
+        Ray[] rays = new Ray[amount];
+        for (int i = 0; i < amount; i++) {
+            Point target = new Point(box.minX + random.nextDouble() * (box.maxX - box.minX),
+                    box.minY + random.nextDouble() * (box.maxY - box.minY),
+                    box.minZ + random.nextDouble() * (box.maxZ - box.minZ));
+            rays[i] = new Ray(eye, target.subtract(eye));
+        }
+        return rays;
+    }
+
+    /**
+     * Shoot all the rays at the geometries and count the intersections
+     *
+     * @param geometries the geometries to shoot at
+     * @param rays       the rays
+     * @return the total amount of intersections
+     */
+    static long shoot(Geometries geometries, Ray[] rays) {
+        long hits = 0;
+        for (Ray ray : rays) {
+            var intersections = geometries.findGeoIntersections(ray);
+            if (intersections != null) hits += intersections.size();
+        }
+        return hits;
+    }
+
+    /**
+     * Measure the throughput of shooting the rays at the geometries and print it
+     *
+     * @param name       the name of the measured configuration
+     * @param geometries the geometries to shoot at
+     * @param rays       the rays
+     * @return the total amount of intersections
+     */
+    static long measure(String name, Geometries geometries, Ray[] rays) {
+        long buildStart = System.nanoTime();
+        long hits = shoot(geometries, new Ray[]{rays[0]}); // the first query builds the structure
+        double buildTime = (System.nanoTime() - buildStart) / 1e6;
+        shoot(geometries, rays); // warm-up
+        // repeat the rays until the measurement is long enough to be stable
+        long start = System.nanoTime(), rounds = 0;
+        do {
+            hits = shoot(geometries, rays);
+            ++rounds;
+        } while (System.nanoTime() - start < MIN_MEASURE_TIME);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-28s build %8.2f ms  %12.0f rays/sec%n", name, buildTime, rounds * rays.length / seconds);
+        return hits;
+    }
+
+    /**
+     * Benchmark of the flat list against the bounding volume hierarchy
+     */
+    @Test
+    void benchmarkBVH() {
+        for (String mesh : MESHES) {
+            Geometries geometries = loadTriangles(mesh);
+            Ray[] rays = generateRays(geometries, RAYS);
+
+            long flatHits = measure(mesh + " NONE", geometries.setAcceleration(Geometries.Acceleration.NONE), rays);
+            long bvhHits = measure(mesh + " BVH", geometries.setAcceleration(Geometries.Acceleration.BVH), rays);
+            assertEquals(flatHits, bvhHits, "ERROR: the hierarchy found different intersections than the flat list");
+        }
+    }
+
+    /**
+     * Benchmark of the build strategies of the hierarchy - the build time against the quality of the tree
+     * (SAH cost) and the tracing speed
+     */
+    @Test
+    void benchmarkBuildStrategies() {
+        for (String mesh : MESHES) {
+            Geometries geometries = loadTriangles(mesh);
+            Ray[] rays = generateRays(geometries, RAYS);
+
+            long sahHits = measure(mesh + " SAH", geometries.setBuildStrategy(Geometries.BuildStrategy.SAH), rays);
+            System.out.println(mesh + " SAH  " + geometries.getBuildStats());
+            long lbvhHits = measure(mesh + " LBVH", geometries.setBuildStrategy(Geometries.BuildStrategy.LBVH), rays);
+            System.out.println(mesh + " LBVH " + geometries.getBuildStats());
+            assertEquals(sahHits, lbvhHits, "ERROR: the build strategies found different intersections");
+        }
+    }
+
+    /**
+     * Benchmark of the spatial splits against the plain SAH build on XML/2478.xml (long thin triangles) -
+     * the traversal steps of a closest hit query (nodes visited and triangles tested) per ray, the throughput
+     * of the closest hits, and the throughput of the lists of all the intersections (which can't prune
+     * by distance, and skip the references of a primitive already tested by the ray)
+     */
+    @Test
+    void benchmarkSpatialSplits() {
+        String mesh = "XML/2478.xml";
+        Geometries geometries = loadTriangles(mesh);
+        Ray[] rays = generateRays(geometries, RAYS);
+        long[] hits = new long[2];
+        double[] distances = new double[2];
+        Geometries.BuildStrategy[] strategies = {Geometries.BuildStrategy.SAH, Geometries.BuildStrategy.SBVH};
+        for (int s = 0; s < strategies.length; s++) {
+            geometries.setBuildStrategy(strategies[s]);
+            System.out.println(mesh + " " + strategies[s] + " " + geometries.getBuildStats());
+            long steps = geometries.getTraversalSteps();
+            for (Ray ray : rays)
+                if (geometries.intersect(ray, new HitRecord())) ++hits[s];
+            System.out.printf("%-28s %8.1f traversal steps/ray%n", mesh + " " + strategies[s],
+                    (double) (geometries.getTraversalSteps() - steps) / rays.length);
+            distances[s] = measureClosest(mesh + " " + strategies[s] + " closest hits", geometries, rays);
+            measure(mesh + " " + strategies[s] + " all", geometries, rays);
+        }
+        assertEquals(hits[0], hits[1], "ERROR: the spatial splits found different hits");
+        assertEquals(distances[0], distances[1], 1e-6 * distances[0], "ERROR: the spatial splits found other hits");
+    }
+
+    /**
+     * Benchmark of the flat list against the uniform grid
+     */
+    @Test
+    void benchmarkGrid() {
+        for (String mesh : MESHES) {
+            Geometries geometries = loadTriangles(mesh);
+            Ray[] rays = generateRays(geometries, RAYS);
+
+            long flatHits = measure(mesh + " NONE", geometries.setAcceleration(Geometries.Acceleration.NONE), rays);
+            long gridHits = measure(mesh + " GRID", geometries.setAcceleration(Geometries.Acceleration.GRID), rays);
+            assertEquals(flatHits, gridHits, "ERROR: the grid found different intersections than the flat list");
+        }
+    }
+
+    /**
+     * Measure the bytes allocated by the current thread per ray of a query and print it
+     *
+     * @param name  the name of the measured query
+     * @param rays  the rays
+     * @param query the query - returns whether the ray hit
+     * @return the amount of rays that hit
+     */
+    static long measureAllocations(String name, Ray[] rays, Predicate<Ray> query) {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (Ray ray : rays) query.test(ray); // warm-up
+        long before = threads.getCurrentThreadAllocatedBytes();
+        long hits = 0;
+        for (Ray ray : rays)
+            if (query.test(ray)) ++hits;
+        long bytes = threads.getCurrentThreadAllocatedBytes() - before;
+        System.out.printf("%-40s %10.1f bytes/ray%n", name, (double) bytes / rays.length);
+        return hits;
+    }
+
+    /**
+     * Measure the allocations per ray of the closest hit queries - the GeoPoint lists,
+     * the closest GeoPoint and the reusable hit record
+     */
+    @Test
+    void benchmarkAllocations() {
+        for (String mesh : MESHES) {
+            Geometries geometries = loadTriangles(mesh);
+            Ray[] rays = generateRays(geometries, RAYS);
+            for (Geometries.Acceleration acceleration : Geometries.Acceleration.values()) {
+                geometries.setAcceleration(acceleration);
+                String name = mesh + " " + acceleration;
+                long listHits = measureAllocations(name + " list", rays,
+                        ray -> geometries.findGeoIntersections(ray) != null);
+                long closestHits = measureAllocations(name + " closest", rays,
+                        ray -> geometries.findClosestGeoIntersection(ray) != null);
+                HitRecord hit = new HitRecord();
+                long recordHits = measureAllocations(name + " hit record", rays,
+                        ray -> geometries.intersect(ray, hit.reset(Double.POSITIVE_INFINITY)));
+                assertEquals(listHits, closestHits, "ERROR: the closest hit query missed intersections");
+                assertEquals(listHits, recordHits, "ERROR: the hit record query missed intersections");
+            }
+        }
+    }
+
+    /**
+     * Generate coherent primary rays from an eye above the bounding box of the geometries through a grid
+     * over the box, ordered by tiles of 4x4 pixels
+     *
+     * @param geometries the geometries to shoot at
+     * @param side       the amount of pixels along each side of the grid (a multiple of 4)
+     * @return the rays
+     */
+    static Ray[] generatePrimaryRays(Geometries geometries, int side) {
+        BoundingBox box = geometries.getBoundingBox();
+        double size = Math.max(box.maxX - box.minX, Math.max(box.maxY - box.minY, box.maxZ - box.minZ));
+        Point eye = new Point(box.getCenter(0), box.getCenter(1) - size, box.getCenter(2) + 2 * size);
+        Ray[] rays = new Ray[side * side];
+        int k = 0;
+        for (int tileRow = 0; tileRow < side; tileRow += 4)
+            for (int tileColumn = 0; tileColumn < side; tileColumn += 4)
+                for (int row = tileRow; row < tileRow + 4; row++)
+                    for (int column = tileColumn; column < tileColumn + 4; column++) {
+                        Point target = new Point(box.minX + (column + 0.5) / side * (box.maxX - box.minX),
+                                box.minY + (row + 0.5) / side * (box.maxY - box.minY), box.getCenter(2));
+                        rays[k++] = new Ray(eye, target.subtract(eye));
+                    }
+        return rays;
+    }
+
+    /**
+     * Find the closest hits of the rays, in packets of a given size
+     *
+     * @param geometries the geometries to shoot at
+     * @param rays       the rays
+     * @param packetSize the amount of rays in a packet, 1 to intersect each ray on its own
+     * @return the amount of rays that hit the geometries
+     */
+    static long shootPackets(Geometries geometries, Ray[] rays, int packetSize) {
+        long hits = 0;
+        HitRecord[] records = new HitRecord[packetSize];
+        for (int i = 0; i < packetSize; i++)
+            records[i] = new HitRecord();
+        Ray[] packet = new Ray[packetSize];
+        for (int start = 0; start < rays.length; start += packetSize) {
+            for (int i = 0; i < packetSize; i++)
+                records[i].reset(Double.POSITIVE_INFINITY);
+            if (packetSize == 1) {
+                if (geometries.intersect(rays[start], records[0])) ++hits;
+                continue;
+            }
+            System.arraycopy(rays, start, packet, 0, packetSize);
+            hits += Long.bitCount(geometries.intersect(packet, records));
+        }
+        return hits;
+    }
+
+    /**
+     * Benchmark of the closest hits of coherent primary rays traced in packets of 4, 8 and 16 rays
+     * against single rays
+     */
+    @Test
+    void benchmarkPackets() {
+        for (String mesh : MESHES) {
+            Geometries geometries = SceneBuilderFromXML.setFromFile(mesh).geometries;
+            Ray[] rays = generatePrimaryRays(geometries, 128);
+            long singleHits = -1;
+            for (int packetSize : new int[]{1, 4, 8, 16}) {
+                long hits = shootPackets(geometries, rays, packetSize); // warm-up
+                long start = System.nanoTime(), rounds = 0;
+                do {
+                    shootPackets(geometries, rays, packetSize);
+                    ++rounds;
+                } while (System.nanoTime() - start < MIN_MEASURE_TIME);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%-28s packets of %2d %12.0f rays/sec%n", mesh, packetSize,
+                        rounds * rays.length / seconds);
+                if (singleHits < 0) singleHits = hits;
+                assertEquals(singleHits, hits, "ERROR: the packets found different hits than the single rays");
+            }
+        }
+    }
+
+    /**
+     * Benchmark of the triangle soup in a hierarchy against the indexed triangle mesh built by the XML loader
+     */
+    @Test
+    void benchmarkMesh() {
+        for (String mesh : MESHES) {
+            Geometries soup = loadTriangles(mesh).setAcceleration(Geometries.Acceleration.BVH);
+            Geometries loaded = SceneBuilderFromXML.setFromFile(mesh).geometries;
+            Ray[] rays = generateRays(soup, RAYS);
+
+            long soupHits = measure(mesh + " soup BVH", soup, rays);
+            long meshHits = measure(mesh + " TriangleMesh", loaded, rays);
+            assertEquals(soupHits, meshHits, "ERROR: the mesh found different intersections than the triangles");
+        }
+    }
+
+    /**
+     * Benchmark of a thousand instances of each XML mesh - the mesh and its hierarchy are shared,
+     * the collection builds its hierarchy over the instances only
+     */
+    @Test
+    void benchmarkInstances() {
+        for (String mesh : MESHES) {
+            Geometries object = SceneBuilderFromXML.setFromFile(mesh).geometries;
+            BoundingBox box = object.getBoundingBox();
+            double step = 1.5 * Math.max(box.maxX - box.minX, Math.max(box.maxY - box.minY, box.maxZ - box.minZ));
+            Geometries instances = new Geometries();
+            for (int i = 0; i < 1000; i++)
+                instances.add(new Instance(object, Transform.rotation(new Vector(0, 1, 0), 36 * (i % 10))
+                        .then(Transform.translation(step * (i % 10), step * (i / 10 % 10), step * (i / 100)))));
+            Ray[] rays = generateRays(instances, RAYS);
+
+            long hits = measure(mesh + " 1000 instances", instances, rays);
+            System.out.println(mesh + " instances " + instances.getBuildStats());
+            assertTrue(hits > 0, "ERROR: the rays must hit the instances");
+        }
+    }
+
+    /**
+     * Benchmark of an animation of a thousand instances of each XML mesh - refitting the hierarchy
+     * for every frame against rebuilding it
+     */
+    @Test
+    void benchmarkRefit() {
+        final int frames = 20;
+        for (String mesh : MESHES) {
+            Geometries object = SceneBuilderFromXML.setFromFile(mesh).geometries;
+            BoundingBox box = object.getBoundingBox();
+            double step = 1.5 * Math.max(box.maxX - box.minX, Math.max(box.maxY - box.minY, box.maxZ - box.minZ));
+            Instance[] instances = new Instance[1000];
+            Geometries scene = new Geometries();
+            for (int i = 0; i < instances.length; i++)
+                scene.add(instances[i] = new Instance(object, frame(i, 0, step)));
+            scene.getBuildStats();
+
+            long refitTime = 0, rebuildTime = 0;
+            int refits = 0;
+            for (int f = 1; f <= frames; f++) {
+                for (int i = 0; i < instances.length; i++)
+                    instances[i].setTransform(frame(i, f, step));
+                long start = System.nanoTime();
+                if (scene.refit()) ++refits;
+                refitTime += System.nanoTime() - start;
+                start = System.nanoTime();
+                scene.setAcceleration(Geometries.Acceleration.BVH).getBuildStats();
+                rebuildTime += System.nanoTime() - start;
+            }
+            System.out.printf("%-28s refit %8.3f ms/frame (%d of %d frames)   rebuild %8.3f ms/frame%n",
+                    mesh + " animation", refitTime / 1e6 / frames, refits, frames, rebuildTime / 1e6 / frames);
+            assertTrue(refits > 0, "ERROR: a smooth animation must be refitted");
+        }
+    }
+
+    /**
+     * The transformation of an instance in a frame of the refit benchmark - the instances of a grid
+     * orbit their places
+     *
+     * @param i     the index of the instance
+     * @param frame the frame
+     * @param step  the distance between the instances
+     * @return the transformation of the instance in the frame
+     */
+    private static Transform frame(int i, int frame, double step) {
+        double angle = 0.1 * frame + i;
+        return Transform.translation(step * (i % 10 + 0.2 * Math.cos(angle)),
+                step * (i / 10 % 10 + 0.2 * Math.sin(angle)), step * (i / 100));
+    }
+
+    /**
+     * Create a wavy height field mesh of a square grid of quads (two triangles per quad)
+     *
+     * @param side the amount of quads along each side of the grid
+     * @return the mesh
+     */
+    static TriangleMesh heightField(int side) {
+        return heightField(side, Geometries.Precision.DOUBLE);
+    }
+
+    /**
+     * Create a wavy height field mesh of a square grid of quads (two triangles per quad) in a precision
+     *
+     * @param side      the amount of quads along each side of the grid
+     * @param precision the precision of the vertices and of the hierarchy of the mesh
+     * @return the mesh
+     */
+    static TriangleMesh heightField(int side, Geometries.Precision precision) {
+        int row = side + 1;
+        double[] vertices = new double[3 * row * row];
+        for (int i = 0; i < row; i++)
+            for (int j = 0; j < row; j++) {
+                int v = 3 * (i * row + j);
+                vertices[v] = j;
+                vertices[v + 1] = i;
+                vertices[v + 2] = 5 * Math.sin(i * 0.05) * Math.cos(j * 0.07);
+            }
+        int[] indices = new int[6 * side * side];
+        for (int i = 0, k = 0; i < side; i++)
+            for (int j = 0; j < side; j++) {
+                int a = i * row + j, b = a + 1, c = a + row, d = c + 1;
+                indices[k++] = a;
+                indices[k++] = b;
+                indices[k++] = d;
+                indices[k++] = a;
+                indices[k++] = d;
+                indices[k++] = c;
+            }
+        return new TriangleMesh(vertices, indices, Geometries.BuildStrategy.SAH, precision);
+    }
+
+    /**
+     * Benchmark of the build of the hierarchy - the XML meshes as triangle soups and a height field
+     * of a million triangles
+     */
+    @Test
+    void benchmarkBuild() {
+        for (String mesh : MESHES) {
+            Geometries geometries = loadTriangles(mesh);
+            System.out.println(mesh + " " + geometries.getBuildStats());
+        }
+        heightField(708); // warm-up
+        BuildStats stats = heightField(708).getBuildStats();
+        System.out.println("height field " + stats);
+        assertEquals(1_002_528, stats.getPrimitiveCount(), "ERROR: wrong amount of triangles");
+    }
+
+    /**
+     * Benchmark of the hierarchy cache - a cold start builds the height field of a million triangles
+     * and stores it, a warm start loads it
+     *
+     * @throws java.io.IOException if the cache directory can't be created
+     */
+    @Test
+    void benchmarkHierarchyCache() throws java.io.IOException {
+        java.nio.file.Path directory = java.nio.file.Files.createTempDirectory("bvh");
+        HierarchyCache.setShared(new HierarchyCache(directory));
+        try {
+            BuildStats cold = heightField(708).getBuildStats();
+            BuildStats warm = heightField(708).getBuildStats();
+            System.out.println("height field cold " + cold);
+            System.out.println("height field warm " + warm);
+            assertTrue(warm.isCached(), "ERROR: the warm start must load the hierarchy");
+            assertEquals(cold.getNodeCount(), warm.getNodeCount(), "ERROR: the loaded tree differs from the built one");
+        } finally {
+            HierarchyCache.setShared(null);
+            new HierarchyCache(directory).setMaxSize(0).evict();
+            java.nio.file.Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Load the triangles of an XML mesh as a single indexed mesh (the vertices are not shared)
+     *
+     * @param file the XML file
+     * @return the mesh of the triangles of the file
+     */
+    static TriangleMesh loadMesh(String file) {
+        double[] vertices = null;
+        try {
+            NodeList triangles = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file)
+                    .getElementsByTagName("triangle");
+            vertices = new double[9 * triangles.getLength()];
+            for (int i = 0, k = 0; i < triangles.getLength(); i++) {
+                Element triangle = (Element) triangles.item(i);
+                for (int j = 0; j < 3; j++)
+                    for (String coordinate : triangle.getAttribute("p" + j).trim().split(" "))
+                        vertices[k++] = Double.parseDouble(coordinate);
+            }
+        } catch (Exception e) {
+            fail("ERROR: can't read " + file + ": " + e);
+        }
+        int[] indices = new int[vertices.length / 3];
+        for (int i = 0; i < indices.length; i++)
+            indices[i] = i;
+        return new TriangleMesh(vertices, indices);
+    }
+
+    /**
+     * Measure the throughput of the closest hits of the rays and print it
+     *
+     * @param name     the name of the measured configuration
+     * @param geometry the geometry to shoot at
+     * @param rays     the rays
+     * @return the sum of the distances of the hits (to compare the configurations)
+     */
+    static double measureClosest(String name, Intersectable geometry, Ray[] rays) {
+        HitRecord hit = new HitRecord();
+        double sum = 0;
+        for (int round = 0; round < 3; ++round) // warm-up
+            for (Ray ray : rays)
+                geometry.intersect(ray, hit.reset(Double.POSITIVE_INFINITY));
+        long start = System.nanoTime(), rounds = 0;
+        do {
+            sum = 0;
+            for (Ray ray : rays)
+                if (geometry.intersect(ray, hit.reset(Double.POSITIVE_INFINITY))) sum += hit.t;
+            ++rounds;
+        } while (System.nanoTime() - start < MIN_MEASURE_TIME);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-36s %12.0f rays/sec%n", name, rounds * rays.length / seconds);
+        return sum;
+    }
+
+    /**
+     * Benchmark of the leaf kernels - the closest hits of the XML meshes and of a cloud of spheres
+     * with each kernel that can run on this JVM
+     */
+    @Test
+    void benchmarkLeafKernels() {
+        System.out.println("picked leaf kernel: " + LeafKernel.SELECTED);
+        for (String file : MESHES) {
+            TriangleMesh mesh = loadMesh(file);
+            Ray[] rays = generateRays(new Geometries(mesh), 20 * RAYS);
+            double[] sums = new double[LeafKernel.values().length];
+            for (LeafKernel kernel : LeafKernel.values()) {
+                if (!kernel.isAvailable()) continue;
+                mesh.setLeafKernel(kernel);
+                sums[kernel.ordinal()] = measureClosest(file + " mesh " + kernel, mesh, rays);
+                assertEquals(sums[0], sums[kernel.ordinal()], "ERROR: the kernels found different hits");
+            }
+        }
+
+        Random random = new Random(3);
+        Geometries spheres = new Geometries();
+        for (int i = 0; i < 20_000; i++)
+            spheres.add(new Sphere(new Point(random.nextDouble() * 100, random.nextDouble() * 100,
+                    random.nextDouble() * 100), 0.5 + random.nextDouble()));
+        Ray[] rays = generateRays(spheres, 20 * RAYS);
+        double[] sums = new double[LeafKernel.values().length];
+        for (LeafKernel kernel : LeafKernel.values()) {
+            if (!kernel.isAvailable()) continue;
+            spheres.setLeafKernel(kernel);
+            sums[kernel.ordinal()] = measureClosest("20000 spheres " + kernel, spheres, rays);
+            assertEquals(sums[0], sums[kernel.ordinal()], "ERROR: the kernels found different hits");
+        }
+    }
+
+    /**
+     * Get the used heap after a garbage collection
+     *
+     * @return the bytes of the used heap
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Print the estimated and the measured memory of a height field of a million triangles in a precision -
+     * the mesh is held by this frame only, so it is released when the method returns
+     *
+     * @param precision the precision of the mesh
+     */
+    private static void reportHeightField(Geometries.Precision precision) {
+        long before = usedHeap();
+        TriangleMesh field = heightField(708, precision);
+        long heap = usedHeap() - before;
+        MemoryStats stats = new MemoryStats();
+        field.addMemory(stats);
+        System.out.printf("height field %-6s %s, measured %.2f MB%n", precision, stats, heap / 1e6);
+    }
+
+    /**
+     * Benchmark of the memory of the scenes - the XML meshes as triangle soups, as meshes and as single precision
+     * meshes, and a height field of a million triangles in both precisions (with the measured heap next to the
+     * estimate)
+     */
+    @Test
+    void benchmarkMemory() {
+        for (String file : MESHES) {
+            MemoryStats soup = loadTriangles(file).setAcceleration(Geometries.Acceleration.BVH).getMemoryStats();
+            MemoryStats mesh = SceneBuilderFromXML.setFromFile(file).getMemoryStats();
+            MemoryStats compact = SceneBuilderFromXML.setFromFile(file, Geometries.Precision.FLOAT).getMemoryStats();
+            System.out.println(file + " soup   " + soup);
+            System.out.println(file + " double " + mesh);
+            System.out.println(file + " float  " + compact);
+            System.out.printf("%s soup/float %.1fx, double/float %.1fx%n", file,
+                    (double) soup.getTotalBytes() / compact.getTotalBytes(),
+                    (double) mesh.getTotalBytes() / compact.getTotalBytes());
+            assertTrue(compact.getTotalBytes() < mesh.getTotalBytes(), "ERROR: the single precision scene is larger");
+        }
+        // the single precision first - the released double precision mesh doesn't skew its measure
+        reportHeightField(Geometries.Precision.FLOAT);
+        reportHeightField(Geometries.Precision.DOUBLE);
+    }
+}
@@ -47,4 +47,16 @@ class CylinderTests {
     void testFindIntersections() {
         // Not implemented
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link geometries.Cylinder#getBoundingBox()}.
+     */
+    @Test
+    void testGetBoundingBox() {
+        // ============ Equivalence partitions Tests ==============
+        // TC01: cylinder along the z axis - the bases are bounded by squares
+        Cylinder cyl = new Cylinder(new Ray(new Point(0, 0, 1), new Vector(0, 0, 1)), 5, 10);
+        assertEquals(new BoundingBox(-5, -5, 1, 5, 5, 11), cyl.getBoundingBox(),
+                "ERROR: Cylinder.getBoundingBox - wrong box for an axis-aligned cylinder");
+    }
+}
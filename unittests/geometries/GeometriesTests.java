@@ -1,5 +1,6 @@
 package geometries;
 
+import geometries.Intersectable.GeoPoint;
 import org.junit.jupiter.api.Test;
 import primitives.*;
 
@@ -69,4 +70,388 @@ class GeometriesTests {
         assertEquals(1, geometries.findGeoIntersectionsHelper(new Ray(new Point(1, 4, 8), new Vector(0, -3, -7.8)), 8).size(),
                 "ERROR: all geometries are intersected - not working as expected - maxDistance is 3");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link geometries.Geometries#setAcceleration(Geometries.Acceleration)}.
+     */
+    @Test
+    void testAcceleration() {
+        Geometries flat = new Geometries(plane, triangle, sphere, polygon).setAcceleration(Geometries.Acceleration.NONE);
+        Geometries bvh = new Geometries(plane, triangle, sphere, polygon).setAcceleration(Geometries.Acceleration.BVH);
+        Geometries grid = new Geometries(plane, triangle, sphere, polygon).setAcceleration(Geometries.Acceleration.GRID);
+        for (int i = 0; i < 20; i++) {
+            flat.add(new Sphere(new Point(i, i % 3, -i), 0.5));
+            bvh.add(new Sphere(new Point(i, i % 3, -i), 0.5));
+            grid.add(new Sphere(new Point(i, i % 3, -i), 0.5));
+        }
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the hierarchy and the grid find the same intersections as the flat list
+        Ray[] rays = {new Ray(new Point(0, 2, 0), new Vector(2, -2, 0.5)),
+                new Ray(new Point(1, 4, 8), new Vector(0, -3, -7.8)),
+                new Ray(new Point(-5, 0, 5), new Vector(1, 0, -1)),
+                new Ray(new Point(30, 1, -30), new Vector(-1, 0, 1))};
+        for (Ray ray : rays) {
+            var expected = flat.findGeoIntersections(ray);
+            var actual = bvh.findGeoIntersections(ray);
+            assertEquals(expected == null ? 0 : expected.size(), actual == null ? 0 : actual.size(),
+                    "ERROR: the hierarchy and the flat list found different intersections");
+            actual = grid.findGeoIntersections(ray);
+            assertEquals(expected == null ? 0 : expected.size(), actual == null ? 0 : actual.size(),
+                    "ERROR: the grid and the flat list found different intersections");
+        }
+
+        // =============== Boundary Values Tests =================
+        // TC02: geometries added after the hierarchy was built are found
+        Ray ray = new Ray(new Point(0, 0, 100), new Vector(0, 0, 1));
+        assertNull(bvh.findGeoIntersections(ray), "ERROR: ray away from all the geometries");
+        bvh.add(new Sphere(new Point(0, 0, 110), 1));
+        assertEquals(2, bvh.findGeoIntersections(ray).size(), "ERROR: added geometry is not found");
+        assertNull(grid.findGeoIntersections(ray), "ERROR: ray away from all the geometries");
+        grid.add(new Sphere(new Point(0, 0, 110), 1));
+        assertEquals(2, grid.findGeoIntersections(ray).size(), "ERROR: added geometry is not found");
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#findClosestGeoIntersection(Ray, double)}.
+     */
+    @Test
+    void testFindClosestGeoIntersection() {
+        Ray[] rays = {new Ray(new Point(0, 2, 0), new Vector(2, -2, 0.5)),
+                new Ray(new Point(1, 4, 8), new Vector(0, -3, -7.8)),
+                new Ray(new Point(-5, 0, 5), new Vector(1, 0, -1)),
+                new Ray(new Point(30, 1, -30), new Vector(-1, 0, 1)),
+                new Ray(new Point(0, 0, 100), new Vector(0, 0, 1))};
+        for (Geometries.Acceleration acceleration : Geometries.Acceleration.values()) {
+            Geometries scene = new Geometries(plane, triangle, sphere, polygon).setAcceleration(acceleration);
+            for (int i = 0; i < 20; i++)
+                scene.add(new Sphere(new Point(i, i % 3, -i), 0.5));
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: the closest hit is the closest of all the intersections
+            for (Ray ray : rays) {
+                GeoPoint expected = ray.findClosestGeoPoint(scene.findGeoIntersections(ray));
+                GeoPoint actual = scene.findClosestGeoIntersection(ray);
+                assertEquals(expected, actual, "ERROR: wrong closest intersection with " + acceleration);
+                if (actual != null)
+                    assertEquals(ray.getHead().distance(actual.point), actual.t, 1e-9,
+                            "ERROR: wrong ray parameter of the closest intersection with " + acceleration);
+            }
+
+            // =============== Boundary Values Tests =================
+            // TC02: the closest hit is beyond the maximal distance
+            Ray ray = new Ray(new Point(-5, 0, 5), new Vector(1, 0, -1));
+            double t = scene.findClosestGeoIntersection(ray).t;
+            assertNull(scene.findClosestGeoIntersection(ray, t / 2),
+                    "ERROR: intersection beyond the maximal distance with " + acceleration);
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#intersect(Ray, HitRecord)}.
+     */
+    @Test
+    void testIntersect() {
+        Geometries scene = new Geometries(plane, triangle, sphere, polygon);
+        HitRecord hit = new HitRecord();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the record holds the closest hit with its normal
+        Ray ray = new Ray(new Point(1, 1, 5), new Vector(0, 0, -1));
+        assertTrue(scene.intersect(ray, hit), "ERROR: hit is not found");
+        assertEquals(sphere, hit.geometry, "ERROR: wrong geometry of the closest hit");
+        assertEquals(4, hit.t, 1e-9, "ERROR: wrong ray parameter of the closest hit");
+        assertEquals(new Point(1, 1, 1), hit.getPoint(), "ERROR: wrong point of the closest hit");
+        assertEquals(new Vector(0, 0, 1), hit.getNormal(), "ERROR: wrong normal of the closest hit");
+
+        // =============== Boundary Values Tests =================
+        // TC02: a record that already holds a closer hit is not changed
+        assertFalse(sphere.intersect(ray, hit.reset(3)), "ERROR: hit beyond the maximal distance is recorded");
+        assertFalse(hit.isHit(), "ERROR: the record must stay empty");
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#intersect(Ray[], HitRecord[])}.
+     */
+    @Test
+    void testIntersectPacket() {
+        // a mesh nested in the collection - the packet goes down both hierarchies
+        TriangleMesh mesh = new TriangleMesh(new double[]{-3, -3, -2, 3, -3, -2, 3, 3, -2, -3, 3, -2},
+                new int[]{0, 1, 2, 0, 2, 3});
+        Ray[] rays = new Ray[16];
+        for (int i = 0; i < rays.length; ++i)
+            rays[i] = new Ray(new Point(-1.5 + 0.2 * (i % 4) + 0.5 * i, 1 - 0.1 * i, 5), new Vector(0.05 * (i / 4), 0.01, -1));
+        for (Geometries.Acceleration acceleration : Geometries.Acceleration.values()) {
+            Geometries scene = new Geometries(plane, triangle, sphere, polygon, mesh).setAcceleration(acceleration);
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: each ray of the packet finds the closest hit of a single ray
+            HitRecord[] hits = new HitRecord[rays.length];
+            for (int i = 0; i < hits.length; ++i)
+                hits[i] = new HitRecord();
+            long found = scene.intersect(rays, hits);
+            for (int i = 0; i < rays.length; ++i) {
+                HitRecord single = new HitRecord();
+                assertEquals(scene.intersect(rays[i], single), (found >>> i & 1) == 1,
+                        "ERROR: wrong mask of the packet with " + acceleration);
+                assertEquals(single.geometry, hits[i].geometry, "ERROR: wrong geometry of the packet with " + acceleration);
+                assertEquals(single.t, hits[i].t, 1e-9, "ERROR: wrong hit of the packet with " + acceleration);
+            }
+
+            // =============== Boundary Values Tests =================
+            // TC02: the rays that already hold closer hits are left out of the mask
+            for (HitRecord hit : hits)
+                hit.reset(0.5);
+            assertEquals(0, scene.intersect(rays, hits), "ERROR: no ray has a closer hit with " + acceleration);
+        }
+        // TC03: a packet is limited by the bits of the mask
+        assertThrows(IllegalArgumentException.class,
+                () -> geometries.intersect(new Ray[Intersectable.MAX_PACKET_SIZE + 1], new HitRecord[0]),
+                "ERROR: the packet is too big");
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#findTransmission(Ray, double, double)}.
+     */
+    @Test
+    void testFindTransmission() {
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(1, 0, 0));
+        for (Geometries.Acceleration acceleration : Geometries.Acceleration.values()) {
+            Geometries scene = new Geometries(
+                    new Sphere(new Point(2, 0, 0), 0.5).setMaterial(new Material().setKt(0.5)),
+                    new Sphere(new Point(4, 0, 0), 0.5).setMaterial(new Material().setKt(0.5)),
+                    new Sphere(new Point(6, 0, 0), 0.5),
+                    new Sphere(new Point(0, 5, 0), 0.5)).setAcceleration(acceleration);
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: transparent blockers - the product of kT of every hit (two hits per sphere)
+            assertEquals(new Double3(0.0625), scene.findTransmission(ray, 5, 0.001),
+                    "ERROR: wrong transmission through transparent blockers with " + acceleration);
+            // TC02: an opaque blocker blocks the ray
+            assertEquals(Double3.ZERO, scene.findTransmission(ray, 10, 0.001),
+                    "ERROR: opaque blocker doesn't block the ray with " + acceleration);
+            // TC03: any blocker blocks the ray in an any-hit query
+            assertTrue(scene.isBlocked(ray, 3), "ERROR: transparent blocker is not found with " + acceleration);
+
+            // =============== Boundary Values Tests =================
+            // TC04: no blockers up to the maximal distance
+            assertEquals(Double3.ONE, scene.findTransmission(ray, 1, 0.001),
+                    "ERROR: wrong transmission without blockers with " + acceleration);
+            assertFalse(scene.isBlocked(ray, 1), "ERROR: blocker beyond the maximal distance with " + acceleration);
+            // TC05: the transmission drops below the cutoff
+            assertEquals(Double3.ZERO, scene.findTransmission(ray, 5, 0.1),
+                    "ERROR: transmission below the cutoff with " + acceleration);
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#setBuildStrategy(Geometries.BuildStrategy)}.
+     */
+    @Test
+    void testSetBuildStrategy() {
+        Geometries sah = new Geometries(plane, triangle, sphere, polygon);
+        Geometries lbvh = new Geometries(plane, triangle, sphere, polygon).setBuildStrategy(Geometries.BuildStrategy.LBVH);
+        for (int i = 0; i < 50; i++) {
+            sah.add(new Sphere(new Point(i % 10, i % 3, -i), 0.5));
+            lbvh.add(new Sphere(new Point(i % 10, i % 3, -i), 0.5));
+        }
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the linear hierarchy finds the same intersections as the SAH hierarchy
+        Ray[] rays = {new Ray(new Point(0, 2, 0), new Vector(2, -2, 0.5)),
+                new Ray(new Point(1, 4, 8), new Vector(0, -3, -7.8)),
+                new Ray(new Point(-5, 0, 5), new Vector(1, 0, -1)),
+                new Ray(new Point(30, 1, -30), new Vector(-1, 0, 1))};
+        for (Ray ray : rays) {
+            var expected = sah.findGeoIntersections(ray);
+            var actual = lbvh.findGeoIntersections(ray);
+            assertEquals(expected == null ? 0 : expected.size(), actual == null ? 0 : actual.size(),
+                    "ERROR: the build strategies found different intersections");
+            GeoPoint closest = sah.findClosestGeoIntersection(ray);
+            assertEquals(closest == null ? null : closest.point, lbvh.findClosestGeoIntersection(ray).point,
+                    "ERROR: the build strategies found different closest intersections");
+        }
+        BuildStats stats = lbvh.getBuildStats();
+        assertEquals(53, stats.getPrimitiveCount(), "ERROR: wrong amount of primitives");
+        assertEquals(2 * stats.getLeafCount() - 1, stats.getNodeCount(), "ERROR: the tree must be binary");
+
+        // =============== Boundary Values Tests =================
+        // TC02: primitives at the same center are split in the middle
+        Geometries same = new Geometries().setBuildStrategy(Geometries.BuildStrategy.LBVH);
+        for (int i = 1; i <= 8; i++)
+            same.add(new Sphere(new Point(0, 0, -10), i));
+        assertEquals(16, same.findGeoIntersections(new Ray(Point.ZERO, new Vector(0, 0, -1))).size(),
+                "ERROR: concentric spheres are not all found");
+        assertEquals(8, same.getBuildStats().getLeafCount(), "ERROR: wrong amount of leaves");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries.BuildStrategy#SBVH}.
+     */
+    @Test
+    void testSpatialSplits() {
+        // a fan of long thin diagonal triangles crossing each other - their boxes overlap badly
+        Geometries sah = new Geometries();
+        Geometries sbvh = new Geometries().setBuildStrategy(Geometries.BuildStrategy.SBVH);
+        Geometries glass = new Geometries().setBuildStrategy(Geometries.BuildStrategy.SBVH);
+        for (int i = 0; i < 40; i++) {
+            double y = i * 0.5;
+            Triangle sliver = new Triangle(new Point(0, y, 0), new Point(20, 20 - y, 20), new Point(20, 20.2 - y, 20));
+            sah.add(sliver);
+            sbvh.add(sliver);
+            glass.add(new Triangle(new Point(0, y, 0), new Point(20, 20 - y, 20), new Point(20, 20.2 - y, 20))
+                    .setMaterial(new Material().setKt(0.9)));
+        }
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the split hierarchy finds the same intersections - each triangle once
+        BuildStats stats = sbvh.getBuildStats();
+        assertTrue(stats.getReferenceCount() > stats.getPrimitiveCount(), "ERROR: the slivers must be split");
+        assertTrue(stats.getReferenceCount() <= 1.5 * stats.getPrimitiveCount(), "ERROR: the split budget is exceeded");
+        for (int i = 0; i < 100; i++) {
+            Ray ray = new Ray(new Point(0.2 * i, 0.17 * i, 30), new Vector(0.001, 0.002, -1));
+            var expected = sah.findGeoIntersections(ray);
+            var actual = sbvh.findGeoIntersections(ray);
+            assertEquals(expected == null ? 0 : expected.size(), actual == null ? 0 : actual.size(),
+                    "ERROR: the split hierarchy found different intersections");
+            GeoPoint closest = sah.findClosestGeoIntersection(ray);
+            GeoPoint splitClosest = sbvh.findClosestGeoIntersection(ray);
+            assertEquals(closest == null ? null : closest.point, splitClosest == null ? null : splitClosest.point,
+                    "ERROR: the split hierarchy found a different closest intersection");
+        }
+
+        // =============== Boundary Values Tests =================
+        // TC02: a split triangle blocks a ray once - its transparency is not applied twice
+        Ray down = new Ray(new Point(10, 10.05, 30), new Vector(0, 0, -1));
+        assertEquals(40, glass.findGeoIntersections(down).size(), "ERROR: the ray crosses all the slivers");
+        assertEquals(new Double3(Math.pow(0.9, 40)), glass.findTransmission(down, 40, 0),
+                "ERROR: a split triangle must be counted once");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#getBuildStats()}.
+     */
+    @Test
+    void testGetBuildStats() {
+        Geometries scene = new Geometries(plane);
+        for (int i = 0; i < 100; i++)
+            scene.add(new Sphere(new Point(i, i % 7, -i % 5), 0.5));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the statistics of the hierarchy
+        BuildStats stats = scene.getBuildStats();
+        assertEquals(100, stats.getPrimitiveCount(), "ERROR: the unbounded plane is not a primitive of the tree");
+        assertEquals(2 * stats.getLeafCount() - 1, stats.getNodeCount(), "ERROR: the tree must be binary");
+        assertTrue(stats.getMaxDepth() > 0 && stats.getMaxDepth() < stats.getLeafCount(), "ERROR: wrong depth");
+        assertTrue(stats.getSahCost() > 0, "ERROR: wrong SAH cost");
+
+        // =============== Boundary Values Tests =================
+        // TC02: no statistics without a hierarchy
+        assertNull(scene.setAcceleration(Geometries.Acceleration.GRID).getBuildStats(),
+                "ERROR: the grid has no hierarchy statistics");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#refit()}.
+     */
+    @Test
+    void testRefit() {
+        Sphere ball = new Sphere(Point.ZERO, 1);
+        Instance[] instances = new Instance[20];
+        Geometries scene = new Geometries(plane);
+        for (int i = 0; i < instances.length; i++) {
+            instances[i] = new Instance(ball, Transform.translation(3 * i, 0, -10));
+            scene.add(instances[i]);
+        }
+        Ray ray = new Ray(new Point(-5, 0, -10), new Vector(1, 0, 0));
+        assertEquals(new Point(-1, 0, -10), scene.findClosestGeoIntersection(ray).point, "ERROR: wrong closest point");
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the instances move a little - the hierarchy is refitted and finds them at their new places
+        for (int i = 0; i < instances.length; i++)
+            instances[i].setTransform(Transform.translation(3 * i + 0.5, 0, -10));
+        assertTrue(scene.refit(), "ERROR: a small move must refit the hierarchy");
+        assertEquals(new Point(-0.5, 0, -10), scene.findClosestGeoIntersection(ray).point,
+                "ERROR: the refitted hierarchy found a wrong closest point");
+        assertEquals(41, scene.findGeoIntersections(ray).size(), "ERROR: wrong intersections after the refit");
+
+        // TC02: the instances are scrambled - the refitted tree degrades and it is rebuilt
+        for (int i = 0; i < instances.length; i++)
+            instances[i].setTransform(Transform.translation(3 * ((i * 7) % 20), 0, -10));
+        assertFalse(scene.refit(), "ERROR: a degraded hierarchy must be rebuilt");
+        assertEquals(new Point(-1, 0, -10), scene.findClosestGeoIntersection(ray).point,
+                "ERROR: the rebuilt hierarchy found a wrong closest point");
+
+        // =============== Boundary Values Tests =================
+        // TC03: rebuild threshold lower than 1
+        assertThrows(IllegalArgumentException.class, () -> scene.setRebuildThreshold(0.5),
+                "ERROR: rebuild threshold lower than 1 must throw");
+        // TC04: refit without a hierarchy
+        assertFalse(new Geometries(sphere).setAcceleration(Geometries.Acceleration.NONE).refit(),
+                "ERROR: there is no hierarchy to refit");
+        // TC05: an unmoved hierarchy of spatial splits (the slivers of testSpatialSplits) is refitted, not rebuilt -
+        // its leaves are refitted to the whole boxes of their triangles, not to the clipped parts
+        Geometries slivers = new Geometries().setBuildStrategy(Geometries.BuildStrategy.SBVH);
+        for (int i = 0; i < 40; i++) {
+            double y = i * 0.5;
+            slivers.add(new Triangle(new Point(0, y, 0), new Point(20, 20 - y, 20), new Point(20, 20.2 - y, 20)));
+        }
+        BuildStats stats = slivers.getBuildStats();
+        assertTrue(stats.getReferenceCount() > stats.getPrimitiveCount(), "ERROR: the slivers must be split");
+        assertTrue(slivers.refit(), "ERROR: an unmoved hierarchy must not be rebuilt");
+        assertSame(stats, slivers.getBuildStats(), "ERROR: the refit must keep the spatial splits");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#getBoundingBox()}.
+     */
+    @Test
+    void testGetBoundingBox() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: bounded geometries - union of the boxes
+        assertEquals(new BoundingBox(0, 0, -1, 2, 2, 4), new Geometries(triangle, sphere, polygon).getBoundingBox(),
+                "ERROR: wrong bounding box of bounded geometries");
+
+        // =============== Boundary Values Tests =================
+        // TC02: collection with an unbounded geometry is unbounded
+        assertNull(geometries.getBoundingBox(), "ERROR: collection with a plane must be unbounded");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#setPrecision(Geometries.Precision)}.
+     */
+    @Test
+    void testSetPrecision() {
+        Geometries full = new Geometries();
+        Geometries compact = new Geometries().setPrecision(Geometries.Precision.FLOAT);
+        Instance[] instances = new Instance[40];
+        for (int i = 0; i < 40; i++) {
+            Sphere ball = new Sphere(new Point(0.1 + i % 8, 0.3 + i % 5, -0.7 * i), 0.45);
+            instances[i] = new Instance(ball, Transform.IDENTITY);
+            full.add(ball);
+            compact.add(instances[i]);
+        }
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the hierarchy of single precision bounds finds the same hits
+        for (int i = 0; i < 50; i++) {
+            Ray ray = new Ray(new Point(0.17 * i - 1, 0.11 * i - 1, 5), new Vector(0.05, 0.03, -1));
+            GeoPoint expected = full.findClosestGeoIntersection(ray);
+            GeoPoint actual = compact.findClosestGeoIntersection(ray);
+            assertEquals(expected == null ? null : expected.point, actual == null ? null : actual.point,
+                    "ERROR: the single precision bounds missed a hit");
+        }
+        // TC02: the refitted single precision hierarchy follows the moved geometries
+        for (Instance instance : instances)
+            instance.setTransform(Transform.translation(0, 0, -100));
+        compact.refit();
+        Ray down = new Ray(new Point(0.1, 0.3, 5), new Vector(0, 0, -1));
+        assertEquals(new Point(0.1, 0.3, -99.55), compact.findClosestGeoIntersection(down).point,
+                "ERROR: the refitted hierarchy lost the moved geometry");
+
+        // =============== Boundary Values Tests =================
+        // TC03: a geometry shared by two instances is counted once
+        Geometries shared = new Geometries(new Instance(sphere, Transform.IDENTITY),
+                new Instance(sphere, Transform.translation(5, 0, 0)));
+        assertEquals(3, shared.getMemoryStats().getGeometryCount(), "ERROR: a shared geometry is counted once");
+    }
+}
@@ -0,0 +1,200 @@
+package geometries;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import primitives.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.HierarchyCache class
+ */
+class HierarchyCacheTests {
+    /**
+     * The directory of the cache of each test
+     */
+    @TempDir
+    Path directory;
+    /**
+     * The offset of the depth of the tree in the header of an entry (after the magic, the version and 4 counts)
+     */
+    private static final int DEPTH_OFFSET = 4 * 6;
+    /**
+     * The size of the header of an entry
+     */
+    private static final int HEADER_SIZE = 4 * 7 + 8 + 8 + 32;
+
+    /**
+     * Stop caching the hierarchies of the other tests
+     */
+    @AfterEach
+    void tearDown() {
+        HierarchyCache.setShared(null);
+    }
+
+    /**
+     * Get the entries of the cache
+     *
+     * @return the files of the entries
+     * @throws IOException if the directory can't be listed
+     */
+    private List<Path> entries() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".bvh")).toList();
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.HierarchyCache#setShared(HierarchyCache)}.
+     */
+    @Test
+    void testSetShared() {
+        HierarchyCache.setShared(new HierarchyCache(directory));
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the first build stores the hierarchy, the second one loads the same tree
+        TriangleMesh built = AccelerationBenchmarkTests.heightField(30);
+        TriangleMesh loaded = AccelerationBenchmarkTests.heightField(30);
+        assertFalse(built.getBuildStats().isCached(), "ERROR: the first hierarchy must be built");
+        assertTrue(loaded.getBuildStats().isCached(), "ERROR: the second hierarchy must be loaded");
+        assertEquals(built.getBuildStats().getNodeCount(), loaded.getBuildStats().getNodeCount(),
+                "ERROR: the loaded tree differs from the built one");
+        assertEquals(built.getBuildStats().getSahCost(), loaded.getBuildStats().getSahCost(), 1e-12,
+                "ERROR: the loaded tree differs from the built one");
+        for (int i = 0; i < 100; ++i) {
+            Ray ray = new Ray(new Point(0.3 * i, 0.27 * i, 20), new Vector(0.1, 0.05, -1));
+            assertEquals(built.findIntersections(ray), loaded.findIntersections(ray),
+                    "ERROR: the loaded tree finds different intersections");
+        }
+
+        // TC02: a different strategy (and different primitives) is a different entry
+        new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0, 1, 1, 1}, new int[]{0, 1, 2, 1, 3, 2},
+                Geometries.BuildStrategy.LBVH);
+        assertFalse(AccelerationBenchmarkTests.heightField(31).getBuildStats().isCached(),
+                "ERROR: other primitives must be built");
+
+        // =============== Boundary Values Tests =================
+        // TC03: the spatial splits are not cached - they depend on the shapes, not only on the boxes
+        double[] vertices = {0, 0, 0, 10, 10, 0, 10, 10.1, 0, 0, 10, 1, 10, 0, 1, 10, 0.1, 1};
+        int[] indices = {0, 1, 2, 3, 4, 5};
+        new TriangleMesh(vertices, indices, Geometries.BuildStrategy.SBVH);
+        assertFalse(new TriangleMesh(vertices, indices, Geometries.BuildStrategy.SBVH).getBuildStats().isCached(),
+                "ERROR: spatial splits must be built");
+    }
+
+    /**
+     * Test method for loading an invalid entry of the cache.
+     *
+     * @throws IOException if the entry can't be modified
+     */
+    @Test
+    void testValidation() throws IOException {
+        HierarchyCache.setShared(new HierarchyCache(directory));
+        AccelerationBenchmarkTests.heightField(20);
+        Path entry = entries().getFirst();
+        byte[] content = Files.readAllBytes(entry);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a corrupted entry is rejected and replaced
+        content[content.length - 5] ^= 1;
+        Files.write(entry, content);
+        assertFalse(AccelerationBenchmarkTests.heightField(20).getBuildStats().isCached(),
+                "ERROR: a corrupted entry must be rebuilt");
+        assertTrue(AccelerationBenchmarkTests.heightField(20).getBuildStats().isCached(),
+                "ERROR: the rebuilt entry must be stored");
+        // TC02: an entry whose header has a smaller depth is rejected by its checksum
+        content = Files.readAllBytes(entry);
+        ByteBuffer header = ByteBuffer.wrap(content);
+        header.putInt(DEPTH_OFFSET, header.getInt(DEPTH_OFFSET) - 1);
+        Files.write(entry, content);
+        assertFalse(AccelerationBenchmarkTests.heightField(20).getBuildStats().isCached(),
+                "ERROR: an entry with a corrupted header must be rebuilt");
+        // TC03: an entry whose header has a smaller depth and a matching checksum is rejected by its links
+        content = Files.readAllBytes(entry);
+        header = ByteBuffer.wrap(content);
+        header.putInt(DEPTH_OFFSET, header.getInt(DEPTH_OFFSET) - 1);
+        CRC32 crc = new CRC32();
+        crc.update(content, 8, 28);
+        crc.update(content, HEADER_SIZE, content.length - HEADER_SIZE);
+        header.putLong(36, crc.getValue());
+        Files.write(entry, content);
+        assertFalse(AccelerationBenchmarkTests.heightField(20).getBuildStats().isCached(),
+                "ERROR: an entry with a wrong depth must be rebuilt");
+
+        // =============== Boundary Values Tests =================
+        // TC04: a truncated entry is rejected
+        Files.write(entry, Arrays.copyOf(content, 40));
+        assertFalse(AccelerationBenchmarkTests.heightField(20).getBuildStats().isCached(),
+                "ERROR: a truncated entry must be rebuilt");
+    }
+
+    /**
+     * Test method for {@link geometries.HierarchyCache#store(byte[], int, HierarchyCache.Entry)}.
+     *
+     * @throws IOException if the directory can't be listed
+     */
+    @Test
+    void testStore() throws IOException {
+        HierarchyCache.setShared(new HierarchyCache(directory));
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a stored entry leaves no temporary file
+        AccelerationBenchmarkTests.heightField(20);
+        assertEquals(1, entries().size(), "ERROR: the hierarchy must be stored");
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count(), "ERROR: a temporary file is left behind");
+        }
+
+        // =============== Boundary Values Tests =================
+        // TC02: an entry that can't be moved into place (a directory is in its way) leaves no temporary file
+        Path entry = entries().getFirst();
+        Files.delete(entry);
+        Files.createFile(Files.createDirectory(entry).resolve("blocker"));
+        assertFalse(AccelerationBenchmarkTests.heightField(20).getBuildStats().isCached(),
+                "ERROR: the hierarchy must be built");
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(entry), files.toList(), "ERROR: a temporary file is left behind");
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.HierarchyCache#evict()}.
+     *
+     * @throws IOException if the directory can't be listed
+     */
+    @Test
+    void testEvict() throws IOException {
+        HierarchyCache cache = new HierarchyCache(directory);
+        HierarchyCache.setShared(cache);
+        AccelerationBenchmarkTests.heightField(20);
+        AccelerationBenchmarkTests.heightField(21);
+        assertEquals(2, entries().size(), "ERROR: both hierarchies must be stored");
+        for (Path entry : entries())
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis() - 10_000));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: over the maximal size the least recently used entry is evicted
+        AccelerationBenchmarkTests.heightField(20); // used again
+        cache.setMaxSize(Files.size(entries().getFirst()) + Files.size(entries().getLast()) - 1).evict();
+        assertEquals(1, entries().size(), "ERROR: one entry must be evicted");
+        assertTrue(AccelerationBenchmarkTests.heightField(20).getBuildStats().isCached(),
+                "ERROR: the recently used entry must be kept");
+
+        // =============== Boundary Values Tests =================
+        // TC02: the entries older than the maximal age are evicted
+        cache.setMaxAge(Duration.ZERO);
+        Files.setLastModifiedTime(entries().getFirst(), FileTime.fromMillis(System.currentTimeMillis() - 1000));
+        cache.evict();
+        assertTrue(entries().isEmpty(), "ERROR: the old entries must be evicted");
+    }
+}
@@ -0,0 +1,120 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.Instance class
+ */
+class InstanceTests {
+    /**
+     * A unit sphere at the origin, shared by the instances
+     */
+    Sphere sphere = new Sphere(Point.ZERO, 1);
+    /**
+     * The sphere scaled to an ellipsoid of radii 2, 1, 1 around the point (10, 0, 0)
+     */
+    Instance ellipsoid = new Instance(sphere,
+            Transform.scaling(2, 1, 1).then(Transform.translation(new Vector(10, 0, 0))));
+
+    /**
+     * Test method for {@link geometries.Instance#findIntersections(Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the ray crosses the transformed object (2 points)
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(1, 0, 0));
+        assertEquals(List.of(new Point(8, 0, 0), new Point(12, 0, 0)), ellipsoid.findIntersections(ray),
+                "ERROR: wrong intersections with the instance");
+        // TC02: the ray misses the transformed object - it would hit the shared one (0 points)
+        assertNull(ellipsoid.findIntersections(new Ray(new Point(0, 0, -5), new Vector(0, 0, 1))),
+                "ERROR: the ray misses the instance");
+
+        // =============== Boundary Values Tests =================
+        // TC03: the distance is measured in the scene, not in the object space
+        assertNull(ellipsoid.findGeoIntersections(ray, 7.9), "ERROR: wrong maximal distance");
+        assertEquals(2, ellipsoid.findGeoIntersections(ray, 12.5).size(), "ERROR: wrong maximal distance");
+    }
+
+    /**
+     * Test method for {@link geometries.Instance#intersect(Ray, HitRecord)}.
+     */
+    @Test
+    void testIntersect() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the hit is recorded in the scene, with the normal of the transformed surface
+        Ray ray = new Ray(new Point(10, 0, 5), new Vector(0, 0, -1));
+        HitRecord hit = new HitRecord();
+        assertTrue(ellipsoid.intersect(ray, hit), "ERROR: the ray hits the instance");
+        assertEquals(new Point(10, 0, 1), hit.getPoint(), "ERROR: wrong hit point");
+        assertEquals(4, hit.t, 1e-9, "ERROR: wrong hit distance");
+        assertEquals(new Vector(0, 0, 1), hit.getNormal(), "ERROR: wrong hit normal");
+        assertSame(sphere, hit.geometry, "ERROR: the hit geometry is the shared one");
+
+        // TC02: the normal of a scaled surface is not the scaled normal
+        Ray slanted = new Ray(new Point(10 + Math.sqrt(2), 5, 0), new Vector(0, -1, 0));
+        assertTrue(ellipsoid.intersect(slanted, hit.reset(Double.POSITIVE_INFINITY)), "ERROR: the ray hits the instance");
+        Vector normal = hit.getNormal();
+        Vector tangent = new Vector(2 * Math.sqrt(0.5), -Math.sqrt(0.5), 0);
+        assertEquals(0, normal.dotProduct(tangent), 1e-6, "ERROR: the normal is not orthogonal to the surface");
+
+        // =============== Boundary Values Tests =================
+        // TC03: a closer hit already recorded is kept
+        hit.reset(3);
+        assertFalse(ellipsoid.intersect(ray, hit), "ERROR: the instance is farther than the recorded hit");
+        assertEquals(3, hit.t, "ERROR: the maximal distance must be kept");
+    }
+
+    /**
+     * Test method for {@link geometries.Instance#findTransmission(Ray, double, double)}.
+     */
+    @Test
+    void testFindTransmission() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the instance blocks the ray through it
+        Ray ray = new Ray(Point.ZERO, new Vector(1, 0, 0));
+        assertTrue(ellipsoid.isBlocked(ray, 20), "ERROR: the instance blocks the ray");
+
+        // =============== Boundary Values Tests =================
+        // TC02: the instance is beyond the maximal distance
+        assertFalse(ellipsoid.isBlocked(ray, 7.9), "ERROR: the instance is beyond the maximal distance");
+    }
+
+    /**
+     * Test method for {@link geometries.Instance#getBoundingBox()}.
+     */
+    @Test
+    void testGetBoundingBox() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the transformed box of the object
+        assertEquals(new BoundingBox(8, -1, -1, 12, 1, 1), ellipsoid.getBoundingBox(), "ERROR: wrong bounding box");
+
+        // =============== Boundary Values Tests =================
+        // TC02: instance of an unbounded object
+        assertNull(new Instance(new Plane(Point.ZERO, new Vector(0, 0, 1)), Transform.IDENTITY).getBoundingBox(),
+                "ERROR: the instance of an unbounded object is unbounded");
+    }
+
+    /**
+     * Test method for instances in a collection - the two-level structure
+     */
+    @Test
+    void testInstancesInGeometries() {
+        Geometries scene = new Geometries();
+        for (int i = 0; i < 100; i++)
+            scene.add(new Instance(sphere, Transform.translation(3 * (i % 10), 3 * (i / 10), 0)));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the closest instance along the ray is found through the hierarchy over the instances
+        Ray ray = new Ray(new Point(-5, 9, 0), new Vector(1, 0, 0));
+        GeoPoint closest = scene.findClosestGeoIntersection(ray);
+        assertEquals(new Point(-1, 9, 0), closest.point, "ERROR: wrong closest instance");
+        assertEquals(20, scene.findIntersections(ray).size(), "ERROR: wrong amount of intersections");
+    }
+}
@@ -0,0 +1,200 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.LeafKernel class
+ */
+class LeafKernelTests {
+    /**
+     * The kernels that can run on this JVM (the vector kernel needs the module jdk.incubator.vector)
+     */
+    private static final LeafKernel[] KERNELS = Arrays.stream(LeafKernel.values()).filter(LeafKernel::isAvailable)
+            .toArray(LeafKernel[]::new);
+
+    /**
+     * Lay triangles out as the arrays of the kernels
+     *
+     * @param triangles the vertices of the triangles: 9 coordinates per triangle
+     * @return the arrays of the triangles
+     */
+    private static double[][] layoutTriangles(double[] triangles) {
+        int count = triangles.length / 9;
+        double[][] layout = new double[9][count];
+        for (int i = 0; i < count; ++i)
+            for (int axis = 0; axis < 3; ++axis) {
+                double a = triangles[9 * i + axis];
+                layout[axis][i] = a;
+                layout[3 + axis][i] = triangles[9 * i + 3 + axis] - a;
+                layout[6 + axis][i] = triangles[9 * i + 6 + axis] - a;
+            }
+        return layout;
+    }
+
+    /**
+     * Test method for {@link geometries.LeafKernel#intersectTriangles(double[][], int, int, Ray, double, double[])}.
+     */
+    @Test
+    void testIntersectTriangles() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: all the kernels find the same hits as the triangles, on random leaves of 4 triangles
+        Random random = new Random(7);
+        double[] vertices = new double[9 * 400];
+        for (int i = 0; i < vertices.length; ++i)
+            vertices[i] = random.nextDouble() * 10 - 5;
+        double[][] layout = layoutTriangles(vertices);
+        double[] scalarLanes = new double[4], lanes = new double[4];
+        int hits = 0;
+        for (int r = 0; r < 2000; ++r) {
+            Ray ray = new Ray(new Point(random.nextDouble() * 4 - 2, random.nextDouble() * 4 - 2, 20),
+                    new Vector(random.nextDouble() * 0.4 - 0.2, random.nextDouble() * 0.4 - 0.2, -1));
+            int first = 4 * random.nextInt(100);
+            HitRecord expected = new HitRecord();
+            int closest = -1;
+            for (int i = first; i < first + 4; ++i) {
+                Triangle triangle = new Triangle(new Point(vertices[9 * i], vertices[9 * i + 1], vertices[9 * i + 2]),
+                        new Point(vertices[9 * i + 3], vertices[9 * i + 4], vertices[9 * i + 5]),
+                        new Point(vertices[9 * i + 6], vertices[9 * i + 7], vertices[9 * i + 8]));
+                if (triangle.intersect(ray, expected)) closest = i;
+            }
+            int scalar = LeafKernel.SCALAR.intersectTriangles(layout, first, 4, ray, Double.POSITIVE_INFINITY, scalarLanes);
+            assertEquals(closest, scalar, "ERROR: the scalar kernel found a different triangle");
+            for (LeafKernel kernel : KERNELS) {
+                int found = kernel.intersectTriangles(layout, first, 4, ray, Double.POSITIVE_INFINITY, lanes);
+                assertEquals(closest, found, "ERROR: the kernel found a different triangle - " + kernel);
+                if (closest >= 0)
+                    assertEquals(scalarLanes[scalar - first], lanes[found - first],
+                            "ERROR: the kernels found different distances - " + kernel);
+            }
+            if (closest < 0) continue;
+            ++hits;
+            assertEquals(expected.t, scalarLanes[scalar - first], 1e-9, "ERROR: wrong distance of the scalar kernel");
+        }
+        assertTrue(hits > 100, "ERROR: the rays must hit triangles");
+
+        // =============== Boundary Values Tests =================
+        // TC02: a ray through an edge misses, the same triangle twice - the later one wins
+        double[][] twins = layoutTriangles(new double[]{0, 0, 0, 2, 0, 0, 0, 2, 0, 0, 0, 0, 2, 0, 0, 0, 2, 0});
+        Ray edge = new Ray(new Point(1, 0, 5), new Vector(0, 0, -1));
+        Ray inside = new Ray(new Point(0.5, 0.5, 5), new Vector(0, 0, -1));
+        for (LeafKernel kernel : KERNELS) {
+            assertEquals(-1, kernel.intersectTriangles(twins, 0, 2, edge, Double.POSITIVE_INFINITY, scalarLanes),
+                    "ERROR: an edge is not an intersection - " + kernel);
+            assertEquals(1, kernel.intersectTriangles(twins, 0, 2, inside, Double.POSITIVE_INFINITY, scalarLanes),
+                    "ERROR: the later triangle of a tie wins - " + kernel);
+            assertEquals(-1, kernel.intersectTriangles(twins, 0, 2, inside, 4, scalarLanes),
+                    "ERROR: a hit beyond the maximal distance - " + kernel);
+        }
+
+        // TC03: a leaf of 9 triangles at the end of the arrays - more lanes than a vector, the last vector partial
+        double[] leafLanes = new double[9], kernelLanes = new double[9];
+        for (int r = 0; r < 200; ++r) {
+            Ray ray = new Ray(new Point(random.nextDouble() * 4 - 2, random.nextDouble() * 4 - 2, 20),
+                    new Vector(random.nextDouble() * 0.4 - 0.2, random.nextDouble() * 0.4 - 0.2, -1));
+            int expected = LeafKernel.SCALAR.intersectTriangles(layout, 391, 9, ray, Double.POSITIVE_INFINITY,
+                    leafLanes);
+            for (LeafKernel kernel : KERNELS)
+                assertEquals(expected,
+                        kernel.intersectTriangles(layout, 391, 9, ray, Double.POSITIVE_INFINITY, kernelLanes),
+                        "ERROR: the kernel found a different triangle in a big leaf - " + kernel);
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.LeafKernel#intersectSpheres(double[][], int, int, Ray, double, double[])}.
+     */
+    @Test
+    void testIntersectSpheres() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: all the kernels find the same hits as the spheres, on random leaves of 4 spheres
+        Random random = new Random(11);
+        Sphere[] spheres = new Sphere[400];
+        double[][] layout = new double[4][spheres.length];
+        for (int i = 0; i < spheres.length; ++i) {
+            Point center = new Point(random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5,
+                    random.nextDouble() * 10 - 5);
+            double radius = 0.5 + random.nextDouble() * 2;
+            spheres[i] = new Sphere(center, radius);
+            layout[0][i] = center.getX();
+            layout[1][i] = center.getY();
+            layout[2][i] = center.getZ();
+            layout[3][i] = radius;
+        }
+        double[] scalarLanes = new double[4], lanes = new double[4];
+        int hits = 0;
+        for (int r = 0; r < 2000; ++r) {
+            // some rays start inside the spheres
+            Ray ray = new Ray(new Point(random.nextDouble() * 8 - 4, random.nextDouble() * 8 - 4,
+                    random.nextDouble() * 20 - 5), new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+            int first = 4 * random.nextInt(100);
+            HitRecord expected = new HitRecord();
+            int closest = -1;
+            for (int i = first; i < first + 4; ++i)
+                if (spheres[i].intersect(ray, expected)) closest = i;
+            int scalar = LeafKernel.SCALAR.intersectSpheres(layout, first, 4, ray, Double.POSITIVE_INFINITY, scalarLanes);
+            assertEquals(closest, scalar, "ERROR: the scalar kernel found a different sphere");
+            for (LeafKernel kernel : KERNELS) {
+                int found = kernel.intersectSpheres(layout, first, 4, ray, Double.POSITIVE_INFINITY, lanes);
+                assertEquals(closest, found, "ERROR: the kernel found a different sphere - " + kernel);
+                if (closest >= 0)
+                    assertEquals(scalarLanes[scalar - first], lanes[found - first],
+                            "ERROR: the kernels found different distances - " + kernel);
+            }
+            if (closest < 0) continue;
+            ++hits;
+            assertEquals(expected.t, scalarLanes[scalar - first], "ERROR: wrong distance of the scalar kernel");
+        }
+        assertTrue(hits > 100, "ERROR: the rays must hit spheres");
+
+        // =============== Boundary Values Tests =================
+        // TC02: a ray from the center and a ray through the center
+        double[][] unit = {{0}, {0}, {0}, {1}};
+        Ray fromCenter = new Ray(new Point(0, 0, 0), new Vector(1, 1, 0));
+        Ray throughCenter = new Ray(new Point(0.1, 0.2, 3), new Vector(-0.1, -0.2, -3));
+        for (LeafKernel kernel : KERNELS) {
+            assertEquals(0, kernel.intersectSpheres(unit, 0, 1, fromCenter, Double.POSITIVE_INFINITY, scalarLanes),
+                    "ERROR: a ray from the center hits the sphere - " + kernel);
+            assertEquals(1, scalarLanes[0], 1e-12, "ERROR: wrong distance from the center - " + kernel);
+            assertEquals(0, kernel.intersectSpheres(unit, 0, 1, throughCenter, Double.POSITIVE_INFINITY, scalarLanes),
+                    "ERROR: a ray through the center hits the sphere - " + kernel);
+            assertEquals(new Vector(0.1, 0.2, 3).length() - 1, scalarLanes[0], 1e-9,
+                    "ERROR: wrong distance through the center - " + kernel);
+        }
+
+        // TC03: a leaf of 9 spheres at the end of the arrays - more lanes than a vector, the last vector partial
+        double[] leafLanes = new double[9], kernelLanes = new double[9];
+        for (int r = 0; r < 200; ++r) {
+            Ray ray = new Ray(new Point(random.nextDouble() * 8 - 4, random.nextDouble() * 8 - 4,
+                    random.nextDouble() * 20 - 5), new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+            int expected = LeafKernel.SCALAR.intersectSpheres(layout, 391, 9, ray, Double.POSITIVE_INFINITY,
+                    leafLanes);
+            for (LeafKernel kernel : KERNELS)
+                assertEquals(expected,
+                        kernel.intersectSpheres(layout, 391, 9, ray, Double.POSITIVE_INFINITY, kernelLanes),
+                        "ERROR: the kernel found a different sphere in a big leaf - " + kernel);
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.LeafKernel#isAvailable()}.
+     */
+    @Test
+    void testIsAvailable() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the picked kernel can run
+        assertTrue(LeafKernel.SELECTED.isAvailable(), "ERROR: the picked kernel is not available");
+        // TC02: the vector kernel needs the module of the Vector API
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            assertFalse(LeafKernel.VECTOR.isAvailable(), "ERROR: the vector kernel without the Vector API");
+
+        // =============== Boundary Values Tests =================
+        // TC03: the scalar kernel always can run
+        assertTrue(LeafKernel.SCALAR.isAvailable(), "ERROR: the scalar kernel is not available");
+    }
+}
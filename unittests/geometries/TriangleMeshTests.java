@@ -0,0 +1,276 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for geometries.TriangleMesh class
+ */
+class TriangleMeshTests {
+    /**
+     * A quad on the plane z=0 made of two triangles sharing an edge, and a triangle of the
+     * TriangleTests scene on its own vertices
+     */
+    TriangleMesh mesh = new TriangleMesh(
+            new double[]{0, 0, 0, 2, 0, 0, 2, 2, 0, 0, 2, 0,
+                    0, 1, 0, -6, 6, 1, -7, 3, 5},
+            new int[]{0, 1, 2, 0, 2, 3, 4, 5, 6});
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#TriangleMesh(double[], int[])}.
+     */
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: correct mesh
+        assertEquals(3, mesh.getTriangleCount(), "ERROR: wrong amount of triangles");
+        assertEquals(7, mesh.getVertexCount(), "ERROR: wrong amount of vertices");
+
+        // =============== Boundary Values Tests =================
+        // TC02: index out of the vertices range
+        assertThrows(IllegalArgumentException.class, () -> new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0},
+                new int[]{0, 1, 3}), "ERROR: index out of range must throw");
+        // TC03: partial vertex
+        assertThrows(IllegalArgumentException.class, () -> new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1},
+                new int[]{0, 1, 2}), "ERROR: partial vertex must throw");
+        // TC04: degenerated triangles are dropped
+        assertEquals(1, new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 2, 0, 0, 0, 1, 0},
+                new int[]{0, 1, 2, 0, 1, 3}).getTriangleCount(), "ERROR: degenerated triangle must be dropped");
+        // TC05: only degenerated triangles
+        assertThrows(IllegalArgumentException.class, () -> new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 2, 0, 0},
+                new int[]{0, 1, 2}), "ERROR: mesh without triangles must throw");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#getNormal(Point)}.
+     */
+    @Test
+    void testGetNormal() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: point on a triangle of the quad
+        Vector normal = mesh.getNormal(new Point(1.5, 0.5, 0));
+        assertEquals(1, Math.abs(normal.dotProduct(new Vector(0, 0, 1))), 1e-9, "ERROR: wrong normal of the quad");
+        // TC02: point on the other triangle - the normal of the same plane as the one of a Triangle
+        Triangle triangle = new Triangle(new Point(0, 1, 0), new Point(-6, 6, 1), new Point(-7, 3, 5));
+        assertEquals(triangle.getNormal(new Point(-4, 4, 1)), mesh.getNormal(new Point(-4, 4, 1)),
+                "ERROR: wrong normal of the triangle");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#getBoundingBox()}.
+     */
+    @Test
+    void testGetBoundingBox() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the box of all the triangles
+        assertEquals(new BoundingBox(-7, 0, 0, 2, 6, 5), mesh.getBoundingBox(), "ERROR: wrong bounding box");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#findIntersections(Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the point is inside a triangle of the quad (1 point)
+        assertEquals(List.of(new Point(1.5, 0.5, 0)),
+                mesh.findIntersections(new Ray(new Point(1.5, 0.5, 1), new Vector(0, 0, -1))),
+                "ERROR: point inside a triangle of the quad");
+        // TC02: the point is inside the separate triangle (1 point)
+        assertEquals(List.of(new Point(-4, 4, 1)),
+                mesh.findIntersections(new Ray(new Point(1, 2, 3), new Vector(-5, 2, -2))),
+                "ERROR: point inside the triangle");
+        // TC03: the point is outside all the triangles (0 points)
+        assertNull(mesh.findIntersections(new Ray(new Point(3, 3, 1), new Vector(0, 0, -1))),
+                "ERROR: point outside all the triangles");
+
+        // =============== Boundary Values Tests =================
+        // TC10: the point is on the shared edge of the quad triangles (0 points - as for a Triangle)
+        assertNull(mesh.findIntersections(new Ray(new Point(1, 1, 1), new Vector(0, 0, -1))),
+                "ERROR: point on an edge");
+        // TC11: the point is on a vertex (0 points)
+        assertNull(mesh.findIntersections(new Ray(new Point(1, 2, 3), new Vector(-1, -1, -3))),
+                "ERROR: point on a vertex");
+        // TC12: the ray is parallel to the quad (0 points)
+        assertNull(mesh.findIntersections(new Ray(new Point(1, 0.5, 1), new Vector(1, 0, 0))),
+                "ERROR: ray parallel to the triangles");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#intersect(Ray, HitRecord)}.
+     */
+    @Test
+    void testIntersect() {
+        HitRecord hit = new HitRecord();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the closest hit with the normal of the hit triangle
+        assertTrue(mesh.intersect(new Ray(new Point(0.5, 1.5, 2), new Vector(0, 0, -1)), hit),
+                "ERROR: hit is not found");
+        assertEquals(2, hit.t, 1e-9, "ERROR: wrong ray parameter");
+        assertEquals(new Point(0.5, 1.5, 0), hit.getPoint(), "ERROR: wrong hit point");
+        assertEquals(new Vector(0, 0, 1), hit.getNormal(), "ERROR: wrong normal");
+
+        // =============== Boundary Values Tests =================
+        // TC02: the hit is beyond the maximal distance
+        assertFalse(mesh.intersect(new Ray(new Point(0.5, 1.5, 2), new Vector(0, 0, -1)), hit.reset(1)),
+                "ERROR: hit beyond the maximal distance");
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#intersect(Ray[], HitRecord[])}.
+     */
+    @Test
+    void testIntersectPacket() {
+        // a wavy grid of 16x16 quads - big enough for leaves of several triangles
+        int side = 16, row = side + 1;
+        double[] vertices = new double[3 * row * row];
+        for (int i = 0; i < row; i++)
+            for (int j = 0; j < row; j++) {
+                int v = 3 * (i * row + j);
+                vertices[v] = j * 0.5;
+                vertices[v + 1] = i * 0.5;
+                vertices[v + 2] = Math.sin(i * 0.7) * Math.cos(j * 0.5);
+            }
+        int[] indices = new int[6 * side * side];
+        for (int i = 0, k = 0; i < side; i++)
+            for (int j = 0; j < side; j++) {
+                int a = i * row + j, b = a + 1, c = a + row, d = c + 1;
+                indices[k++] = a;
+                indices[k++] = b;
+                indices[k++] = d;
+                indices[k++] = a;
+                indices[k++] = d;
+                indices[k++] = c;
+            }
+        TriangleMesh grid = new TriangleMesh(vertices, indices);
+        // a 4x4 packet of primary rays - the last column passes beside the grid
+        Ray[] rays = new Ray[16];
+        for (int i = 0; i < rays.length; ++i)
+            rays[i] = new Ray(new Point(1.3 + 2.1 * (i % 4), 1.1 + 1.7 * (i / 4), 10),
+                    new Vector(0.07 * (i % 4), 0.05, -1));
+        HitRecord[] expected = new HitRecord[rays.length];
+        grid.setLeafKernel(LeafKernel.SCALAR);
+        for (int i = 0; i < rays.length; ++i)
+            grid.intersect(rays[i], expected[i] = new HitRecord());
+
+        for (LeafKernel kernel : LeafKernel.values()) {
+            if (!kernel.isAvailable()) continue;
+            grid.setLeafKernel(kernel);
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: each ray of the packet finds the closest hit of a single ray through the scalar kernel
+            HitRecord[] hits = new HitRecord[rays.length];
+            for (int i = 0; i < hits.length; ++i)
+                hits[i] = new HitRecord();
+            long found = grid.intersect(rays, hits);
+            for (int i = 0; i < rays.length; ++i) {
+                assertEquals(expected[i].isHit(), (found >>> i & 1) == 1, "ERROR: wrong mask of the packet - " + kernel);
+                assertEquals(expected[i].t, hits[i].t, "ERROR: wrong hit of the packet - " + kernel);
+                if (expected[i].isHit())
+                    assertEquals(expected[i].getNormal(), hits[i].getNormal(),
+                            "ERROR: wrong normal of the packet - " + kernel);
+            }
+
+            // =============== Boundary Values Tests =================
+            // TC02: the rays that already hold closer hits are left out of the mask
+            for (HitRecord hit : hits)
+                hit.reset(0.5);
+            assertEquals(0, grid.intersect(rays, hits), "ERROR: no ray has a closer hit - " + kernel);
+        }
+        assertNotEquals(0, Arrays.stream(expected).filter(HitRecord::isHit).count(), "ERROR: the packet misses the grid");
+        assertNotEquals(rays.length, Arrays.stream(expected).filter(HitRecord::isHit).count(),
+                "ERROR: no ray of the packet misses the grid");
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#findTransmission(Ray, double, double)}.
+     */
+    @Test
+    void testFindTransmission() {
+        Ray ray = new Ray(new Point(1.5, 0.5, 1), new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: an opaque mesh blocks the ray
+        assertEquals(Double3.ZERO, mesh.findTransmission(ray, 2, 0.001), "ERROR: opaque mesh doesn't block");
+        // TC02: a transparent mesh multiplies the transmission
+        mesh.setMaterial(new Material().setKt(0.5));
+        assertEquals(new Double3(0.5), mesh.findTransmission(ray, 2, 0.001), "ERROR: wrong transmission");
+
+        // =============== Boundary Values Tests =================
+        // TC03: the mesh is beyond the maximal distance
+        assertEquals(Double3.ONE, mesh.findTransmission(ray, 0.5, 0.001), "ERROR: mesh beyond the maximal distance");
+    }
+
+    /**
+     * Test method for
+     * {@link geometries.TriangleMesh#TriangleMesh(double[], int[], Geometries.BuildStrategy, Geometries.Precision)}.
+     */
+    @Test
+    void testPrecision() {
+        // a wavy grid of 20x20 quads far from the origin - its coordinates are not exact in single precision
+        int side = 20, row = side + 1;
+        double[] vertices = new double[3 * row * row];
+        for (int i = 0; i < row; i++)
+            for (int j = 0; j < row; j++) {
+                int v = 3 * (i * row + j);
+                vertices[v] = 1000.1 + j * 0.3;
+                vertices[v + 1] = 2000.2 + i * 0.3;
+                vertices[v + 2] = Math.sin(i * 0.4) * Math.cos(j * 0.3);
+            }
+        int[] indices = new int[6 * side * side];
+        for (int i = 0, k = 0; i < side; i++)
+            for (int j = 0; j < side; j++) {
+                int a = i * row + j, b = a + 1, c = a + row, d = c + 1;
+                indices[k++] = a;
+                indices[k++] = b;
+                indices[k++] = d;
+                indices[k++] = a;
+                indices[k++] = d;
+                indices[k++] = c;
+            }
+        TriangleMesh full = new TriangleMesh(vertices, indices, Geometries.BuildStrategy.SAH,
+                Geometries.Precision.DOUBLE);
+        TriangleMesh compact = new TriangleMesh(vertices, indices, Geometries.BuildStrategy.SAH,
+                Geometries.Precision.FLOAT);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the single precision mesh finds the same hits up to the rounding of its vertices
+        HitRecord expected = new HitRecord(), actual = new HitRecord();
+        for (int i = 0; i < 200; i++) {
+            Ray ray = new Ray(new Point(1001 + i * 0.0193, 2001 + i * 0.0171, 10), new Vector(0.01 * (i % 7), 0.02, -1));
+            boolean found = full.intersect(ray, expected.reset(Double.POSITIVE_INFINITY));
+            assertEquals(found, compact.intersect(ray, actual.reset(Double.POSITIVE_INFINITY)),
+                    "ERROR: the single precision mesh found a different hit");
+            if (found) {
+                assertEquals(expected.t, actual.t, 1e-3, "ERROR: wrong distance of the single precision hit");
+                assertEquals(expected.getNormal().dotProduct(actual.getNormal()), 1, 1e-3,
+                        "ERROR: wrong normal of the single precision hit");
+            }
+        }
+        assertEquals(full.getVertexCount(), compact.getVertexCount(), "ERROR: wrong amount of vertices");
+        MemoryStats fullStats = new MemoryStats(), compactStats = new MemoryStats();
+        full.addMemory(fullStats);
+        compact.addMemory(compactStats);
+        assertTrue(compactStats.getTotalBytes() < 0.7 * fullStats.getTotalBytes(),
+                "ERROR: the single precision mesh must be smaller");
+
+        // =============== Boundary Values Tests =================
+        // TC02: the box of the single precision mesh contains its rounded vertices
+        BoundingBox box = compact.getBoundingBox();
+        for (int t = 0; t < compact.getTriangleCount(); t++)
+            for (int corner = 0; corner < 3; corner++) {
+                Point vertex = compact.getVertex(t, corner);
+                for (int axis = 0; axis < 3; axis++) {
+                    double coordinate = axis == 0 ? vertex.getX() : axis == 1 ? vertex.getY() : vertex.getZ();
+                    assertTrue(box.getMin(axis) <= coordinate && coordinate <= box.getMax(axis),
+                            "ERROR: a vertex is out of the box of the mesh");
+                }
+                assertEquals((float) vertex.getX(), vertex.getX(), "ERROR: the vertices must be rounded to floats");
+            }
+    }
+}
@@ -33,4 +33,15 @@ class TubeTests {
     void testFindIntersections() {
         // Not implemented
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link geometries.Tube#getBoundingBox()}.
+     */
+    @Test
+    void testGetBoundingBox() {
+        // ============ Equivalence partitions Tests ==============
+        // TC01: a tube is infinite - it has no bounding box
+        assertNull(new Tube(new Ray(new Point(0, 0, 1), new Vector(1, 1, 0)), 1).getBoundingBox(),
+                "ERROR: tube.getBoundingBox - a tube must be unbounded");
+    }
+}
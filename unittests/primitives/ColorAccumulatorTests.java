@@ -0,0 +1,47 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for primitives.ColorAccumulator class
+ */
+class ColorAccumulatorTests {
+    /**
+     * Test method for {@link primitives.ColorAccumulator#add(Color, Double3)}.
+     */
+    @Test
+    void testAdd() {
+        ColorAccumulator sum = new ColorAccumulator();
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the same sum as the immutable colors
+        sum.add(new Color(10, 20, 30)).add(new Color(100, 50, 20), new Double3(0.5, 0.1, 1))
+                .add(4, 8, 16, new Double3(0.25));
+        assertEquals(new Color(10, 20, 30).add(new Color(100, 50, 20).scale(new Double3(0.5, 0.1, 1)),
+                new Color(1, 2, 4)).getColor(), sum.toColor().getColor(), "ERROR: wrong sum of the colors");
+
+        // TC02: the sum of another accumulator
+        assertEquals(new Color(122, 54, 108).getColor(), new ColorAccumulator().add(sum).add(sum).toColor().getColor(),
+                "ERROR: wrong sum of the accumulators");
+
+        // =============== Boundary Values Tests =================
+        // TC03: a reset accumulator is black
+        assertEquals(Color.BLACK.getColor(), sum.reset().toColor().getColor(), "ERROR: a reset sum must be black");
+    }
+
+    /**
+     * Test method for {@link primitives.ColorAccumulator#reduce(int)}.
+     */
+    @Test
+    void testReduce() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the average of the samples
+        ColorAccumulator sum = new ColorAccumulator().add(new Color(30, 60, 90)).add(new Color(10, 20, 30));
+        assertEquals(new Color(20, 40, 60).getColor(), sum.reduce(2).toColor().getColor(),
+                "ERROR: wrong average of the colors");
+        // TC02: scaling the sum
+        assertEquals(new Color(60, 120, 180).getColor(), sum.scale(3).toColor().getColor(),
+                "ERROR: wrong scale of the sum");
+    }
+}
@@ -66,4 +66,45 @@ class RayTests {
         pointList.clear();
         assertNull(ray3.findClosestPoint(pointList), "The list is empty");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link primitives.Ray#intersectsBox(BoundingBox, double)}.
+     */
+    @Test
+    void testIntersectsBox() {
+        BoundingBox box = new BoundingBox(1, 1, 1, 2, 2, 2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The ray passes through the box
+        assertTrue(new Ray(Point.ZERO, new Vector(1, 1, 1)).intersectsBox(box, 10),
+                "ERROR: ray through the box is rejected");
+
+        // TC02: The ray misses the box
+        assertFalse(new Ray(Point.ZERO, new Vector(1, -1, 1)).intersectsBox(box, 10),
+                "ERROR: ray missing the box is accepted");
+
+        // TC03: The box is behind the ray
+        assertFalse(new Ray(Point.ZERO, new Vector(-1, -1, -1)).intersectsBox(box, 10),
+                "ERROR: box behind the ray is accepted");
+
+        // TC04: The box is beyond the maximal distance
+        assertFalse(new Ray(Point.ZERO, new Vector(1, 1, 1)).intersectsBox(box, 1),
+                "ERROR: box beyond the maximal distance is accepted");
+
+        // TC05: The ray starts inside the box
+        assertTrue(new Ray(new Point(1.5, 1.5, 1.5), new Vector(0, 0, -1)).intersectsBox(box, 10),
+                "ERROR: ray from inside the box is rejected");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: The ray is parallel to two axes (infinite inverse direction)
+        assertTrue(new Ray(new Point(1.5, 1.5, 0), new Vector(0, 0, 1)).intersectsBox(box, 10),
+                "ERROR: axis-parallel ray through the box is rejected");
+        assertFalse(new Ray(new Point(3, 1.5, 0), new Vector(0, 0, 1)).intersectsBox(box, 10),
+                "ERROR: axis-parallel ray beside the box is accepted");
+
+        // TC11: Flat box (a triangle lying on an axis plane)
+        assertTrue(new Ray(new Point(1.5, 1.5, 0), new Vector(0, 0.1, 1))
+                        .intersectsBox(new BoundingBox(1, 1, 1, 2, 2, 1), 10),
+                "ERROR: ray through a flat box is rejected");
+    }
+}
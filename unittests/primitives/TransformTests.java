@@ -0,0 +1,102 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for primitives.Transform class
+ */
+class TransformTests {
+    /**
+     * A transformation of all the kinds - scaling, rotation and translation
+     */
+    Transform transform = Transform.scaling(2, 1, 3)
+            .then(Transform.rotation(new Vector(0, 0, 1), 90))
+            .then(Transform.translation(new Vector(1, 2, 3)));
+
+    /**
+     * Test method for {@link primitives.Transform#transform(Point)}.
+     */
+    @Test
+    void testTransformPoint() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the transformations are applied in order
+        assertEquals(new Point(0, 4, 6), transform.transform(new Point(1, 1, 1)), "ERROR: wrong transformed point");
+
+        // =============== Boundary Values Tests =================
+        // TC02: the origin is moved by the translation only
+        assertEquals(new Point(1, 2, 3), transform.transform(Point.ZERO), "ERROR: wrong transformed origin");
+    }
+
+    /**
+     * Test method for {@link primitives.Transform#transform(Vector)}.
+     */
+    @Test
+    void testTransformVector() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: vectors are not translated
+        assertEquals(new Vector(-1, 2, 3), transform.transform(new Vector(1, 1, 1)), "ERROR: wrong transformed vector");
+    }
+
+    /**
+     * Test method for {@link primitives.Transform#transformNormal(Vector)}.
+     */
+    @Test
+    void testTransformNormal() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the normal stays orthogonal to the transformed surface
+        Vector u = new Vector(1, -1, 0), v = new Vector(1, 1, -1);
+        Vector normal = u.crossProduct(v);
+        Vector transformed = transform.transformNormal(normal);
+        assertEquals(0, transformed.dotProduct(transform.transform(u)), 1e-9, "ERROR: the normal is not orthogonal");
+        assertEquals(0, transformed.dotProduct(transform.transform(v)), 1e-9, "ERROR: the normal is not orthogonal");
+        assertEquals(1, transformed.length(), 1e-9, "ERROR: the normal is not normalized");
+    }
+
+    /**
+     * Test method for {@link primitives.Transform#inverse()}.
+     */
+    @Test
+    void testInverse() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the inverse transformation restores the point
+        Point point = new Point(-3, 5, 7);
+        assertEquals(point, transform.inverse().transform(transform.transform(point)), "ERROR: wrong inverse");
+
+        // =============== Boundary Values Tests =================
+        // TC02: singular transformation
+        assertThrows(IllegalArgumentException.class, () -> Transform.scaling(1, 0, 1),
+                "ERROR: singular transformation must throw");
+    }
+
+    /**
+     * Test method for {@link primitives.Transform#transform(Ray)}.
+     */
+    @Test
+    void testTransformRay() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a distance along the ray is scaled along the transformed ray
+        Ray ray = new Ray(new Point(1, 1, 1), new Vector(0, 0, 1));
+        Ray transformed = transform.transform(ray);
+        double scale = transform.transformScale(ray);
+        assertEquals(3, scale, 1e-9, "ERROR: wrong scale of distances");
+        assertEquals(transform.transform(ray.getPoint(2)), transformed.getPoint(2 * scale),
+                "ERROR: wrong transformed ray");
+    }
+
+    /**
+     * Test method for {@link primitives.Transform#transform(BoundingBox)}.
+     */
+    @Test
+    void testTransformBoundingBox() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the box of the transformed corners
+        BoundingBox box = transform.transform(new BoundingBox(0, 0, 0, 2, 2, 1));
+        double[] expected = {-1, 2, 3, 1, 6, 6};
+        for (int axis = 0; axis < 3; ++axis) {
+            assertEquals(expected[axis], box.getMin(axis), 1e-9, "ERROR: wrong transformed box");
+            assertEquals(expected[axis + 3], box.getMax(axis), 1e-9, "ERROR: wrong transformed box");
+        }
+    }
+}
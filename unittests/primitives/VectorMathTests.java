@@ -0,0 +1,72 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for primitives.VectorMath class
+ */
+class VectorMathTests {
+    /**
+     * Test method for {@link primitives.VectorMath#dot(Vector, double[])}.
+     */
+    @Test
+    void testDot() {
+        double[] array = new double[3];
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the same dot product as the immutable vectors
+        VectorMath.set(array, new Vector(-2, 3, 1));
+        assertEquals(new Vector(1, 2, 3).dotProduct(new Vector(-2, 3, 1)), VectorMath.dot(new Vector(1, 2, 3), array),
+                1e-12, "ERROR: wrong dot product");
+
+        // =============== Boundary Values Tests =================
+        // TC02: orthogonal vectors
+        assertEquals(0, VectorMath.dot(1, 0, 0, 0, 5, 0), "ERROR: the dot product of orthogonal vectors is 0");
+    }
+
+    /**
+     * Test method for {@link primitives.VectorMath#crossLength(double, double, double, double, double, double)}.
+     */
+    @Test
+    void testCrossLength() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the length of the cross product of the immutable vectors
+        assertEquals(new Vector(1, 2, 3).crossProduct(new Vector(-2, 3, 1)).length(),
+                VectorMath.crossLength(1, 2, 3, -2, 3, 1), 1e-12, "ERROR: wrong length of the cross product");
+
+        // =============== Boundary Values Tests =================
+        // TC02: parallel vectors
+        assertEquals(0, VectorMath.crossLength(1, 2, 3, -2, -4, -6), 1e-12,
+                "ERROR: the cross product of parallel vectors is 0");
+    }
+
+    /**
+     * Test method for {@link primitives.VectorMath#direction(double[], Point, double, double, double)}.
+     */
+    @Test
+    void testDirection() {
+        double[] array = new double[3];
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the normalized vector from the point and the distance
+        assertEquals(5, VectorMath.direction(array, new Point(1, 1, 1), 4, 5, 1), 1e-12, "ERROR: wrong distance");
+        assertArrayEquals(new double[]{0.6, 0.8, 0}, array, 1e-12, "ERROR: wrong direction");
+    }
+
+    /**
+     * Test method for {@link primitives.VectorMath#productLowerThan(Double3, Double3, double)}.
+     */
+    @Test
+    void testProductLowerThan() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the same result as the immutable product
+        Double3 a = new Double3(0.1, 0.5, 0.01), b = new Double3(0.1, 0.01, 0.5);
+        assertEquals(a.product(b).lowerThan(0.02), VectorMath.productLowerThan(a, b, 0.02),
+                "ERROR: wrong comparison of the product");
+
+        // =============== Boundary Values Tests =================
+        // TC02: a component equal to the value is not lower
+        assertFalse(VectorMath.productLowerThan(Double3.ONE, new Double3(0.5, 0.1, 0.1), 0.5),
+                "ERROR: an equal component is not lower");
+    }
+}
@@ -0,0 +1,55 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for renderer.AperturePattern class
+ */
+class AperturePatternTests {
+    /**
+     * Test method for {@link renderer.AperturePattern#AperturePattern(double, int, java.util.random.RandomGenerator)}.
+     */
+    @Test
+    void testConstructor() {
+        final double aperture = 3;
+        final int cells = 12;
+        AperturePattern pattern = new AperturePattern(aperture, cells, new SplittableRandom(5));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the center of the lens is the first point, and all the points are inside the aperture
+        assertEquals(0, pattern.getU(0), "ERROR: the center must be the first point");
+        assertEquals(0, pattern.getV(0), "ERROR: the center must be the first point");
+        for (int i = 0; i < pattern.size(); i++)
+            assertTrue(pattern.getU(i) * pattern.getU(i) + pattern.getV(i) * pattern.getV(i) <= aperture * aperture,
+                    "ERROR: a point is out of the aperture");
+        // TC02: a point per cell of the grid at most, about the disk's part of the cells
+        boolean[][] taken = new boolean[cells][cells];
+        for (int i = 1; i < pattern.size(); i++) {
+            int column = (int) ((pattern.getU(i) + aperture) / (2 * aperture / cells));
+            int row = (int) ((pattern.getV(i) + aperture) / (2 * aperture / cells));
+            assertFalse(taken[column][row], "ERROR: two points in a cell");
+            taken[column][row] = true;
+        }
+        assertEquals(Math.PI / 4 * cells * cells, pattern.size() - 1, cells,
+                "ERROR: wrong amount of points in the aperture");
+        // TC03: the same source of jitter gives the same pattern
+        AperturePattern same = new AperturePattern(aperture, cells, new SplittableRandom(5));
+        assertEquals(pattern.size(), same.size(), "ERROR: the pattern must be reproducible");
+        for (int i = 0; i < pattern.size(); i++)
+            assertEquals(pattern.getU(i), same.getU(i), "ERROR: the pattern must be reproducible");
+
+        // =============== Boundary Values Tests =================
+        // TC04: a single cell is the center and at most one more point
+        assertTrue(new AperturePattern(aperture, 1, new SplittableRandom(5)).size() <= 2,
+                "ERROR: too many points for a single cell");
+        // TC05: no cells, no aperture
+        assertThrows(IllegalArgumentException.class, () -> new AperturePattern(aperture, 0, new SplittableRandom()),
+                "ERROR: no cells");
+        assertThrows(IllegalArgumentException.class, () -> new AperturePattern(0, cells, new SplittableRandom()),
+                "ERROR: no aperture");
+    }
+}
@@ -1,15 +1,20 @@
 package renderer;
 
 import geometries.*;
+import lighting.AmbientLight;
 import lighting.PointLight;
 import lighting.SpotLight;
 import org.junit.jupiter.api.Test;
-import primitives.Color;
-import primitives.Material;
-import primitives.Point;
-import primitives.Vector;
+import primitives.*;
 import scene.Scene;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 /**
  * The DoFTests class is used to test the Depth of Field effect in the renderer package.
  */
@@ -202,4 +207,126 @@ public class DoFTests {
                 .renderImage()
                 .writeToImage();
     }
+
+    /**
+     * Measure the allocations of tracing a single pixel with depth of field - over 100 aperture rays
+     * through a reflective and transparent scene, averaged by the tracer's color accumulator versus
+     * adding up the immutable colors of the rays
+     */
+    @Test
+    void benchmarkPixelAllocations() {
+        Scene scene = new Scene("DoF pixel");
+        scene.setAmbientLight(new AmbientLight(new Color(30, 30, 30), 0.1));
+        scene.geometries.add(
+                new Sphere(new Point(0, 0, -100), 50).setEmission(new Color(100, 50, 20))
+                        .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30).setKt(0.3)),
+                new Sphere(new Point(20, -10, -200), 30).setEmission(new Color(20, 80, 20))
+                        .setMaterial(new Material().setKd(0.3).setKs(0.7).setShininess(100).setKr(0.4)),
+                new Plane(new Point(0, -60, 0), new Vector(0, 1, 0)).setEmission(new Color(10, 10, 30))
+                        .setMaterial(new Material().setKd(0.6).setKs(0.2).setShininess(10).setKr(0.2)));
+        scene.lights.add(new PointLight(new Color(300, 300, 500), new Point(-80, 80, 50)).setKl(1e-4));
+        scene.lights.add(new SpotLight(new Color(700, 400, 400), new Point(60, 50, 0), new Vector(0, 0, -1))
+                .setKl(4E-5).setKq(2E-7));
+        SimpleRayTracer tracer = new SimpleRayTracer(scene);
+
+        // the rays of a pixel - from the points of the aperture through the focal point of the pixel
+        Point p0 = new Point(0, 0, 100);
+        Point focalPoint = new Point(5, 3, -60);
+        List<Ray> rays = Aperture.generateAperturePoints(p0, new Vector(0, 1, 0), new Vector(1, 0, 0), 3, 12)
+                .stream().map(point -> new Ray(point, focalPoint.subtract(point))).toList();
+        assertTrue(rays.size() >= 100, "ERROR: the pixel must have over 100 aperture rays");
+
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Color accumulated = null, added = null;
+        long accumulatedBytes = 0, addedBytes = 0;
+        for (int i = 0; i < 20; ++i) { // the last round is measured, after the warm-up
+            long before = threads.getCurrentThreadAllocatedBytes();
+            accumulated = tracer.traceMultipleRays(rays);
+            accumulatedBytes = threads.getCurrentThreadAllocatedBytes() - before;
+
+            before = threads.getCurrentThreadAllocatedBytes();
+            Color sum = Color.BLACK;
+            for (Ray ray : rays)
+                sum = sum.add(tracer.traceRay(ray));
+            added = sum.reduce(rays.size());
+            addedBytes = threads.getCurrentThreadAllocatedBytes() - before;
+        }
+        System.out.printf("DoF pixel of %d rays: accumulated %d bytes (%.1f per ray), added colors %d bytes (%.1f per ray)%n",
+                rays.size(), accumulatedBytes, (double) accumulatedBytes / rays.size(),
+                addedBytes, (double) addedBytes / rays.size());
+        assertEquals(added.getColor(), accumulated.getColor(), "ERROR: the accumulated average differs");
+    }
+
+    /**
+     * Benchmark of the setup of the rays of a depth of field pixel (without tracing them), over a frame of
+     * 100x100 pixels and an aperture of 12x12 cells - the former setup (the primary ray, its intersection with
+     * the focal plane and newly jittered aperture points) against the thin lens, with and without creating
+     * the ray objects for the tracer
+     */
+    @Test
+    void benchmarkRaySetup() {
+        final int nX = 100, nY = 100, cells = 12, rounds = 10;
+        final double width = 150, height = 150, distance = 100, focalLength = 300, aperture = 3;
+        Point p0 = new Point(0, 0, 100);
+        Vector vTo = new Vector(0, 0, -1), vUp = new Vector(0, 1, 0), vRight = vTo.crossProduct(vUp);
+        Camera camera = Camera.getBuilder().setLocation(p0).setDirection(vTo, vUp).setVpSize(width, height)
+                .setVpDistance(distance).setImageWriter(new ImageWriter("setup", nX, nY))
+                .setRayTracer(new SimpleRayTracer(new Scene("setup"))).build();
+        Plane focalPlane = new Plane(p0.add(vTo.scale(focalLength)), vTo);
+        Sampler sampler = new Sampler(1);
+        ThinLens lens = new ThinLens(p0, vTo, vUp, vRight, distance, focalLength,
+                new AperturePattern(aperture, cells, sampler.frame(0)));
+        double[] origins = new double[3 * lens.size()], directions = new double[3 * lens.size()];
+
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long planeTime = Long.MAX_VALUE, lensTime = Long.MAX_VALUE, lensRaysTime = Long.MAX_VALUE;
+        long planeBytes = 0, lensBytes = 0, lensRaysBytes = 0, sink = 0;
+        for (int round = 0; round < rounds; ++round) { // the best round of each, after the warm-up
+            long bytes = threads.getCurrentThreadAllocatedBytes(), start = System.nanoTime();
+            for (int i = 0; i < nY; ++i)
+                for (int j = 0; j < nX; ++j) {
+                    Point focalPoint = focalPlane.findIntersections(camera.constructRay(nX, nY, j, i)).getFirst();
+                    List<Ray> rays = Aperture.generateAperturePoints(p0, vUp, vRight, aperture, cells,
+                                    sampler.pixel(0, (long) i * nX + j)).stream()
+                            .map(point -> new Ray(point, focalPoint.subtract(point))).toList();
+                    sink += rays.size();
+                }
+            planeTime = Math.min(planeTime, System.nanoTime() - start);
+            planeBytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+
+            bytes = threads.getCurrentThreadAllocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < nY; ++i)
+                for (int j = 0; j < nX; ++j) {
+                    double angle = sampler.pixel(0, (long) i * nX + j).nextDouble(2 * Math.PI);
+                    lens.generate((j - (nX - 1) / 2d) * width / nX, -(i - (nY - 1) / 2d) * height / nY,
+                            Math.cos(angle), Math.sin(angle), origins, directions);
+                    sink += (long) directions[0];
+                }
+            lensTime = Math.min(lensTime, System.nanoTime() - start);
+            lensBytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+
+            bytes = threads.getCurrentThreadAllocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < nY; ++i)
+                for (int j = 0; j < nX; ++j) {
+                    double angle = sampler.pixel(0, (long) i * nX + j).nextDouble(2 * Math.PI);
+                    lens.generate((j - (nX - 1) / 2d) * width / nX, -(i - (nY - 1) / 2d) * height / nY,
+                            Math.cos(angle), Math.sin(angle), origins, directions);
+                    List<Ray> rays = new ArrayList<>(lens.size());
+                    for (int k = 0; k < 3 * lens.size(); k += 3)
+                        rays.add(new Ray(new Point(origins[k], origins[k + 1], origins[k + 2]),
+                                new Vector(directions[k], directions[k + 1], directions[k + 2])));
+                    sink += rays.size();
+                }
+            lensRaysTime = Math.min(lensRaysTime, System.nanoTime() - start);
+            lensRaysBytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+        }
+        final int pixels = nX * nY;
+        System.out.printf("DoF setup of %d rays per pixel: plane and new aperture %.0f ns %d bytes, "
+                        + "thin lens %.0f ns %d bytes, thin lens and rays %.0f ns %d bytes (per pixel)%n",
+                lens.size(), (double) planeTime / pixels, planeBytes / pixels, (double) lensTime / pixels,
+                lensBytes / pixels, (double) lensRaysTime / pixels, lensRaysBytes / pixels);
+        assertTrue(sink > 0, "ERROR: no rays were set up");
+    }
 }
@@ -0,0 +1,168 @@
+package renderer;
+
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for renderer.RenderEngine implementations
+ */
+class RenderEngineTests {
+    /**
+     * The scene of the tests - a shaded sphere
+     */
+    private final Scene scene = new Scene("engines");
+
+    /**
+     * Constructor for the tests - fill the scene
+     */
+    RenderEngineTests() {
+        scene.setAmbientLight(new AmbientLight(new Color(30, 30, 30), 0.1));
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50).setEmission(new Color(100, 50, 20))
+                .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30)));
+        scene.lights.add(new PointLight(new Color(300, 300, 500), new Point(-80, 80, 50)).setKl(1e-4));
+    }
+
+    /**
+     * Create a camera builder of the scene
+     *
+     * @param writer the image writer
+     * @return the builder
+     */
+    private Camera.Builder builder(ImageWriter writer) {
+        return Camera.getBuilder().setLocation(new Point(0, 0, 1000)).setDirection(new Vector(0, 0, -1),
+                        new Vector(0, 1, 0)).setVpDistance(1000).setVpSize(150, 100).setImageWriter(writer)
+                .setRayTracer(new SimpleRayTracer(scene)).setTileSize(8, 8);
+    }
+
+    /**
+     * The engines of the tests
+     *
+     * @return a new instance of each engine
+     */
+    private static List<RenderEngine> engines() {
+        return List.of(RenderEngine.serial(), RenderEngine.parallelStreams(), RenderEngine.threadPool(3),
+                RenderEngine.virtualThreads(), RenderEngine.aparapi(3));
+    }
+
+    /**
+     * Test method for {@link renderer.RenderEngine#render(RenderJob)}.
+     */
+    @Test
+    void testRender() {
+        TileSchedulerTests.RecordingWriter expected = new TileSchedulerTests.RecordingWriter(75, 50);
+        builder(expected).setRenderEngine(RenderEngine.serial()).build().renderImage();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: every engine renders the same image, each pixel once, and reports it
+        for (RenderEngine engine : engines()) {
+            TileSchedulerTests.RecordingWriter actual = new TileSchedulerTests.RecordingWriter(75, 50);
+            Camera camera = builder(actual).setRenderEngine(engine).build().renderImage();
+            assertArrayEquals(expected.pixels, actual.pixels, "ERROR: different image of " + engine.getName());
+            for (int pixel = 0; pixel < 75 * 50; pixel++)
+                assertEquals(1, actual.writes.get(pixel), "ERROR: a pixel must be written once by " + engine.getName());
+            RenderReport report = camera.getRenderReport();
+            assertEquals(engine.getName(), report.getEngine(), "ERROR: wrong engine in the report");
+            assertEquals(75 * 50, report.getPixels(), "ERROR: wrong amount of pixels in the report");
+            // the Aparapi kernels render bands of rows instead of tiles
+            assertEquals(engine.getName().equals("aparapi") ? 3 : 70, report.getTiles(),
+                    "ERROR: wrong amount of work units in the report of " + engine.getName());
+        }
+        // TC02: every engine throws the failure of a tile
+        RayTracerBase failing = new RayTracerBase(scene) {
+            @Override
+            public Color traceRay(Ray ray) {
+                throw new IllegalArgumentException("bad ray");
+            }
+
+            @Override
+            public Color traceMultipleRays(List<Ray> rays) {
+                throw new IllegalArgumentException("bad rays");
+            }
+
+            @Override
+            public void tracePacket(Ray[] rays, Color[] colors) {
+                throw new IllegalArgumentException("bad packet");
+            }
+        };
+        for (RenderEngine engine : engines()) {
+            Camera camera = builder(new TileSchedulerTests.RecordingWriter(75, 50)).setRayTracer(failing)
+                    .setRenderEngine(engine).build();
+            assertThrows(IllegalArgumentException.class, camera::renderImage,
+                    "ERROR: the failure is lost by " + engine.getName());
+        }
+
+        // =============== Boundary Values Tests =================
+        // TC03: every engine stops at the time limit
+        for (RenderEngine engine : engines()) {
+            Camera camera = builder(new TileSchedulerTests.RecordingWriter(1500, 1000)).setRenderEngine(engine)
+                    .setTimeLimit(Duration.ofMillis(1)).build();
+            assertThrows(CancellationException.class, camera::renderImage,
+                    "ERROR: the time limit must stop " + engine.getName());
+        }
+        // TC04: no threads
+        assertThrows(IllegalArgumentException.class, () -> RenderEngine.threadPool(0), "ERROR: no threads");
+        assertThrows(IllegalArgumentException.class, () -> RenderEngine.virtualThreads(0),
+                "ERROR: no virtual threads");
+        // TC05: the virtual threads are a fixed amount of workers, not a thread per tile
+        Camera workers = builder(new TileSchedulerTests.RecordingWriter(75, 50))
+                .setRenderEngine(RenderEngine.virtualThreads(2)).build().renderImage();
+        assertEquals(2, workers.getRenderReport().getThreads(), "ERROR: wrong amount of virtual threads");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera.Builder#setVirtualThreads(boolean)} and
+     * {@link renderer.Camera.Builder#setUseGPU(boolean)}.
+     */
+    @Test
+    void testEngineShortcuts() {
+        ImageWriter writer = new TileSchedulerTests.RecordingWriter(75, 50);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: true selects the engine of the flag
+        assertEquals("virtual threads", builder(writer).setVirtualThreads(true).build().getRenderEngine().getName(),
+                "ERROR: the virtual threads are not selected");
+        assertEquals("aparapi", builder(writer).setUseGPU(true).build().getRenderEngine().getName(),
+                "ERROR: the Aparapi kernels are not selected");
+        // TC02: false keeps an engine the flag didn't select
+        assertEquals("thread pool", builder(writer).setMultiThreading(4).setUseGPU(false).setVirtualThreads(false)
+                .build().getRenderEngine().getName(), "ERROR: false must keep the thread pool");
+
+        // =============== Boundary Values Tests =================
+        // TC03: false turns the engine of the flag back to parallel streams
+        assertEquals("parallel streams", builder(writer).setVirtualThreads(true).setVirtualThreads(false).build()
+                .getRenderEngine().getName(), "ERROR: false must drop the virtual threads");
+        assertEquals("parallel streams", builder(writer).setUseGPU(true).setUseGPU(false).build()
+                .getRenderEngine().getName(), "ERROR: false must drop the Aparapi kernels");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#calibrate(RenderEngine...)}.
+     */
+    @Test
+    void testCalibrate() {
+        Camera camera = builder(new TileSchedulerTests.RecordingWriter(75, 50)).build();
+        RenderEngine serial = RenderEngine.serial(), pool = RenderEngine.threadPool(2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the fastest engine becomes the engine of the camera
+        List<RenderReport> reports = camera.calibrate(serial, pool);
+        assertEquals(2, reports.size(), "ERROR: a report per engine");
+        assertEquals("serial", reports.get(0).getEngine(), "ERROR: the reports are in the order of the engines");
+        RenderEngine fastest = reports.get(0).getRenderTime() <= reports.get(1).getRenderTime() ? serial : pool;
+        assertSame(fastest, camera.getRenderEngine(), "ERROR: the fastest engine must be picked");
+
+        // =============== Boundary Values Tests =================
+        // TC02: no engines
+        assertThrows(IllegalArgumentException.class, camera::calibrate, "ERROR: no engines to calibrate");
+    }
+}
@@ -0,0 +1,218 @@
+package renderer;
+
+import geometries.Plane;
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import lighting.SpotLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for renderer.RenderScope class
+ */
+class RenderScopeTests {
+    /**
+     * A task that sleeps until it is interrupted
+     */
+    private static final Runnable SLEEPER = () -> {
+        try {
+            Thread.sleep(60_000);
+        } catch (InterruptedException ignore) {
+            // interrupted by the shutdown of the scope
+        }
+    };
+
+    /**
+     * Test method for {@link renderer.RenderScope#join(long)}.
+     */
+    @Test
+    void testJoin() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: all the tasks run, each on a virtual thread
+        AtomicInteger virtual = new AtomicInteger();
+        try (RenderScope scope = new RenderScope()) {
+            for (int i = 0; i < 1000; i++)
+                scope.fork(() -> {
+                    if (Thread.currentThread().isVirtual()) virtual.incrementAndGet();
+                });
+            scope.join(Long.MAX_VALUE);
+        }
+        assertEquals(1000, virtual.get(), "ERROR: every task must run on a virtual thread");
+
+        // TC02: the first failure is thrown and the other tasks are stopped
+        long start = System.nanoTime();
+        try (RenderScope scope = new RenderScope()) {
+            scope.fork(SLEEPER);
+            scope.fork(() -> {
+                throw new IllegalStateException("tile failed");
+            });
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> scope.join(Long.MAX_VALUE),
+                    "ERROR: the failure of a task must be thrown");
+            assertEquals("tile failed", e.getMessage(), "ERROR: wrong failure");
+        }
+        assertTrue(System.nanoTime() - start < 10_000_000_000L, "ERROR: the failure must stop the other tasks");
+
+        // TC03: a cancellation from another thread stops the tasks
+        try (RenderScope scope = new RenderScope()) {
+            scope.fork(SLEEPER);
+            Thread.ofVirtual().start(() -> {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ignore) {
+                }
+                scope.cancel();
+            });
+            assertThrows(CancellationException.class, () -> scope.join(Long.MAX_VALUE),
+                    "ERROR: a cancelled scope must throw");
+        }
+
+        // =============== Boundary Values Tests =================
+        // TC04: the deadline passes
+        try (RenderScope scope = new RenderScope()) {
+            scope.fork(SLEEPER);
+            assertThrows(CancellationException.class, () -> scope.join(System.nanoTime() + 50_000_000L),
+                    "ERROR: a scope past its deadline must throw");
+            assertTrue(scope.isShutdown(), "ERROR: a scope past its deadline is shut down");
+        }
+        // TC05: a task forked after the shutdown doesn't run
+        AtomicInteger ran = new AtomicInteger();
+        try (RenderScope scope = new RenderScope()) {
+            scope.cancel();
+            scope.fork(ran::incrementAndGet);
+        }
+        assertEquals(0, ran.get(), "ERROR: a task of a shut down scope must not run");
+    }
+
+    /**
+     * Create a shading heavy scene - reflective and transparent spheres over a reflective floor, under several lights
+     *
+     * @return the scene
+     */
+    private static Scene shadingScene() {
+        Scene scene = new Scene("shading");
+        scene.setAmbientLight(new AmbientLight(new Color(30, 30, 30), 0.1));
+        for (int i = 0; i < 24; i++)
+            scene.geometries.add(new Sphere(new Point(-110 + i % 6 * 44, -30 + i / 6 * 30, -100 - i * 15), 18)
+                    .setEmission(new Color(20 + 8 * i, 40, 120 - 4 * i))
+                    .setMaterial(new Material().setKd(0.4).setKs(0.4).setShininess(60)
+                            .setKr(i % 2 == 0 ? 0.3 : 0).setKt(i % 3 == 0 ? 0.4 : 0)));
+        scene.geometries.add(new Plane(new Point(0, -60, 0), new Vector(0, 1, 0)).setEmission(new Color(10, 10, 30))
+                .setMaterial(new Material().setKd(0.5).setKs(0.3).setShininess(20).setKr(0.3)));
+        for (int i = 0; i < 6; i++)
+            scene.lights.add(new PointLight(new Color(150, 120 + 20 * i, 100), new Point(-150 + 60 * i, 120, 50))
+                    .setKl(1e-4));
+        scene.lights.add(new SpotLight(new Color(500, 300, 300), new Point(60, 50, 0), new Vector(0, -0.3, -1))
+                .setKl(4E-5).setKq(2E-7));
+        return scene;
+    }
+
+    /**
+     * Create a camera builder of a scene
+     *
+     * @param scene  the scene
+     * @param writer the image writer
+     * @return the builder
+     */
+    private static Camera.Builder builder(Scene scene, ImageWriter writer) {
+        return Camera.getBuilder().setLocation(new Point(0, 0, 1000)).setDirection(new Vector(0, 0, -1),
+                        new Vector(0, 1, 0)).setVpDistance(1000).setVpSize(300, 200).setImageWriter(writer)
+                .setRayTracer(new SimpleRayTracer(scene));
+    }
+
+    /**
+     * Test method for {@link renderer.Camera.Builder#setVirtualThreads(boolean)}.
+     */
+    @Test
+    void testVirtualThreads() {
+        Scene scene = shadingScene();
+        TileSchedulerTests.RecordingWriter expected = new TileSchedulerTests.RecordingWriter(60, 40);
+        builder(scene, expected).setMultiThreading(1).build().renderImage();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the virtual threads render the same image, each pixel once
+        TileSchedulerTests.RecordingWriter actual = new TileSchedulerTests.RecordingWriter(60, 40);
+        builder(scene, actual).setVirtualThreads(true).setTileSize(8, 8).build().renderImage();
+        assertArrayEquals(expected.pixels, actual.pixels, "ERROR: different image on virtual threads");
+        for (int pixel = 0; pixel < 60 * 40; pixel++)
+            assertEquals(1, actual.writes.get(pixel), "ERROR: a pixel must be written once");
+        // TC02: the failure of a tile is thrown by the render
+        RayTracerBase failing = new RayTracerBase(scene) {
+            @Override
+            public Color traceRay(Ray ray) {
+                throw new IllegalArgumentException("bad ray");
+            }
+
+            @Override
+            public Color traceMultipleRays(List<Ray> rays) {
+                throw new IllegalArgumentException("bad rays");
+            }
+        };
+        Camera broken = builder(scene, new TileSchedulerTests.RecordingWriter(60, 40)).setRayTracer(failing)
+                .setVirtualThreads(true).build();
+        assertThrows(IllegalArgumentException.class, broken::renderImage, "ERROR: the failure of a tile is lost");
+
+        // =============== Boundary Values Tests =================
+        // TC03: the render passes its time limit
+        Camera limited = builder(scene, new TileSchedulerTests.RecordingWriter(600, 400)).setVirtualThreads(true)
+                .setTimeLimit(Duration.ofMillis(1)).build();
+        assertThrows(CancellationException.class, limited::renderImage, "ERROR: the time limit must stop the render");
+        // TC04: the render is cancelled from another thread
+        Camera cancelled = builder(scene, new TileSchedulerTests.RecordingWriter(600, 400)).setVirtualThreads(true)
+                .setTimeLimit(null).build();
+        // a platform thread - the virtual threads of the render are not time sliced, they may hold all the carriers
+        Thread.ofPlatform().start(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ignore) {
+            }
+            cancelled.cancelRender();
+        });
+        assertThrows(CancellationException.class, cancelled::renderImage, "ERROR: the render must be cancelled");
+        // TC05: a non positive time limit
+        assertThrows(IllegalArgumentException.class, () -> Camera.getBuilder().setTimeLimit(Duration.ZERO),
+                "ERROR: the time limit must be positive");
+    }
+
+    /**
+     * Measure the time of the render of a camera, the best of a few renders
+     *
+     * @param camera the camera
+     * @return the time in milliseconds
+     */
+    private static double measure(Camera camera) {
+        camera.renderImage(); // warm-up
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            camera.renderImage();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+
+    /**
+     * Benchmark of the tiles of a shading heavy scene on virtual threads against a fixed pool of platform threads
+     */
+    @Test
+    void benchmarkVirtualThreads() {
+        Scene scene = shadingScene();
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int tile : new int[]{8, 16, 32}) {
+            double fixed = measure(builder(scene, new TileSchedulerTests.RecordingWriter(500, 400))
+                    .setMultiThreading(cores).setTileSize(tile, tile).build());
+            double virtual = measure(builder(scene, new TileSchedulerTests.RecordingWriter(500, 400))
+                    .setVirtualThreads(true).setTileSize(tile, tile).build());
+            System.out.printf("tiles %2dx%-2d  fixed pool of %d threads %8.1f ms, virtual threads %8.1f ms%n",
+                    tile, tile, cores, fixed, virtual);
+        }
+    }
+}
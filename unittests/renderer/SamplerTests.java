@@ -0,0 +1,92 @@
+package renderer;
+
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for renderer.Sampler class
+ */
+class SamplerTests {
+    /**
+     * Draw the first numbers of a stream
+     *
+     * @param random the stream
+     * @return the first 8 numbers
+     */
+    private static long[] draw(SplittableRandom random) {
+        long[] numbers = new long[8];
+        for (int i = 0; i < numbers.length; i++)
+            numbers[i] = random.nextLong();
+        return numbers;
+    }
+
+    /**
+     * Test method for {@link renderer.Sampler#pixel(int, long)}.
+     */
+    @Test
+    void testPixel() {
+        Sampler sampler = new Sampler(42);
+        long[] numbers = draw(sampler.pixel(3, 1000));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the same pixel of the same frame and seed gets the same stream
+        assertArrayEquals(numbers, draw(new Sampler(42).pixel(3, 1000)), "ERROR: the stream must be reproducible");
+        // TC02: another pixel, frame or seed gets another stream
+        assertFalse(Arrays.equals(numbers, draw(sampler.pixel(3, 1001))), "ERROR: the pixels share a stream");
+        assertFalse(Arrays.equals(numbers, draw(sampler.pixel(4, 1000))), "ERROR: the frames share a stream");
+        assertFalse(Arrays.equals(numbers, draw(new Sampler(43).pixel(3, 1000))), "ERROR: the seeds share a stream");
+
+        // =============== Boundary Values Tests =================
+        // TC03: the first pixel of the first frame of seed 0 is not degenerate
+        assertNotEquals(draw(new Sampler(0).pixel(0, 0))[0], draw(new Sampler(0).pixel(0, 1))[0],
+                "ERROR: the first pixels share a stream");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderImage()} with depth of field - the jittered aperture
+     * of the pixels doesn't depend on the threads
+     */
+    @Test
+    void testReproducibleDoF() {
+        Scene scene = new Scene("DoF samples");
+        scene.setAmbientLight(new AmbientLight(new Color(30, 30, 30), 0.1));
+        scene.geometries.add(
+                new Sphere(new Point(0, 0, -100), 50).setEmission(new Color(100, 50, 20))
+                        .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30)),
+                new Sphere(new Point(60, 30, -400), 40).setEmission(new Color(20, 80, 20))
+                        .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30)));
+        scene.lights.add(new PointLight(new Color(300, 300, 500), new Point(-80, 80, 50)).setKl(1e-4));
+        Camera.Builder builder = Camera.getBuilder().setLocation(new Point(0, 0, 1000))
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0)).setVpDistance(1000).setVpSize(150, 100)
+                .setRayTracer(new SimpleRayTracer(scene)).setAperture(20).setFocalLength(1100)
+                .setMultipleRaysNum(4).setTileSize(4, 4).setSeed(7);
+        TileSchedulerTests.RecordingWriter expected = new TileSchedulerTests.RecordingWriter(45, 30);
+        builder.setImageWriter(expected).setRenderEngine(RenderEngine.threadPool(1)).build().renderImage();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: 64 threads and the other engines render the same image as a single thread
+        for (RenderEngine engine : new RenderEngine[]{RenderEngine.threadPool(64), RenderEngine.serial(),
+                RenderEngine.parallelStreams(), RenderEngine.virtualThreads()}) {
+            TileSchedulerTests.RecordingWriter actual = new TileSchedulerTests.RecordingWriter(45, 30);
+            builder.setImageWriter(actual).setRenderEngine(engine).build().renderImage();
+            assertArrayEquals(expected.pixels, actual.pixels, "ERROR: different image of " + engine.getName());
+        }
+        // TC02: another frame of the seed is sampled differently
+        TileSchedulerTests.RecordingWriter next = new TileSchedulerTests.RecordingWriter(45, 30);
+        builder.setImageWriter(next).setFrame(1).build().renderImage();
+        assertFalse(Arrays.equals(expected.pixels, next.pixels), "ERROR: the frames must have different samples");
+
+        // =============== Boundary Values Tests =================
+        // TC03: negative frame
+        assertThrows(IllegalArgumentException.class, () -> builder.setFrame(-1), "ERROR: negative frame");
+    }
+}
@@ -0,0 +1,100 @@
+package renderer;
+
+import geometries.Sphere;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for renderer.SimpleRayTracer class - the background seen through the secondary rays
+ */
+class SimpleRayTracerTests {
+    /**
+     * The background of the scenes - not black, so the rays that miss are seen
+     */
+    private static final Color BACKGROUND = new Color(20, 40, 60);
+    /**
+     * The emission of the spheres
+     */
+    private static final Color EMISSION = new Color(100, 0, 0);
+    /**
+     * A ray from the origin along the negative z axis - at the center of the sphere of the scenes
+     */
+    private static final Ray CENTRAL = new Ray(Point.ZERO, new Vector(0, 0, -1));
+    /**
+     * A ray from the origin that misses the sphere of the scenes
+     */
+    private static final Ray MISSING = new Ray(Point.ZERO, new Vector(1, 0, 0));
+
+    /**
+     * Create a tracer of a scene of a single sphere on the negative z axis, with no lights
+     *
+     * @param material the material of the sphere
+     * @return the tracer
+     */
+    private static SimpleRayTracer tracer(Material material) {
+        Scene scene = new Scene("background").setBackground(BACKGROUND);
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50).setEmission(EMISSION).setMaterial(material));
+        return new SimpleRayTracer(scene);
+    }
+
+    /**
+     * Check the channels of a color (up to the truncation of the channels to integers)
+     *
+     * @param red     the expected red channel
+     * @param green   the expected green channel
+     * @param blue    the expected blue channel
+     * @param actual  the color
+     * @param message the message of a failure
+     */
+    private static void assertColor(double red, double green, double blue, Color actual, String message) {
+        java.awt.Color color = actual.getColor();
+        assertEquals(red, color.getRed(), 1, message);
+        assertEquals(green, color.getGreen(), 1, message);
+        assertEquals(blue, color.getBlue(), 1, message);
+    }
+
+    /**
+     * Test method for {@link renderer.SimpleRayTracer#traceRay(Ray)}.
+     */
+    @Test
+    void testTraceRay() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the reflected ray misses - the background is added without the reflection factor of its level
+        assertColor(120, 40, 60, tracer(new Material().setKr(0.5)).traceRay(CENTRAL),
+                "ERROR: wrong background of a reflected ray");
+        // TC02: the refracted ray crosses the sphere and misses - the background is attenuated by the
+        // transparency of the level above only: emission + 0.5 * (emission + background)
+        assertColor(160, 20, 30, tracer(new Material().setKt(0.5)).traceRay(CENTRAL),
+                "ERROR: wrong background of a refracted ray");
+
+        // =============== Boundary Values Tests =================
+        // TC03: the primary ray misses
+        assertColor(20, 40, 60, tracer(new Material().setKr(0.5)).traceRay(MISSING),
+                "ERROR: wrong background of a primary ray");
+    }
+
+    /**
+     * Test method for {@link renderer.SimpleRayTracer#traceMultipleRays(List)}.
+     */
+    @Test
+    void testTraceMultipleRays() {
+        SimpleRayTracer tracer = tracer(new Material().setKr(0.5));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the background is an extra sample of the average - two missing rays give 3/2 of it
+        assertColor(30, 60, 90, tracer.traceMultipleRays(List.of(MISSING, MISSING)),
+                "ERROR: wrong average of missing rays");
+        // TC02: a hit and a missing ray: (background + hit + background) / 2
+        assertColor(80, 60, 90, tracer.traceMultipleRays(List.of(CENTRAL, MISSING)),
+                "ERROR: wrong average of rays");
+
+        // =============== Boundary Values Tests =================
+        // TC03: no rays
+        assertColor(20, 40, 60, tracer.traceMultipleRays(List.of()), "ERROR: wrong color of no rays");
+    }
+}
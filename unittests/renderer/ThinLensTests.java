@@ -0,0 +1,79 @@
+package renderer;
+
+import geometries.Plane;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for renderer.ThinLens class
+ */
+class ThinLensTests {
+    /**
+     * The center of the lens
+     */
+    private final Point p0 = new Point(1, 2, 3);
+    /**
+     * The directions of the camera - a camera turned off the axes
+     */
+    private final Vector vTo = new Vector(1, 1, 0).normalize(), vUp = new Vector(0, 0, 1),
+            vRight = vTo.crossProduct(vUp).normalize();
+    /**
+     * The distances of the view plane and the focal plane
+     */
+    private final double distance = 100, focalLength = 250;
+    /**
+     * The aperture pattern
+     */
+    private final AperturePattern pattern = new AperturePattern(3, 6, new SplittableRandom(9));
+    /**
+     * The lens of the tests
+     */
+    private final ThinLens lens = new ThinLens(p0, vTo, vUp, vRight, distance, focalLength, pattern);
+
+    /**
+     * Test method for {@link renderer.ThinLens#generate(double, double, double, double, double[], double[])}.
+     */
+    @Test
+    void testGenerate() {
+        Plane focalPlane = new Plane(p0.add(vTo.scale(focalLength)), vTo);
+        double[] origins = new double[3 * lens.size()], directions = new double[3 * lens.size()];
+        double xJ = -4, yI = 9, angle = 2.3, cos = Math.cos(angle), sin = Math.sin(angle);
+        lens.generate(xJ, yI, cos, sin, origins, directions);
+        Point pixel = p0.add(vTo.scale(distance)).add(vRight.scale(xJ)).add(vUp.scale(yI));
+        Point focalPoint = focalPlane.findIntersections(new Ray(p0, pixel.subtract(p0))).getFirst();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: every ray starts at its point of the pattern rotated on the lens, and reaches the focal point of the
+        // pixel - where the ray from the center of the lens through the pixel crosses the focal plane
+        for (int i = 0, k = 0; i < lens.size(); i++, k += 3) {
+            double u = pattern.getU(i), v = pattern.getV(i);
+            // the first point is the center of the lens, with no offsets
+            Point expected = i == 0 ? p0 : p0.add(vRight.scale(u * cos - v * sin)).add(vUp.scale(u * sin + v * cos));
+            Point origin = new Point(origins[k], origins[k + 1], origins[k + 2]);
+            assertEquals(0, expected.distance(origin), 1e-10, "ERROR: wrong point on the lens");
+            assertEquals(Math.hypot(u, v), origin.distance(p0), 1e-10,
+                    "ERROR: the rotation must keep the distance from the center");
+            assertEquals(0, origin.add(new Vector(directions[k], directions[k + 1], directions[k + 2]))
+                    .distance(focalPoint), 1e-9, "ERROR: the ray must reach the focal point");
+        }
+
+        // =============== Boundary Values Tests =================
+        // TC02: the first ray is the ray from the center of the lens through the pixel
+        assertEquals(p0, new Point(origins[0], origins[1], origins[2]), "ERROR: the first ray must start at the center");
+        assertEquals(pixel.subtract(p0).normalize(), new Vector(directions[0], directions[1], directions[2]).normalize(),
+                "ERROR: the first ray must pass through the pixel");
+        // TC03: the rays of the view plane center meet on the forward direction, and with no rotation the offsets
+        // of the pattern are along the right and the up directions
+        lens.generate(0, 0, 1, 0, origins, directions);
+        assertEquals(p0.add(vTo.scale(focalLength)), new Point(origins[0] + directions[0], origins[1] + directions[1],
+                origins[2] + directions[2]), "ERROR: wrong focal point of the center");
+        assertEquals(0, p0.add(vRight.scale(pattern.getU(1))).add(vUp.scale(pattern.getV(1)))
+                .distance(new Point(origins[3], origins[4], origins[5])), 1e-10, "ERROR: wrong unrotated point");
+    }
+}
@@ -0,0 +1,296 @@
+package renderer;
+
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for renderer.TileScheduler class
+ */
+class TileSchedulerTests {
+    /**
+     * Image writer that records the written pixels instead of keeping an image
+     */
+    static class RecordingWriter extends ImageWriter {
+        /**
+         * The colors of the pixels, row by row
+         */
+        final int[] pixels;
+        /**
+         * The amount of writes of each pixel
+         */
+        final AtomicIntegerArray writes;
+
+        /**
+         * Constructor for a recording writer
+         *
+         * @param nX the horizontal resolution
+         * @param nY the vertical resolution
+         */
+        RecordingWriter(int nX, int nY) {
+            super("recording", nX, nY);
+            pixels = new int[nX * nY];
+            writes = new AtomicIntegerArray(nX * nY);
+        }
+
+        @Override
+        public void writePixel(int xIndex, int yIndex, Color color) {
+            pixels[yIndex * getNx() + xIndex] = color.getColor().getRGB();
+            writes.incrementAndGet(yIndex * getNx() + xIndex);
+        }
+    }
+
+    /**
+     * Take all the tiles of a scheduler with a thread per worker
+     *
+     * @param scheduler the scheduler
+     * @param tiles     the amount of tiles
+     * @return the amount of times each tile was taken
+     */
+    private static int[] drain(TileScheduler scheduler, int tiles) {
+        AtomicIntegerArray taken = new AtomicIntegerArray(tiles);
+        Thread[] threads = new Thread[scheduler.getWorkers()];
+        for (int worker = 0; worker < threads.length; worker++) {
+            final int id = worker;
+            threads[worker] = new Thread(() -> {
+                for (int tile; (tile = scheduler.next(id)) >= 0; )
+                    taken.incrementAndGet(tile);
+            });
+            threads[worker].start();
+        }
+        try {
+            for (Thread thread : threads)
+                thread.join();
+        } catch (InterruptedException e) {
+            fail("ERROR: interrupted");
+        }
+        int[] counts = new int[tiles];
+        for (int tile = 0; tile < tiles; tile++)
+            counts[tile] = taken.get(tile);
+        return counts;
+    }
+
+    /**
+     * Test method for {@link renderer.TileScheduler#next(int)}.
+     */
+    @Test
+    void testNext() {
+        int[] once = new int[37 * 23];
+        Arrays.fill(once, 1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a single worker takes the tiles in their order
+        TileScheduler single = new TileScheduler(3, 2, TileScheduler.Order.SCANLINE, 1);
+        for (int tile = 0; tile < 6; tile++)
+            assertEquals(tile, single.next(0), "ERROR: wrong order of the tiles");
+        assertEquals(-1, single.next(0), "ERROR: there are no more tiles");
+        // TC02: concurrent workers take every tile once, in every order
+        for (TileScheduler.Order order : TileScheduler.Order.values())
+            assertArrayEquals(once, drain(new TileScheduler(37, 23, order, 8), once.length),
+                    "ERROR: every tile must be taken once in " + order);
+        // TC03: a worker whose range ran out steals the tiles of another worker
+        TileScheduler stealing = new TileScheduler(10, 1, TileScheduler.Order.SCANLINE, 2);
+        for (int tile = 0; tile < 5; tile++)
+            assertEquals(tile, stealing.next(0), "ERROR: wrong own tile");
+        assertEquals(7, stealing.next(0), "ERROR: the back half of the other range must be stolen");
+        assertEquals(8, stealing.next(0), "ERROR: the stolen half must become the own range");
+        assertEquals(5, stealing.next(1), "ERROR: the victim keeps the front of its range");
+
+        // =============== Boundary Values Tests =================
+        // TC04: more workers than tiles
+        assertArrayEquals(new int[]{1, 1, 1}, drain(new TileScheduler(3, 1, TileScheduler.Order.MORTON, 16), 3),
+                "ERROR: every tile must be taken once with more workers than tiles");
+        // TC05: no workers
+        assertThrows(IllegalArgumentException.class,
+                () -> new TileScheduler(3, 1, TileScheduler.Order.SCANLINE, 0), "ERROR: no workers");
+    }
+
+    /**
+     * Test method for {@link renderer.TileScheduler#layout(int, int, TileScheduler.Order)}.
+     */
+    @Test
+    void testLayout() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the Morton order visits each 2x2 block of tiles before the next one
+        assertArrayEquals(new int[]{0, 1, 4, 5, 2, 3, 6, 7, 8, 9, 12, 13, 10, 11, 14, 15},
+                TileScheduler.layout(4, 4, TileScheduler.Order.MORTON), "ERROR: wrong Morton order");
+        // TC02: the center out order starts at the center
+        assertEquals(12, TileScheduler.layout(5, 5, TileScheduler.Order.CENTER_OUT)[0],
+                "ERROR: the center tile must be first");
+
+        // =============== Boundary Values Tests =================
+        // TC03: a single row in Morton order is a scanline
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, TileScheduler.layout(5, 1, TileScheduler.Order.MORTON),
+                "ERROR: a row of tiles must keep its order");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderImage()} with the tile scheduler.
+     */
+    @Test
+    void testRenderTiles() {
+        Scene scene = new Scene("tiles");
+        scene.setAmbientLight(new AmbientLight(new Color(30, 30, 30), 0.1));
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50).setEmission(new Color(100, 50, 20))
+                .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30)));
+        scene.lights.add(new PointLight(new Color(300, 300, 500), new Point(-80, 80, 50)).setKl(1e-4));
+        Camera.Builder builder = Camera.getBuilder().setLocation(new Point(0, 0, 1000))
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0)).setVpDistance(1000).setVpSize(150, 100)
+                .setRayTracer(new SimpleRayTracer(scene));
+        RecordingWriter expected = new RecordingWriter(75, 50);
+        builder.setImageWriter(expected).setMultiThreading(1).setTileSize(75, 50).build().renderImage();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: tiles in every order on several threads render the same image, each pixel once
+        for (TileScheduler.Order order : TileScheduler.Order.values()) {
+            RecordingWriter actual = new RecordingWriter(75, 50);
+            builder.setImageWriter(actual).setMultiThreading(3).setTileSize(8, 6).setTileOrder(order).build()
+                    .renderImage();
+            assertArrayEquals(expected.pixels, actual.pixels, "ERROR: different image in " + order);
+            for (int pixel = 0; pixel < 75 * 50; pixel++)
+                assertEquals(1, actual.writes.get(pixel), "ERROR: a pixel must be written once in " + order);
+        }
+
+        // =============== Boundary Values Tests =================
+        // TC02: a camera renders again with its threads
+        RecordingWriter again = new RecordingWriter(75, 50);
+        Camera camera = builder.setImageWriter(again).setTileSize(16, 16).build();
+        camera.renderImage();
+        Arrays.fill(again.pixels, 0);
+        camera.renderImage();
+        assertArrayEquals(expected.pixels, again.pixels, "ERROR: the second render must render the image again");
+        // TC03: empty tiles
+        assertThrows(IllegalArgumentException.class, () -> builder.setTileSize(0, 4), "ERROR: empty tiles");
+    }
+
+    /**
+     * The pixel hand-out of the former pixel manager - a lock and a pixel record per pixel - for comparison
+     */
+    private static class LockedPixels {
+        /**
+         * The allocated pixel
+         *
+         * @param col the column of the pixel
+         * @param row the row of the pixel
+         */
+        record Pixel(int col, int row) {
+        }
+
+        /**
+         * The amount of pixel columns
+         */
+        private final int maxCols;
+        /**
+         * The amount of pixel rows
+         */
+        private final int maxRows;
+        /**
+         * The current row
+         */
+        private int cRow = 0;
+        /**
+         * The current column
+         */
+        private int cCol = -1;
+
+        /**
+         * Constructor for the pixels of an image
+         *
+         * @param maxRows the amount of pixel rows
+         * @param maxCols the amount of pixel columns
+         */
+        LockedPixels(int maxRows, int maxCols) {
+            this.maxRows = maxRows;
+            this.maxCols = maxCols;
+        }
+
+        /**
+         * Allocate the next pixel
+         *
+         * @return the pixel, null if there are no more pixels
+         */
+        synchronized Pixel nextPixel() {
+            if (cRow == maxRows) return null;
+            if (++cCol < maxCols) return new Pixel(cCol, cRow);
+            cCol = 0;
+            return ++cRow < maxRows ? new Pixel(cCol, cRow) : null;
+        }
+    }
+
+    /**
+     * Run workers together until they are done
+     *
+     * @param workers the amount of workers
+     * @param work    the work of a worker by its index
+     * @return the time in nanoseconds from the start of the workers until the last one is done
+     */
+    private static long race(int workers, IntConsumer work) {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[workers];
+        for (int worker = 0; worker < workers; worker++) {
+            final int id = worker;
+            threads[worker] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ignore) {
+                    return;
+                }
+                work.accept(id);
+            });
+            threads[worker].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        try {
+            for (Thread thread : threads)
+                thread.join();
+        } catch (InterruptedException e) {
+            fail("ERROR: interrupted");
+        }
+        return System.nanoTime() - begin;
+    }
+
+    /**
+     * Benchmark of the contention of the hand-out of the pixels of a full HD image (without rendering them)
+     * across 1 to 64 threads - a lock per pixel as the former pixel manager, against the scheduler with
+     * a tile per pixel and with tiles of 16x16 pixels
+     */
+    @Test
+    void benchmarkContention() {
+        final int width = 1920, height = 1080, rounds = 5;
+        System.out.printf("%7s %16s %16s %16s%n", "threads", "locked pixel", "atomic pixel", "atomic 16x16");
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            final int workers = threads;
+            long locked = Long.MAX_VALUE, pixels = Long.MAX_VALUE, tiles = Long.MAX_VALUE;
+            for (int round = 0; round < rounds; round++) {
+                LockedPixels manager = new LockedPixels(height, width);
+                locked = Math.min(locked, race(workers, id -> {
+                    while (manager.nextPixel() != null) {
+                    }
+                }));
+                TileScheduler perPixel = new TileScheduler(width, height, TileScheduler.Order.SCANLINE, workers);
+                pixels = Math.min(pixels, race(workers, id -> {
+                    while (perPixel.next(id) >= 0) {
+                    }
+                }));
+                TileScheduler perTile = new TileScheduler((width + 15) / 16, (height + 15) / 16,
+                        TileScheduler.Order.SCANLINE, workers);
+                tiles = Math.min(tiles, race(workers, id -> {
+                    while (perTile.next(id) >= 0) {
+                    }
+                }));
+            }
+            System.out.printf("%7d %13.1f ms %13.1f ms %13.2f ms%n", threads, locked / 1e6, pixels / 1e6, tiles / 1e6);
+        }
+    }
+}